@@ -70,4 +70,19 @@ public class StubLoadTimeLoggerController implements ILoadTimeLoggerController {
   public void conversationPageVisible() {
     ;
   }
+
+  @Override
+  public void messageSendStart(String conversationId) {
+    ;
+  }
+
+  @Override
+  public void messageEchoed(String conversationId) {
+    ;
+  }
+
+  @Override
+  public void messageSendFailed(String conversationId) {
+    ;
+  }
 }
@@ -18,6 +18,7 @@
 package com.waz.zclient.core.stores.stub;
 
 import com.waz.api.IConversation;
+import com.waz.zclient.core.stores.draft.DraftStoreObserver;
 import com.waz.zclient.core.stores.draft.IDraftStore;
 import java.lang.Override;
 import java.lang.String;
@@ -37,4 +38,14 @@ public class StubDraftStore implements IDraftStore {
   public void setDraft(IConversation conversation, String text) {
     ;
   }
+
+  @Override
+  public void addDraftStoreObserver(DraftStoreObserver observer) {
+    ;
+  }
+
+  @Override
+  public void removeDraftStoreObserver(DraftStoreObserver observer) {
+    ;
+  }
 }
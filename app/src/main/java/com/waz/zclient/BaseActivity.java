@@ -29,6 +29,7 @@ import com.waz.zclient.core.stores.IStoreFactory;
 import com.waz.zclient.utils.PermissionUtils;
 import com.waz.zclient.utils.TrackingUtils;
 import com.waz.zclient.utils.ViewUtils;
+import com.waz.zclient.utils.startup.StartupPipeline;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -43,6 +44,7 @@ public class BaseActivity extends BaseScalaActivity implements ServiceContainer,
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setTheme(getBaseTheme());
+        StartupPipeline.get().watchFirstFrame(getWindow().getDecorView());
     }
 
     @StyleRes
@@ -25,6 +25,7 @@ import com.waz.api.Self;
 import com.waz.zclient.utils.BackendPicker;
 import com.waz.zclient.utils.Callback;
 import com.waz.zclient.utils.IntentUtils;
+import com.waz.zclient.utils.startup.StartupPipeline;
 
 public class LaunchActivity extends BaseActivity implements InitListener {
     public static final String TAG = LaunchActivity.class.getName();
@@ -44,7 +45,16 @@ public class LaunchActivity extends BaseActivity implements InitListener {
     @Override
     public void onBaseActivityStart() {
         persistInviteToken();
-        getControllerFactory().getTrackingController().appLaunched(getIntent());
+        final Intent launchIntent = getIntent();
+        StartupPipeline.get().runWhenIdle("trackAppLaunch", new Runnable() {
+            @Override
+            public void run() {
+                if (getControllerFactory() == null || getControllerFactory().isTornDown()) {
+                    return;
+                }
+                getControllerFactory().getTrackingController().appLaunched(launchIntent);
+            }
+        });
 
         new BackendPicker(getApplicationContext()).withBackend(this, new Callback<Void>() {
             @Override
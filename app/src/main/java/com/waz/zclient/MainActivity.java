@@ -22,11 +22,9 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.res.Configuration;
 import android.graphics.Color;
-import android.graphics.Paint;
 import android.graphics.PixelFormat;
 import android.graphics.drawable.ColorDrawable;
 import android.net.Uri;
-import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.support.annotation.NonNull;
@@ -86,20 +84,20 @@ import com.waz.zclient.pages.main.grid.GridFragment;
 import com.waz.zclient.pages.main.profile.ZetaPreferencesActivity;
 import com.waz.zclient.pages.startup.UpdateFragment;
 import com.waz.zclient.utils.BuildConfigUtils;
+import com.waz.zclient.utils.EmojiGlyphProber;
 import com.waz.zclient.utils.Emojis;
 import com.waz.zclient.utils.HockeyCrashReporting;
 import com.waz.zclient.utils.IntentUtils;
 import com.waz.zclient.utils.LayoutSpec;
 import com.waz.zclient.utils.PhoneUtils;
 import com.waz.zclient.utils.PhoneUtils.PhoneState;
-import com.waz.zclient.utils.StringUtils;
 import com.waz.zclient.utils.ViewUtils;
+import com.waz.zclient.utils.startup.StartupPipeline;
 import net.hockeyapp.android.NativeCrashManager;
 import timber.log.Timber;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 
@@ -124,6 +122,9 @@ public class MainActivity extends BaseActivity implements MainPhoneFragment.Cont
     public static final int REQUEST_CODE_GOOGLE_PLAY_SERVICES_DIALOG = 56571;
     private static final int LAUNCH_CONVERSATION_CHANGE_DELAY = 123;
 
+    // Only one probe runs at a time, even if the activity is started again meanwhile
+    private static volatile boolean isCheckingForUnsupportedEmojis;
+
     ///////////////////////////////////////////////////////////////////////////////////////////////////////////
     //
     //  Lifecycle
@@ -224,10 +225,16 @@ public class MainActivity extends BaseActivity implements MainPhoneFragment.Cont
         //This is needed to drag the user back to the calling activity if they open the app again during a call
         CallingActivity.startIfCallIsActive(this);
 
-        if (!getControllerFactory().getUserPreferencesController().hasCheckedForUnsupportedEmojis(Emojis.VERSION)) {
-            Threading.Background().execute(new Runnable() {
+        if (!isCheckingForUnsupportedEmojis &&
+            !getControllerFactory().getUserPreferencesController().hasCheckedForUnsupportedEmojis(Emojis.VERSION)) {
+            isCheckingForUnsupportedEmojis = true;
+            StartupPipeline.get().runWhenIdle("emojiProbe", new Runnable() {
                 @Override
                 public void run() {
+                    if (getControllerFactory() == null || getControllerFactory().isTornDown()) {
+                        isCheckingForUnsupportedEmojis = false;
+                        return;
+                    }
                     checkForUnsupportedEmojis();
                 }
             });
@@ -951,29 +958,29 @@ public class MainActivity extends BaseActivity implements MainPhoneFragment.Cont
     }
 
     private void checkForUnsupportedEmojis() {
-        if (getControllerFactory() == null ||
-            getControllerFactory().isTornDown()) {
-            return;
-        }
-        IUserPreferencesController userPreferencesController = getControllerFactory().getUserPreferencesController();
-        Collection<String> unsupported = new ArrayList<>();
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            Paint paint = new Paint();
+        isCheckingForUnsupportedEmojis = true;
+        boolean probing = false;
+        try {
+            final IUserPreferencesController userPreferencesController = getControllerFactory().getUserPreferencesController();
+            List<String> emojis = new ArrayList<>();
             for (String[] array : Emojis.getAllEmojisSortedByCategory()) {
-                for (String emoji : array) {
-                    if (!paint.hasGlyph(emoji)) {
-                        unsupported.add(emoji);
+                emojis.addAll(Arrays.asList(array));
+            }
+            EmojiGlyphProber.probe(emojis, Threading.Background(), new EmojiGlyphProber.Callback() {
+                @Override
+                public void onProbed(List<String> missing) {
+                    try {
+                        userPreferencesController.setUnsupportedEmoji(missing, Emojis.VERSION);
+                    } finally {
+                        isCheckingForUnsupportedEmojis = false;
                     }
                 }
+            });
+            probing = true;
+        } finally {
+            if (!probing) {
+                isCheckingForUnsupportedEmojis = false;
             }
-        } else {
-            for (String[] array : Emojis.getAllEmojisSortedByCategory()) {
-                unsupported.addAll(Arrays.asList(array));
-            }
-            unsupported = StringUtils.getMissingInFont(unsupported);
-        }
-        if (!unsupported.isEmpty()) {
-            userPreferencesController.setUnsupportedEmoji(unsupported, Emojis.VERSION);
         }
     }
 }
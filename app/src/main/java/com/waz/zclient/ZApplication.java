@@ -28,6 +28,7 @@ import com.waz.api.LogLevel;
 import com.waz.api.NotificationsHandler;
 import com.waz.api.TrackingEventsHandler;
 import com.waz.api.impl.AccentColors;
+import com.waz.zclient.broadcast.TimeFormatChangedReceiver;
 import com.waz.zclient.controllers.IControllerFactory;
 import com.waz.zclient.controllers.notifications.AppTrackingEventsHandler;
 import com.waz.zclient.controllers.notifications.CallingTrackingEventsHandler;
@@ -36,6 +37,8 @@ import com.waz.zclient.ui.text.TypefaceFactory;
 import com.waz.zclient.ui.text.TypefaceLoader;
 import com.waz.zclient.utils.BuildConfigUtils;
 import com.waz.zclient.utils.WireLoggerTree;
+import com.waz.zclient.utils.startup.StartupPipeline;
+import com.waz.zclient.utils.startup.StartupTrace;
 import timber.log.Timber;
 
 import java.io.File;
@@ -109,7 +112,9 @@ public class ZApplication extends WireApplication implements NotificationsHandle
     @Override
     public void onCreate() {
         super.onCreate();
+        StartupTrace trace = StartupPipeline.get().getTrace();
 
+        StartupTrace.Span span = trace.begin("logging", StartupTrace.Phase.CRITICAL);
         if (com.waz.zclient.BuildConfig.DEBUG) {
             Timber.plant(new Timber.DebugTree());
             LogLevel.setMinimumLogLevel(LogLevel.VERBOSE);
@@ -117,18 +122,31 @@ public class ZApplication extends WireApplication implements NotificationsHandle
             Timber.plant(new WireLoggerTree());
             LogLevel.setMinimumLogLevel(BuildConfigUtils.getLogLevelSE(this));
         }
+        Thread.setDefaultUncaughtExceptionHandler(new WireUncaughtExceptionHandler(getControllerFactory(),
+                                                                                   Thread.getDefaultUncaughtExceptionHandler()));
+        span.end();
 
+        span = trace.begin("threeTen", StartupTrace.Phase.CRITICAL);
         AndroidThreeTen.init(this);
-        TypefaceFactory.getInstance().init(typefaceloader);
+        TimeFormatChangedReceiver.register(this);
+        span.end();
 
-        Thread.setDefaultUncaughtExceptionHandler(new WireUncaughtExceptionHandler(getControllerFactory(),
-                                                                                   Thread.getDefaultUncaughtExceptionHandler()));
+        span = trace.begin("resources", StartupTrace.Phase.CRITICAL);
+        TypefaceFactory.getInstance().init(typefaceloader);
         // refresh
         AccentColors.setColors(AccentColors.loadArray(getApplicationContext(), R.array.original_accents_color));
+        span.end();
 
-        // Register LocalyticsActivityLifecycleCallbacks
+        // Register LocalyticsActivityLifecycleCallbacks, they have to be in place before the first activity starts
         registerActivityLifecycleCallbacks(new LocalyticsActivityLifecycleCallbacks(this));
-        Localytics.setPushDisabled(false);
+        StartupPipeline.get().runWhenIdle("localyticsPush", new Runnable() {
+            @Override
+            public void run() {
+                Localytics.setPushDisabled(false);
+            }
+        });
+
+        trace.mark("applicationCreated", StartupTrace.Phase.CRITICAL);
     }
 
     @Override
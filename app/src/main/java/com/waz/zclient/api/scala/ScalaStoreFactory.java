@@ -18,6 +18,7 @@
 package com.waz.zclient.api.scala;
 
 import android.content.Context;
+import com.waz.threading.Threading;
 import com.waz.zclient.core.api.scala.AppEntryStore;
 import com.waz.zclient.core.api.scala.ScalaConnectStore;
 import com.waz.zclient.core.api.scala.ScalaConversationStore;
@@ -43,6 +44,8 @@ import com.waz.zclient.core.stores.pickuser.IPickUserStore;
 import com.waz.zclient.core.stores.profile.IProfileStore;
 import com.waz.zclient.core.stores.singleparticipants.ISingleParticipantStore;
 
+import java.io.File;
+
 public class ScalaStoreFactory extends StoreFactory {
 
     private Context context;
@@ -108,7 +111,7 @@ public class ScalaStoreFactory extends StoreFactory {
 
     @Override
     protected IDraftStore createDraftStore() {
-        return new ScalaDraftStore();
+        return new ScalaDraftStore(new File(context.getFilesDir(), ScalaDraftStore.FILE_NAME), Threading.Background());
     }
 
     @Override
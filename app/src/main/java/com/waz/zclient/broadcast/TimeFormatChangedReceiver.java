@@ -0,0 +1,49 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.broadcast;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import com.waz.zclient.utils.ZTimeFormatter;
+import timber.log.Timber;
+
+/**
+ * Drops the cached formatters of {@link ZTimeFormatter} when the locale, time zone or time format changes.
+ * The 12/24h setting is broadcast as a time change.
+ *
+ * Registered at runtime by the application, the cache only lives as long as the process, so there is no reason to
+ * start the process for these broadcasts.
+ */
+public class TimeFormatChangedReceiver extends BroadcastReceiver {
+
+    public static void register(Context context) {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        context.getApplicationContext().registerReceiver(new TimeFormatChangedReceiver(), filter);
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Timber.i("Invalidating time formatters: %s", intent.getAction());
+        ZTimeFormatter.invalidateCache();
+    }
+}
@@ -38,4 +38,16 @@ public interface ILoadTimeLoggerController {
     void conversationContentSyncStart();
 
     void conversationContentSyncFinish();
+
+    void messageSendStart(String conversationId);
+
+    /**
+     * A message sent to the conversation was acknowledged by the backend.
+     */
+    void messageEchoed(String conversationId);
+
+    /**
+     * A message sent to the conversation could not be delivered, it won't be echoed.
+     */
+    void messageSendFailed(String conversationId);
 }
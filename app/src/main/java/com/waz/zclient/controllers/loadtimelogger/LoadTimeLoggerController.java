@@ -17,20 +17,32 @@
  */
 package com.waz.zclient.controllers.loadtimelogger;
 
-import com.waz.zclient.ui.utils.MathUtils;
+import com.waz.zclient.utils.metrics.LatencyMetrics;
 import timber.log.Timber;
 
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds the load time events into {@link LatencyMetrics} and logs every finished measurement.
+ */
 public class LoadTimeLoggerController implements ILoadTimeLoggerController {
 
-    private static final long UNINITIALIZED = -1;
-    private long appStartTime;
-    private long conversationClickStartTime;
-    private long conversationContentSyncStartTime;
+    /**
+     * A message without an echo after this long failed without us noticing, or its row wasn't shown
+     */
+    static final long MESSAGE_SEND_ECHO_TIMEOUT_SECONDS = 60;
+
+    private final LatencyMetrics metrics;
+    private final boolean logMeasurements;
 
     public LoadTimeLoggerController() {
-        appStartTime = UNINITIALIZED;
-        conversationClickStartTime = UNINITIALIZED;
-        conversationContentSyncStartTime = UNINITIALIZED;
+        this(LatencyMetrics.get(), true);
+    }
+
+    LoadTimeLoggerController(LatencyMetrics metrics, boolean logMeasurements) {
+        this.metrics = metrics;
+        this.logMeasurements = logMeasurements;
+        metrics.setTimeout(LatencyMetrics.MESSAGE_SEND_ECHO, MESSAGE_SEND_ECHO_TIMEOUT_SECONDS, TimeUnit.SECONDS);
     }
 
     @Override
@@ -39,101 +51,83 @@ public class LoadTimeLoggerController implements ILoadTimeLoggerController {
 
     @Override
     public void appStart() {
-        appStartTime = System.nanoTime();
-        Timber.w("App starting at %d", appStartTime);
+        metrics.start(LatencyMetrics.APP_LAUNCH, LatencyMetrics.DEFAULT_KEY);
     }
 
     @Override
     public void hideLaunchScreen() {
-        if (MathUtils.floatEqual(appStartTime, UNINITIALIZED)) {
-            return;
-        }
-        long loadTime = System.nanoTime() - appStartTime;
-        Timber.w("App launch time %dns", loadTime);
-        appStartTime = UNINITIALIZED;
+        stop(LatencyMetrics.APP_LAUNCH, LatencyMetrics.DEFAULT_KEY);
     }
 
     @Override
     public void loginPressed() {
-        Timber.w("Login pressed at %dns", System.nanoTime());
+        metrics.start(LatencyMetrics.LOGIN, LatencyMetrics.DEFAULT_KEY);
     }
 
     @Override
     public void loginSuccess() {
-        Timber.w("Login completed at %dns", System.nanoTime());
+        stop(LatencyMetrics.LOGIN, LatencyMetrics.DEFAULT_KEY);
     }
 
     @Override
     public void loginFail() {
-        Timber.w("Login failed at %dns", System.nanoTime());
+        metrics.cancel(LatencyMetrics.LOGIN, LatencyMetrics.DEFAULT_KEY);
+        if (logMeasurements) {
+            Timber.w("Login failed");
+        }
     }
 
     @Override
     public void clickConversationInList() {
-        conversationClickStartTime = System.nanoTime();
-        Timber.w("Conversation clicked at %d", conversationClickStartTime);
+        metrics.start(LatencyMetrics.CONVERSATION_OPEN, LatencyMetrics.DEFAULT_KEY);
     }
 
     @Override
     public void conversationPageVisible() {
-        if (MathUtils.floatEqual(conversationClickStartTime, UNINITIALIZED)) {
-            return;
-        }
-        long loadTime = System.nanoTime() - conversationClickStartTime;
-        Timber.w("Conversation page visible after %dns", loadTime);
-        conversationClickStartTime = UNINITIALIZED;
+        stop(LatencyMetrics.CONVERSATION_OPEN, LatencyMetrics.DEFAULT_KEY);
     }
 
     @Override
     public void conversationContentSyncStart() {
-        // Only setting once since this can be called multiple times
-        if (!MathUtils.floatEqual(conversationContentSyncStartTime, UNINITIALIZED)) {
-            return;
-        }
-        conversationContentSyncStartTime = System.nanoTime();
-        Timber.w("Conversation content start sync at %d", conversationContentSyncStartTime);
+        // Only starting once since this can be called multiple times
+        metrics.startIfIdle(LatencyMetrics.CONVERSATION_SYNC, LatencyMetrics.DEFAULT_KEY);
     }
 
     @Override
     public void conversationContentSyncFinish() {
-        if (MathUtils.floatEqual(conversationContentSyncStartTime, UNINITIALIZED)) {
-            return;
-        }
-        long loadTime = System.nanoTime() - conversationContentSyncStartTime;
-        Timber.w("Conversation content sync complete after %dns", loadTime);
-        conversationContentSyncStartTime = UNINITIALIZED;
+        stop(LatencyMetrics.CONVERSATION_SYNC, LatencyMetrics.DEFAULT_KEY);
     }
 
-    public static class DisabledLoadTimeLoggerController implements ILoadTimeLoggerController {
-        @Override
-        public void tearDown() {}
-
-        @Override
-        public void appStart() {}
-
-        @Override
-        public void hideLaunchScreen() {}
-
-        @Override
-        public void loginPressed() {}
-
-        @Override
-        public void loginSuccess() {}
-
-        @Override
-        public void loginFail() {}
+    @Override
+    public void messageSendStart(String conversationId) {
+        // the first message still waiting for its echo is measured, later ones are skipped
+        metrics.startIfIdle(LatencyMetrics.MESSAGE_SEND_ECHO, conversationId);
+    }
 
-        @Override
-        public void clickConversationInList() {}
+    @Override
+    public void messageEchoed(String conversationId) {
+        stop(LatencyMetrics.MESSAGE_SEND_ECHO, conversationId);
+    }
 
-        @Override
-        public void conversationPageVisible() {}
+    @Override
+    public void messageSendFailed(String conversationId) {
+        metrics.cancel(LatencyMetrics.MESSAGE_SEND_ECHO, conversationId);
+    }
 
-        @Override
-        public void conversationContentSyncStart() {}
+    private void stop(String metric, String key) {
+        long elapsed = metrics.stop(metric, key);
+        if (logMeasurements && elapsed >= 0) {
+            Timber.w("%s took %dns", metric, elapsed);
+        }
+    }
 
-        @Override
-        public void conversationContentSyncFinish() {}
+    /**
+     * Still collects the metrics, which is cheap enough for release builds, but doesn't log them.
+     */
+    public static class DisabledLoadTimeLoggerController extends LoadTimeLoggerController {
+        public DisabledLoadTimeLoggerController() {
+            super(LatencyMetrics.get(), false);
+        }
     }
 
 }
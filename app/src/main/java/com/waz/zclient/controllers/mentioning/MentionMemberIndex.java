@@ -0,0 +1,281 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.controllers.mentioning;
+
+import com.waz.api.User;
+import com.waz.api.UsersList;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Search index over the members of a conversation for @-mentions. Names are folded to lower case without
+ * accents once per member and split into word tokens, which are kept sorted for prefix lookup. Only a query that
+ * starts no word is matched by substring against the folded full names. Results keep the order of the members.
+ *
+ * Members whose name didn't change keep their entry when the list is updated, and a substring query extending
+ * the previous one only looks at the previous matches.
+ */
+class MentionMemberIndex {
+
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+    private static final int[] NO_MATCHES = new int[0];
+    private static final String[] NO_TOKENS = new String[0];
+
+    private HashMap<String, Entry> entriesById = new HashMap<>();
+    private Entry[] entries = NO_ENTRIES;
+    // all name tokens in sorted order, together with the position of the entry they belong to
+    private String[] tokens = NO_TOKENS;
+    private int[] tokenEntries = NO_MATCHES;
+    private boolean[] matched = new boolean[0];
+
+    private String lastQuery;
+    private int[] lastMatches = NO_MATCHES;
+
+    int size() {
+        return entries.length;
+    }
+
+    void clear() {
+        entriesById = new HashMap<>();
+        entries = NO_ENTRIES;
+        tokens = NO_TOKENS;
+        tokenEntries = NO_MATCHES;
+        matched = new boolean[0];
+        lastQuery = null;
+        lastMatches = NO_MATCHES;
+    }
+
+    /**
+     * Brings the index in line with the given members, the self user is left out.
+     */
+    void update(UsersList members) {
+        final int membersSize = members == null ? 0 : members.size();
+        final HashMap<String, Entry> newEntriesById = new HashMap<>(membersSize * 2);
+        final ArrayList<Entry> newEntries = new ArrayList<>(membersSize);
+        boolean changed = false;
+        for (int i = 0; i < membersSize; i++) {
+            final User user = members.get(i);
+            if (user.isMe()) {
+                continue;
+            }
+            final String name = user.getName() == null ? "" : user.getName();
+            Entry entry = entriesById.get(user.getId());
+            if (entry == null || !entry.name.equals(name)) {
+                entry = new Entry(user, name);
+                changed = true;
+            } else {
+                entry.user = user;
+                changed |= newEntries.size() >= entries.length || entries[newEntries.size()] != entry;
+            }
+            newEntriesById.put(user.getId(), entry);
+            newEntries.add(entry);
+        }
+        changed |= newEntries.size() != entries.length;
+        entriesById = newEntriesById;
+        if (!changed) {
+            return;
+        }
+        entries = newEntries.toArray(new Entry[newEntries.size()]);
+        matched = new boolean[entries.length];
+        buildTokens();
+        lastQuery = null;
+        lastMatches = NO_MATCHES;
+    }
+
+    private void buildTokens() {
+        int tokenCount = 0;
+        for (Entry entry : entries) {
+            tokenCount += entry.tokens.length;
+        }
+        final TokenRef[] refs = new TokenRef[tokenCount];
+        int t = 0;
+        for (int i = 0; i < entries.length; i++) {
+            for (String token : entries[i].tokens) {
+                refs[t++] = new TokenRef(token, i);
+            }
+        }
+        Arrays.sort(refs);
+        tokens = new String[tokenCount];
+        tokenEntries = new int[tokenCount];
+        for (int i = 0; i < tokenCount; i++) {
+            tokens[i] = refs[i].token;
+            tokenEntries[i] = refs[i].entry;
+        }
+    }
+
+    /**
+     * @return the members with a word of their name starting with the query, or if there are none the members
+     * whose name contains the query, in member order
+     */
+    List<User> search(String query) {
+        final String normalizedQuery = normalize(query);
+        if (normalizedQuery.isEmpty() || entries.length == 0) {
+            lastQuery = null;
+            lastMatches = NO_MATCHES;
+            return new ArrayList<>(0);
+        }
+
+        final int[] prefixMatches = isToken(normalizedQuery) ? findByPrefix(normalizedQuery) : NO_MATCHES;
+        if (prefixMatches.length > 0) {
+            lastQuery = null;
+            lastMatches = NO_MATCHES;
+            return users(prefixMatches, prefixMatches.length);
+        }
+
+        // a query extending one that started no word can't start a word either, so the last matches stay valid
+        final boolean narrowing = lastQuery != null && normalizedQuery.startsWith(lastQuery);
+        final int candidateCount = narrowing ? lastMatches.length : entries.length;
+        final int[] matches = new int[candidateCount];
+        int matchCount = 0;
+        for (int c = 0; c < candidateCount; c++) {
+            final int i = narrowing ? lastMatches[c] : c;
+            if (entries[i].normalizedName.contains(normalizedQuery)) {
+                matches[matchCount++] = i;
+            }
+        }
+        lastQuery = normalizedQuery;
+        lastMatches = Arrays.copyOf(matches, matchCount);
+        return users(matches, matchCount);
+    }
+
+    /**
+     * @return the positions of the entries with a token starting with the prefix, in ascending order
+     */
+    private int[] findByPrefix(String prefix) {
+        final int first = findFirstToken(prefix);
+        int end = first;
+        while (end < tokens.length && tokens[end].startsWith(prefix)) {
+            end++;
+        }
+        if (end == first) {
+            return NO_MATCHES;
+        }
+        final int[] found = new int[end - first];
+        int count = 0;
+        for (int t = first; t < end; t++) {
+            final int entry = tokenEntries[t];
+            if (!matched[entry]) {
+                matched[entry] = true;
+                found[count++] = entry;
+            }
+        }
+        for (int m = 0; m < count; m++) {
+            matched[found[m]] = false;
+        }
+        Arrays.sort(found, 0, count);
+        return count == found.length ? found : Arrays.copyOf(found, count);
+    }
+
+    private int findFirstToken(String prefix) {
+        int low = 0;
+        int high = tokens.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (tokens[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private List<User> users(int[] positions, int count) {
+        final List<User> result = new ArrayList<>(count);
+        for (int m = 0; m < count; m++) {
+            result.add(entries[positions[m]].user);
+        }
+        return result;
+    }
+
+    /**
+     * Folds case and strips accents, so that accented names are found without typing the accents.
+     */
+    static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        final String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        final StringBuilder builder = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            final char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                builder.append(c);
+            }
+        }
+        return builder.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isToken(String normalizedText) {
+        for (int i = 0; i < normalizedText.length(); i++) {
+            if (!Character.isLetterOrDigit(normalizedText.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String[] tokenize(String normalizedName) {
+        final ArrayList<String> tokens = new ArrayList<>(2);
+        int start = -1;
+        for (int i = 0; i <= normalizedName.length(); i++) {
+            final boolean letter = i < normalizedName.length() && Character.isLetterOrDigit(normalizedName.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(normalizedName.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens.toArray(new String[tokens.size()]);
+    }
+
+    private static final class Entry {
+        private User user;
+        private final String name;
+        private final String normalizedName;
+        private final String[] tokens;
+
+        private Entry(User user, String name) {
+            this.user = user;
+            this.name = name;
+            this.normalizedName = normalize(name);
+            this.tokens = tokenize(normalizedName);
+        }
+    }
+
+    private static final class TokenRef implements Comparable<TokenRef> {
+        private final String token;
+        private final int entry;
+
+        private TokenRef(String token, int entry) {
+            this.token = token;
+            this.entry = entry;
+        }
+
+        @Override
+        public int compareTo(TokenRef other) {
+            return token.compareTo(other.token);
+        }
+    }
+}
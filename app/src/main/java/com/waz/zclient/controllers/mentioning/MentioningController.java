@@ -23,10 +23,11 @@ import com.waz.api.IConversation;
 import com.waz.api.UpdateListener;
 import com.waz.api.User;
 import com.waz.api.UsersList;
+import com.waz.zclient.core.api.scala.ModelObserver;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
@@ -46,14 +47,33 @@ public class MentioningController implements IMentioningController {
     private final UpdateListener membersUpdateListener = new UpdateListener() {
         @Override
         public void updated() {
+            observeMembers();
+            memberIndexDirty = true;
             performSearch();
         }
     };
+    private final ModelObserver<User> memberObserver = new ModelObserver<User>() {
+        @Override
+        public void updated(User model) {
+            // a renamed member has to be found by the new name
+            memberIndexDirty = true;
+            if (!TextUtils.isEmpty(query)) {
+                performSearch();
+            }
+        }
+    };
+    private final MentionMemberIndex memberIndex = new MentionMemberIndex();
+    private boolean memberIndexDirty;
     private Set<MentioningObserver> observers = new HashSet<>();
     private IConversation conversation;
     private UsersList members;
     private String query;
 
+    public MentioningController() {
+        // a sync can update many members at once, the index only has to be rebuilt once for them
+        memberObserver.enableCoalescing(ModelObserver.DEFAULT_COALESCING_LATENCY_MILLIS);
+    }
+
     @Override
     public void addObserver(MentioningObserver observer) {
         observers.add(observer);
@@ -81,27 +101,36 @@ public class MentioningController implements IMentioningController {
         }
     }
 
+    /**
+     * Looks only at the word around the cursor, delimited by spaces or line breaks, instead of splitting the
+     * whole text.
+     */
     @Override
     public String extractQuery(int cursorPosition, String text) {
-        if (cursorPosition == -1 || TextUtils.isEmpty(text)) {
+        if (cursorPosition == -1 || TextUtils.isEmpty(text) || cursorPosition > text.length()) {
             return null;
         }
-        final String[] words = text.split("[ \n]+");
-        int length = 0;
-        String query = null;
-        for (String word : words) {
-            final int queryLength = Math.max(cursorPosition - length - 1, 0);
-            length += word.length() + 1;
-            if (length > cursorPosition) {
-                final Matcher queryMatcher = QUERY_PATTERN.matcher(word);
-                if (queryMatcher.matches()) {
-                    query = word.replaceFirst(QUERY_PATTERN.pattern(), "$1").toLowerCase(Locale.getDefault());
-                    query = query.substring(0, queryLength);
-                }
-                break;
-            }
+        int start = cursorPosition;
+        while (start > 0 && !isWordSeparator(text.charAt(start - 1))) {
+            start--;
         }
-        return query;
+        int end = cursorPosition;
+        while (end < text.length() && !isWordSeparator(text.charAt(end))) {
+            end++;
+        }
+        if (end - start < 2 || text.charAt(start) != '@') {
+            return null;
+        }
+        final String word = text.substring(start, end);
+        if (!QUERY_PATTERN.matcher(word).matches()) {
+            return null;
+        }
+        final int queryLength = Math.max(cursorPosition - start - 1, 0);
+        return word.substring(1, 1 + queryLength).toLowerCase(Locale.getDefault());
+    }
+
+    private static boolean isWordSeparator(char c) {
+        return c == ' ' || c == '\n';
     }
 
     @Override
@@ -111,6 +140,9 @@ public class MentioningController implements IMentioningController {
             this.conversation = null;
         }
         this.query = null;
+        memberIndex.clear();
+        memberObserver.clear();
+        memberIndexDirty = true;
         this.conversation = conversation;
         this.conversation.addUpdateListener(conversationUpdateListener);
         conversationUpdateListener.updated();
@@ -132,21 +164,15 @@ public class MentioningController implements IMentioningController {
     }
 
     private void performSearch() {
-        List<User> result = new LinkedList<>();
+        List<User> result = Collections.emptyList();
         if (conversation != null &&
             conversation.getType() == IConversation.Type.GROUP &&
             !TextUtils.isEmpty(query)) {
-            final int membersSize = members == null ? 0 : members.size();
-            for (int i = 0; i < membersSize; i++) {
-                final User user = members.get(i);
-                if (user.isMe()) {
-                    continue;
-                }
-                final String name = user.getName().toLowerCase(Locale.getDefault());
-                if (name.contains(query)) {
-                    result.add(user);
-                }
+            if (memberIndexDirty) {
+                memberIndex.update(members);
+                memberIndexDirty = false;
             }
+            result = memberIndex.search(query);
         }
         for (MentioningObserver observer : observers) {
             observer.onQueryResultChanged(result);
@@ -164,6 +190,8 @@ public class MentioningController implements IMentioningController {
             members.removeUpdateListener(membersUpdateListener);
             members = null;
         }
+        memberObserver.clear();
+        memberIndex.clear();
         query = null;
     }
 
@@ -173,10 +201,25 @@ public class MentioningController implements IMentioningController {
             members = null;
         }
         members = conversation.getUsers();
+        memberIndexDirty = true;
+        observeMembers();
         if (members == null) {
             return;
         }
         members.addUpdateListener(membersUpdateListener);
         performSearch();
     }
+
+    /**
+     * The member list only updates when members join or leave, renames are only reported by the users themselves.
+     */
+    private void observeMembers() {
+        final int membersSize = members == null ? 0 : members.size();
+        final List<User> users = new ArrayList<>(membersSize);
+        for (int i = 0; i < membersSize; i++) {
+            users.add(members.get(i));
+        }
+        memberObserver.setAndPause(users);
+        memberObserver.resumeListening();
+    }
 }
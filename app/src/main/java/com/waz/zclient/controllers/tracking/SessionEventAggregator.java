@@ -19,11 +19,23 @@ package com.waz.zclient.controllers.tracking;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
 import com.waz.api.Message;
 import com.waz.model.MessageContent;
 import com.waz.service.media.RichMediaContentParser;
 import com.waz.zclient.core.controllers.tracking.attributes.RangedAttribute;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the events of a session. The counters live in memory and are written to the preferences in one batch,
+ * {@link #FLUSH_DELAY_MS} after the first change or when the app is paused.
+ */
 public class SessionEventAggregator {
 
     private static final String PREF_SESSION_START_TIME = "PREF_SESSION_START_TIME";
@@ -31,10 +43,53 @@ public class SessionEventAggregator {
     private static final String PREF_IS_FIRST_SESSION = "PREF_IS_FIRST_SESSION";
     private static final String PREF_SEARCHED_FOR_PEOPLE = "PREF_SEARCHED_FOR_PEOPLE";
 
+    static final long FLUSH_DELAY_MS = 30 * 1000;
+
+    /**
+     * Some attributes share a name and so share a counter, like they share the preference
+     */
+    private static final String[] COUNTER_NAMES;
+    private static final int[] COUNTER_BY_ATTRIBUTE;
+
+    static {
+        RangedAttribute[] attributes = RangedAttribute.values();
+        List<String> names = new ArrayList<>();
+        COUNTER_BY_ATTRIBUTE = new int[attributes.length];
+        for (RangedAttribute attribute : attributes) {
+            int counter = names.indexOf(attribute.name);
+            if (counter < 0) {
+                counter = names.size();
+                names.add(attribute.name);
+            }
+            COUNTER_BY_ATTRIBUTE[attribute.ordinal()] = counter;
+        }
+        COUNTER_NAMES = names.toArray(new String[names.size()]);
+    }
+
     private SharedPreferences trackingPrefs;
+    private final Handler handler;
+    private final AtomicIntegerArray counters = new AtomicIntegerArray(COUNTER_NAMES.length);
+    // One bit per counter changed since the last flush
+    private final AtomicLong dirtyCounters = new AtomicLong();
+    private RichMediaContentParser richMediaContentParser;
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
 
     public SessionEventAggregator(Context context) {
-        trackingPrefs = context.getSharedPreferences("TRACKING_PREFS", Context.MODE_PRIVATE);
+        this(context.getSharedPreferences("TRACKING_PREFS", Context.MODE_PRIVATE), new Handler(Looper.getMainLooper()));
+    }
+
+    SessionEventAggregator(SharedPreferences trackingPrefs, Handler handler) {
+        this.trackingPrefs = trackingPrefs;
+        this.handler = handler;
+        for (int i = 0; i < COUNTER_NAMES.length; i++) {
+            counters.set(i, trackingPrefs.getInt(COUNTER_NAMES[i], 0));
+        }
         if (trackingPrefs.getLong(PREF_SESSION_START_TIME, 0) == 0) {
             markSessionStartTime();
         }
@@ -49,11 +104,33 @@ public class SessionEventAggregator {
         if (attribute == RangedAttribute.SESSION_DURATION) {
             return getSecondsSinceSessionStart();
         }
-        return trackingPrefs.getInt(attribute.name, 0);
+        return counters.get(COUNTER_BY_ATTRIBUTE[attribute.ordinal()]);
     }
 
     public void markPauseTime() {
-        trackingPrefs.edit().putLong(PREF_PAUSE_TIME, System.currentTimeMillis()).apply();
+        handler.removeCallbacks(flushRunnable);
+        writeCounters(trackingPrefs.edit()).putLong(PREF_PAUSE_TIME, System.currentTimeMillis()).apply();
+    }
+
+    /**
+     * Write the changed counters, if any, in one batch
+     */
+    public void flush() {
+        handler.removeCallbacks(flushRunnable);
+        if (dirtyCounters.get() == 0) {
+            return;
+        }
+        writeCounters(trackingPrefs.edit()).apply();
+    }
+
+    private SharedPreferences.Editor writeCounters(SharedPreferences.Editor editor) {
+        long dirty = dirtyCounters.getAndSet(0);
+        for (int i = 0; dirty != 0; i++, dirty >>>= 1) {
+            if ((dirty & 1) != 0) {
+                editor.putInt(COUNTER_NAMES[i], counters.get(i));
+            }
+        }
+        return editor;
     }
 
     public long getElapsedTimeSincePause() {
@@ -80,6 +157,11 @@ public class SessionEventAggregator {
     }
 
     protected void restartSession() {
+        handler.removeCallbacks(flushRunnable);
+        dirtyCounters.set(0);
+        for (int i = 0; i < COUNTER_NAMES.length; i++) {
+            counters.set(i, 0);
+        }
         trackingPrefs.edit().clear().apply();
         markSessionStartTime();
     }
@@ -87,12 +169,17 @@ public class SessionEventAggregator {
     private void incrementRichMediaLinkCounts(RangedAttribute attribute, String[] params) {
         if (attribute == RangedAttribute.TEXT_MESSAGES_SENT && params.length > 0) {
             String messageBody = params[0];
+            if (!mayContainLink(messageBody)) {
+                return;
+            }
 
             int youtubeLinks = 0;
             int soundCloudLinks = 0;
 
-            RichMediaContentParser parser = new RichMediaContentParser();
-            for (MessageContent richMediaPair : parser.javaSplitContent(messageBody)) {
+            if (richMediaContentParser == null) {
+                richMediaContentParser = new RichMediaContentParser();
+            }
+            for (MessageContent richMediaPair : richMediaContentParser.javaSplitContent(messageBody)) {
 
                 if (richMediaPair.tpe() == Message.Part.Type.SOUNDCLOUD) {
                     soundCloudLinks++;
@@ -107,8 +194,34 @@ public class SessionEventAggregator {
         }
     }
 
+    /**
+     * Cheap check so that the parser only runs for messages that can have a rich media link at all
+     */
+    static boolean mayContainLink(String messageBody) {
+        if (messageBody == null || messageBody.indexOf('.') < 0) {
+            return false;
+        }
+        String body = messageBody.toLowerCase(Locale.US);
+        return body.contains("://") ||
+               body.contains("www.") ||
+               body.contains("youtu") ||
+               body.contains("soundcloud");
+    }
+
     private void incrementEventCountBy(RangedAttribute attribute, int incrementBy) {
-        trackingPrefs.edit().putInt(attribute.name, getEventCount(attribute) + incrementBy).apply();
+        if (incrementBy == 0) {
+            return;
+        }
+        int counter = COUNTER_BY_ATTRIBUTE[attribute.ordinal()];
+        counters.addAndGet(counter, incrementBy);
+        long dirty = 1L << counter;
+        long previous;
+        do {
+            previous = dirtyCounters.get();
+        } while ((previous & dirty) == 0 && !dirtyCounters.compareAndSet(previous, previous | dirty));
+        if (previous == 0) {
+            handler.postDelayed(flushRunnable, FLUSH_DELAY_MS);
+        }
     }
 
     private void markSessionStartTime() {
@@ -293,6 +293,9 @@ public class TrackingController implements ITrackingController {
 
     @Override
     public void tearDown() {
+        if (sessionEventAggregator != null) {
+            sessionEventAggregator.flush();
+        }
         if (trackingData != null) {
             trackingData.removeUpdateListener(trackingDataUpdateListener);
             trackingData = null;
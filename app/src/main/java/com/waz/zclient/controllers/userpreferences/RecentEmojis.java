@@ -21,17 +21,23 @@ import com.waz.zclient.utils.StringUtils;
 import org.json.JSONArray;
 import org.json.JSONException;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Most recently used emojis, newest first. {@link #getRecentEmojis()} returns an immutable snapshot which
+ * stays the same instance until the next change.
+ */
 public class RecentEmojis {
 
     private static final int MAX_RECENT_EMOJIS = 12;
 
-    private List<String> recentEmojis;
+    private final List<String> recentEmojis;
+    private List<String> snapshot;
 
     public RecentEmojis(String json) {
-        recentEmojis = new LinkedList<>();
+        recentEmojis = new ArrayList<>(MAX_RECENT_EMOJIS);
         if (!StringUtils.isBlank(json)) {
             try {
                 JSONArray jsonArray = new JSONArray(json);
@@ -52,7 +58,14 @@ public class RecentEmojis {
         return array.toString();
     }
 
-    public void addRecentEmoji(String emoji) {
+    /**
+     * @return false if the emoji already was the most recent one and nothing changed
+     */
+    public boolean addRecentEmoji(String emoji) {
+        if (!recentEmojis.isEmpty() && recentEmojis.get(0).equals(emoji)) {
+            return false;
+        }
+        snapshot = null;
         if (recentEmojis.contains(emoji)) {
             recentEmojis.remove(emoji);
         }
@@ -60,10 +73,14 @@ public class RecentEmojis {
             recentEmojis.remove(recentEmojis.size() - 1);
         }
         recentEmojis.add(0, emoji);
+        return true;
     }
 
     public List<String> getRecentEmojis() {
-        return recentEmojis;
+        if (snapshot == null) {
+            snapshot = Collections.unmodifiableList(new ArrayList<>(recentEmojis));
+        }
+        return snapshot;
     }
 
 }
@@ -21,13 +21,17 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
 import com.waz.zclient.R;
 import com.waz.zclient.camera.CameraFacing;
+import com.waz.zclient.utils.EmojiGlyphProber;
 import com.waz.zclient.utils.StringUtils;
 import org.json.JSONArray;
 import org.json.JSONException;
 import timber.log.Timber;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.HashSet;
@@ -57,14 +61,28 @@ public class UserPreferencesController implements IUserPreferencesController {
     private static final String USER_PREF_RECENT_EMOJIS = "USER_PREF_RECENT_EMOJIS";
     private static final String USER_PREF_UNSUPPORTED_EMOJIS = "USER_PREF_UNSUPPORTED_EMOJIS";
     private static final String USER_PREF_UNSUPPORTED_EMOJIS_CHECKED = "USER_PREF_UNSUPPORTED_EMOJIS_CHECKED";
+    private static final String USER_PREF_UNSUPPORTED_EMOJIS_FONTS = "USER_PREF_UNSUPPORTED_EMOJIS_FONTS";
     private static final String USER_PREF_LAST_EPHEMERAL_VALUE = "USER_PREF_LAST_EPHEMERAL_VALUE";
 
     private static final String PREFS_DEVICE_ID = "com.waz.device.id";
 
     private static final int AB_TESTING_GROUP_COUNT = 6;
+    // Recent emojis are written once the user stopped picking emojis for a moment
+    private static final long RECENT_EMOJIS_WRITE_DELAY_MS = 2000;
 
     private final SharedPreferences userPreferences;
     private Context context;
+    // Parsed on first use, the stored list only changes after probing the fonts
+    private volatile Set<String> unsupportedEmojis;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private RecentEmojis recentEmojis;
+    private boolean recentEmojisDirty;
+    private final Runnable writeRecentEmojisRunnable = new Runnable() {
+        @Override
+        public void run() {
+            writeRecentEmojis();
+        }
+    };
 
     public UserPreferencesController(Context context) {
         this.context = context;
@@ -90,6 +108,8 @@ public class UserPreferencesController implements IUserPreferencesController {
 
     @Override
     public void tearDown() {
+        mainHandler.removeCallbacks(writeRecentEmojisRunnable);
+        writeRecentEmojis();
         context = null;
     }
 
@@ -308,14 +328,32 @@ public class UserPreferencesController implements IUserPreferencesController {
 
     @Override
     public void addRecentEmoji(String emoji) {
-        RecentEmojis recentEmojis = new RecentEmojis(userPreferences.getString(USER_PREF_RECENT_EMOJIS, null));
-        recentEmojis.addRecentEmoji(emoji);
-        userPreferences.edit().putString(USER_PREF_RECENT_EMOJIS, recentEmojis.getJson()).apply();
+        if (!getLoadedRecentEmojis().addRecentEmoji(emoji)) {
+            return;
+        }
+        recentEmojisDirty = true;
+        mainHandler.removeCallbacks(writeRecentEmojisRunnable);
+        mainHandler.postDelayed(writeRecentEmojisRunnable, RECENT_EMOJIS_WRITE_DELAY_MS);
     }
 
     @Override
     public List<String> getRecentEmojis() {
-        return new RecentEmojis(userPreferences.getString(USER_PREF_RECENT_EMOJIS, null)).getRecentEmojis();
+        return getLoadedRecentEmojis().getRecentEmojis();
+    }
+
+    private RecentEmojis getLoadedRecentEmojis() {
+        if (recentEmojis == null) {
+            recentEmojis = new RecentEmojis(userPreferences.getString(USER_PREF_RECENT_EMOJIS, null));
+        }
+        return recentEmojis;
+    }
+
+    private void writeRecentEmojis() {
+        if (!recentEmojisDirty) {
+            return;
+        }
+        recentEmojisDirty = false;
+        userPreferences.edit().putString(USER_PREF_RECENT_EMOJIS, recentEmojis.getJson()).apply();
     }
 
     @Override
@@ -327,29 +365,46 @@ public class UserPreferencesController implements IUserPreferencesController {
         userPreferences.edit()
             .putString(USER_PREF_UNSUPPORTED_EMOJIS, array.toString())
             .putInt(USER_PREF_UNSUPPORTED_EMOJIS_CHECKED, version)
+            .putString(USER_PREF_UNSUPPORTED_EMOJIS_FONTS, EmojiGlyphProber.getFontStamp())
             .apply();
+        synchronized (this) {
+            unsupportedEmojis = Collections.unmodifiableSet(new HashSet<>(emoji));
+        }
     }
 
     @Override
     public Set<String> getUnsupportedEmojis() {
+        Set<String> unsupportedEmojis = this.unsupportedEmojis;
+        if (unsupportedEmojis != null) {
+            return unsupportedEmojis;
+        }
         String json = userPreferences.getString(USER_PREF_UNSUPPORTED_EMOJIS, null);
-        Set<String> unsupportedEmojis = new HashSet<>();
+        Set<String> parsed = new HashSet<>();
         if (!StringUtils.isBlank(json)) {
             try {
                 JSONArray jsonArray = new JSONArray(json);
                 for (int i = 0; i < jsonArray.length(); i++) {
-                    unsupportedEmojis.add(jsonArray.getString(i));
+                    parsed.add(jsonArray.getString(i));
                 }
             } catch (JSONException e) {
                 // ignore
             }
         }
-        return unsupportedEmojis;
+        synchronized (this) {
+            if (this.unsupportedEmojis == null) {
+                this.unsupportedEmojis = Collections.unmodifiableSet(parsed);
+            }
+            return this.unsupportedEmojis;
+        }
     }
 
+    /**
+     * The stored result is only valid for the emoji list version and the system fonts it was probed with.
+     */
     @Override
     public boolean hasCheckedForUnsupportedEmojis(int version) {
-        return userPreferences.getInt(USER_PREF_UNSUPPORTED_EMOJIS_CHECKED, 0) >= version;
+        return userPreferences.getInt(USER_PREF_UNSUPPORTED_EMOJIS_CHECKED, 0) >= version &&
+               EmojiGlyphProber.getFontStamp().equals(userPreferences.getString(USER_PREF_UNSUPPORTED_EMOJIS_FONTS, null));
     }
 
     @Override
@@ -123,7 +123,6 @@ public class EmailAddPhoneFragment extends BaseFragment<EmailAddPhoneFragment.Co
 
         countryController.addObserver(this);
 
-        Country country = countryController.getCountryFromCode(getStoreFactory().getAppEntryStore().getCountryCode());
         String phone = getStoreFactory().getAppEntryStore().getPhone();
 
         if (phone != null) {
@@ -131,15 +130,29 @@ public class EmailAddPhoneFragment extends BaseFragment<EmailAddPhoneFragment.Co
             editTextPhone.setSelection(phone.length());
             updatePhoneInputControls(phone);
         }
-        if (country != null) {
-            countryController.setCountry(country);
-        }
+        final String countryCode = getStoreFactory().getAppEntryStore().getCountryCode();
+        countryController.getCountryFromCode(countryCode, new CountryController.ResultCallback<Country>() {
+            @Override
+            public void onResult(Country country) {
+                if (country != null && editTextPhone != null) {
+                    countryController.setCountry(country);
+                }
+            }
+        });
     }
 
     private void setSimPhoneNumber() {
         final String abbreviation = getControllerFactory().getDeviceUserController().getPhoneCountryISO();
-        final String countryCode = countryController.getCodeForAbbreviation(abbreviation);
-        editTextPhone.setText(getControllerFactory().getDeviceUserController().getPhoneNumber(countryCode));
+        countryController.getCodeForAbbreviation(abbreviation, new CountryController.ResultCallback<String>() {
+            @Override
+            public void onResult(String countryCode) {
+                // a phone number kept from before wins over the one of the SIM card
+                if (editTextPhone == null || getStoreFactory().getAppEntryStore().getPhone() != null) {
+                    return;
+                }
+                editTextPhone.setText(getControllerFactory().getDeviceUserController().getPhoneNumber(countryCode));
+            }
+        });
     }
 
     @Override
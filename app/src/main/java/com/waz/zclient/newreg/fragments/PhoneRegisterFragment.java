@@ -164,7 +164,6 @@ public class PhoneRegisterFragment extends BaseFragment<PhoneRegisterFragment.Co
 
         countryController.addObserver(this);
 
-        Country country = countryController.getCountryFromCode(getStoreFactory().getAppEntryStore().getCountryCode());
         String phone = getStoreFactory().getAppEntryStore().getPhone();
 
         if (phone != null) {
@@ -172,19 +171,33 @@ public class PhoneRegisterFragment extends BaseFragment<PhoneRegisterFragment.Co
             editTextPhone.setSelection(phone.length());
             updatePhoneInputControls(phone);
         }
-        if (country != null) {
-            countryController.setCountry(country);
-        }
+        final String countryCode = getStoreFactory().getAppEntryStore().getCountryCode();
+        countryController.getCountryFromCode(countryCode, new CountryController.ResultCallback<Country>() {
+            @Override
+            public void onResult(Country country) {
+                if (country != null && editTextPhone != null) {
+                    countryController.setCountry(country);
+                }
+            }
+        });
     }
 
     private void setSimPhoneNumber() {
         final String abbreviation = getControllerFactory().getDeviceUserController().getPhoneCountryISO();
-        final String countryCode = countryController.getCodeForAbbreviation(abbreviation);
-        final String number = getControllerFactory().getDeviceUserController().getPhoneNumber(countryCode);
-        if (!TextUtils.isEmpty(number)) {
-            getControllerFactory().getTrackingController().tagEvent(new PrefilledPhoneNumberEvent());
-        }
-        editTextPhone.setText(number);
+        countryController.getCodeForAbbreviation(abbreviation, new CountryController.ResultCallback<String>() {
+            @Override
+            public void onResult(String countryCode) {
+                // a phone number kept from before wins over the one of the SIM card
+                if (editTextPhone == null || getStoreFactory().getAppEntryStore().getPhone() != null) {
+                    return;
+                }
+                final String number = getControllerFactory().getDeviceUserController().getPhoneNumber(countryCode);
+                if (!TextUtils.isEmpty(number)) {
+                    getControllerFactory().getTrackingController().tagEvent(new PrefilledPhoneNumberEvent());
+                }
+                editTextPhone.setText(number);
+            }
+        });
     }
 
     @Override
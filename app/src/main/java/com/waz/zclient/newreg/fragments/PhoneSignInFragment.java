@@ -118,10 +118,15 @@ public class PhoneSignInFragment extends BaseFragment<PhoneSignInFragment.Contai
         countryController = getContainer().getCountryController();
 
         editTextPhone.setText(getStoreFactory().getAppEntryStore().getPhone());
-        Country country = countryController.getCountryFromCode(getStoreFactory().getAppEntryStore().getCountryCode());
-        if (country != null) {
-            onCountryHasChanged(country);
-        }
+        final String countryCode = getStoreFactory().getAppEntryStore().getCountryCode();
+        countryController.getCountryFromCode(countryCode, new CountryController.ResultCallback<Country>() {
+            @Override
+            public void onResult(Country country) {
+                if (country != null && editTextPhone != null) {
+                    onCountryHasChanged(country);
+                }
+            }
+        });
         tabIndicatorLayout.setLabels(new int[] {R.string.new_reg__phone_signup__create_account, R.string.i_have_an_account});
         tabIndicatorLayout.setSelected(TabPages.SIGN_IN);
         tabIndicatorLayout.setTextColor(getResources().getColorStateList(R.color.wire__text_color_dark_selector));
@@ -139,7 +144,6 @@ public class PhoneSignInFragment extends BaseFragment<PhoneSignInFragment.Contai
 
         countryController.addObserver(this);
 
-        Country country = countryController.getCountryFromCode(getStoreFactory().getAppEntryStore().getCountryCode());
         String phone = getStoreFactory().getAppEntryStore().getPhone();
 
         if (phone != null) {
@@ -147,15 +151,29 @@ public class PhoneSignInFragment extends BaseFragment<PhoneSignInFragment.Contai
             editTextPhone.setSelection(phone.length());
             updatePhoneInputControls(phone);
         }
-        if (country != null) {
-            countryController.setCountry(country);
-        }
+        final String countryCode = getStoreFactory().getAppEntryStore().getCountryCode();
+        countryController.getCountryFromCode(countryCode, new CountryController.ResultCallback<Country>() {
+            @Override
+            public void onResult(Country country) {
+                if (country != null && editTextPhone != null) {
+                    countryController.setCountry(country);
+                }
+            }
+        });
     }
 
     private void setSimPhoneNumber() {
         final String abbreviation = getControllerFactory().getDeviceUserController().getPhoneCountryISO();
-        final String countryCode = countryController.getCodeForAbbreviation(abbreviation);
-        editTextPhone.setText(getControllerFactory().getDeviceUserController().getPhoneNumber(countryCode));
+        countryController.getCodeForAbbreviation(abbreviation, new CountryController.ResultCallback<String>() {
+            @Override
+            public void onResult(String countryCode) {
+                // a phone number kept from before wins over the one of the SIM card
+                if (editTextPhone == null || getStoreFactory().getAppEntryStore().getPhone() != null) {
+                    return;
+                }
+                editTextPhone.setText(getControllerFactory().getDeviceUserController().getPhoneNumber(countryCode));
+            }
+        });
     }
 
     @Override
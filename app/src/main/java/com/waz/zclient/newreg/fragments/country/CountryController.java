@@ -18,49 +18,110 @@
 package com.waz.zclient.newreg.fragments.country;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.telephony.TelephonyManager;
 import android.text.TextUtils;
-import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import com.waz.threading.Threading;
 import com.waz.zclient.BuildConfig;
 import com.waz.zclient.R;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
 
 public class CountryController {
     public static final String TAG = CountryController.class.getName();
 
-    public Map<String, Country> codeToCountryMap = new HashMap<>();
-    public Map<String, Country> abbreviationToCountryMap = new HashMap<>();
+    private final Context context;
+    private final String deviceCountry;
+    private final String defaultCountry;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<ResultCallback<CountryIndex>> pendingLookups = new ArrayList<>();
+    private CountryIndex index;
+    private boolean waitingForIndex;
+    private boolean observersWaiting;
 
     private Country country;
 
     public CountryController(Context context) {
-        populateCountries(context);
-        String deviceCountry = getDeviceCountry(context);
-        String defaultCountry = context.getResources().getString(R.string.new_reg__default_country);
+        this.context = context.getApplicationContext();
+        this.deviceCountry = getDeviceCountry(context);
+        this.defaultCountry = context.getResources().getString(R.string.new_reg__default_country);
+        CountryIndexLoader.load(context);
+    }
 
-        ArrayList<Country> countries = new ArrayList<>(abbreviationToCountryMap.values());
+    /**
+     * Hands the index to the lookup on the main thread, right away if it is ready. Otherwise the index, which is
+     * built in the background as soon as the controller is created, is waited for on a background thread.
+     */
+    private void withIndex(ResultCallback<CountryIndex> lookup) {
+        if (index != null) {
+            lookup.onResult(index);
+            return;
+        }
+        pendingLookups.add(lookup);
+        waitForIndex();
+    }
 
-        for (Country country1 : countries) {
-            if (country1.getAbbreviation().equalsIgnoreCase(deviceCountry)) {
-                country = country1;
-            }
+    /**
+     * An empty index means building it failed, it isn't kept so that the next lookup tries again
+     */
+    private void keep(CountryIndex loadedIndex) {
+        if (index == null && !loadedIndex.getSortedCountries().isEmpty()) {
+            index = loadedIndex;
         }
+    }
 
-        if (country == null) {
-            for (Country country1 : countries) {
-                if (country1.getAbbreviation().equalsIgnoreCase(defaultCountry)) {
-                    country = country1;
-                }
+    /**
+     * Waits for the index on a background thread and then runs the pending lookups and tells the observers about
+     * the country
+     */
+    private void waitForIndex() {
+        if (waitingForIndex) {
+            return;
+        }
+        waitingForIndex = true;
+        Threading.Background().execute(new Runnable() {
+            @Override
+            public void run() {
+                final CountryIndex loadedIndex = CountryIndexLoader.await(context);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        waitingForIndex = false;
+                        keep(loadedIndex);
+                        List<ResultCallback<CountryIndex>> lookups = new ArrayList<>(pendingLookups);
+                        pendingLookups.clear();
+                        for (ResultCallback<CountryIndex> lookup : lookups) {
+                            lookup.onResult(loadedIndex);
+                        }
+                        if (!observersWaiting) {
+                            return;
+                        }
+                        observersWaiting = false;
+                        Country country = findCountry(loadedIndex);
+                        if (country == null) {
+                            return;
+                        }
+                        for (Observer observer : new ArrayList<>(observers)) {
+                            observer.onCountryHasChanged(country);
+                        }
+                    }
+                });
             }
+        });
+    }
+
+    private Country findCountry(CountryIndex index) {
+        if (country == null) {
+            country = index.getByAbbreviation(deviceCountry);
         }
+        if (country == null) {
+            country = index.getByAbbreviation(defaultCountry);
+        }
+        return country;
     }
 
     public void setCountry(Country country) {
@@ -71,64 +132,78 @@ public class CountryController {
         }
     }
 
-    public Country getCountryFromCode(String code) {
-        if (code == null) {
-            return null;
-        }
-        return codeToCountryMap.get(code.replace("+", ""));
+    /**
+     * The callback gets the country, or null if there is none for the code, on the main thread
+     */
+    public void getCountryFromCode(final String code, final ResultCallback<Country> callback) {
+        withIndex(new ResultCallback<CountryIndex>() {
+            @Override
+            public void onResult(CountryIndex index) {
+                callback.onResult(index.getByCode(code));
+            }
+        });
     }
 
-    public String getCodeForAbbreviation(String abbreviation) {
-        Country country = null;
-        ArrayList<Country> countries = new ArrayList<>(abbreviationToCountryMap.values());
-        for (Country country1 : countries) {
-            if (country1.getAbbreviation().equalsIgnoreCase(abbreviation)) {
-                country = country1;
-                break;
+    /**
+     * The callback gets the dialing code, or null if the abbreviation is unknown, on the main thread
+     */
+    public void getCodeForAbbreviation(final String abbreviation, final ResultCallback<String> callback) {
+        withIndex(new ResultCallback<CountryIndex>() {
+            @Override
+            public void onResult(CountryIndex index) {
+                Country country = index.getByAbbreviation(abbreviation);
+                callback.onResult(country == null ? null : country.getCountryCode());
             }
-        }
-        if (country == null) {
-            return null;
-        }
-        return country.getCountryCode();
+        });
     }
 
-    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
-    private void populateCountries(Context context) {
-        List<Country> countries = new ArrayList<>();
-        String deviceLanguage = context.getResources().getConfiguration().locale.getLanguage();
-        PhoneNumberUtil phoneNumberUtil = PhoneNumberUtil.getInstance();
-
-        for (String region : phoneNumberUtil.getSupportedRegions()) {
-            Locale locale = new Locale(deviceLanguage, region);
-            Country country = new Country();
-            country.setAbbreviation(locale.getCountry());
-            country.setCountryCode(Integer.toString(phoneNumberUtil.getCountryCodeForRegion(region)));
-            country.setName(locale.getDisplayCountry());
-            countries.add(country);
-        }
-
-        for (Country country : countries) {
-            codeToCountryMap.put(country.getCountryCode(), country);
-            abbreviationToCountryMap.put(country.getAbbreviation(), country);
-        }
+    /**
+     * The callback gets the countries with a name or dialing code starting with the query, ordered by name, on the
+     * main thread
+     */
+    public void search(final String query, final ResultCallback<List<Country>> callback) {
+        withIndex(new ResultCallback<CountryIndex>() {
+            @Override
+            public void onResult(CountryIndex index) {
+                callback.onResult(withTestCountry(index.search(query)));
+            }
+        });
     }
 
-    public List<Country> getSortedCountries() {
-        ArrayList<Country> countries = new ArrayList<>(abbreviationToCountryMap.values());
-        Collections.sort(countries);
-        if (BuildConfig.SHOW_TEST_COUNTRY_CODE) {
-            Country qaShortcut = new Country();
-            qaShortcut.setAbbreviation("QA-code");
-            qaShortcut.setName("QA-Shortcut");
-            qaShortcut.setCountryCode("0");
-            countries.add(0, qaShortcut);
+    private static List<Country> withTestCountry(List<Country> countries) {
+        if (!BuildConfig.SHOW_TEST_COUNTRY_CODE) {
+            return countries;
         }
-        return countries;
+        List<Country> withTestCountry = new ArrayList<>(countries.size() + 1);
+        Country qaShortcut = new Country();
+        qaShortcut.setAbbreviation("QA-code");
+        qaShortcut.setName("QA-Shortcut");
+        qaShortcut.setCountryCode("0");
+        withTestCountry.add(qaShortcut);
+        withTestCountry.addAll(countries);
+        return withTestCountry;
     }
 
-    public String getPhoneNumberWithoutCountryCode(String phoneNumber) {
-        return getPhoneNumberWithoutCountryCode(phoneNumber, getSortedCountries());
+    /**
+     * The callback gets the phone number without its dialing code on the main thread
+     */
+    public void getPhoneNumberWithoutCountryCode(final String phoneNumber, final ResultCallback<String> callback) {
+        withIndex(new ResultCallback<CountryIndex>() {
+            @Override
+            public void onResult(final CountryIndex index) {
+                if (BuildConfig.SHOW_TEST_COUNTRY_CODE) {
+                    callback.onResult(getPhoneNumberWithoutCountryCode(phoneNumber,
+                                                                       withTestCountry(index.getSortedCountries())));
+                    return;
+                }
+                callback.onResult(getPhoneNumberWithoutCountryCode(phoneNumber, new CountryCodes() {
+                    @Override
+                    public boolean contains(String code) {
+                        return index.hasCode(code);
+                    }
+                }));
+            }
+        });
     }
 
     public static String getPhoneNumberWithoutCountryCode(String phoneNumber, List<Country> countries) {
@@ -140,6 +215,18 @@ public class CountryController {
         for (Country c : countries) {
             countryCode.add(c.getCountryCode());
         }
+        return getPhoneNumberWithoutCountryCode(phoneNumber, new CountryCodes() {
+            @Override
+            public boolean contains(String code) {
+                return countryCode.contains(code);
+            }
+        });
+    }
+
+    private static String getPhoneNumberWithoutCountryCode(String phoneNumber, CountryCodes countryCode) {
+        if (TextUtils.isEmpty(phoneNumber)) {
+            return "";
+        }
 
         if (phoneNumber.charAt(0) == '+') {
             if (phoneNumber.length() > 1) {
@@ -177,8 +264,18 @@ public class CountryController {
 
     private Set<Observer> observers = new HashSet<>();
 
+    /**
+     * The observer is told about the current country right away if it is known, otherwise as soon as the country
+     * index is ready.
+     */
     public void addObserver(Observer observer) {
         observers.add(observer);
+        if (country == null && index == null) {
+            observersWaiting = true;
+            waitForIndex();
+            return;
+        }
+        Country country = findCountry(index);
         if (country != null) {
             observer.onCountryHasChanged(country);
         }
@@ -188,7 +285,15 @@ public class CountryController {
         observers.remove(observer);
     }
 
+    private interface CountryCodes {
+        boolean contains(String code);
+    }
+
     public interface Observer {
         void onCountryHasChanged(Country country);
     }
+
+    public interface ResultCallback<T> {
+        void onResult(T result);
+    }
 }
@@ -20,19 +20,25 @@ package com.waz.zclient.newreg.fragments.country;
 import android.graphics.drawable.ColorDrawable;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AdapterView;
+import android.widget.EditText;
 import android.widget.ListView;
 import com.waz.zclient.R;
 import com.waz.zclient.pages.BaseFragment;
 import com.waz.zclient.utils.ViewUtils;
 
+import java.util.List;
+
 public class CountryDialogFragment extends BaseFragment<CountryDialogFragment.Container> implements AdapterView.OnItemClickListener {
     public static final String TAG = CountryDialogFragment.class.getName();
 
     private CountryCodeAdapter countryAdapter;
+    private EditText searchEditText;
 
     @Nullable
     @Override
@@ -49,13 +55,48 @@ public class CountryDialogFragment extends BaseFragment<CountryDialogFragment.Co
         listView.setDivider(new ColorDrawable(getResources().getColor(R.color.country_divider_color)));
         listView.setDividerHeight(ViewUtils.toPx(getActivity(), 1));
 
+        searchEditText = ViewUtils.getView(view, R.id.et__country_search);
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                updateCountries();
+            }
+        });
+
         return view;
     }
 
     @Override
     public void onStart() {
         super.onStart();
-        countryAdapter.setCountryList(getContainer().getCountryController().getSortedCountries());
+        updateCountries();
+    }
+
+    private void updateCountries() {
+        if (getContainer() == null) {
+            return;
+        }
+        final String query = searchEditText.getText().toString();
+        getContainer().getCountryController().search(query, new CountryController.ResultCallback<List<Country>>() {
+            @Override
+            public void onResult(List<Country> countries) {
+                // a later query may have been typed while the index was loading
+                if (getContainer() == null || !query.equals(searchEditText.getText().toString())) {
+                    return;
+                }
+                countryAdapter.setCountryList(countries);
+            }
+        });
     }
 
     @Override
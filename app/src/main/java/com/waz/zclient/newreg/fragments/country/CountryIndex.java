@@ -0,0 +1,229 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.newreg.fragments.country;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.text.Collator;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable index of the countries which can be picked for a phone number, with constant time lookups by
+ * abbreviation and dialing code and a prefix search over the country names and dialing codes.
+ *
+ * Several countries share a dialing code, e.g. all of North America uses +1. The first country with a given code
+ * in the list the index is built from owns it for {@link #getByCode(String)}.
+ */
+public class CountryIndex {
+
+    private static final String FORMAT_HEADER = "countries-v1";
+    private static final char SEPARATOR = '\t';
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final List<Country> countries;
+    private final List<Country> sortedCountries;
+    private final Map<String, Country> byAbbreviation;
+    private final Map<String, Country> byCode;
+
+    /**
+     * Search keys: the start of every word of every name plus the dialing codes, sorted so that all keys with a
+     * given prefix are next to each other. {@link #searchPositions} holds the position in {@link #sortedCountries}
+     * of the country a key belongs to.
+     */
+    private final String[] searchKeys;
+    private final int[] searchPositions;
+
+    public CountryIndex(List<Country> countries, Locale locale) {
+        this.countries = Collections.unmodifiableList(new ArrayList<>(countries));
+        this.byAbbreviation = new HashMap<>(countries.size() * 2);
+        this.byCode = new HashMap<>(countries.size() * 2);
+        for (Country country : countries) {
+            byAbbreviation.put(normalizeAbbreviation(country.getAbbreviation()), country);
+            if (!byCode.containsKey(country.getCountryCode())) {
+                byCode.put(country.getCountryCode(), country);
+            }
+        }
+
+        final Collator collator = Collator.getInstance(locale);
+        List<Country> sorted = new ArrayList<>(countries);
+        Collections.sort(sorted, new Comparator<Country>() {
+            @Override
+            public int compare(Country lhs, Country rhs) {
+                return collator.compare(lhs.getName(), rhs.getName());
+            }
+        });
+        this.sortedCountries = Collections.unmodifiableList(sorted);
+
+        final List<String> keys = new ArrayList<>();
+        final List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            String name = fold(sorted.get(i).getName());
+            for (int start = 0; start < name.length(); start++) {
+                if (start == 0 || !Character.isLetterOrDigit(name.charAt(start - 1))) {
+                    if (Character.isLetterOrDigit(name.charAt(start))) {
+                        keys.add(name.substring(start));
+                        positions.add(i);
+                    }
+                }
+            }
+            keys.add(sorted.get(i).getCountryCode());
+            positions.add(i);
+        }
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                return keys.get(lhs).compareTo(keys.get(rhs));
+            }
+        });
+        this.searchKeys = new String[order.length];
+        this.searchPositions = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            searchKeys[i] = keys.get(order[i]);
+            searchPositions[i] = positions.get(order[i]);
+        }
+    }
+
+    public Country getByAbbreviation(String abbreviation) {
+        return abbreviation == null ? null : byAbbreviation.get(normalizeAbbreviation(abbreviation));
+    }
+
+    /**
+     * @param code the dialing code, with or without leading +
+     */
+    public Country getByCode(String code) {
+        return code == null ? null : byCode.get(code.replace("+", ""));
+    }
+
+    public boolean hasCode(String code) {
+        return byCode.containsKey(code);
+    }
+
+    /**
+     * @return all countries, ordered by name
+     */
+    public List<Country> getSortedCountries() {
+        return sortedCountries;
+    }
+
+    /**
+     * Finds the countries with a name word or dialing code starting with the query, ignoring case and accents.
+     *
+     * @return the matching countries ordered by name, all countries for an empty query
+     */
+    public List<Country> search(String query) {
+        String key = query == null ? "" : fold(query.trim());
+        if (key.startsWith("+")) {
+            key = key.substring(1);
+        }
+        if (key.isEmpty()) {
+            return sortedCountries;
+        }
+        BitSet matches = new BitSet(sortedCountries.size());
+        int i = lowerBound(key);
+        while (i < searchKeys.length && searchKeys[i].startsWith(key)) {
+            matches.set(searchPositions[i]);
+            i++;
+        }
+        List<Country> result = new ArrayList<>(matches.cardinality());
+        for (int p = matches.nextSetBit(0); p >= 0; p = matches.nextSetBit(p + 1)) {
+            result.add(sortedCountries.get(p));
+        }
+        return result;
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = searchKeys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (searchKeys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Writes the countries in the order the index was built from, so that {@link #read(Reader, Locale)} gives the same
+     * dialing code owners.
+     */
+    public void write(Writer writer) throws IOException {
+        writer.write(FORMAT_HEADER);
+        writer.write('\n');
+        for (Country country : countries) {
+            writer.write(country.getAbbreviation());
+            writer.write(SEPARATOR);
+            writer.write(country.getCountryCode());
+            writer.write(SEPARATOR);
+            writer.write(country.getName());
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * @return the index, or null if the data is not in the expected format
+     */
+    public static CountryIndex read(Reader reader, Locale locale) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        if (!FORMAT_HEADER.equals(in.readLine())) {
+            return null;
+        }
+        List<Country> countries = new ArrayList<>();
+        String line;
+        while ((line = in.readLine()) != null) {
+            int first = line.indexOf(SEPARATOR);
+            int second = first < 0 ? -1 : line.indexOf(SEPARATOR, first + 1);
+            if (second < 0) {
+                return null;
+            }
+            Country country = new Country();
+            country.setAbbreviation(line.substring(0, first));
+            country.setCountryCode(line.substring(first + 1, second));
+            country.setName(line.substring(second + 1));
+            countries.add(country);
+        }
+        return countries.isEmpty() ? null : new CountryIndex(countries, locale);
+    }
+
+    private static String normalizeAbbreviation(String abbreviation) {
+        return abbreviation.toUpperCase(Locale.US);
+    }
+
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
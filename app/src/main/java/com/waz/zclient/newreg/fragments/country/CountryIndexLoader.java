@@ -0,0 +1,230 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.newreg.fragments.country;
+
+import android.content.Context;
+import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import com.waz.threading.Threading;
+import com.waz.zclient.BuildConfig;
+import timber.log.Timber;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Builds the {@link CountryIndex} once per process and locale, a build that failed is tried again on the next
+ * lookup. Building it from the phone number metadata means loading the metadata of every region, so the result is
+ * also cached on disk for the current app version.
+ */
+public final class CountryIndexLoader {
+
+    private static final String CACHE_FILE_PREFIX = "country_index_";
+    private static final String CHARSET = "UTF-8";
+
+    private static final Map<String, FutureTask<CountryIndex>> tasks = new HashMap<>();
+
+    private CountryIndexLoader() {
+    }
+
+    /**
+     * Starts building the index in the background if it isn't built or being built already.
+     */
+    public static void load(Context context) {
+        FutureTask<CountryIndex> task = task(context);
+        if (task != null) {
+            Threading.Background().execute(task);
+        }
+    }
+
+    /**
+     * @return the index, waiting for a build in progress or building it on the calling thread if none was started
+     */
+    public static CountryIndex await(Context context) {
+        FutureTask<CountryIndex> task;
+        synchronized (tasks) {
+            task = task(context);
+            if (task == null) {
+                task = tasks.get(localeKey());
+            }
+        }
+        // running a task that was already started is a no-op
+        task.run();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            Timber.e(e, "Building country index failed");
+        }
+        return new CountryIndex(Collections.<Country>emptyList(), Locale.getDefault());
+    }
+
+    /**
+     * @return the newly created task, or null if there already was one for the current locale
+     */
+    private static FutureTask<CountryIndex> task(Context context) {
+        final String localeKey = localeKey();
+        final Context appContext = context.getApplicationContext();
+        synchronized (tasks) {
+            if (tasks.containsKey(localeKey)) {
+                return null;
+            }
+            FutureTask<CountryIndex> task = new FutureTask<CountryIndex>(new Callable<CountryIndex>() {
+                @Override
+                public CountryIndex call() throws Exception {
+                    return loadOrBuild(appContext, localeKey);
+                }
+            }) {
+                @Override
+                protected void setException(Throwable t) {
+                    // A failed build isn't kept, the next lookup starts a new one
+                    synchronized (tasks) {
+                        if (tasks.get(localeKey) == this) {
+                            tasks.remove(localeKey);
+                        }
+                    }
+                    super.setException(t);
+                }
+            };
+            tasks.put(localeKey, task);
+            return task;
+        }
+    }
+
+    private static String localeKey() {
+        return Locale.getDefault().toString();
+    }
+
+    private static CountryIndex loadOrBuild(Context context, String localeKey) {
+        Locale locale = Locale.getDefault();
+        File cacheDir = context.getCacheDir();
+        String fileName = CACHE_FILE_PREFIX + localeKey + "_" + BuildConfig.VERSION_CODE;
+        File cacheFile = new File(cacheDir, fileName);
+
+        if (cacheFile.exists()) {
+            CountryIndex index = readCache(cacheFile, locale);
+            if (index != null) {
+                return index;
+            }
+        }
+
+        CountryIndex index = new CountryIndex(buildCountries(locale), locale);
+        writeCache(index, cacheDir, cacheFile);
+        return index;
+    }
+
+    /**
+     * Lists the supported regions with the main region of every dialing code first, so that it owns the code in the
+     * index (+1 is US, not Canada or one of the Caribbean countries).
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private static List<Country> buildCountries(Locale displayLocale) {
+        PhoneNumberUtil phoneNumberUtil = PhoneNumberUtil.getInstance();
+        Set<String> regions = new TreeSet<>(phoneNumberUtil.getSupportedRegions());
+        List<Country> mainRegions = new ArrayList<>();
+        List<Country> otherRegions = new ArrayList<>();
+
+        for (String region : regions) {
+            int code = phoneNumberUtil.getCountryCodeForRegion(region);
+            Locale locale = new Locale(displayLocale.getLanguage(), region);
+            Country country = new Country();
+            country.setAbbreviation(locale.getCountry());
+            country.setCountryCode(Integer.toString(code));
+            country.setName(locale.getDisplayCountry(displayLocale));
+            if (region.equals(phoneNumberUtil.getRegionCodeForCountryCode(code))) {
+                mainRegions.add(country);
+            } else {
+                otherRegions.add(country);
+            }
+        }
+
+        mainRegions.addAll(otherRegions);
+        return mainRegions;
+    }
+
+    private static CountryIndex readCache(File cacheFile, Locale locale) {
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(new FileInputStream(cacheFile), CHARSET);
+            return CountryIndex.read(reader, locale);
+        } catch (IOException e) {
+            Timber.w(e, "Reading country index cache failed");
+            return null;
+        } finally {
+            close(reader);
+        }
+    }
+
+    private static void writeCache(CountryIndex index, File cacheDir, File cacheFile) {
+        File[] stale = cacheDir.listFiles();
+        if (stale != null) {
+            for (File file : stale) {
+                if (file.getName().startsWith(CACHE_FILE_PREFIX) && !file.equals(cacheFile)) {
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+        }
+
+        File tmpFile = new File(cacheDir, cacheFile.getName() + ".tmp");
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(tmpFile), CHARSET);
+            index.write(writer);
+            writer.close();
+            writer = null;
+            if (!tmpFile.renameTo(cacheFile)) {
+                Timber.w("Moving country index cache to %s failed", cacheFile);
+            }
+        } catch (IOException e) {
+            Timber.w(e, "Writing country index cache failed");
+        } finally {
+            close(writer);
+            //noinspection ResultOfMethodCallIgnored
+            tmpFile.delete();
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // nothing to do
+        }
+    }
+}
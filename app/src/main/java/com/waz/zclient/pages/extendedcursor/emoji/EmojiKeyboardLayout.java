@@ -33,19 +33,17 @@ import com.waz.zclient.R;
 import com.waz.zclient.ui.colorpicker.EmojiAdapter;
 import com.waz.zclient.ui.colorpicker.EmojiSize;
 import com.waz.zclient.ui.views.tab.TabIndicatorLayout;
+import com.waz.zclient.utils.EmojiKeyboardModel;
 import com.waz.zclient.utils.Emojis;
 import com.waz.zclient.utils.ViewUtils;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
 public class EmojiKeyboardLayout extends LinearLayout {
 
     private static final int SPAN_COUNT = 4;
-    private static final int CATEGORY_COUNT = 9;
     private static final int TAB_COUNT = 10;
 
     private Callback callback;
@@ -54,10 +52,10 @@ public class EmojiKeyboardLayout extends LinearLayout {
     private GridLayoutManager layoutManager;
     private TabIndicatorLayout tapIndicatorLayout;
     private EmojiSize currentEmojiSize;
-    private int[] categoryPositions;
 
-    private List<String> emojis;
-    private List<Integer> spaces;
+    private EmojiKeyboardModel.Keyboard keyboard;
+    private List<String> populatedRecent;
+    private Set<String> populatedUnsupported;
 
     public EmojiKeyboardLayout(Context context) {
         this(context, null);
@@ -85,9 +83,13 @@ public class EmojiKeyboardLayout extends LinearLayout {
     }
 
     public void setEmojis(List<String> recent, Set<String> unsupported) {
-        populateEmojis(recent, unsupported);
-        emojiAdapter.setEmojis(emojis, currentEmojiSize);
-        updateCategoryPositions(unsupported);
+        // The unsupported set stays the same instance until the fonts are probed again
+        if (keyboard == null || unsupported != populatedUnsupported || !isSameRecent(recent)) {
+            keyboard = EmojiKeyboardModel.get(unsupported).withRecent(recent);
+            emojiAdapter.setEmojis(keyboard, currentEmojiSize);
+            populatedRecent = recent == null ? null : new ArrayList<>(recent);
+            populatedUnsupported = unsupported;
+        }
         if (recent != null && recent.size() > 0) {
             tapIndicatorLayout.setSelected(0);
         } else {
@@ -95,9 +97,12 @@ public class EmojiKeyboardLayout extends LinearLayout {
         }
     }
 
+    private boolean isSameRecent(List<String> recent) {
+        return recent == null ? populatedRecent == null : recent.equals(populatedRecent);
+    }
+
     private void init() {
         currentEmojiSize = EmojiSize.MEDIUM;
-        categoryPositions = new int[CATEGORY_COUNT];
 
         emojiAdapter = new EmojiAdapter(getContext());
 
@@ -108,7 +113,7 @@ public class EmojiKeyboardLayout extends LinearLayout {
         layoutManager.setSpanSizeLookup(new GridLayoutManager.SpanSizeLookup() {
             @Override
             public int getSpanSize(int position) {
-                return spaces.contains(position) ? SPAN_COUNT : 1;
+                return keyboard != null && keyboard.isSpace(position) ? SPAN_COUNT : 1;
             }
         });
         layoutManager.setSpanCount(SPAN_COUNT);
@@ -157,31 +162,6 @@ public class EmojiKeyboardLayout extends LinearLayout {
         });
     }
 
-    private List<String> getFilteredList(String[] strings, Set<String> unsupported) {
-        List<String> list = Arrays.asList(strings);
-        if (unsupported == null || unsupported.size() == 0) {
-            return list;
-        }
-        LinkedList<String> filteredList = new LinkedList<>(list);
-        filteredList.removeAll(unsupported);
-        return filteredList;
-    }
-
-    private void populateEmojis(List<String> recent, Set<String> unsupported) {
-        spaces = new ArrayList<>();
-        emojis = new ArrayList<>();
-        if (recent != null && recent.size() > 0) {
-            emojis.addAll(recent);
-            spaces.add(emojis.size());
-            emojis.add(EmojiAdapter.SPACE);
-        }
-        for (String[] emojiArray : Emojis.getAllEmojisSortedByCategory()) {
-            emojis.addAll(getFilteredList(emojiArray, unsupported));
-            spaces.add(emojis.size());
-            emojis.add(EmojiAdapter.SPACE);
-        }
-    }
-
     private void setRecyclerViewPadding(RecyclerView recyclerView) {
         int padding;
         switch (currentEmojiSize) {
@@ -203,71 +183,21 @@ public class EmojiKeyboardLayout extends LinearLayout {
         recyclerView.setPadding(sidePadding, padding, sidePadding, padding);
     }
 
+    /**
+     * Tab 0 shows the recent emojis, the following ones the categories.
+     */
     private int getCategoryByTabPosition(int tabPos) {
-        if (tabPos >= categoryPositions.length) {
+        if (keyboard == null || tabPos <= 0 || tabPos > keyboard.getModel().getCategoryCount()) {
             return 0;
         }
-        return categoryPositions[tabPos];
+        return keyboard.getCategoryPosition(tabPos - 1);
     }
 
     private int getTabByItemPosition(int itemPos) {
-        for (int i = 0; i < categoryPositions.length - 1; i++) {
-            if (itemPos >= categoryPositions[categoryPositions.length - 1]) {
-                return categoryPositions.length - 1;
-            }
-
-            int categoryFirstItem = categoryPositions[i];
-            int nextCategoryFirstItem = categoryPositions[i + 1];
-            if (itemPos >= categoryFirstItem &&
-                itemPos < nextCategoryFirstItem) {
-                return i;
-            }
-        }
-
-        return 0;
-    }
-
-    private void updateCategoryPositions(Set<String> unsupported) {
-        for (int i = 0; i < CATEGORY_COUNT; i++) {
-            int pos = 0;
-            List<String> filteredList = null;
-            switch (i) {
-                case 1:
-                    filteredList = getFilteredList(Emojis.PEOPLE, unsupported);
-                    break;
-                case 2:
-                    filteredList = getFilteredList(Emojis.NATURE, unsupported);
-                    break;
-                case 3:
-                    filteredList = getFilteredList(Emojis.FOOD_AND_DRINK, unsupported);
-                    break;
-                case 4:
-                    filteredList = getFilteredList(Emojis.ACTIVITY, unsupported);
-                    break;
-                case 5:
-                    filteredList = getFilteredList(Emojis.TRAVEL_AND_PLACES, unsupported);
-                    break;
-                case 6:
-                    filteredList = getFilteredList(Emojis.OBJECTS, unsupported);
-                    break;
-                case 7:
-                    filteredList = getFilteredList(Emojis.SYMBOLS, unsupported);
-                    break;
-                case 8:
-                    filteredList = getFilteredList(Emojis.FLAGS, unsupported);
-                    break;
-                default:
-                    pos = 0;
-                    break;
-            }
-            if (filteredList != null && filteredList.size() > 1) {
-                pos = emojis.indexOf(filteredList.get(0));
-                if (pos < 0) {
-                    pos = 0;
-                }
-            }
-            categoryPositions[i] = pos;
+        if (keyboard == null || itemPos < 0 || itemPos >= keyboard.size()) {
+            return 0;
         }
+        return keyboard.getCategoryAt(itemPos) + 1;
     }
 
     private class EmojiScrollListener extends RecyclerView.OnScrollListener {
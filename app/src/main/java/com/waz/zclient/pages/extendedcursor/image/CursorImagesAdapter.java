@@ -21,23 +21,34 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.database.ContentObserver;
 import android.database.Cursor;
-import android.os.AsyncTask;
 import android.os.Handler;
+import android.os.Looper;
 import android.provider.MediaStore;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import com.waz.api.ImageAsset;
+import com.waz.threading.Threading;
 import com.waz.zclient.R;
 import com.waz.zclient.views.images.ImageAssetView;
+import timber.log.Timber;
+
+import java.util.Arrays;
 
 class CursorImagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     static final int VIEW_TYPE_CAMERA = 0;
     private static final int VIEW_TYPE_GALLERY = 1;
 
-    private Cursor cursor;
+    private static final String[] GALLERY_PROJECTION = {MediaStore.Images.Media._ID,
+                                                        MediaStore.Images.Media.ORIENTATION};
+    private static final String GALLERY_SORT_ORDER = MediaStore.Images.Media.DATE_ADDED + " DESC, " +
+                                                     MediaStore.Images.Media._ID + " DESC";
+
+    private final GalleryDataSource dataSource;
+    private final GalleryThumbnailLoader thumbnailLoader;
+    private int thumbnailSize;
     private CursorImagesLayout.Callback callback;
     private AdapterCallback adapterCallback;
     private CameraViewHolder cameraViewHolder;
@@ -79,7 +90,7 @@ class CursorImagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
         @Override
         public void onChange(boolean selfChange) {
             if (!closed) {
-                load();
+                dataSource.requestRefresh();
             }
         }
     };
@@ -88,33 +99,66 @@ class CursorImagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     CursorImagesAdapter(Context context, AdapterCallback adapterCallback) {
         this.resolver = context.getContentResolver();
         this.adapterCallback = adapterCallback;
+        this.thumbnailLoader = new GalleryThumbnailLoader(resolver);
+        this.dataSource = new GalleryDataSource(new GalleryDataSource.Query() {
+            @Override
+            public GalleryDataSource.Page load(int offset, int limit) {
+                return queryGallery(resolver, offset, limit);
+            }
+        }, Threading.Background(), new Handler(Looper.getMainLooper()), new GalleryDataSource.Listener() {
+            @Override
+            public void onItemsInserted(int position, int count) {
+                // the camera is the first item
+                notifyItemRangeInserted(position + 1, count);
+            }
 
-        load();
+            @Override
+            public void onItemsChanged() {
+                notifyDataSetChanged();
+            }
+        });
+
+        dataSource.start();
         resolver.registerContentObserver(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, false, observer);
     }
 
-    private void load() {
-        new AsyncTask<Void, Void, Cursor>() {
-            @Override
-            protected Cursor doInBackground(Void... params) {
-                Cursor c = resolver.query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, null, null, null, null);
-                c.moveToLast(); // force cursor loading and move to last, as we are displaying images in reverse order
-                return c;
+    private static GalleryDataSource.Page queryGallery(ContentResolver resolver, int offset, int limit) {
+        Cursor c = null;
+        try {
+            // Not every provider accepts a LIMIT in the sort order, so the window is read from the cursor, which
+            // only fills the rows around the position that is read
+            c = resolver.query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
+                               GALLERY_PROJECTION,
+                               null,
+                               null,
+                               GALLERY_SORT_ORDER);
+            if (c == null) {
+                return null;
             }
-
-            @Override
-            protected void onPostExecute(Cursor c) {
-                if (closed) {
-                    c.close();
-                } else {
-                    if (cursor != null) {
-                        cursor.close();
-                    }
-                    cursor = c;
-                    notifyDataSetChanged();
-                }
+            int count = Math.max(0, Math.min(limit, c.getCount() - offset));
+            long[] ids = new long[count];
+            int[] orientations = new int[count];
+            int i = 0;
+            if (count > 0 && c.moveToPosition(offset)) {
+                do {
+                    ids[i] = c.getLong(0);
+                    orientations[i] = c.getInt(1);
+                    i++;
+                } while (i < count && c.moveToNext());
+            }
+            if (i < count) {
+                ids = Arrays.copyOf(ids, i);
+                orientations = Arrays.copyOf(orientations, i);
+            }
+            return new GalleryDataSource.Page(ids, orientations);
+        } catch (Exception e) {
+            Timber.e(e, "Failed loading gallery images");
+            return null;
+        } finally {
+            if (c != null) {
+                c.close();
             }
-        } .execute();
+        }
     }
 
     @Override
@@ -126,6 +170,9 @@ class CursorImagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
             cameraViewHolder.getLayout().setCallback(cameraCallback);
             return cameraViewHolder;
         } else {
+            if (thumbnailSize == 0) {
+                thumbnailSize = parent.getHeight() / CursorImagesLayout.IMAGE_ROWS;
+            }
             return new GalleryItemViewHolder((ImageAssetView) inflater.inflate(R.layout.item_cursor_gallery, parent, false));
         }
     }
@@ -133,15 +180,24 @@ class CursorImagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     @Override
     public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
         if (getItemViewType(position) == VIEW_TYPE_GALLERY) {
-            cursor.moveToPosition(cursor.getCount() - position);
-            ((GalleryItemViewHolder) holder).setPath(cursor.getString(cursor.getColumnIndex(MediaStore.Images.Media.DATA)));
+            ((GalleryItemViewHolder) holder).bind(dataSource.getId(position - 1),
+                                                  dataSource.getOrientation(position - 1),
+                                                  thumbnailSize,
+                                                  thumbnailLoader);
             ((GalleryItemViewHolder) holder).setCallback(callback);
         }
     }
 
+    @Override
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        if (holder instanceof GalleryItemViewHolder) {
+            ((GalleryItemViewHolder) holder).recycle();
+        }
+    }
+
     @Override
     public int getItemCount() {
-        return cursor == null ? 1 : cursor.getCount() + 1;
+        return closed ? 1 : dataSource.size() + 1;
     }
 
     @Override
@@ -155,11 +211,8 @@ class CursorImagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
             cameraViewHolder.getLayout().onClose();
         }
 
-        if (cursor != null) {
-            cursor.close();
-            cursor = null;
-            notifyDataSetChanged();
-        }
+        dataSource.close();
+        notifyDataSetChanged();
 
         resolver.unregisterContentObserver(observer);
     }
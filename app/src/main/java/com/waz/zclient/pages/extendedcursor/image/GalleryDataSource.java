@@ -0,0 +1,195 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.extendedcursor.image;
+
+import android.os.Handler;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * Media ids and orientations of the gallery images, newest first, loaded page by page in the background as the user
+ * scrolls towards the end of what is loaded so far. Refresh requests are debounced, as the media store
+ * usually reports a burst of changes when images are added.
+ *
+ * Has to be used on the main thread.
+ */
+class GalleryDataSource {
+
+    static final int PAGE_SIZE = 120;
+    static final int PREFETCH_DISTANCE = PAGE_SIZE / 2;
+    static final long REFRESH_DEBOUNCE_MS = 500;
+
+    interface Query {
+        /**
+         * @return the images of the requested window, fewer than {@code limit} at the end of the gallery,
+         * or null if the gallery can't be read
+         */
+        Page load(int offset, int limit);
+    }
+
+    static final class Page {
+        final long[] ids;
+        /**
+         * Clockwise rotation of each image in degrees, as stored in the media store
+         */
+        final int[] orientations;
+
+        Page(long[] ids, int[] orientations) {
+            this.ids = ids;
+            this.orientations = orientations;
+        }
+
+        int size() {
+            return ids.length;
+        }
+    }
+
+    interface Listener {
+        void onItemsInserted(int position, int count);
+
+        void onItemsChanged();
+    }
+
+    private final Query query;
+    private final Executor executor;
+    private final Handler mainHandler;
+    private final Listener listener;
+
+    private long[] ids = new long[0];
+    private int[] orientations = new int[0];
+    private int size;
+    private boolean loading;
+    private boolean endReached;
+    private boolean closed;
+    private int generation;
+
+    private final Runnable refreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            refresh();
+        }
+    };
+
+    GalleryDataSource(Query query, Executor executor, Handler mainHandler, Listener listener) {
+        this.query = query;
+        this.executor = executor;
+        this.mainHandler = mainHandler;
+        this.listener = listener;
+    }
+
+    void start() {
+        load(0, PAGE_SIZE, false);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEndReached() {
+        return endReached;
+    }
+
+    /**
+     * Returns the media id at the given position and loads the next page if the position is close to the end.
+     */
+    long getId(int position) {
+        if (!loading && !endReached && position >= size - PREFETCH_DISTANCE) {
+            load(size, PAGE_SIZE, false);
+        }
+        return ids[position];
+    }
+
+    int getOrientation(int position) {
+        return orientations[position];
+    }
+
+    void requestRefresh() {
+        if (closed) {
+            return;
+        }
+        mainHandler.removeCallbacks(refreshRunnable);
+        mainHandler.postDelayed(refreshRunnable, REFRESH_DEBOUNCE_MS);
+    }
+
+    /**
+     * Reloads everything loaded so far in one go, results of loads still running are dropped.
+     */
+    void refresh() {
+        if (closed) {
+            return;
+        }
+        generation++;
+        load(0, Math.max(size, PAGE_SIZE), true);
+    }
+
+    void close() {
+        closed = true;
+        generation++;
+        mainHandler.removeCallbacks(refreshRunnable);
+    }
+
+    private void load(final int offset, final int limit, final boolean replace) {
+        loading = true;
+        final int loadGeneration = generation;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Page page = query.load(offset, limit);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onLoaded(loadGeneration, limit, page, replace);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onLoaded(int loadGeneration, int limit, Page page, boolean replace) {
+        if (closed || loadGeneration != generation) {
+            return;
+        }
+        loading = false;
+        if (page == null) {
+            endReached = true;
+            return;
+        }
+        endReached = page.size() < limit;
+        if (replace) {
+            ids = page.ids;
+            orientations = page.orientations;
+            size = page.size();
+            listener.onItemsChanged();
+            return;
+        }
+        if (page.size() == 0) {
+            return;
+        }
+        if (size + page.size() > ids.length) {
+            int capacity = Math.max(size + page.size(), ids.length * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            orientations = Arrays.copyOf(orientations, capacity);
+        }
+        System.arraycopy(page.ids, 0, ids, size, page.size());
+        System.arraycopy(page.orientations, 0, orientations, size, page.size());
+        int start = size;
+        size += page.size();
+        listener.onItemsInserted(start, page.size());
+    }
+}
@@ -17,20 +17,31 @@
  */
 package com.waz.zclient.pages.extendedcursor.image;
 
-import android.net.Uri;
+import android.content.ContentUris;
+import android.graphics.Bitmap;
+import android.provider.MediaStore;
 import android.support.v7.widget.RecyclerView;
 import android.view.View;
-import com.waz.api.ImageAsset;
 import com.waz.api.ImageAssetFactory;
 import com.waz.zclient.views.images.ImageAssetView;
 
-import java.io.File;
-
 public class GalleryItemViewHolder extends RecyclerView.ViewHolder {
 
+    private static final long NO_MEDIA_ID = -1;
+
     private final ImageAssetView imageView;
-    private ImageAsset asset;
     private CursorImagesLayout.Callback callback;
+    private long mediaId = NO_MEDIA_ID;
+    private int orientation;
+    private GalleryThumbnailLoader.Request thumbnailRequest;
+
+    private final GalleryThumbnailLoader.Callback thumbnailCallback = new GalleryThumbnailLoader.Callback() {
+        @Override
+        public void onThumbnailLoaded(Bitmap bitmap) {
+            thumbnailRequest = null;
+            imageView.setImageBitmap(bitmap);
+        }
+    };
 
     public GalleryItemViewHolder(ImageAssetView itemView) {
         super(itemView);
@@ -39,8 +50,10 @@ public class GalleryItemViewHolder extends RecyclerView.ViewHolder {
         imageView.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                if (asset != null && callback != null) {
-                    callback.onGalleryPictureSelected(asset);
+                if (mediaId != NO_MEDIA_ID && callback != null) {
+                    // the asset is only created for the picture which is actually selected
+                    callback.onGalleryPictureSelected(ImageAssetFactory.getImageAsset(
+                        ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, mediaId)));
                 }
             }
         });
@@ -50,8 +63,32 @@ public class GalleryItemViewHolder extends RecyclerView.ViewHolder {
         this.callback = callback;
     }
 
-    public void setPath(String path) {
-        asset = ImageAssetFactory.getImageAsset(Uri.fromFile(new File(path)));
-        imageView.setImageAsset(asset);
+    public void bind(long mediaId, int orientation, int thumbnailSize, GalleryThumbnailLoader thumbnailLoader) {
+        if (this.mediaId == mediaId &&
+            this.orientation == orientation &&
+            (thumbnailRequest != null || imageView.getDrawable() != null)) {
+            return;
+        }
+        recycle();
+        this.mediaId = mediaId;
+        this.orientation = orientation;
+        Bitmap cached = thumbnailLoader.getCached(mediaId, orientation, thumbnailSize);
+        if (cached != null) {
+            imageView.setImageBitmap(cached);
+        } else {
+            thumbnailRequest = thumbnailLoader.load(mediaId, orientation, thumbnailSize, thumbnailCallback);
+        }
+    }
+
+    /**
+     * Cancels the thumbnail still being decoded, called once the row is scrolled off screen.
+     */
+    public void recycle() {
+        if (thumbnailRequest != null) {
+            thumbnailRequest.cancel();
+            thumbnailRequest = null;
+        }
+        mediaId = NO_MEDIA_ID;
+        imageView.clearImage();
     }
 }
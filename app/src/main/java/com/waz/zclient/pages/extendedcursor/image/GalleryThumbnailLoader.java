@@ -0,0 +1,208 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.extendedcursor.image;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+import android.util.LruCache;
+import com.waz.threading.Threading;
+import timber.log.Timber;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decodes the media store thumbnails of gallery images in the background, rotates them upright and scales them
+ * down to the cell size. Decoded thumbnails are kept in an LRU cache shared by all loaders, keyed by media id,
+ * orientation and cell size, so reopening the image tray shows them right away. Requests can be cancelled, e.g.
+ * once their row scrolled off screen.
+ */
+class GalleryThumbnailLoader {
+
+    /**
+     * Up to this size the 96x96 micro thumbnails are used, above it the 512x384 mini thumbnails.
+     */
+    static final int MICRO_KIND_MAX_SIZE = 96;
+    static final int MINI_KIND_SHORT_SIDE = 384;
+    private static final int MAX_CACHE_BYTES = 16 * 1024 * 1024;
+
+    private static LruCache<String, Bitmap> cache;
+
+    private final ContentResolver resolver;
+    private final Executor executor;
+    private final Handler mainHandler;
+    private final AtomicLong requestIds = new AtomicLong();
+
+    interface Callback {
+        void onThumbnailLoaded(Bitmap bitmap);
+    }
+
+    GalleryThumbnailLoader(ContentResolver resolver) {
+        this(resolver, Threading.Background(), new Handler(Looper.getMainLooper()));
+    }
+
+    GalleryThumbnailLoader(ContentResolver resolver, Executor executor, Handler mainHandler) {
+        this.resolver = resolver;
+        this.executor = executor;
+        this.mainHandler = mainHandler;
+    }
+
+    private static synchronized LruCache<String, Bitmap> getCache() {
+        if (cache == null) {
+            int maxBytes = (int) Math.min(MAX_CACHE_BYTES, Runtime.getRuntime().maxMemory() / 16);
+            cache = new LruCache<String, Bitmap>(maxBytes) {
+                @Override
+                protected int sizeOf(String key, Bitmap value) {
+                    return value.getByteCount();
+                }
+            };
+        }
+        return cache;
+    }
+
+    static int getThumbnailKind(int size) {
+        return size > 0 && size <= MICRO_KIND_MAX_SIZE ? MediaStore.Images.Thumbnails.MICRO_KIND
+                                                        : MediaStore.Images.Thumbnails.MINI_KIND;
+    }
+
+    /**
+     * @return the power of two the mini thumbnail can be subsampled by while still covering the size
+     */
+    static int getSampleSize(int kind, int size) {
+        int sampleSize = 1;
+        if (kind == MediaStore.Images.Thumbnails.MINI_KIND && size > 0) {
+            while (MINI_KIND_SHORT_SIDE / (sampleSize * 2) >= size) {
+                sampleSize *= 2;
+            }
+        }
+        return sampleSize;
+    }
+
+    /**
+     * @return the factor which scales the shorter side of the thumbnail down to the size, thumbnails are never
+     * scaled up
+     */
+    static float getScale(int width, int height, int size) {
+        int shorterSide = Math.min(width, height);
+        return size <= 0 || shorterSide <= size ? 1f : (float) size / shorterSide;
+    }
+
+    private static String getKey(long mediaId, int orientation, int size) {
+        return mediaId + ":" + orientation + ":" + size;
+    }
+
+    Bitmap getCached(long mediaId, int orientation, int size) {
+        return getCache().get(getKey(mediaId, orientation, size));
+    }
+
+    /**
+     * Loads the thumbnail of the given image, the callback is called on the main thread unless the request was
+     * cancelled before.
+     *
+     * @param orientation clockwise rotation of the image in degrees, as stored in the media store
+     */
+    Request load(long mediaId, int orientation, int size, Callback callback) {
+        Request request = new Request(mediaId, orientation, size, callback);
+        executor.execute(request);
+        return request;
+    }
+
+    private static Bitmap transform(Bitmap thumbnail, int orientation, int size) {
+        float scale = getScale(thumbnail.getWidth(), thumbnail.getHeight(), size);
+        if (scale == 1f && orientation % 360 == 0) {
+            return thumbnail;
+        }
+        Matrix matrix = new Matrix();
+        matrix.postScale(scale, scale);
+        matrix.postRotate(orientation);
+        Bitmap transformed = Bitmap.createBitmap(thumbnail, 0, 0, thumbnail.getWidth(), thumbnail.getHeight(), matrix, true);
+        if (transformed != thumbnail) {
+            thumbnail.recycle();
+        }
+        return transformed;
+    }
+
+    class Request implements Runnable {
+        private final long mediaId;
+        private final int orientation;
+        private final int size;
+        private final long groupId;
+        private final Callback callback;
+        private volatile boolean cancelled;
+        private volatile boolean decoding;
+
+        private Request(long mediaId, int orientation, int size, Callback callback) {
+            this.mediaId = mediaId;
+            this.orientation = orientation;
+            this.size = size;
+            this.groupId = requestIds.incrementAndGet();
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            final String key = getKey(mediaId, orientation, size);
+            Bitmap bitmap = getCache().get(key);
+            if (bitmap == null) {
+                final int kind = getThumbnailKind(size);
+                final BitmapFactory.Options options = new BitmapFactory.Options();
+                options.inSampleSize = getSampleSize(kind, size);
+                decoding = true;
+                try {
+                    bitmap = MediaStore.Images.Thumbnails.getThumbnail(resolver, mediaId, groupId, kind, options);
+                } catch (Exception e) {
+                    Timber.w(e, "Failed loading thumbnail of %d", mediaId);
+                } finally {
+                    decoding = false;
+                }
+                if (bitmap == null) {
+                    return;
+                }
+                bitmap = transform(bitmap, orientation, size);
+                getCache().put(key, bitmap);
+            }
+            if (cancelled) {
+                return;
+            }
+            final Bitmap thumbnail = bitmap;
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!cancelled) {
+                        callback.onThumbnailLoaded(thumbnail);
+                    }
+                }
+            });
+        }
+
+        void cancel() {
+            cancelled = true;
+            if (decoding) {
+                MediaStore.Images.Thumbnails.cancelThumbnailRequest(resolver, mediaId, groupId);
+            }
+        }
+    }
+}
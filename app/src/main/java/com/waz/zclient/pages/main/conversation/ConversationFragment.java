@@ -129,6 +129,7 @@ import com.waz.zclient.core.controllers.tracking.events.media.StartedRecordingAu
 import com.waz.zclient.core.stores.IStoreFactory;
 import com.waz.zclient.core.stores.conversation.ConversationChangeRequester;
 import com.waz.zclient.core.stores.conversation.ConversationStoreObserver;
+import com.waz.zclient.core.stores.draft.DraftStoreObserver;
 import com.waz.zclient.core.stores.inappnotification.InAppNotificationStoreObserver;
 import com.waz.zclient.core.stores.inappnotification.KnockingEvent;
 import com.waz.zclient.core.stores.network.DefaultNetworkAction;
@@ -198,6 +199,7 @@ public class ConversationFragment extends BaseFragment<ConversationFragment.Cont
                                                                                                   StreamMediaPlayerBarFragment.Container,
                                                                                                   StreamMediaBarObserver,
                                                                                                   ParticipantsStoreObserver,
+                                                                                                  DraftStoreObserver,
                                                                                                   InAppNotificationStoreObserver,
                                                                                                   MessageViewsContainer,
                                                                                                   NavigationControllerObserver,
@@ -242,6 +244,7 @@ public class ConversationFragment extends BaseFragment<ConversationFragment.Cont
     private MessageStreamManager messageStreamManager;
     private InputStateIndicator inputStateIndicator;
     private UpdateListener typingListener;
+    private CursorInputPipeline cursorInputPipeline;
 
     private TypingIndicatorView typingIndicatorView;
     private LoadingIndicatorView conversationLoadingIndicatorViewView;
@@ -328,6 +331,38 @@ public class ConversationFragment extends BaseFragment<ConversationFragment.Cont
         }
     };
 
+    private final CursorInputPipeline.Callback cursorInputCallback = new CursorInputPipeline.Callback() {
+        @Override
+        public void onTextUpdated(String text) {
+            if (getControllerFactory().getUserPreferencesController().isCursorSendButtonEnabled()) {
+                cursorLayout.showSendButton(!TextUtils.isEmpty(text));
+            }
+        }
+
+        @Override
+        public void onReanchor() {
+            // this is needed to make sure that text is scrolled to bottom - on some devices
+            // the keyboard height changes while text is being entered
+            if (listView != null && !cursorLayout.isEditingMessage()) {
+                messageStreamManager.onCursorStateEdit();
+            }
+        }
+
+        @Override
+        public void onTyping() {
+            if (inputStateIndicator != null) {
+                inputStateIndicator.textChanged();
+            }
+        }
+
+        @Override
+        public void onTypingStopped() {
+            if (inputStateIndicator != null) {
+                inputStateIndicator.textCleared();
+            }
+        }
+    };
+
     private final MessageContent.Asset.ErrorHandler assetErrorHandler = new MessageContent.Asset.ErrorHandler() {
         @Override
         public void noWifiAndFileIsLarge(long sizeInBytes, NetworkMode net, final MessageContent.Asset.Answer answer) {
@@ -503,6 +538,7 @@ public class ConversationFragment extends BaseFragment<ConversationFragment.Cont
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         assetIntentsManager = new AssetIntentsManager(getActivity(), this, savedInstanceState);
+        conversationModelObserver.enableCoalescing(ModelObserver.DEFAULT_COALESCING_LATENCY_MILLIS);
     }
 
     @Override
@@ -625,6 +661,7 @@ public class ConversationFragment extends BaseFragment<ConversationFragment.Cont
         });
         listView.setAdapter(messageAdapter);
         messageStreamManager = new MessageStreamManager(listView, messageAdapter);
+        cursorInputPipeline = new CursorInputPipeline(cursorInputCallback);
 
         // invisible footer to scroll over inputfield
         invisibleFooter = new FrameLayout(getActivity());
@@ -669,6 +706,7 @@ public class ConversationFragment extends BaseFragment<ConversationFragment.Cont
         if (!TextUtils.isEmpty(draftText)) {
             cursorLayout.setText(draftText);
         }
+        getStoreFactory().getDraftStore().addDraftStoreObserver(this);
 
         if (BuildConfig.SHOW_MENTIONING) {
             getControllerFactory().getMentioningController().addObserver(this);
@@ -748,6 +786,7 @@ public class ConversationFragment extends BaseFragment<ConversationFragment.Cont
             getStoreFactory().getDraftStore().setDraft(getStoreFactory().getConversationStore().getCurrentConversation(),
                                                        cursorLayout.getText().trim());
         }
+        getStoreFactory().getDraftStore().removeDraftStoreObserver(this);
         getStoreFactory().getInAppNotificationStore().removeInAppNotificationObserver(this);
         getStoreFactory().getParticipantsStore().removeParticipantsStoreObserver(this);
         getControllerFactory().getStreamMediaPlayerController().removeStreamMediaBarObserver(this);
@@ -773,9 +812,14 @@ public class ConversationFragment extends BaseFragment<ConversationFragment.Cont
     public void onDestroyView() {
         containerPreview = null;
         listView = null;
+        if (messageAdapter != null) {
+            messageAdapter.tearDown();
+        }
         messageAdapter = null;
         cursorLayout = null;
         conversationLoadingIndicatorViewView = null;
+        cursorInputPipeline.reset();
+        cursorInputPipeline = null;
         if (inputStateIndicator != null) {
             inputStateIndicator.removeUpdateListener(typingListener);
             inputStateIndicator = null;
@@ -994,6 +1038,9 @@ public class ConversationFragment extends BaseFragment<ConversationFragment.Cont
                 if (!getControllerFactory().getStreamMediaPlayerController().isSelectedConversation(toConversation.getId())) {
                     onHideMediaBar();
                 }
+                if (cursorInputPipeline != null) {
+                    cursorInputPipeline.reset();
+                }
                 if (inputStateIndicator != null) {
                     inputStateIndicator.getTypingUsers().removeUpdateListener(typingListener);
                 }
@@ -1125,11 +1172,12 @@ public class ConversationFragment extends BaseFragment<ConversationFragment.Cont
         if (keyboardIsVisible &&
             getControllerFactory().getFocusController().getCurrentFocus() == IFocusController.CONVERSATION_CURSOR &&
             !cursorLayout.isEditingMessage()) {
-            messageStreamManager.onCursorStateEdit();
+            cursorInputPipeline.onKeyboardChanged(keyboardHeight);
             getControllerFactory().getNavigationController().setMessageStreamState(VoiceBarAppearance.MINI);
         }
 
         if (!keyboardIsVisible) {
+            cursorInputPipeline.onKeyboardChanged(0);
             getControllerFactory().getNavigationController().setMessageStreamState(VoiceBarAppearance.FULL);
         }
     }
@@ -1149,27 +1197,11 @@ public class ConversationFragment extends BaseFragment<ConversationFragment.Cont
     //////////////////////////////////////////////////////////////////////////////////////////
 
     @Override
-    public void onEditTextHasChanged(int cursorPosition, String text) {
+    public void onEditTextHasChanged(int cursorPosition, String text, int lineCount) {
         if (listView == null) {
             return;
         }
-        // this is needed to make sure that text is scrolled to bottom - on some devices
-        // the keyboard height changes while text is being entered
-        if (!cursorLayout.isEditingMessage()) {
-            messageStreamManager.onCursorStateEdit();
-        }
-
-        if (inputStateIndicator != null) {
-            if (text.isEmpty()) {
-                inputStateIndicator.textCleared();
-            } else {
-                inputStateIndicator.textChanged();
-            }
-        }
-
-        if (getControllerFactory().getUserPreferencesController().isCursorSendButtonEnabled()) {
-            cursorLayout.showSendButton(!TextUtils.isEmpty(text));
-        }
+        cursorInputPipeline.onTextChanged(text, lineCount);
     }
 
     public boolean isKeyboardUp() {
@@ -1301,6 +1333,26 @@ public class ConversationFragment extends BaseFragment<ConversationFragment.Cont
 
     }
 
+    //////////////////////////////////////////////////////////////////////////////////////////
+    //
+    //  DraftStoreObserver
+    //
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void onDraftsLoaded() {
+        // drafts of the previous run are read in the background, they can arrive after the cursor was set up
+        if (cursorLayout == null ||
+            cursorLayout.isEditingMessage() ||
+            !TextUtils.isEmpty(cursorLayout.getText().trim())) {
+            return;
+        }
+        final String draftText = getStoreFactory().getDraftStore().getDraft(getStoreFactory().getConversationStore().getCurrentConversation());
+        if (!TextUtils.isEmpty(draftText)) {
+            cursorLayout.setText(draftText);
+        }
+    }
+
     //////////////////////////////////////////////////////////////////////////////////////////
     //
     //  NavigationController Callback
@@ -1767,6 +1819,10 @@ public class ConversationFragment extends BaseFragment<ConversationFragment.Cont
             return;
         }
         resetCursor();
+        IConversation currentConversation = getStoreFactory().getConversationStore().getCurrentConversation();
+        if (currentConversation != null) {
+            getControllerFactory().getLoadTimeLoggerController().messageSendStart(currentConversation.getId());
+        }
         getStoreFactory().getConversationStore().sendMessage(message);
         TrackingUtils.onSentTextMessage(getControllerFactory().getTrackingController(),
                                         getStoreFactory().getConversationStore().getCurrentConversation());
@@ -2610,6 +2666,14 @@ public class ConversationFragment extends BaseFragment<ConversationFragment.Cont
     @Override
     public void onScrollStateChanged(boolean idle) {
         checkEphemeralMessageOnScreen();
+        if (listView == null || messageAdapter == null) {
+            return;
+        }
+        if (idle) {
+            messageAdapter.prefetch(listView, listView.getFirstVisiblePosition(), listView.getLastVisiblePosition());
+        } else {
+            messageAdapter.cancelPrefetch();
+        }
     }
 
     public interface Container {
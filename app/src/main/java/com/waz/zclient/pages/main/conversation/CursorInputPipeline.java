@@ -0,0 +1,159 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.main.conversation;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Turns the text changes of the cursor, which {@link com.waz.zclient.ui.cursor.CursorLayout} reports at most once
+ * per frame, into the work the conversation has to do for them:
+ *
+ * <ul>
+ * <li>typing signals are sent at most once per typing interval, with a trailing "stopped" signal once the user
+ * paused for the stopped delay or cleared the text</li>
+ * <li>the message list is only re-anchored to the bottom when the cursor grew or shrank by a line or the keyboard
+ * height changed, not on every keystroke</li>
+ * <li>everything else which depends on the text, like the send button, runs on the same tick</li>
+ * </ul>
+ */
+public class CursorInputPipeline {
+
+    public static final long DEFAULT_TYPING_INTERVAL_MS = 2000;
+    public static final long DEFAULT_TYPING_STOPPED_DELAY_MS = 5000;
+
+    private static final int UNKNOWN = -1;
+
+    private final Callback callback;
+    private final Handler handler;
+    private final long typingInterval;
+    private final long typingStoppedDelay;
+
+    private boolean typing;
+    private boolean throttled;
+    private boolean typingSignalPending;
+    private int lineCount = UNKNOWN;
+    private int keyboardHeight = UNKNOWN;
+
+    private final Runnable throttleEndRunnable = new Runnable() {
+        @Override
+        public void run() {
+            throttled = false;
+            if (typingSignalPending) {
+                sendTypingSignal();
+            }
+        }
+    };
+
+    private final Runnable typingStoppedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            stopTyping();
+        }
+    };
+
+    public CursorInputPipeline(Callback callback) {
+        this(callback, new Handler(Looper.getMainLooper()), DEFAULT_TYPING_INTERVAL_MS, DEFAULT_TYPING_STOPPED_DELAY_MS);
+    }
+
+    public CursorInputPipeline(Callback callback, Handler handler, long typingInterval, long typingStoppedDelay) {
+        this.callback = callback;
+        this.handler = handler;
+        this.typingInterval = typingInterval;
+        this.typingStoppedDelay = typingStoppedDelay;
+    }
+
+    public void onTextChanged(String text, int lineCount) {
+        callback.onTextUpdated(text);
+
+        if (this.lineCount != lineCount) {
+            this.lineCount = lineCount;
+            callback.onReanchor();
+        }
+
+        if (text.isEmpty()) {
+            stopTyping();
+            return;
+        }
+
+        typing = true;
+        handler.removeCallbacks(typingStoppedRunnable);
+        handler.postDelayed(typingStoppedRunnable, typingStoppedDelay);
+        if (throttled) {
+            typingSignalPending = true;
+        } else {
+            sendTypingSignal();
+        }
+    }
+
+    /**
+     * @param keyboardHeight the height of the visible keyboard, 0 if it was hidden. Hiding the keyboard doesn't
+     *                       re-anchor the list, showing it again does.
+     */
+    public void onKeyboardChanged(int keyboardHeight) {
+        if (this.keyboardHeight == keyboardHeight) {
+            return;
+        }
+        this.keyboardHeight = keyboardHeight;
+        if (keyboardHeight > 0) {
+            callback.onReanchor();
+        }
+    }
+
+    /**
+     * Sends the trailing "stopped" signal if the user was typing and forgets the cursor state, called before
+     * switching to another conversation or when the view goes away.
+     */
+    public void reset() {
+        stopTyping();
+        lineCount = UNKNOWN;
+        keyboardHeight = UNKNOWN;
+    }
+
+    public boolean isTyping() {
+        return typing;
+    }
+
+    private void sendTypingSignal() {
+        typingSignalPending = false;
+        throttled = true;
+        handler.postDelayed(throttleEndRunnable, typingInterval);
+        callback.onTyping();
+    }
+
+    private void stopTyping() {
+        handler.removeCallbacks(typingStoppedRunnable);
+        handler.removeCallbacks(throttleEndRunnable);
+        throttled = false;
+        typingSignalPending = false;
+        if (typing) {
+            typing = false;
+            callback.onTypingStopped();
+        }
+    }
+
+    public interface Callback {
+        void onTextUpdated(String text);
+
+        void onReanchor();
+
+        void onTyping();
+
+        void onTypingStopped();
+    }
+}
@@ -18,19 +18,23 @@
 package com.waz.zclient.pages.main.conversation;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.BaseAdapter;
 import com.waz.api.Message;
 import com.waz.api.MessagesList;
+import com.waz.zclient.R;
 import com.waz.zclient.pages.main.conversation.views.MessageViewsContainer;
 import com.waz.zclient.pages.main.conversation.views.row.footer.FooterViewController;
 import com.waz.zclient.pages.main.conversation.views.row.footer.FooterViewControllerFactory;
 import com.waz.zclient.pages.main.conversation.views.row.message.MessageAndSeparatorViewController;
 import com.waz.zclient.pages.main.conversation.views.row.message.MessageViewController;
 import com.waz.zclient.pages.main.conversation.views.row.message.MessageViewControllerFactory;
+import com.waz.zclient.pages.main.conversation.views.row.message.MessageViewControllerPool;
 import com.waz.zclient.pages.main.conversation.views.row.message.views.TextMessageViewController;
 import com.waz.zclient.pages.main.conversation.views.row.separator.Separator;
+import com.waz.zclient.pages.main.conversation.views.row.separator.SeparatorLayout;
 import com.waz.zclient.utils.MessageUtils;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -40,8 +44,14 @@ import java.util.WeakHashMap;
 import timber.log.Timber;
 
 
-public class MessageAdapter extends BaseAdapter {
+public class MessageAdapter extends BaseAdapter implements MessageViewControllerPool.ViewTypeProvider {
+    private static final int PREFETCH_DISTANCE = 3;
+    private static final long FNV_64_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_64_PRIME = 0x100000001b3L;
+
     private final MessageViewsContainer container;
+    private final MessageViewControllerPool controllerPool;
+    private SeparatorLayout separatorLayout;
     private int unreadMessageCount;
     private MessagesList messagesList;
     private Message lastReadMessage;
@@ -50,6 +60,7 @@ public class MessageAdapter extends BaseAdapter {
 
     public MessageAdapter(MessageViewsContainer container) {
         this.container = container;
+        this.controllerPool = new MessageViewControllerPool(container);
         weakViewsSet = Collections.newSetFromMap(
             new WeakHashMap<View, Boolean>());
     }
@@ -58,10 +69,16 @@ public class MessageAdapter extends BaseAdapter {
         lastReadMessage = null;
         unreadMessageCount = 0;
         messagesList = null;
+        if (separatorLayout != null) {
+            separatorLayout.reset();
+        }
         notifyDataSetChanged();
     }
 
-    public void setMessages(@NonNull MessagesList messagesList) {
+    /**
+     * @param diff the change against the messages of the previous call, lets the separators copy just the changed rows
+     */
+    public void setMessages(@NonNull MessagesList messagesList, @Nullable MessagesListDiff diff) {
         Timber.i("setMessages: %s", messagesList);
         this.messagesList = messagesList;
         int lastReadIndex = messagesList.getLastReadIndex();
@@ -73,6 +90,9 @@ public class MessageAdapter extends BaseAdapter {
             }
             unreadMessageCount = messagesList.getUnreadCount();
         }
+        if (separatorLayout != null) {
+            separatorLayout.update(messagesList, diff, lastReadMessage, unreadMessageCount);
+        }
         notifyDataSetChanged();
     }
 
@@ -122,9 +142,48 @@ public class MessageAdapter extends BaseAdapter {
         return messagesList.get(position);
     }
 
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
     @Override
     public long getItemId(int position) {
-        return position;
+        return getStableId(getItem(position).getId());
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the message id, so that the id stays the same when messages are inserted above
+     */
+    static long getStableId(String messageId) {
+        long hash = FNV_64_OFFSET_BASIS;
+        for (int i = 0; i < messageId.length(); i++) {
+            hash ^= messageId.charAt(i);
+            hash *= FNV_64_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Creates the controllers for expensive rows just outside of the visible range while the list is idle.
+     */
+    public void prefetch(ViewGroup parent, int firstVisiblePosition, int lastVisiblePosition) {
+        if (messagesList == null) {
+            return;
+        }
+        controllerPool.prefetch(parent.getContext(),
+                                this,
+                                firstVisiblePosition,
+                                Math.min(lastVisiblePosition, getCount() - 1),
+                                PREFETCH_DISTANCE);
+    }
+
+    public void cancelPrefetch() {
+        controllerPool.cancelPrefetch();
+    }
+
+    public void tearDown() {
+        controllerPool.clear();
     }
 
     @Override
@@ -133,10 +192,12 @@ public class MessageAdapter extends BaseAdapter {
 
         Message message = getItem(position);
         Message prevMessage = position == 0 ? null : getItem(position - 1);
-        Separator separator = new Separator(prevMessage, message, lastReadMessage);
 
         if (convertView == null) {
-            messageAndSeparator = createNewMessageAndSeparatorViewController(parent, message);
+            messageAndSeparator = controllerPool.obtain(getItemViewType(position));
+            if (messageAndSeparator == null) {
+                messageAndSeparator = createNewMessageAndSeparatorViewController(parent, message);
+            }
             convertView = messageAndSeparator.getView();
             convertView.setTag(messageAndSeparator);
             weakViewsSet.add(convertView);
@@ -151,6 +212,12 @@ public class MessageAdapter extends BaseAdapter {
             }
         }
 
+        if (separatorLayout == null) {
+            separatorLayout = new SeparatorLayout(parent.getResources().getInteger(R.integer.content__burst_time_interval));
+            separatorLayout.update(messagesList, null, lastReadMessage, unreadMessageCount);
+        }
+        Separator separator = messageAndSeparator.getSeparator().set(prevMessage, message, lastReadMessage);
+        separator.setFlags(separatorLayout.getFlags(position, message, separator, container.getUnreadMessageCount()));
         messageAndSeparator.setModel(message, separator);
 
         return convertView;
@@ -34,6 +34,7 @@ public class MessageStreamManager {
     private final MessageAdapter adapter;
     private final ConversationListView listView;
     private boolean scrollToLastRead;
+    private String[] messageIds = MessagesListDiff.emptySnapshot();
 
     private final ModelObserver<IConversation> conversationObserver = new ModelObserver<IConversation>() {
         @Override
@@ -42,6 +43,7 @@ public class MessageStreamManager {
             switch (reason) {
                 case NEW_MODEL:
                     adapter.resetState();
+                    messageIds = MessagesListDiff.emptySnapshot();
                     scrollToLastRead = true;
                     break;
                 default:
@@ -81,6 +83,7 @@ public class MessageStreamManager {
 
     public void resetMessages() {
         adapter.resetState();
+        messageIds = MessagesListDiff.emptySnapshot();
     }
 
     public void onConfigurationChanged(Context context, MessageAdapter messageAdapter) {
@@ -111,7 +114,9 @@ public class MessageStreamManager {
     }
 
     private void scrollToLastRead(MessagesList messages) {
-        adapter.setMessages(messages);
+        final MessagesListDiff diff = MessagesListDiff.calculate(messageIds, messages);
+        messageIds = diff.getIds();
+        adapter.setMessages(messages, diff);
         // Need to post to set the message position selection: https://code.google.com/p/android/issues/detail?id=6741
         listView.post(new Runnable() {
             @Override
@@ -126,18 +131,33 @@ public class MessageStreamManager {
     }
 
     private void maintainScrollPosition(MessagesList messages) {
-        final int newScrollPosition = adapter.getIndexOfMessage(getTopVisibleMessage());
+        final MessagesListDiff diff = MessagesListDiff.calculate(messageIds, messages);
+        messageIds = diff.getIds();
+
+        final int firstVisiblePosition = listView.getFirstVisiblePosition();
+        if (!diff.shiftsPosition(firstVisiblePosition)) {
+            // Rows only changed in place or were added/removed below the top visible row, the list keeps
+            // its first position and offset on its own and only rebinds the visible rows
+            Timber.i("Applying %s without re-anchoring", diff);
+            adapter.setMessages(messages, diff);
+            return;
+        }
+
+        int newScrollPosition = adapter.getIndexOfMessage(getTopVisibleMessage());
+        if (newScrollPosition < 0) {
+            newScrollPosition = diff.mapOldPosition(firstVisiblePosition);
+        }
+        final int scrollPosition = newScrollPosition;
         final int topItemOffset = getTopItemOffset();
 
-        Timber.i("Scrolling to last visible - setting scroll position from %d to %d", listView.getFirstVisiblePosition(), newScrollPosition);
+        Timber.i("Applying %s - setting scroll position from %d to %d", diff, firstVisiblePosition, scrollPosition);
         listView.setBlockLayoutChildren(true);
-        adapter.setMessages(messages);
-        listView.setAdapter(adapter);
+        adapter.setMessages(messages, diff);
         // Need to post to set the message position selection: https://code.google.com/p/android/issues/detail?id=6741
         listView.post(new Runnable() {
             @Override
             public void run() {
-                listView.setSelectionFromTop(newScrollPosition, topItemOffset);
+                listView.setSelectionFromTop(scrollPosition, topItemOffset);
                 listView.setBlockLayoutChildren(false);
             }
         });
@@ -0,0 +1,251 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.main.conversation;
+
+import com.waz.api.MessagesList;
+
+/**
+ * Describes the difference between two snapshots of a {@link MessagesList} as a single edit window:
+ * everything before {@link #getStart()} and after the window is unchanged, inside the window
+ * {@link #getChangedCount()} rows were replaced and the rest were either inserted or removed.
+ *
+ * Message streams only ever grow at the end (new messages) or at the start (loading history),
+ * so a single window describes nearly every real update exactly.
+ */
+public class MessagesListDiff {
+
+    private static final String[] EMPTY_SNAPSHOT = new String[0];
+
+    /**
+     * Number of rows checked on each side of the old snapshot when it is expected to be unchanged inside the new list.
+     */
+    static final int EDGE_CHECK = 16;
+
+    private final int oldSize;
+    private final int newSize;
+    private final int start;
+    private final int changedCount;
+    private final int insertedCount;
+    private final int removedCount;
+    private final String[] ids;
+
+    private MessagesListDiff(String[] ids, int oldSize, int start, int oldWindow, int newWindow) {
+        this.ids = ids;
+        this.oldSize = oldSize;
+        this.newSize = ids.length;
+        this.start = start;
+        this.changedCount = Math.min(oldWindow, newWindow);
+        this.insertedCount = Math.max(0, newWindow - oldWindow);
+        this.removedCount = Math.max(0, oldWindow - newWindow);
+    }
+
+    public static String[] emptySnapshot() {
+        return EMPTY_SNAPSHOT;
+    }
+
+    /**
+     * Captures the message ids of the list, the only thing the diff needs to remember between updates.
+     */
+    public static String[] snapshot(MessagesList messagesList) {
+        if (messagesList == null || messagesList.size() == 0) {
+            return EMPTY_SNAPSHOT;
+        }
+        final int size = messagesList.size();
+        final String[] ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = messagesList.get(i).getId();
+        }
+        return ids;
+    }
+
+    public static MessagesListDiff calculate(String[] oldIds, String[] newIds) {
+        final int oldSize = oldIds.length;
+        final int newSize = newIds.length;
+        final int maxCommon = Math.min(oldSize, newSize);
+
+        int prefix = 0;
+        while (prefix < maxCommon && sameId(oldIds[prefix], newIds[prefix])) {
+            prefix++;
+        }
+
+        int suffix = 0;
+        final int maxSuffix = maxCommon - prefix;
+        while (suffix < maxSuffix && sameId(oldIds[oldSize - 1 - suffix], newIds[newSize - 1 - suffix])) {
+            suffix++;
+        }
+
+        return new MessagesListDiff(newIds, oldSize, prefix, oldSize - prefix - suffix, newSize - prefix - suffix);
+    }
+
+    /**
+     * Diffs the list against the ids of its previous snapshot without reading every message. When rows were only
+     * added before and after the old ones, just the added rows and {@link #EDGE_CHECK} rows at either end of the old
+     * block are read. Rows deep inside the list are assumed unchanged then. Any other update reads the whole list.
+     * The new snapshot is available from {@link #getIds()}.
+     */
+    public static MessagesListDiff calculate(String[] oldIds, MessagesList messages) {
+        final int oldSize = oldIds.length;
+        final int newSize = messages == null ? 0 : messages.size();
+        final int added = newSize - oldSize;
+        if (oldSize == 0 || added < 0) {
+            return calculate(oldIds, snapshot(messages));
+        }
+
+        final int offset = findOldBlock(oldIds, messages, added);
+        if (offset < 0) {
+            return calculate(oldIds, snapshot(messages));
+        }
+
+        final String[] newIds = new String[newSize];
+        System.arraycopy(oldIds, 0, newIds, offset, oldSize);
+        for (int i = 0; i < offset; i++) {
+            newIds[i] = messages.get(i).getId();
+        }
+        for (int i = offset + oldSize; i < newSize; i++) {
+            newIds[i] = messages.get(i).getId();
+        }
+
+        // the same windows calculate(String[], String[]) finds for rows added at the end, at the start or at both
+        final int prefix = offset == 0 ? oldSize : 0;
+        final int suffix = offset > 0 && offset == added ? oldSize : 0;
+        return new MessagesListDiff(newIds, oldSize, prefix, oldSize - prefix - suffix, newSize - prefix - suffix);
+    }
+
+    /**
+     * @return the position of the first old row in the new list if the old rows are still one block, -1 otherwise
+     */
+    private static int findOldBlock(String[] oldIds, MessagesList messages, int added) {
+        // new messages at the end and history at the start are by far the most common, try those first
+        if (isOldBlockAt(oldIds, messages, 0)) {
+            return 0;
+        }
+        if (added > 0 && isOldBlockAt(oldIds, messages, added)) {
+            return added;
+        }
+        for (int offset = 1; offset < added; offset++) {
+            if (sameId(oldIds[0], messages.get(offset).getId()) && isOldBlockAt(oldIds, messages, offset)) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isOldBlockAt(String[] oldIds, MessagesList messages, int offset) {
+        final int oldSize = oldIds.length;
+        final int edge = Math.min(EDGE_CHECK, oldSize);
+        for (int i = 0; i < edge; i++) {
+            if (!sameId(oldIds[i], messages.get(offset + i).getId()) ||
+                !sameId(oldIds[oldSize - 1 - i], messages.get(offset + oldSize - 1 - i).getId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameId(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * @return the message ids of the new snapshot
+     */
+    public String[] getIds() {
+        return ids;
+    }
+
+    /**
+     * @return size of the snapshot the diff was calculated against
+     */
+    public int getOldSize() {
+        return oldSize;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    public int getInsertedCount() {
+        return insertedCount;
+    }
+
+    public int getRemovedCount() {
+        return removedCount;
+    }
+
+    /**
+     * @return first position in the new list of the inserted range, only meaningful if {@link #getInsertedCount()} > 0
+     */
+    public int getInsertedStart() {
+        return start + changedCount;
+    }
+
+    /**
+     * @return first position in the old list of the removed range, only meaningful if {@link #getRemovedCount()} > 0
+     */
+    public int getRemovedStart() {
+        return start + changedCount;
+    }
+
+    public boolean isEmpty() {
+        return changedCount == 0 && insertedCount == 0 && removedCount == 0;
+    }
+
+    public boolean isStructural() {
+        return insertedCount > 0 || removedCount > 0;
+    }
+
+    /**
+     * @return true if rows were inserted or removed at or before the given old position, which means the
+     * position of the row the user is looking at has shifted
+     */
+    public boolean shiftsPosition(int oldPosition) {
+        return isStructural() && start + changedCount <= oldPosition;
+    }
+
+    /**
+     * Maps a position of the old snapshot to the position of the same row in the new one. Rows that were
+     * removed map to the first row after the removed range.
+     */
+    public int mapOldPosition(int oldPosition) {
+        if (oldPosition < 0) {
+            return oldPosition;
+        }
+        if (oldPosition < start + changedCount) {
+            return Math.min(oldPosition, newSize - 1);
+        }
+        if (oldPosition < start + changedCount + removedCount) {
+            return Math.min(start + changedCount, newSize - 1);
+        }
+        return Math.min(oldPosition + insertedCount - removedCount, newSize - 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MessagesListDiff(%d -> %d, start: %d, changed: %d, inserted: %d, removed: %d)",
+                             oldSize,
+                             newSize,
+                             start,
+                             changedCount,
+                             insertedCount,
+                             removedCount);
+    }
+}
@@ -75,6 +75,7 @@ public class FooterViewController implements ConversationItemViewController,
     private Message message;
 
     private boolean isMyLastMessage;
+    private Message.Status lastMessageStatus;
     private final float height;
 
     private final ModelObserver<Message> messageModelObserver = new ModelObserver<Message>() {
@@ -82,6 +83,7 @@ public class FooterViewController implements ConversationItemViewController,
         public void updated(Message message) {
 
             mainHandler.removeCallbacksAndMessages(null);
+            onMessageStatusChanged(message);
             if (message.isLiked()) {
                 showLikeDetails();
             } else {
@@ -132,6 +134,7 @@ public class FooterViewController implements ConversationItemViewController,
         this.container = container;
         mainHandler = new Handler(Looper.getMainLooper());
         ephemeralTimeoutHandler = new Handler(Looper.getMainLooper());
+        messageModelObserver.enableCoalescing(ModelObserver.DEFAULT_COALESCING_LATENCY_MILLIS);
         view = View.inflate(context, R.layout.row_conversation_footer, null);
         likeButton = ViewUtils.getView(view, R.id.gtv__footer__like__button);
         likeButtonAnimation = ViewUtils.getView(view, R.id.gtv__footer__like__button_animation);
@@ -156,6 +159,7 @@ public class FooterViewController implements ConversationItemViewController,
     public void setMessage(Message message) {
         this.message = message;
         isMyLastMessage = message.isLastMessageFromSelf();
+        lastMessageStatus = message.getMessageStatus();
         if (shouldBeExpanded() || message.getId().equals(container.getExpandedMessageId())) {
             view.setVisibility(View.VISIBLE);
             if (message.isLiked()) {
@@ -193,6 +197,23 @@ public class FooterViewController implements ConversationItemViewController,
         likeDetails.setUsers(null, false);
         message = null;
         isMyLastMessage = false;
+        lastMessageStatus = null;
+    }
+
+    /**
+     * Only a pending message seen going to sent while it is shown counts as an echo of a message just sent. Echoes
+     * which are never seen time out.
+     */
+    private void onMessageStatusChanged(Message message) {
+        Message.Status status = message.getMessageStatus();
+        if (lastMessageStatus == Message.Status.PENDING && !container.isTornDown()) {
+            if (status == Message.Status.SENT || status == Message.Status.DELIVERED) {
+                container.getControllerFactory().getLoadTimeLoggerController().messageEchoed(message.getConversationId());
+            } else if (status == Message.Status.FAILED) {
+                container.getControllerFactory().getLoadTimeLoggerController().messageSendFailed(message.getConversationId());
+            }
+        }
+        lastMessageStatus = status;
     }
 
     private void toggleLike() {
@@ -24,14 +24,18 @@ import com.waz.zclient.pages.main.conversation.views.MessageViewsContainer;
 public class FooterViewControllerFactory {
 
     public static FooterViewController create(Context context, Message message, MessageViewsContainer container) {
-        if (showFooter(message)) {
+        return create(context, message.getMessageType(), container);
+    }
+
+    public static FooterViewController create(Context context, Message.Type messageType, MessageViewsContainer container) {
+        if (showFooter(messageType)) {
             return new FooterViewController(context, container);
         }
         return null;
     }
 
-    private static boolean showFooter(Message message) {
-        switch (message.getMessageType()) {
+    private static boolean showFooter(Message.Type messageType) {
+        switch (messageType) {
             case TEXT:
             case TEXT_EMOJI_ONLY:
             case RICH_MEDIA:
@@ -34,6 +34,7 @@ public class MessageAndSeparatorViewController implements ConversationItemViewCo
     private MessageViewController messageViewController;
     private FooterViewController footerViewController;
     private Context context;
+    private final Separator separator = new Separator();
 
     public MessageAndSeparatorViewController(final MessageViewController messageViewController,
                                              FooterViewController footerViewController,
@@ -61,6 +62,13 @@ public class MessageAndSeparatorViewController implements ConversationItemViewCo
         }
     }
 
+    /**
+     * @return the separator owned by this row, to be updated and passed to {@link #setModel(Message, Separator)}
+     */
+    public Separator getSeparator() {
+        return separator;
+    }
+
     public MessageViewController getMessageViewController() {
         return messageViewController;
     }
@@ -81,19 +81,38 @@ public class MessageViewControllerFactory {
                                                                                      Message.Part.Type.TWITTER,
                                                                                      Message.Part.Type.SPOTIFY);
     private static final Map<Object, Integer> MESSAGE_TYPE_TO_POSITION = new HashMap<>(ACCEPTED_TYPES.size());
+    private static final Object[] POSITION_TO_MESSAGE_TYPE = new Object[ACCEPTED_TYPES.size() + ACCEPTED_PART_TYPES.size()];
+
+    /**
+     * Controllers which are expensive to inflate and are therefore created ahead of time by
+     * {@link MessageViewControllerPool}, with the number of spare instances kept per type.
+     */
+    private static final Map<Object, Integer> PREFETCH_CAPACITY = new HashMap<>();
 
     static {
         Type[] acceptedTypesArray = new Type[ACCEPTED_TYPES.size()];
         ACCEPTED_TYPES.toArray(acceptedTypesArray);
         for (int i = 0; i < acceptedTypesArray.length; i++) {
             MESSAGE_TYPE_TO_POSITION.put(acceptedTypesArray[i], i);
+            POSITION_TO_MESSAGE_TYPE[i] = acceptedTypesArray[i];
         }
 
         Message.Part.Type[] acceptedPartTypesArray = new Message.Part.Type[ACCEPTED_PART_TYPES.size()];
         ACCEPTED_PART_TYPES.toArray(acceptedPartTypesArray);
         for (int i = 0; i < acceptedPartTypesArray.length; i++) {
             MESSAGE_TYPE_TO_POSITION.put(acceptedPartTypesArray[i], i + acceptedTypesArray.length);
+            POSITION_TO_MESSAGE_TYPE[i + acceptedTypesArray.length] = acceptedPartTypesArray[i];
         }
+
+        PREFETCH_CAPACITY.put(Type.ASSET, 3);
+        PREFETCH_CAPACITY.put(Type.VIDEO_ASSET, 2);
+        PREFETCH_CAPACITY.put(Type.AUDIO_ASSET, 2);
+        PREFETCH_CAPACITY.put(Type.ANY_ASSET, 2);
+        PREFETCH_CAPACITY.put(Type.LOCATION, 1);
+        PREFETCH_CAPACITY.put(Message.Part.Type.WEB_LINK, 2);
+        PREFETCH_CAPACITY.put(Message.Part.Type.YOUTUBE, 1);
+        PREFETCH_CAPACITY.put(Message.Part.Type.SOUNDCLOUD, 1);
+        PREFETCH_CAPACITY.put(Message.Part.Type.SPOTIFY, 1);
     }
 
     public static MessageViewController create(Context context,
@@ -167,6 +186,59 @@ public class MessageViewControllerFactory {
         }
     }
 
+    /**
+     * Creates the controller for a view type as returned by {@link #getKeyPosition(Object)}, without a message.
+     * Only types with a prefetch capacity are supported, other types need to be created from their message.
+     */
+    public static MessageViewController create(Context context,
+                                               int viewType,
+                                               MessageViewsContainer messageViewsContainer) {
+        final Object type = getTypeForKeyPosition(viewType);
+        if (type == Type.ASSET || type == Message.Part.Type.ASSET) {
+            return new ImageMessageViewController(context, messageViewsContainer);
+        } else if (type == Type.VIDEO_ASSET) {
+            return new VideoMessageViewController(context, messageViewsContainer);
+        } else if (type == Type.AUDIO_ASSET) {
+            return new AudioMessageViewController(context, messageViewsContainer);
+        } else if (type == Type.ANY_ASSET) {
+            return new FileMessageViewController(context, messageViewsContainer);
+        } else if (type == Type.LOCATION) {
+            return new LocationMessageViewController(context, messageViewsContainer);
+        } else if (type == Message.Part.Type.WEB_LINK) {
+            return new LinkPreviewViewController(context, messageViewsContainer);
+        } else if (type == Message.Part.Type.YOUTUBE) {
+            return new YouTubeMessageViewController(context, messageViewsContainer);
+        } else if (type == Message.Part.Type.SOUNDCLOUD) {
+            return new SoundCloudMessageViewController(context, messageViewsContainer);
+        } else if (type == Message.Part.Type.SPOTIFY) {
+            return new SpotifyMessageViewController(context, messageViewsContainer);
+        }
+        throw new IllegalArgumentException("View type " + viewType + " can only be created from a message");
+    }
+
+    /**
+     * @return the message type that view type was created for, {@link Type#RICH_MEDIA} for rich media part types
+     */
+    public static Message.Type getMessageTypeForKeyPosition(int viewType) {
+        final Object type = getTypeForKeyPosition(viewType);
+        return type instanceof Type ? (Type) type : Type.RICH_MEDIA;
+    }
+
+    public static int getPrefetchCapacity(int viewType) {
+        final Object type = getTypeForKeyPosition(viewType);
+        if (type == null || !PREFETCH_CAPACITY.containsKey(type)) {
+            return 0;
+        }
+        return PREFETCH_CAPACITY.get(type);
+    }
+
+    private static Object getTypeForKeyPosition(int viewType) {
+        if (viewType < 0 || viewType >= POSITION_TO_MESSAGE_TYPE.length) {
+            return null;
+        }
+        return POSITION_TO_MESSAGE_TYPE[viewType];
+    }
+
     public static int getControllerTypeCount() {
         return ACCEPTED_TYPES.size() + ACCEPTED_PART_TYPES.size();
     }
@@ -0,0 +1,155 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.main.conversation.views.row.message;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import com.waz.zclient.pages.main.conversation.views.MessageViewsContainer;
+import com.waz.zclient.pages.main.conversation.views.row.footer.FooterViewController;
+import com.waz.zclient.pages.main.conversation.views.row.footer.FooterViewControllerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Keeps spare row controllers for view types which are expensive to inflate (video, link previews, ...).
+ *
+ * While the list is idle the pool looks at the rows just outside the visible range and creates the controllers
+ * those rows will need, one per main thread idle pass, so that scrolling them in takes a ready made controller
+ * instead of inflating during the fling. The number of spare controllers is bounded per view type by
+ * {@link MessageViewControllerFactory#getPrefetchCapacity(int)}.
+ */
+public class MessageViewControllerPool {
+
+    public interface ViewTypeProvider {
+        int getCount();
+
+        int getItemViewType(int position);
+    }
+
+    private final MessageViewsContainer container;
+    private final Deque<MessageAndSeparatorViewController>[] spareControllers;
+    private final int[] wanted;
+
+    private Context context;
+    private boolean prefetchScheduled;
+
+    private final MessageQueue.IdleHandler prefetchIdleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            prefetchScheduled = createNextWanted();
+            return prefetchScheduled;
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    public MessageViewControllerPool(MessageViewsContainer container) {
+        this.container = container;
+        int typeCount = MessageViewControllerFactory.getControllerTypeCount();
+        spareControllers = new Deque[typeCount];
+        wanted = new int[typeCount];
+    }
+
+    /**
+     * @return a spare controller for the view type or null if there is none, in which case the caller creates one
+     */
+    public MessageAndSeparatorViewController obtain(int viewType) {
+        if (viewType < 0 || viewType >= spareControllers.length || spareControllers[viewType] == null) {
+            return null;
+        }
+        return spareControllers[viewType].pollFirst();
+    }
+
+    /**
+     * Schedules creation of controllers for the rows within {@code distance} rows of the visible range.
+     */
+    public void prefetch(Context context, ViewTypeProvider provider, int firstVisible, int lastVisible, int distance) {
+        this.context = context;
+        for (int i = 0; i < wanted.length; i++) {
+            wanted[i] = 0;
+        }
+        final int count = provider.getCount();
+        final int from = Math.max(0, firstVisible - distance);
+        final int to = Math.min(count - 1, lastVisible + distance);
+        for (int position = from; position <= to; position++) {
+            if (position >= firstVisible && position <= lastVisible) {
+                continue;
+            }
+            final int viewType = provider.getItemViewType(position);
+            if (viewType >= 0 && viewType < wanted.length) {
+                wanted[viewType] = Math.min(wanted[viewType] + 1, MessageViewControllerFactory.getPrefetchCapacity(viewType));
+            }
+        }
+        if (!prefetchScheduled) {
+            prefetchScheduled = true;
+            Looper.myQueue().addIdleHandler(prefetchIdleHandler);
+        }
+    }
+
+    public void cancelPrefetch() {
+        if (prefetchScheduled) {
+            prefetchScheduled = false;
+            Looper.myQueue().removeIdleHandler(prefetchIdleHandler);
+        }
+    }
+
+    public void clear() {
+        cancelPrefetch();
+        for (Deque<MessageAndSeparatorViewController> controllers : spareControllers) {
+            if (controllers != null) {
+                controllers.clear();
+            }
+        }
+        context = null;
+    }
+
+    /**
+     * @return true if more controllers are still wanted
+     */
+    private boolean createNextWanted() {
+        if (context == null || container.isTornDown()) {
+            return false;
+        }
+        for (int viewType = 0; viewType < wanted.length; viewType++) {
+            if (wanted[viewType] == 0) {
+                continue;
+            }
+            Deque<MessageAndSeparatorViewController> controllers = spareControllers[viewType];
+            if (controllers == null) {
+                controllers = new ArrayDeque<>(MessageViewControllerFactory.getPrefetchCapacity(viewType));
+                spareControllers[viewType] = controllers;
+            }
+            if (controllers.size() >= wanted[viewType]) {
+                wanted[viewType] = 0;
+                continue;
+            }
+            controllers.addLast(create(viewType));
+            return true;
+        }
+        return false;
+    }
+
+    private MessageAndSeparatorViewController create(int viewType) {
+        MessageViewController messageViewController = MessageViewControllerFactory.create(context, viewType, container);
+        FooterViewController footerViewController = FooterViewControllerFactory.create(context,
+                                                                                       MessageViewControllerFactory.getMessageTypeForKeyPosition(viewType),
+                                                                                       container);
+        return new MessageAndSeparatorViewController(messageViewController, footerViewController, container, context);
+    }
+}
@@ -76,7 +76,7 @@ public class TextMessageLinkTextView extends LinkTextView implements AccentColor
                 if (message.isEphemeral() && message.isExpired()) {
                     setText(messageText);
                 } else {
-                    setTextLink(messageText);
+                    setTextLink(message.getId(), messageText);
                 }
             }
 
@@ -94,6 +94,7 @@ public class TextMessageLinkTextView extends LinkTextView implements AccentColor
 
     public TextMessageLinkTextView(final Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
+        messageModelObserver.enableCoalescing(ModelObserver.DEFAULT_COALESCING_LATENCY_MILLIS);
 
         textSizeRegular = context.getResources().getDimensionPixelSize(R.dimen.wire__text_size__regular);
         textSizeEmoji = context.getResources().getDimensionPixelSize(R.dimen.wire__text_size__emoji);
@@ -21,14 +21,38 @@ import com.waz.api.Message;
 
 public class Separator {
 
-    public final Message previousMessage;
-    public final Message nextMessage;
-    public final Message lastReadMessage;
+    public Message previousMessage;
+    public Message nextMessage;
+    public Message lastReadMessage;
+    private int flags = SeparatorLayout.FLAGS_UNKNOWN;
+
+    public Separator() {
+    }
 
     public Separator(Message previousMessage, Message nextMessage, Message lastReadMessage) {
+        set(previousMessage, nextMessage, lastReadMessage);
+    }
+
+    /**
+     * Rows keep one separator each and update it on every bind instead of allocating a new one.
+     */
+    public Separator set(Message previousMessage, Message nextMessage, Message lastReadMessage) {
         this.previousMessage = previousMessage;
         this.nextMessage = nextMessage;
         this.lastReadMessage = lastReadMessage;
+        this.flags = SeparatorLayout.FLAGS_UNKNOWN;
+        return this;
+    }
+
+    /**
+     * @param flags the {@link SeparatorLayout} flags of this separator, if they are already known
+     */
+    public void setFlags(int flags) {
+        this.flags = flags;
+    }
+
+    public int getFlags() {
+        return flags;
     }
 
     public Message getPreviousMessage() {
@@ -0,0 +1,343 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.main.conversation.views.row.separator;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.waz.api.Message;
+import com.waz.api.MessagesList;
+import com.waz.threading.Threading;
+import com.waz.zclient.pages.main.conversation.MessagesListDiff;
+import org.threeten.bp.Instant;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Precomputes the {@link SeparatorRules} for every position of a {@link MessagesList} snapshot on a background
+ * thread and keeps them as one byte of flags per position, so that binding a row only reads its flags.
+ *
+ * Each update copies just the rows inside the window of its {@link MessagesListDiff} and the pass only recomputes
+ * the flags around that window, everything else is taken over from the previous pass. Until a pass has been
+ * published for the current snapshot, {@link #getFlags} falls back to evaluating the rules for the row being bound.
+ */
+public class SeparatorLayout {
+
+    public static final int FLAGS_UNKNOWN = -1;
+    public static final int FLAG_NAME = 1;
+    public static final int FLAG_TIMESTAMP = 1 << 1;
+    public static final int FLAG_UNREAD_DOT = 1 << 2;
+    public static final int FLAG_DAY_BREAK = 1 << 3;
+    private static final int FLAG_COMPUTED = 1 << 7;
+    private static final int RECENT_ROWS = 16;
+
+    private final int burstTimeInterval;
+    private final Executor executor;
+    private final Handler mainHandler;
+
+    private Row[] rows;
+    private Snapshot snapshot;
+    private int generation;
+
+    public SeparatorLayout(int burstTimeInterval) {
+        this(burstTimeInterval, Threading.Background(), new Handler(Looper.getMainLooper()));
+    }
+
+    SeparatorLayout(int burstTimeInterval, Executor executor, Handler mainHandler) {
+        this.burstTimeInterval = burstTimeInterval;
+        this.executor = executor;
+        this.mainHandler = mainHandler;
+    }
+
+    public static int computeFlags(Message message, Separator separator, int burstTimeInterval, int unreadMessageCount) {
+        int flags = 0;
+        if (SeparatorRules.shouldHaveName(message, separator)) {
+            flags |= FLAG_NAME;
+        }
+        if (SeparatorRules.shouldHaveTimestamp(separator, burstTimeInterval)) {
+            flags |= FLAG_TIMESTAMP;
+        }
+        if (SeparatorRules.shouldHaveUnreadDot(separator, unreadMessageCount)) {
+            flags |= FLAG_UNREAD_DOT;
+        }
+        if (SeparatorRules.shouldHaveBigTimestamp(separator)) {
+            flags |= FLAG_DAY_BREAK;
+        }
+        return flags;
+    }
+
+    public static boolean hasFlag(int flags, int flag) {
+        return flags != FLAGS_UNKNOWN && (flags & flag) != 0;
+    }
+
+    /**
+     * Starts a pass for a new snapshot of the messages. Must be called on the main thread, the fields the rules
+     * need are copied here so that the background pass never touches the live list. Only the rows inside the
+     * window of the diff are read, the others are taken over from the previous update.
+     *
+     * @param diff the change against the list of the previous update, null to read every row
+     */
+    public void update(MessagesList messagesList,
+                       MessagesListDiff diff,
+                       Message lastReadMessage,
+                       final int unreadMessageCount) {
+        final int size = messagesList.size();
+        if (size == 0) {
+            reset();
+            return;
+        }
+        final Row[] base = rows;
+        final Row[] newRows = new Row[size];
+        final boolean full = base == null ||
+                             diff == null ||
+                             diff.getOldSize() != base.length ||
+                             diff.getIds().length != size;
+        final int windowStart;
+        final int windowEnd;
+        final int oldWindowEnd;
+        if (full) {
+            windowStart = 0;
+            windowEnd = size;
+            oldWindowEnd = 0;
+        } else {
+            windowStart = diff.getStart();
+            windowEnd = windowStart + diff.getChangedCount() + diff.getInsertedCount();
+            oldWindowEnd = windowStart + diff.getChangedCount() + diff.getRemovedCount();
+            System.arraycopy(base, 0, newRows, 0, windowStart);
+            System.arraycopy(base, oldWindowEnd, newRows, windowEnd, size - windowEnd);
+        }
+        for (int position = windowStart; position < windowEnd; position++) {
+            newRows[position] = new Row(messagesList.get(position));
+        }
+
+        // Sent messages get their server time and edits their flag without changing the id, so the diff misses them.
+        // Both only happen at the bottom of the conversation.
+        int firstChanged = size;
+        for (int position = Math.max(0, size - RECENT_ROWS); position < size; position++) {
+            if (position >= windowStart && position < windowEnd) {
+                continue;
+            }
+            final Row row = new Row(messagesList.get(position));
+            if (!row.equals(newRows[position])) {
+                newRows[position] = row;
+                firstChanged = Math.min(firstChanged, position);
+            }
+        }
+        final int changedFrom = firstChanged;
+
+        final String lastReadMessageId = lastReadMessage == null ? null : lastReadMessage.getId();
+        final Snapshot previous = full || snapshot == null || snapshot.rows != base ? null : snapshot;
+        if (previous != null && windowStart == windowEnd && windowStart == oldWindowEnd && changedFrom == size &&
+            previous.isFor(lastReadMessageId, unreadMessageCount)) {
+            return;
+        }
+
+        final int currentGeneration = ++generation;
+        rows = newRows;
+        if (previous == null || windowStart < base.length || changedFrom < size) {
+            // Rows changed in place or positions shifted, bound rows fall back to the rules until the pass is published
+            snapshot = null;
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Snapshot result = compute(newRows,
+                                                previous,
+                                                windowStart,
+                                                windowEnd,
+                                                oldWindowEnd,
+                                                changedFrom,
+                                                lastReadMessageId,
+                                                unreadMessageCount);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (currentGeneration == generation) {
+                            snapshot = result;
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    public void reset() {
+        generation++;
+        rows = null;
+        snapshot = null;
+    }
+
+    /**
+     * @return the flags of the row at the position, taken from the last published pass where possible
+     */
+    public int getFlags(int position, Message message, Separator separator, int unreadMessageCount) {
+        final Snapshot current = snapshot;
+        if (current == null || position >= current.rows.length || (current.flags[position] & FLAG_COMPUTED) == 0) {
+            return computeFlags(message, separator, burstTimeInterval, unreadMessageCount);
+        }
+        int flags = current.flags[position] & (FLAG_COMPUTED - 1);
+        Message lastReadMessage = separator.getLastReadMessage();
+        if (!current.isFor(lastReadMessage == null ? null : lastReadMessage.getId(), unreadMessageCount)) {
+            // The unread dot moves independently of the messages, it is cheap to evaluate on its own
+            flags &= ~FLAG_UNREAD_DOT;
+            if (SeparatorRules.shouldHaveUnreadDot(separator, unreadMessageCount)) {
+                flags |= FLAG_UNREAD_DOT;
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * Takes over the flags of the previous pass outside of the window and recomputes the window, the row following
+     * it and the rows from changedFrom on. Without a previous pass every row is computed.
+     */
+    private Snapshot compute(Row[] rows,
+                             Snapshot previous,
+                             int windowStart,
+                             int windowEnd,
+                             int oldWindowEnd,
+                             int changedFrom,
+                             String lastReadMessageId,
+                             int unreadMessageCount) {
+        final int size = rows.length;
+        final byte[] flags = new byte[size];
+        if (previous == null) {
+            computeRange(rows, flags, 0, size, lastReadMessageId, unreadMessageCount);
+            return new Snapshot(flags, rows, lastReadMessageId, unreadMessageCount);
+        }
+
+        System.arraycopy(previous.flags, 0, flags, 0, windowStart);
+        System.arraycopy(previous.flags, oldWindowEnd, flags, windowEnd, size - windowEnd);
+        computeRange(rows, flags, windowStart, Math.min(size, windowEnd + 1), lastReadMessageId, unreadMessageCount);
+        computeRange(rows, flags, changedFrom, size, lastReadMessageId, unreadMessageCount);
+
+        if (!previous.isFor(lastReadMessageId, unreadMessageCount)) {
+            for (int position = 1; position < size; position++) {
+                flags[position] &= ~FLAG_UNREAD_DOT;
+                if (SeparatorRules.shouldHaveUnreadDot(lastReadMessageId,
+                                                       rows[position - 1].id,
+                                                       rows[position].id,
+                                                       unreadMessageCount)) {
+                    flags[position] |= FLAG_UNREAD_DOT;
+                }
+            }
+        }
+
+        return new Snapshot(flags, rows, lastReadMessageId, unreadMessageCount);
+    }
+
+    private void computeRange(Row[] rows, byte[] flags, int from, int to, String lastReadMessageId, int unreadMessageCount) {
+        for (int position = from; position < to; position++) {
+            flags[position] = (byte) (computeFlags(position == 0 ? null : rows[position - 1],
+                                                   rows[position],
+                                                   lastReadMessageId,
+                                                   unreadMessageCount) | FLAG_COMPUTED);
+        }
+    }
+
+    private int computeFlags(Row previous, Row row, String lastReadMessageId, int unreadMessageCount) {
+        int flags = 0;
+        if (SeparatorRules.shouldHaveName(row.type,
+                                          row.edited,
+                                          previous == null ? null : previous.type,
+                                          previous == null ? null : previous.userId,
+                                          row.userId)) {
+            flags |= FLAG_NAME;
+        }
+        if (previous != null) {
+            if (SeparatorRules.shouldHaveTimestamp(previous.time, row.time, row.type, burstTimeInterval)) {
+                flags |= FLAG_TIMESTAMP;
+            }
+            if (SeparatorRules.shouldHaveUnreadDot(lastReadMessageId, previous.id, row.id, unreadMessageCount)) {
+                flags |= FLAG_UNREAD_DOT;
+            }
+            if (SeparatorRules.shouldHaveBigTimestamp(previous.time, row.time)) {
+                flags |= FLAG_DAY_BREAK;
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * The fields of a message the separator rules depend on.
+     */
+    private static final class Row {
+        final String id;
+        final String userId;
+        final Message.Type type;
+        final boolean edited;
+        final Instant time;
+
+        Row(Message message) {
+            this.id = message.getId();
+            this.userId = SeparatorRules.getUserId(message);
+            this.type = message.getMessageType();
+            this.edited = message.isEdited();
+            this.time = message.getTime();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Row)) {
+                return false;
+            }
+            Row row = (Row) o;
+            return edited == row.edited &&
+                   type == row.type &&
+                   equal(id, row.id) &&
+                   equal(userId, row.userId) &&
+                   equal(time, row.time);
+        }
+
+        @Override
+        public int hashCode() {
+            return id == null ? 0 : id.hashCode();
+        }
+
+        private static boolean equal(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    private static final class Snapshot {
+        final byte[] flags;
+        final Row[] rows;
+        final String lastReadMessageId;
+        final int unreadMessageCount;
+
+        Snapshot(byte[] flags, Row[] rows, String lastReadMessageId, int unreadMessageCount) {
+            this.flags = flags;
+            this.rows = rows;
+            this.lastReadMessageId = lastReadMessageId;
+            this.unreadMessageCount = unreadMessageCount;
+        }
+
+        boolean isFor(String lastReadMessageId, int unreadMessageCount) {
+            if (this.unreadMessageCount != unreadMessageCount) {
+                return false;
+            }
+            if (lastReadMessageId == null) {
+                return this.lastReadMessageId == null;
+            }
+            return lastReadMessageId.equals(this.lastReadMessageId);
+        }
+    }
+}
@@ -20,6 +20,7 @@ package com.waz.zclient.pages.main.conversation.views.row.separator;
 import com.waz.api.Message;
 import com.waz.zclient.BuildConfig;
 import com.waz.zclient.utils.DateConvertUtils;
+import org.threeten.bp.Instant;
 import org.threeten.bp.ZonedDateTime;
 import timber.log.Timber;
 
@@ -34,70 +35,100 @@ public class SeparatorRules {
         if (message.isEdited()) {
             return true;
         }
+        Message previousMessage = separator.getPreviousMessage();
+        Message nextMessage = separator.getNextMessage();
+        return shouldHaveName(previousMessage == null ? null : previousMessage.getMessageType(),
+                              previousMessage == null ? null : getUserId(previousMessage),
+                              nextMessage.getMessageType(),
+                              getUserId(nextMessage));
+    }
 
+    /**
+     * Same as {@link #shouldHaveName(Message, Separator)} for copied message fields, where the previous type is
+     * null if there is no previous message.
+     */
+    public static boolean shouldHaveName(Message.Type type,
+                                         boolean edited,
+                                         Message.Type previousType,
+                                         String previousUserId,
+                                         String userId) {
+        if (type == Message.Type.UNKNOWN && !BuildConfig.SHOW_DEVELOPER_OPTIONS) {
+            return false;
+        }
+        return edited || shouldHaveName(previousType, previousUserId, type, userId);
+    }
+
+    private static boolean shouldHaveName(Message.Type previousType,
+                                          String previousUserId,
+                                          Message.Type nextType,
+                                          String nextUserId) {
         // First message with no previous messages e.g. when history has been cleared
-        if (separator.getPreviousMessage() == null &&
-                separator.getNextMessage().getMessageType() != Message.Type.MEMBER_JOIN &&
-                separator.getNextMessage().getMessageType() != Message.Type.MEMBER_LEAVE &&
-                separator.getNextMessage().getMessageType() != Message.Type.CONNECT_REQUEST &&
-                separator.getNextMessage().getMessageType() != Message.Type.KNOCK &&
-                separator.getNextMessage().getMessageType() != Message.Type.RENAME &&
-                separator.getNextMessage().getMessageType() != Message.Type.OTR_ERROR &&
-                separator.getNextMessage().getMessageType() != Message.Type.OTR_VERIFIED &&
-                separator.getNextMessage().getMessageType() != Message.Type.OTR_UNVERIFIED &&
-                separator.getNextMessage().getMessageType() != Message.Type.STARTED_USING_DEVICE &&
-                separator.getNextMessage().getMessageType() != Message.Type.OTR_DEVICE_ADDED &&
-                separator.getNextMessage().getMessageType() != Message.Type.HISTORY_LOST &&
-                separator.getNextMessage().getMessageType() != Message.Type.MISSED_CALL) {
+        if (previousType == null && !isSystemMessage(nextType)) {
             return true;
         }
 
-        return separator.getPreviousMessage() != null &&
+        return previousType != null &&
 
                // messages are from different users, or the previous message is not text or image or rich media
-               (!separator.getPreviousMessage().getUser().getId().equals(separator.getNextMessage().getUser().getId()) ||
-                (separator.getPreviousMessage().getUser().getId().equals(separator.getNextMessage().getUser().getId()) &&
-                 separator.getPreviousMessage().getMessageType() != Message.Type.ASSET &&
-                 separator.getPreviousMessage().getMessageType() != Message.Type.LOCATION &&
-                 separator.getPreviousMessage().getMessageType() != Message.Type.TEXT &&
-                 separator.getPreviousMessage().getMessageType() != Message.Type.RICH_MEDIA
+               (previousUserId == null || !previousUserId.equals(nextUserId) ||
+                (previousType != Message.Type.ASSET &&
+                 previousType != Message.Type.LOCATION &&
+                 previousType != Message.Type.TEXT &&
+                 previousType != Message.Type.RICH_MEDIA
                 ) ||
-                separator.getNextMessage().getMessageType() == Message.Type.ANY_ASSET ||
-                separator.getNextMessage().getMessageType() == Message.Type.RECALLED
+                nextType == Message.Type.ANY_ASSET ||
+                nextType == Message.Type.RECALLED
                ) &&
 
                //next message is not a "system" message or a knock
-                separator.getNextMessage().getMessageType() != Message.Type.MEMBER_JOIN &&
-                separator.getNextMessage().getMessageType() != Message.Type.MEMBER_LEAVE &&
-                separator.getNextMessage().getMessageType() != Message.Type.CONNECT_REQUEST &&
-                separator.getNextMessage().getMessageType() != Message.Type.KNOCK &&
-                separator.getNextMessage().getMessageType() != Message.Type.RENAME &&
-                separator.getNextMessage().getMessageType() != Message.Type.OTR_ERROR &&
-                separator.getNextMessage().getMessageType() != Message.Type.OTR_VERIFIED &&
-                separator.getNextMessage().getMessageType() != Message.Type.OTR_UNVERIFIED &&
-                separator.getNextMessage().getMessageType() != Message.Type.STARTED_USING_DEVICE &&
-                separator.getNextMessage().getMessageType() != Message.Type.OTR_DEVICE_ADDED &&
-                separator.getNextMessage().getMessageType() != Message.Type.HISTORY_LOST &&
-                separator.getNextMessage().getMessageType() != Message.Type.MISSED_CALL;
+               !isSystemMessage(nextType);
+    }
+
+    static String getUserId(Message message) {
+        return message.getUser() == null ? null : message.getUser().getId();
+    }
+
+    private static boolean isSystemMessage(Message.Type type) {
+        return type == Message.Type.MEMBER_JOIN ||
+               type == Message.Type.MEMBER_LEAVE ||
+               type == Message.Type.CONNECT_REQUEST ||
+               type == Message.Type.KNOCK ||
+               type == Message.Type.RENAME ||
+               type == Message.Type.OTR_ERROR ||
+               type == Message.Type.OTR_VERIFIED ||
+               type == Message.Type.OTR_UNVERIFIED ||
+               type == Message.Type.STARTED_USING_DEVICE ||
+               type == Message.Type.OTR_DEVICE_ADDED ||
+               type == Message.Type.HISTORY_LOST ||
+               type == Message.Type.MISSED_CALL;
     }
 
     public static boolean shouldHaveTimestamp(Separator separator, int timeBetweenMessagesToTriggerTimestamp) {
         if (separator.getPreviousMessage() == null || separator.getNextMessage() == null) {
             return false;
         }
+        return shouldHaveTimestamp(separator.getPreviousMessage().getTime(),
+                                   separator.getNextMessage().getTime(),
+                                   separator.getNextMessage().getMessageType(),
+                                   timeBetweenMessagesToTriggerTimestamp);
+    }
 
-        if (separator.getNextMessage().getMessageType() == Message.Type.MISSED_CALL) {
+    public static boolean shouldHaveTimestamp(Instant previousTime,
+                                              Instant nextTime,
+                                              Message.Type nextType,
+                                              int timeBetweenMessagesToTriggerTimestamp) {
+        if (nextType == Message.Type.MISSED_CALL) {
             return false;
         }
 
         try {
-            ZonedDateTime previousMessageTime = DateConvertUtils.asZonedDateTime(separator.getPreviousMessage().getTime());
-            ZonedDateTime nextMessageTIme = DateConvertUtils.asZonedDateTime(separator.getNextMessage().getTime());
+            ZonedDateTime previousMessageTime = DateConvertUtils.asZonedDateTime(previousTime);
+            ZonedDateTime nextMessageTIme = DateConvertUtils.asZonedDateTime(nextTime);
             return previousMessageTime.isBefore(nextMessageTIme.minusSeconds(timeBetweenMessagesToTriggerTimestamp));
         } catch (Exception e) {
             Timber.e(e, "Failed Separator timestamp check! Couldn't parse received time: either '%s' or '%s', or both.",
-                separator.getPreviousMessage().getTime(),
-                separator.getNextMessage().getTime());
+                previousTime,
+                nextTime);
             return false;
         }
     }
@@ -106,23 +137,39 @@ public class SeparatorRules {
         return unreadMessageCount > 0 &&
                separator.getLastReadMessage() != null &&
                separator.getPreviousMessage() != null &&
-               !separator.getPreviousMessage().getId().equals(separator.getNextMessage().getId()) &&
-               separator.getLastReadMessage().getId().equals(separator.getPreviousMessage().getId());
+               shouldHaveUnreadDot(separator.getLastReadMessage().getId(),
+                                   separator.getPreviousMessage().getId(),
+                                   separator.getNextMessage().getId(),
+                                   unreadMessageCount);
+    }
+
+    public static boolean shouldHaveUnreadDot(String lastReadMessageId,
+                                              String previousMessageId,
+                                              String nextMessageId,
+                                              int unreadMessageCount) {
+        return unreadMessageCount > 0 &&
+               lastReadMessageId != null &&
+               previousMessageId != null &&
+               !previousMessageId.equals(nextMessageId) &&
+               lastReadMessageId.equals(previousMessageId);
     }
 
     public static boolean shouldHaveBigTimestamp(Separator separator) {
         if (separator.getPreviousMessage() == null || separator.getNextMessage() == null) {
             return false;
         }
+        return shouldHaveBigTimestamp(separator.getPreviousMessage().getTime(), separator.getNextMessage().getTime());
+    }
 
+    public static boolean shouldHaveBigTimestamp(Instant previousTime, Instant nextTime) {
         try {
-            ZonedDateTime previousMessageTime = DateConvertUtils.asZonedDateTime(separator.getPreviousMessage().getTime());
-            ZonedDateTime nextMessageTime = DateConvertUtils.asZonedDateTime(separator.getNextMessage().getTime());
+            ZonedDateTime previousMessageTime = DateConvertUtils.asZonedDateTime(previousTime);
+            ZonedDateTime nextMessageTime = DateConvertUtils.asZonedDateTime(nextTime);
             return previousMessageTime.toLocalDate().atStartOfDay().isBefore(nextMessageTime.toLocalDate().atStartOfDay());
         } catch (Exception e) {
             Timber.e(e, "Failed Separator timestamp check! Couldn't parse received time: either '%s' or '%s', or both.",
-                     separator.getPreviousMessage().getTime(),
-                     separator.getNextMessage().getTime());
+                     previousTime,
+                     nextTime);
             return false;
         }
     }
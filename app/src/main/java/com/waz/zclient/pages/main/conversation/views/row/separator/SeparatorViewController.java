@@ -83,10 +83,17 @@ public class SeparatorViewController implements ConversationItemViewController,
     }
 
     public void setMessage(Message message, Separator separator) {
-        setUnreadDot(separator);
-        setUserName(message, separator);
-        setTimestamp(separator);
-        setPadding(message, separator);
+        int flags = separator.getFlags();
+        if (flags == SeparatorLayout.FLAGS_UNKNOWN) {
+            flags = SeparatorLayout.computeFlags(message,
+                                                 separator,
+                                                 resources.getInteger(R.integer.content__burst_time_interval),
+                                                 messageViewsContainer.getUnreadMessageCount());
+        }
+        setUnreadDot(flags);
+        setUserName(separator, flags);
+        setTimestamp(separator, flags);
+        setPadding(separator, flags);
         showRecalledGlyph(separator);
 
         if (message.isEdited()) {
@@ -96,7 +103,7 @@ public class SeparatorViewController implements ConversationItemViewController,
         }
     }
 
-    private void setPadding(Message message, Separator separator) {
+    private void setPadding(Separator separator, int flags) {
         if (separator.nextMessage == null) {
             return;
         }
@@ -111,14 +118,12 @@ public class SeparatorViewController implements ConversationItemViewController,
 
         resetPadding();
 
-        boolean showSeparator = SeparatorRules.shouldHaveName(message, separator) ||
-                                SeparatorRules.shouldHaveTimestamp(separator,
-                                                                   resources.getInteger(R.integer.content__burst_time_interval)) ||
-                                SeparatorRules.shouldHaveUnreadDot(separator,
-                                                                   messageViewsContainer.getUnreadMessageCount());
+        boolean showSeparator = SeparatorLayout.hasFlag(flags, SeparatorLayout.FLAG_NAME) ||
+                                SeparatorLayout.hasFlag(flags, SeparatorLayout.FLAG_TIMESTAMP) ||
+                                SeparatorLayout.hasFlag(flags, SeparatorLayout.FLAG_UNREAD_DOT);
 
         if (showSeparator) {
-            setPaddingWithSeparator(message, separator);
+            setPaddingWithSeparator(separator, flags);
         } else {
             setPaddingWithoutSeparator(separator);
         }
@@ -208,7 +213,7 @@ public class SeparatorViewController implements ConversationItemViewController,
         ViewUtils.setPaddingBottom(view, padding);
     }
 
-    private void setPaddingWithSeparator(Message message, Separator separator) {
+    private void setPaddingWithSeparator(Separator separator, int flags) {
         Message.Type nextMessageType = separator.nextMessage.getMessageType();
         Message.Type previousMessageType = separator.previousMessage.getMessageType();
 
@@ -228,12 +233,10 @@ public class SeparatorViewController implements ConversationItemViewController,
                                   previousMessageType == Message.Type.VIDEO_ASSET;
         boolean nextIsFile = nextMessageType == Message.Type.ANY_ASSET;
 
-        boolean hasName = SeparatorRules.shouldHaveName(message, separator);
-        boolean hasTimestamp = SeparatorRules.shouldHaveTimestamp(separator,
-                                                                  resources.getInteger(R.integer.content__burst_time_interval));
-        boolean hasDayTimestamp = SeparatorRules.shouldHaveBigTimestamp(separator);
-        boolean hasUnreadDot = SeparatorRules.shouldHaveUnreadDot(separator,
-                                                                  messageViewsContainer.getUnreadMessageCount());
+        boolean hasName = SeparatorLayout.hasFlag(flags, SeparatorLayout.FLAG_NAME);
+        boolean hasTimestamp = SeparatorLayout.hasFlag(flags, SeparatorLayout.FLAG_TIMESTAMP);
+        boolean hasDayTimestamp = SeparatorLayout.hasFlag(flags, SeparatorLayout.FLAG_DAY_BREAK);
+        boolean hasUnreadDot = SeparatorLayout.hasFlag(flags, SeparatorLayout.FLAG_UNREAD_DOT);
 
         if (hasTimestamp || hasUnreadDot) {
             int topPadding = resources.getDimensionPixelSize(R.dimen.content__separator__padding__between_time_anything);
@@ -297,8 +300,8 @@ public class SeparatorViewController implements ConversationItemViewController,
         }
     }
 
-    private void setUnreadDot(Separator separator) {
-        if (SeparatorRules.shouldHaveUnreadDot(separator, messageViewsContainer.getUnreadMessageCount())) {
+    private void setUnreadDot(int flags) {
+        if (SeparatorLayout.hasFlag(flags, SeparatorLayout.FLAG_UNREAD_DOT)) {
             int radius = resources.getDimensionPixelSize(R.dimen.conversation__unread_dot__radius);
             int width = resources.getDimensionPixelSize(R.dimen.list_menu_unread_width);
 
@@ -313,15 +316,14 @@ public class SeparatorViewController implements ConversationItemViewController,
         }
     }
 
-    private void setTimestamp(Separator separator) {
-        if (SeparatorRules.shouldHaveTimestamp(separator,
-                                               resources.getInteger(R.integer.content__burst_time_interval)) ||
-            SeparatorRules.shouldHaveUnreadDot(separator, messageViewsContainer.getUnreadMessageCount())) {
+    private void setTimestamp(Separator separator, int flags) {
+        if (SeparatorLayout.hasFlag(flags, SeparatorLayout.FLAG_TIMESTAMP) ||
+            SeparatorLayout.hasFlag(flags, SeparatorLayout.FLAG_UNREAD_DOT)) {
             timestampLinearLayout.setVisibility(View.VISIBLE);
 
-            LocalDateTime now = LocalDateTime.now();
-            LocalDateTime timestamp = DateConvertUtils.asLocalDateTime(separator.nextMessage.getTime());
-            final ZoneId timeZone = ZoneId.systemDefault();
+            final ZoneId timeZone = ZTimeFormatter.getZoneId();
+            LocalDateTime now = LocalDateTime.now(timeZone);
+            LocalDateTime timestamp = DateConvertUtils.asLocalDateTime(separator.nextMessage.getTime(), timeZone);
             String textSmall = ZTimeFormatter.getSeparatorTime(context.getResources(),
                                                                now,
                                                                timestamp,
@@ -331,7 +333,7 @@ public class SeparatorViewController implements ConversationItemViewController,
 
             timestampTextview.setVisibility(View.VISIBLE);
             timestampTextview.setTransformedText(textSmall);
-            if (SeparatorRules.shouldHaveBigTimestamp(separator)) {
+            if (SeparatorLayout.hasFlag(flags, SeparatorLayout.FLAG_DAY_BREAK)) {
                 if (ThemeUtils.isDarkTheme(context)) {
                     timestampLinearLayout.setBackgroundColor(context.getResources().getColor(R.color.white_8));
                 } else {
@@ -352,12 +354,12 @@ public class SeparatorViewController implements ConversationItemViewController,
         }
     }
 
-    private void setUserName(Message message, Separator separator) {
+    private void setUserName(Separator separator, int flags) {
         if (user != null) {
             user.removeUpdateListener(this);
         }
 
-        boolean shouldHaveName = SeparatorRules.shouldHaveName(message, separator);
+        boolean shouldHaveName = SeparatorLayout.hasFlag(flags, SeparatorLayout.FLAG_NAME);
 
         if (shouldHaveName) {
             user = separator.nextMessage.getUser();
@@ -29,13 +29,11 @@ import android.widget.AbsListView;
 import android.widget.BaseAdapter;
 import android.widget.ListView;
 import com.waz.api.ConversationsList;
-import com.waz.api.CoreList;
 import com.waz.api.IConversation;
 import com.waz.zclient.R;
 import com.waz.zclient.controllers.streammediaplayer.IStreamMediaPlayerController;
 import com.waz.zclient.core.stores.connect.InboxLinkConversation;
 import com.waz.zclient.core.stores.network.INetworkStore;
-import com.waz.zclient.pages.main.conversation.ConversationUtils;
 import com.waz.zclient.pages.main.conversationlist.views.ConversationCallback;
 import com.waz.zclient.pages.main.conversationlist.views.listview.SwipeListView;
 import com.waz.zclient.pages.main.conversationlist.views.row.ConversationListArchivedBorderRow;
@@ -94,6 +92,8 @@ public class ConversationListAdapter extends BaseAdapter {
 
     private ConversationsList.SearchableConversationsList incomingConversations;
     private ConversationsList.SearchableConversationsList archivedConversations;
+    private InboxLinkConversation inboxLinkConversation;
+    private ConversationListIndex conversationListIndex = ConversationListIndex.EMPTY;
 
     private int posOfInbox;
     private int posOfInboxOld;
@@ -141,7 +141,13 @@ public class ConversationListAdapter extends BaseAdapter {
     public void setConversationList(ConversationsList conversationList) {
         this.conversationList = conversationList;
         onConversationListHasChanged();
-        if (prepareSorting()) {
+
+        ConversationListIndex oldIndex = conversationListIndex;
+        conversationListIndex = ConversationListIndex.build(conversationList);
+        ConversationListIndex.Diff diff = ConversationListIndex.diff(oldIndex, conversationListIndex);
+
+        // Only animate if rows change position, content changes just need a redraw
+        if ((diff.hasReordering() || posOfInbox != posOfInboxOld) && prepareSorting()) {
             animateSortingOfConversation();
         } else {
             notifyDataSetChanged();
@@ -152,6 +158,11 @@ public class ConversationListAdapter extends BaseAdapter {
         if (this.conversationList == null) {
             return;
         }
+        if (incomingConversations != this.conversationList.getIncomingConversations() &&
+            inboxLinkConversation != null) {
+            inboxLinkConversation.clear();
+            inboxLinkConversation = null;
+        }
         incomingConversations = this.conversationList.getIncomingConversations();
         archivedConversations = this.conversationList.getArchivedConversations();
 
@@ -274,7 +285,11 @@ public class ConversationListAdapter extends BaseAdapter {
 
             // return inbox item
             if (position == posOfInbox) {
-                return new InboxLinkConversation(incomingConversations);
+                // Rows clear the inbox conversation when they are recycled for another conversation
+                if (inboxLinkConversation == null || !inboxLinkConversation.isAttached()) {
+                    inboxLinkConversation = new InboxLinkConversation(incomingConversations);
+                }
+                return inboxLinkConversation;
             }
 
             // return item shifted one up
@@ -464,6 +479,10 @@ public class ConversationListAdapter extends BaseAdapter {
     public void tearDown() {
         networkStore = null;
         streamMediaPlayerController = null;
+        if (inboxLinkConversation != null) {
+            inboxLinkConversation.clear();
+            inboxLinkConversation = null;
+        }
         if (listView == null) {
             return;
         }
@@ -476,8 +495,6 @@ public class ConversationListAdapter extends BaseAdapter {
     }
 
     private void animateSortingOfConversation() {
-        CoreList<IConversation> archivedConversations = conversationList.getArchivedConversations();
-
         boolean isArchiveVisible = archivedState == ArchivedState.VISIBLE;
         Map<Integer, View> currentViews = new HashMap<>();
 
@@ -517,7 +534,7 @@ public class ConversationListAdapter extends BaseAdapter {
                 if (currPos == posOfInboxOld) {
                     newPos = currPos;
                 } else {
-                    newPos = conversationList.getConversationIndex(conversation.getId());
+                    newPos = conversationListIndex.getPosition(conversation.getId());
                     // push one up for the inbox
                     if (posOfInbox != CONNECT_REQUEST_INBOX_POSITION_NONE &&
                         newPos >= posOfInbox) {
@@ -526,11 +543,10 @@ public class ConversationListAdapter extends BaseAdapter {
                 }
 
                 // the item is archived
-                if (newPos == -1 && isArchiveVisible) {
-                    for (int j = 0; j < archivedConversations.size(); j++) {
-                        if (ConversationUtils.isConversationEqual(archivedConversations.get(j), conversation)) {
-                            newPos = getUnarchivedCount() + 1 + j;
-                        }
+                if (newPos == ConversationListIndex.NO_POSITION && isArchiveVisible) {
+                    int archivedPos = conversationListIndex.getArchivedPosition(conversation.getId());
+                    if (archivedPos != ConversationListIndex.NO_POSITION) {
+                        newPos = getUnarchivedCount() + 1 + archivedPos;
                     }
                 }
 
@@ -573,7 +589,7 @@ public class ConversationListAdapter extends BaseAdapter {
                         if (currPos < newPos) {
                             float targetY = row.getY() - last.getY();
 
-                            boolean isOnlyArchive = conversationList.getArchivedConversations().size() == 1 && row.isArchiveTarget();
+                            boolean isOnlyArchive = conversationListIndex.archivedSize() == 1 && row.isArchiveTarget();
 
                             if (isOnlyArchive) {
                                 targetY -= row.getMeasuredHeight();
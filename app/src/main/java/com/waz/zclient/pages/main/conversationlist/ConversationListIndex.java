@@ -0,0 +1,221 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.main.conversationlist;
+
+import com.waz.api.ConversationsList;
+import com.waz.api.CoreList;
+import com.waz.api.IConversation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Snapshot of the order of a {@link ConversationsList} and its archived conversations, taken once per update, with
+ * constant time lookups of the position of a conversation id in either list.
+ */
+public class ConversationListIndex {
+
+    public static final int NO_POSITION = -1;
+
+    public static final ConversationListIndex EMPTY = new ConversationListIndex(new String[0], new String[0]);
+
+    private final String[] ids;
+    private final String[] archivedIds;
+    private final Map<String, Integer> positions;
+    private final Map<String, Integer> archivedPositions;
+
+    ConversationListIndex(String[] ids, String[] archivedIds) {
+        this.ids = ids;
+        this.archivedIds = archivedIds;
+        this.positions = indexOf(ids);
+        this.archivedPositions = indexOf(archivedIds);
+    }
+
+    public static ConversationListIndex build(ConversationsList conversationsList) {
+        if (conversationsList == null) {
+            return EMPTY;
+        }
+        final int size = conversationsList.size();
+        final String[] ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = conversationsList.get(i).getId();
+        }
+        return new ConversationListIndex(ids, idsOf(conversationsList.getArchivedConversations()));
+    }
+
+    private static String[] idsOf(CoreList<IConversation> conversations) {
+        if (conversations == null) {
+            return new String[0];
+        }
+        final int size = conversations.size();
+        final String[] ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = conversations.get(i).getId();
+        }
+        return ids;
+    }
+
+    private static Map<String, Integer> indexOf(String[] ids) {
+        Map<String, Integer> index = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            index.put(ids[i], i);
+        }
+        return index;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int archivedSize() {
+        return archivedIds.length;
+    }
+
+    /**
+     * @return the position of the conversation in the list of not archived conversations, or {@link #NO_POSITION}
+     */
+    public int getPosition(String conversationId) {
+        Integer position = positions.get(conversationId);
+        return position == null ? NO_POSITION : position;
+    }
+
+    /**
+     * @return the position of the conversation in the list of archived conversations, or {@link #NO_POSITION}
+     */
+    public int getArchivedPosition(String conversationId) {
+        Integer position = archivedPositions.get(conversationId);
+        return position == null ? NO_POSITION : position;
+    }
+
+    /**
+     * Compares the order of two snapshots. Conversations that are in both lists count as moved if they are not part
+     * of the longest run of conversations that kept their relative order.
+     */
+    public static Diff diff(ConversationListIndex oldIndex, ConversationListIndex newIndex) {
+        int inserted = 0;
+        int unarchived = 0;
+        // old positions of the retained conversations, in their new order
+        final int[] retained = new int[newIndex.ids.length];
+        int retainedCount = 0;
+        for (String id : newIndex.ids) {
+            int oldPosition = oldIndex.getPosition(id);
+            if (oldPosition != NO_POSITION) {
+                retained[retainedCount++] = oldPosition;
+            } else if (oldIndex.getArchivedPosition(id) != NO_POSITION) {
+                unarchived++;
+            } else {
+                inserted++;
+            }
+        }
+
+        int removed = 0;
+        int archived = 0;
+        for (String id : oldIndex.ids) {
+            if (newIndex.getPosition(id) == NO_POSITION) {
+                if (newIndex.getArchivedPosition(id) != NO_POSITION) {
+                    archived++;
+                } else {
+                    removed++;
+                }
+            }
+        }
+
+        final int moved = retainedCount - longestIncreasingRun(retained, retainedCount);
+        final boolean archiveChanged = !Arrays.equals(oldIndex.archivedIds, newIndex.archivedIds);
+        return new Diff(moved, inserted, removed, archived, unarchived, archiveChanged);
+    }
+
+    /**
+     * Length of the longest increasing subsequence, O(n log n)
+     */
+    static int longestIncreasingRun(int[] values, int count) {
+        final int[] tails = new int[count];
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            int position = Arrays.binarySearch(tails, 0, length, values[i]);
+            if (position < 0) {
+                position = -position - 1;
+            }
+            tails[position] = values[i];
+            if (position == length) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    public static final class Diff {
+        private final int moved;
+        private final int inserted;
+        private final int removed;
+        private final int archived;
+        private final int unarchived;
+        private final boolean archiveChanged;
+
+        Diff(int moved, int inserted, int removed, int archived, int unarchived, boolean archiveChanged) {
+            this.moved = moved;
+            this.inserted = inserted;
+            this.removed = removed;
+            this.archived = archived;
+            this.unarchived = unarchived;
+            this.archiveChanged = archiveChanged;
+        }
+
+        public int getMovedCount() {
+            return moved;
+        }
+
+        public int getInsertedCount() {
+            return inserted;
+        }
+
+        public int getRemovedCount() {
+            return removed;
+        }
+
+        public int getArchivedCount() {
+            return archived;
+        }
+
+        public int getUnarchivedCount() {
+            return unarchived;
+        }
+
+        public boolean isArchiveChanged() {
+            return archiveChanged;
+        }
+
+        /**
+         * @return true if rows change their position, so that the change should be animated
+         */
+        public boolean hasReordering() {
+            return moved > 0 || inserted > 0 || removed > 0 || archived > 0 || unarchived > 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Diff(moved: %d, inserted: %d, removed: %d, archived: %d, unarchived: %d)",
+                                 moved,
+                                 inserted,
+                                 removed,
+                                 archived,
+                                 unarchived);
+        }
+    }
+}
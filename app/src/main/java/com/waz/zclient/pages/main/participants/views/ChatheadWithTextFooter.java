@@ -59,6 +59,7 @@ public class ChatheadWithTextFooter extends LinearLayout implements UserRowView
 
     public ChatheadWithTextFooter(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
+        userModelObserver.enableCoalescing(ModelObserver.DEFAULT_COALESCING_LATENCY_MILLIS);
         LayoutInflater.from(context).inflate(R.layout.chathead_with_text_footer, this, true);
         setOrientation(VERTICAL);
         chathead = ViewUtils.getView(this, R.id.cv__chathead);
@@ -17,208 +17,234 @@
  */
 package com.waz.zclient.pages.main.participants.views;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.widget.RecyclerView;
+import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.AbsListView;
-import android.widget.BaseAdapter;
+import android.widget.FrameLayout;
 import com.waz.api.CoreList;
 import com.waz.api.UpdateListener;
 import com.waz.api.User;
+import com.waz.api.Verification;
+import com.waz.threading.Threading;
 import com.waz.zclient.R;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
-public class ParticipantsChatheadAdapter extends BaseAdapter implements UpdateListener {
-    private static final int VIEW_TYPE_COUNT = 3;
-    public static final int VIEW_TYPE_CHATHEAD = 0;
-    public static final int VIEW_TYPE_SEPARATOR = 1;
-    public static final int VIEW_TYPE_EMPTY = 2;
+public class ParticipantsChatheadAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> implements UpdateListener,
+                                                                                                         ParticipantsGridModel.Listener<User> {
+    public static final int VIEW_TYPE_CHATHEAD = ParticipantsGridModel.VIEW_TYPE_CHATHEAD;
+    public static final int VIEW_TYPE_SEPARATOR = ParticipantsGridModel.VIEW_TYPE_SEPARATOR;
 
+    private final ParticipantsGridModel<User> model;
+    private final Map<String, UserListener> userListeners = new HashMap<>();
     private CoreList<User> usersList;
-    private int numOfColumns;
-
-    private List<User> userListVerified = new ArrayList<>();
-    private List<User> userListUnverified = new ArrayList<>();
-
-    private int separatorPos;
+    private ParticipantsGridModel.Snapshot<User> snapshot;
+    private Callback callback;
 
     public ParticipantsChatheadAdapter() {
-        separatorPos = -1;
+        model = new ParticipantsGridModel<>(Threading.Background(), new Handler(Looper.getMainLooper()), this);
     }
 
-    public void setUsersList(CoreList<User> usersList, int numOfColumns) {
-        this.numOfColumns = numOfColumns;
+    public void setCallback(Callback callback) {
+        this.callback = callback;
+    }
 
+    public void setUsersList(CoreList<User> usersList) {
         if (this.usersList != null) {
             this.usersList.removeUpdateListener(this);
         }
 
-
         this.usersList = usersList;
         if (this.usersList != null) {
             this.usersList.addUpdateListener(this);
-            for (User user : usersList) {
-                user.addUpdateListener(this);
-            }
         }
         updated();
     }
 
     public void tearDown() {
+        for (UserListener userListener : userListeners.values()) {
+            userListener.user.removeUpdateListener(userListener);
+        }
+        userListeners.clear();
         if (usersList != null) {
-            for (User user : usersList) {
-                user.removeUpdateListener(this);
-            }
             usersList.removeUpdateListener(this);
         }
     }
 
+    /**
+     * The participants list changed, listens to the users which joined and hands the new list to the model. Only the
+     * users which joined are read here, the others keep the state their listener read when they last changed.
+     */
     @Override
-    public int getCount() {
-        // Hack to make it overscrollable
-        if (userListUnverified.isEmpty() && userListVerified.isEmpty()) {
-            return 1;
+    public void updated() {
+        Map<String, User> users = new HashMap<>();
+        if (usersList != null) {
+            for (User user : usersList) {
+                users.put(user.getId(), user);
+            }
         }
 
-        int count = userListVerified.size() + userListUnverified.size();
+        Iterator<Map.Entry<String, UserListener>> iterator = userListeners.entrySet().iterator();
+        while (iterator.hasNext()) {
+            UserListener userListener = iterator.next().getValue();
+            if (users.get(userListener.user.getId()) != userListener.user) {
+                userListener.user.removeUpdateListener(userListener);
+                iterator.remove();
+            }
+        }
 
-        if (separatorPos != -1) {
-            count += numOfColumns;
+        List<ParticipantsGridModel.Participant<User>> participants = new ArrayList<>();
+        if (usersList != null) {
+            for (User user : usersList) {
+                UserListener userListener = userListeners.get(user.getId());
+                if (userListener == null) {
+                    userListener = new UserListener(user);
+                    user.addUpdateListener(userListener);
+                    userListeners.put(user.getId(), userListener);
+                }
+                participants.add(userListener.participant);
+            }
         }
+        model.setParticipants(participants);
+    }
 
-        return count;
+    private static ParticipantsGridModel.Participant<User> participant(User user) {
+        return new ParticipantsGridModel.Participant<>(user.getId(), user.getVerified() == Verification.VERIFIED, user);
     }
 
     @Override
-    public User getItem(int position) {
-
-        if (position < userListUnverified.size()) {
-            return userListUnverified.get(position);
-        }
-
-        int unverifiedSize = position - userListUnverified.size();
-
-        if (separatorPos != -1) {
-            if (position < separatorPos + numOfColumns) {
-                return null;
+    public void onSnapshot(ParticipantsGridModel.Snapshot<User> snapshot, List<ParticipantsGridModel.Change> changes) {
+        boolean first = this.snapshot == null;
+        this.snapshot = snapshot;
+        if (first) {
+            notifyDataSetChanged();
+            return;
+        }
+        for (ParticipantsGridModel.Change change : changes) {
+            switch (change.getType()) {
+                case ParticipantsGridModel.Change.TYPE_CHANGED:
+                    notifyItemChanged(change.getPosition());
+                    break;
+                case ParticipantsGridModel.Change.TYPE_INSERTED:
+                    notifyItemInserted(change.getPosition());
+                    break;
+                case ParticipantsGridModel.Change.TYPE_REMOVED:
+                    notifyItemRemoved(change.getPosition());
+                    break;
+                case ParticipantsGridModel.Change.TYPE_MOVED:
+                    notifyItemMoved(change.getPosition(), change.getToPosition());
+                    break;
+                case ParticipantsGridModel.Change.TYPE_RESET:
+                default:
+                    notifyDataSetChanged();
+                    break;
             }
-
-            unverifiedSize -= numOfColumns;
-        }
-        if (userListVerified.size() <= unverifiedSize) {
-            return null;
         }
-
-        return userListVerified.get(unverifiedSize);
     }
 
     @Override
-    public long getItemId(int position) {
-        return position;
+    public int getItemCount() {
+        return snapshot == null ? 0 : snapshot.getCount();
     }
 
-    @Override
-    public int getViewTypeCount() {
-        return VIEW_TYPE_COUNT;
+    public User getItem(int position) {
+        return snapshot.getItem(position);
     }
 
     @Override
     public int getItemViewType(int position) {
-        if (position < userListUnverified.size()) {
-            return VIEW_TYPE_CHATHEAD;
-        }
-
-        if (position == separatorPos) {
-            return VIEW_TYPE_SEPARATOR;
-        }
-
-        if (position < separatorPos + numOfColumns) {
-            return VIEW_TYPE_EMPTY;
-        }
+        return snapshot.getItemViewType(position);
+    }
 
-        return VIEW_TYPE_CHATHEAD;
+    /**
+     * @return true if the item at the position takes a whole row
+     */
+    public boolean isFullSpan(int position) {
+        return getItemViewType(position) == VIEW_TYPE_SEPARATOR;
     }
 
     @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        switch (getItemViewType(position)) {
-            case VIEW_TYPE_CHATHEAD:
-                return getChatheadLabel(position, convertView, parent);
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        switch (viewType) {
             case VIEW_TYPE_SEPARATOR:
-                return getSeparatorView(parent);
+                View separator = LayoutInflater.from(parent.getContext()).inflate(R.layout.participants_separator_row, parent, false);
+                separator.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                                                                        parent.getResources().getDimensionPixelSize(R.dimen.participants__verified_row__height)));
+                return new SeparatorViewHolder(separator);
+            case VIEW_TYPE_CHATHEAD:
             default:
-            case VIEW_TYPE_EMPTY:
-                View view = new View(parent.getContext());
-                view.setLayoutParams(new AbsListView.LayoutParams(0,
-                        parent.getResources().getDimensionPixelSize(R.dimen.participants__verified_row__height)));
-                view.setVisibility(View.GONE);
-                return view;
+                return new ChatheadViewHolder(parent);
+        }
+    }
 
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        if (holder instanceof ChatheadViewHolder) {
+            ((ChatheadViewHolder) holder).bind(getItem(position));
         }
     }
 
-    private View getChatheadLabel(int position, View convertView, ViewGroup parent) {
-        ChatheadWithTextFooter view;
-        if (convertView == null) {
-            view = new ChatheadWithTextFooter(parent.getContext());
-        } else {
-            view = (ChatheadWithTextFooter) convertView;
+    private class UserListener implements UpdateListener {
+        private final User user;
+        private ParticipantsGridModel.Participant<User> participant;
+
+        UserListener(User user) {
+            this.user = user;
+            this.participant = participant(user);
         }
-        User user = getItem(position);
-        if (user != null) {
-            view.setUser(user);
-            view.setVisibility(View.VISIBLE);
-        } else {
-            //TODO https://wearezeta.atlassian.net/browse/AN-4276
-            view.setVisibility(View.INVISIBLE);
+
+        @Override
+        public void updated() {
+            participant = participant(user);
+            model.updateParticipant(participant);
         }
-        return view;
     }
 
-    public View getSeparatorView(ViewGroup parent) {
-        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
-        View view = inflater.inflate(R.layout.participants_separator_row, parent, false);
-        view.setLayoutParams(new AbsListView.LayoutParams(parent.getMeasuredWidth(),
-                parent.getResources().getDimensionPixelSize(R.dimen.participants__verified_row__height)));
-        return view;
+    private static class SeparatorViewHolder extends RecyclerView.ViewHolder {
+        SeparatorViewHolder(View itemView) {
+            super(itemView);
+        }
     }
 
-    @Override
-    public void updated() {
-        userListVerified.clear();
-        userListUnverified.clear();
-        if (usersList != null) {
-            for (User user : usersList) {
-                switch (user.getVerified()) {
-                    case VERIFIED:
-                        userListVerified.add(user);
-                        break;
-                    default:
-                        userListUnverified.add(user);
-                        break;
-                }
-            }
+    private class ChatheadViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+        private final ChatheadWithTextFooter chathead;
+        private User user;
+
+        ChatheadViewHolder(ViewGroup parent) {
+            super(new FrameLayout(parent.getContext()));
+            FrameLayout cell = (FrameLayout) itemView;
+            cell.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                                                               ViewGroup.LayoutParams.WRAP_CONTENT));
+            cell.setPadding(0, 0, 0, parent.getResources().getDimensionPixelSize(R.dimen.participants__chathead__vertical_spacing));
+            chathead = new ChatheadWithTextFooter(parent.getContext());
+            cell.addView(chathead, new FrameLayout.LayoutParams(parent.getResources().getDimensionPixelSize(R.dimen.participants__chathead__width),
+                                                                ViewGroup.LayoutParams.WRAP_CONTENT,
+                                                                Gravity.CENTER_HORIZONTAL));
+            cell.setOnClickListener(this);
         }
 
-        // fill up with empty spaces
-        if (userListUnverified.size() > 0) {
-            int rest = userListUnverified.size() % numOfColumns;
-            if (rest != 0) {
-                int fillupCount = numOfColumns - rest;
-                for (int i = 0; i < fillupCount; i++) {
-                    userListUnverified.add(null);
-                }
-            }
+        void bind(User user) {
+            this.user = user;
+            chathead.setUser(user);
         }
 
-        if (!userListVerified.isEmpty()) {
-            separatorPos = userListUnverified.size();
-        } else {
-            separatorPos = -1;
+        @Override
+        public void onClick(View v) {
+            if (callback != null && user != null) {
+                callback.onParticipantClicked(user);
+            }
         }
+    }
 
-        notifyDataSetChanged();
+    public interface Callback {
+        void onParticipantClicked(User user);
     }
 }
@@ -0,0 +1,504 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.main.participants.views;
+
+import android.os.Handler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Model of the participants grid: unverified participants first, then a separator and the verified ones, each
+ * group in the order of the participants list.
+ *
+ * Changes are applied as deltas on a background thread, a single participant changing its verification state only
+ * moves that participant from one group to the other. Every batch of deltas is published to the listener on the
+ * main thread as an immutable {@link Snapshot} together with the {@link Change}s which lead from the previous one to
+ * it, so a single participant moving is reported as one move and not as every row in between changing.
+ *
+ * @param <T> the participant objects shown in the grid
+ */
+public class ParticipantsGridModel<T> {
+
+    public static final int VIEW_TYPE_CHATHEAD = 0;
+    public static final int VIEW_TYPE_SEPARATOR = 1;
+
+    private static final String SEPARATOR_ID = ParticipantsGridModel.class.getName() + ".separator";
+
+    private final Executor executor;
+    private final Handler mainHandler;
+    private final Listener<T> listener;
+
+    // deltas waiting to be applied, guarded by itself
+    private final List<Delta<T>> pendingDeltas = new ArrayList<>();
+    private boolean draining;
+
+    // state of the background side, only touched while draining
+    private final Map<String, Integer> order = new HashMap<>();
+    private final Map<String, Participant<T>> participants = new HashMap<>();
+    private final List<Participant<T>> sourceOrder = new ArrayList<>();
+    private final List<Participant<T>> unverified = new ArrayList<>();
+    private final List<Participant<T>> verified = new ArrayList<>();
+
+    private final Runnable drainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    public ParticipantsGridModel(Executor executor, Handler mainHandler, Listener<T> listener) {
+        this.executor = executor;
+        this.mainHandler = mainHandler;
+        this.listener = listener;
+    }
+
+    /**
+     * Replaces the participants, participants which are in the grid already keep their place unless their
+     * verification state changed.
+     */
+    public void setParticipants(List<Participant<T>> participants) {
+        enqueue(new Delta<>(new ArrayList<>(participants), null));
+    }
+
+    /**
+     * Applies the new state of a single participant, ignored if the participant isn't in the grid.
+     */
+    public void updateParticipant(Participant<T> participant) {
+        enqueue(new Delta<>(null, participant));
+    }
+
+    private void enqueue(Delta<T> delta) {
+        synchronized (pendingDeltas) {
+            pendingDeltas.add(delta);
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        executor.execute(drainRunnable);
+    }
+
+    private void drain() {
+        while (true) {
+            List<Delta<T>> deltas;
+            synchronized (pendingDeltas) {
+                if (pendingDeltas.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+                deltas = new ArrayList<>(pendingDeltas);
+                pendingDeltas.clear();
+            }
+
+            List<Change> changes = new ArrayList<>();
+            for (Delta<T> delta : deltas) {
+                if (delta.participants != null) {
+                    applyParticipants(distinct(delta.participants), changes);
+                } else {
+                    applyUpdate(delta.participant, changes);
+                }
+            }
+            if (changes.isEmpty()) {
+                continue;
+            }
+            for (Change change : changes) {
+                if (change.getType() == Change.TYPE_RESET) {
+                    // positions of the other changes refer to a layout the listener never sees
+                    changes = Collections.singletonList(change);
+                    break;
+                }
+            }
+            publish(changes);
+        }
+    }
+
+    private static <T> List<Participant<T>> distinct(List<Participant<T>> participants) {
+        Map<String, Participant<T>> byId = new LinkedHashMap<>();
+        for (Participant<T> participant : participants) {
+            if (!byId.containsKey(participant.getId())) {
+                byId.put(participant.getId(), participant);
+            }
+        }
+        return byId.size() == participants.size() ? participants : new ArrayList<>(byId.values());
+    }
+
+    private void applyParticipants(List<Participant<T>> newParticipants, List<Change> changes) {
+        if (!hasSameOrder(newParticipants)) {
+            if (sourceOrder.isEmpty() || !keepsRelativeOrder(newParticipants)) {
+                reset(newParticipants);
+                changes.add(Change.reset());
+                return;
+            }
+            applyMembership(newParticipants, changes);
+        }
+        for (Participant<T> participant : newParticipants) {
+            applyUpdate(participant, changes);
+        }
+    }
+
+    private void reset(List<Participant<T>> newParticipants) {
+        order.clear();
+        participants.clear();
+        sourceOrder.clear();
+        unverified.clear();
+        verified.clear();
+        for (Participant<T> participant : newParticipants) {
+            order.put(participant.getId(), sourceOrder.size());
+            participants.put(participant.getId(), participant);
+            sourceOrder.add(participant);
+            (participant.isVerified() ? verified : unverified).add(participant);
+        }
+    }
+
+    /**
+     * @return true if the participants which stay in the grid keep their order relative to each other
+     */
+    private boolean keepsRelativeOrder(List<Participant<T>> newParticipants) {
+        int last = -1;
+        for (Participant<T> participant : newParticipants) {
+            Integer sourceIndex = order.get(participant.getId());
+            if (sourceIndex == null) {
+                continue;
+            }
+            if (sourceIndex < last) {
+                return false;
+            }
+            last = sourceIndex;
+        }
+        return true;
+    }
+
+    /**
+     * Removes the participants which left and inserts the ones which joined, the others keep their previous state
+     * until they are updated.
+     */
+    private void applyMembership(List<Participant<T>> newParticipants, List<Change> changes) {
+        Set<String> ids = new HashSet<>();
+        for (Participant<T> participant : newParticipants) {
+            ids.add(participant.getId());
+        }
+        for (int i = sourceOrder.size() - 1; i >= 0; i--) {
+            Participant<T> participant = sourceOrder.get(i);
+            if (!ids.contains(participant.getId())) {
+                remove(participant, i, changes);
+            }
+        }
+
+        List<Participant<T>> joined = new ArrayList<>();
+        sourceOrder.clear();
+        for (Participant<T> participant : newParticipants) {
+            order.put(participant.getId(), sourceOrder.size());
+            Participant<T> previous = participants.get(participant.getId());
+            if (previous == null) {
+                participants.put(participant.getId(), participant);
+                joined.add(participant);
+                previous = participant;
+            }
+            sourceOrder.add(previous);
+        }
+        for (Participant<T> participant : joined) {
+            List<Participant<T>> group = group(participant);
+            if (group == verified && verified.isEmpty()) {
+                changes.add(Change.inserted(separatorPosition()));
+            }
+            int index = search(group, order.get(participant.getId()));
+            group.add(index, participant);
+            changes.add(Change.inserted(position(group, index)));
+        }
+    }
+
+    private void remove(Participant<T> participant, int sourceIndex, List<Change> changes) {
+        List<Participant<T>> group = group(participant);
+        int index = search(group, sourceIndex);
+        changes.add(Change.removed(position(group, index)));
+        group.remove(index);
+        if (group == verified && verified.isEmpty()) {
+            changes.add(Change.removed(separatorPosition()));
+        }
+        order.remove(participant.getId());
+        participants.remove(participant.getId());
+    }
+
+    private boolean hasSameOrder(List<Participant<T>> newParticipants) {
+        if (newParticipants.size() != sourceOrder.size()) {
+            return false;
+        }
+        for (int i = 0; i < newParticipants.size(); i++) {
+            if (!newParticipants.get(i).getId().equals(sourceOrder.get(i).getId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void applyUpdate(Participant<T> participant, List<Change> changes) {
+        Participant<T> previous = participants.get(participant.getId());
+        if (previous == null) {
+            return;
+        }
+        boolean valueChanged = previous.getValue() == null ? participant.getValue() != null
+                                                           : !previous.getValue().equals(participant.getValue());
+        if (previous.isVerified() == participant.isVerified() && !valueChanged) {
+            return;
+        }
+        participants.put(participant.getId(), participant);
+        int sourceIndex = order.get(participant.getId());
+        sourceOrder.set(sourceIndex, participant);
+
+        List<Participant<T>> from = group(previous);
+        List<Participant<T>> to = group(participant);
+        int index = search(from, sourceIndex);
+        if (from == to) {
+            from.set(index, participant);
+            changes.add(Change.changed(position(from, index)));
+            return;
+        }
+
+        int fromPosition = position(from, index);
+        if (to == verified && verified.isEmpty()) {
+            changes.add(Change.inserted(separatorPosition()));
+        }
+        from.remove(index);
+        int toIndex = search(to, sourceIndex);
+        to.add(toIndex, participant);
+        int toPosition = position(to, toIndex);
+        changes.add(Change.moved(fromPosition, toPosition));
+        if (from == verified && verified.isEmpty()) {
+            changes.add(Change.removed(separatorPosition()));
+        }
+        if (valueChanged) {
+            changes.add(Change.changed(toPosition));
+        }
+    }
+
+    private List<Participant<T>> group(Participant<T> participant) {
+        return participant.isVerified() ? verified : unverified;
+    }
+
+    /**
+     * @return the position in the grid of the participant at the index of a group
+     */
+    private int position(List<Participant<T>> group, int index) {
+        return group == verified ? separatorPosition() + 1 + index : index;
+    }
+
+    /**
+     * @return the position the separator has, or gets when the first participant is verified
+     */
+    private int separatorPosition() {
+        return unverified.size();
+    }
+
+    /**
+     * @return the index of the participant with the given source index in a group, or the index it would have
+     */
+    private int search(List<Participant<T>> group, int sourceIndex) {
+        int low = 0;
+        int high = group.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (order.get(group.get(mid).getId()) < sourceIndex) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void publish(final List<Change> changes) {
+        final Snapshot<T> snapshot = new Snapshot<>(unverified, verified);
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onSnapshot(snapshot, changes);
+            }
+        });
+    }
+
+    /**
+     * The state of a participant when it was last read on the main thread.
+     */
+    public static final class Participant<T> {
+        private final String id;
+        private final boolean verified;
+        private final T value;
+
+        public Participant(String id, boolean verified, T value) {
+            this.id = id;
+            this.verified = verified;
+            this.value = value;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public boolean isVerified() {
+            return verified;
+        }
+
+        public T getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Immutable layout of the grid. The separator spans a full row, so the unverified participants never share a
+     * row with the verified ones.
+     */
+    public static final class Snapshot<T> {
+        private final String[] ids;
+        private final List<T> items;
+        private final int separatorPosition;
+
+        Snapshot(List<Participant<T>> unverified, List<Participant<T>> verified) {
+            int count = unverified.size() + (verified.isEmpty() ? 0 : verified.size() + 1);
+            ids = new String[count];
+            items = new ArrayList<>(count);
+            int position = 0;
+            for (Participant<T> participant : unverified) {
+                ids[position++] = participant.getId();
+                items.add(participant.getValue());
+            }
+            if (verified.isEmpty()) {
+                separatorPosition = -1;
+                return;
+            }
+            separatorPosition = position;
+            ids[position++] = SEPARATOR_ID;
+            items.add(null);
+            for (Participant<T> participant : verified) {
+                ids[position++] = participant.getId();
+                items.add(participant.getValue());
+            }
+        }
+
+        public int getCount() {
+            return ids.length;
+        }
+
+        /**
+         * @return the participant at the position, null for the separator
+         */
+        public T getItem(int position) {
+            return items.get(position);
+        }
+
+        public int getItemViewType(int position) {
+            return position == separatorPosition ? VIEW_TYPE_SEPARATOR : VIEW_TYPE_CHATHEAD;
+        }
+
+        /**
+         * @return the position of the separator, -1 if there are no verified participants
+         */
+        public int getSeparatorPosition() {
+            return separatorPosition;
+        }
+
+        public String getId(int position) {
+            return ids[position];
+        }
+    }
+
+    /**
+     * A single step from one snapshot to the next, positions refer to the grid after the previous steps were applied.
+     */
+    public static final class Change {
+        public static final int TYPE_CHANGED = 0;
+        public static final int TYPE_INSERTED = 1;
+        public static final int TYPE_REMOVED = 2;
+        public static final int TYPE_MOVED = 3;
+        public static final int TYPE_RESET = 4;
+
+        private final int type;
+        private final int position;
+        private final int toPosition;
+
+        private Change(int type, int position, int toPosition) {
+            this.type = type;
+            this.position = position;
+            this.toPosition = toPosition;
+        }
+
+        static Change changed(int position) {
+            return new Change(TYPE_CHANGED, position, position);
+        }
+
+        static Change inserted(int position) {
+            return new Change(TYPE_INSERTED, position, position);
+        }
+
+        static Change removed(int position) {
+            return new Change(TYPE_REMOVED, position, position);
+        }
+
+        static Change moved(int fromPosition, int toPosition) {
+            return new Change(TYPE_MOVED, fromPosition, toPosition);
+        }
+
+        static Change reset() {
+            return new Change(TYPE_RESET, -1, -1);
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        /**
+         * @return the position of the changed, inserted or removed row, or the position a moved row was at
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * @return the position a moved row is at afterwards
+         */
+        public int getToPosition() {
+            return toPosition;
+        }
+
+        @Override
+        public String toString() {
+            return "Change{type=" + type + ", position=" + position + ", toPosition=" + toPosition + '}';
+        }
+    }
+
+    private static final class Delta<T> {
+        private final List<Participant<T>> participants;
+        private final Participant<T> participant;
+
+        Delta(List<Participant<T>> participants, Participant<T> participant) {
+            this.participants = participants;
+            this.participant = participant;
+        }
+    }
+
+    public interface Listener<T> {
+        void onSnapshot(Snapshot<T> snapshot, List<Change> changes);
+    }
+}
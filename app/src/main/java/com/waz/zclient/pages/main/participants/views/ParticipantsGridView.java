@@ -19,18 +19,16 @@ package com.waz.zclient.pages.main.participants.views;
 
 
 import android.content.Context;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
-import android.widget.GridView;
 import com.waz.zclient.R;
-import com.waz.zclient.ui.pullforaction.OverScrollListener;
-import com.waz.zclient.ui.pullforaction.OverScrollMode;
-import com.waz.zclient.ui.pullforaction.PullForActionView;
 
-public class ParticipantsGridView extends GridView implements PullForActionView, View.OnTouchListener {
+public class ParticipantsGridView extends RecyclerView implements View.OnTouchListener {
     private static final float CLICK_EVENT_MAX_MOVE_DISTANCE = 10;
-    private OverScrollListener overScrollListener;
+    private GridLayoutManager layoutManager;
     private Callback callback;
     private float actionDownX;
     private float actionDownY;
@@ -52,9 +50,19 @@ public class ParticipantsGridView extends GridView implements PullForActionView,
     }
 
     private void init() {
-        setColumnWidth(getResources().getDimensionPixelSize(R.dimen.participants__chathead__width));
-        setVerticalSpacing(getResources().getDimensionPixelSize(R.dimen.participants__chathead__vertical_spacing));
-        setStretchMode(GridView.STRETCH_SPACING);
+        layoutManager = new GridLayoutManager(getContext(), 1);
+        layoutManager.setSpanSizeLookup(new GridLayoutManager.SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                Adapter adapter = getAdapter();
+                if (adapter instanceof ParticipantsChatheadAdapter &&
+                    ((ParticipantsChatheadAdapter) adapter).isFullSpan(position)) {
+                    return layoutManager.getSpanCount();
+                }
+                return 1;
+            }
+        });
+        setLayoutManager(layoutManager);
 
         setPadding(
             getResources().getDimensionPixelSize(R.dimen.participants__left_margin),
@@ -67,43 +75,29 @@ public class ParticipantsGridView extends GridView implements PullForActionView,
         setOnTouchListener(this);
     }
 
-    public void setCallback(Callback callback) {
-        this.callback = callback;
+    public void setNumColumns(int numColumns) {
+        layoutManager.setSpanCount(numColumns);
     }
 
-    @Override
-    @SuppressWarnings("PMD.UselessOverridingMethod")
-    public int computeVerticalScrollOffset() {
-        return super.computeVerticalScrollOffset();
+    public void setCallback(Callback callback) {
+        this.callback = callback;
     }
 
-    //////////////////////////////////////////////////////////////////////////////////////////
-    //
-    //  Overscroll stuff
-    //
-    //////////////////////////////////////////////////////////////////////////////////////////
-
     /**
-     * Sets the overscroll listener from the PullToRefreshContainer.
+     * @return the bottom of the last item, -1 if it isn't laid out, e.g. because it's scrolled out of view
      */
-    public void setOverScrollListener(OverScrollListener listener) {
-        overScrollListener = listener;
+    public int getLastItemBottom() {
+        int count = getAdapter() == null ? 0 : getAdapter().getItemCount();
+        if (count == 0) {
+            return 0;
+        }
+        View lastView = layoutManager.findViewByPosition(count - 1);
+        return lastView == null ? -1 : lastView.getBottom();
     }
 
-    /**
-     * The BouncingListVieContainer is notified from this spot.
-     * At this place the default MaxOverscrollY can be overwritten.
-     */
-    @Override
-    protected boolean overScrollBy(int deltaX, int deltaY, int scrollX, int scrollY, int scrollRangeX, int scrollRangeY, int maxOverScrollX, int maxOverScrollY, boolean isTouchEvent) {
-        if (overScrollListener != null) {
-            if (deltaY < 0) {
-                overScrollListener.onOverScrolled(OverScrollMode.TOP);
-            } else {
-                overScrollListener.onOverScrolled(OverScrollMode.BOTTOM);
-            }
-        }
-        return super.overScrollBy(deltaX, deltaY, scrollX, scrollY, scrollRangeX, scrollRangeY, maxOverScrollX, 0, isTouchEvent);
+    public boolean isLastItemVisible() {
+        int count = getAdapter() == null ? 0 : getAdapter().getItemCount();
+        return count == 0 || layoutManager.findLastVisibleItemPosition() == count - 1;
     }
 
     @Override
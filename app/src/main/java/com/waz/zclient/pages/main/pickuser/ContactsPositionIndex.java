@@ -0,0 +1,87 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.main.pickuser;
+
+/**
+ * Maps the rows of the address book section of {@link SearchResultAdapter} to the contacts they show. The section
+ * lists every initial followed by its contacts. Each row is packed into one long: the index of the initial in the
+ * upper half and the position of the contact within that initial in the lower half, or {@link #NO_CONTACT} for the
+ * row of the initial itself.
+ */
+public final class ContactsPositionIndex {
+
+    private static final long NO_CONTACT = 0xFFFFFFFFL;
+    private static final long CONTACT_MASK = 0xFFFFFFFFL;
+
+    public static final ContactsPositionIndex EMPTY = new ContactsPositionIndex(new String[0], new long[0]);
+
+    private final String[] initials;
+    private final long[] rows;
+
+    private ContactsPositionIndex(String[] initials, long[] rows) {
+        this.initials = initials;
+        this.rows = rows;
+    }
+
+    /**
+     * @param initials the initials in the order they are shown
+     * @param counts the number of contacts for each initial
+     */
+    public static ContactsPositionIndex build(String[] initials, int[] counts) {
+        if (initials.length == 0) {
+            return EMPTY;
+        }
+        int size = initials.length;
+        for (int count : counts) {
+            size += count;
+        }
+        final long[] rows = new long[size];
+        int row = 0;
+        for (int initialPos = 0; initialPos < initials.length; initialPos++) {
+            final long initialBits = (long) initialPos << 32;
+            rows[row++] = initialBits | NO_CONTACT;
+            for (int contactPos = 0; contactPos < counts[initialPos]; contactPos++) {
+                rows[row++] = initialBits | contactPos;
+            }
+        }
+        return new ContactsPositionIndex(initials, rows);
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    public boolean isInitial(int row) {
+        return (rows[row] & CONTACT_MASK) == NO_CONTACT;
+    }
+
+    public int getInitialIndex(int row) {
+        return (int) (rows[row] >>> 32);
+    }
+
+    public String getInitial(int row) {
+        return initials[getInitialIndex(row)];
+    }
+
+    /**
+     * @return the position of the contact within its initial, or -1 for the row of an initial
+     */
+    public int getContactPosition(int row) {
+        return (int) rows[row];
+    }
+}
@@ -17,6 +17,8 @@
  */
 package com.waz.zclient.pages.main.pickuser;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.IntDef;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
@@ -27,6 +29,7 @@ import com.waz.api.ContactDetails;
 import com.waz.api.Contacts;
 import com.waz.api.IConversation;
 import com.waz.api.User;
+import com.waz.threading.Threading;
 import com.waz.zclient.R;
 import com.waz.zclient.pages.main.pickuser.controller.IPickUserController;
 import com.waz.zclient.pages.main.pickuser.views.ContactRowView;
@@ -37,9 +40,8 @@ import com.waz.zclient.pages.main.pickuser.views.viewholders.SectionHeaderViewHo
 import com.waz.zclient.pages.main.pickuser.views.viewholders.TopUsersViewHolder;
 import com.waz.zclient.pages.main.pickuser.views.viewholders.UserViewHolder;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 public class SearchResultAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
@@ -61,6 +63,14 @@ public class SearchResultAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
     public static final int ITEM_TYPE_SECTION_HEADER = 6;
 
     public static final int ROW_COUNT_SECTION_HEADER = 1;
+
+    private static final int ROW_KEY_TYPE_SHIFT = 56;
+    private static final int ROW_KEY_GENERATION_SHIFT = 32;
+    private static final long ROW_KEY_GENERATION_MASK = 0xFFFFFFL;
+    private static final int ROW_KEY_INITIAL_SHIFT = 32;
+    private static final long ROW_KEY_INITIAL_MASK = 0xFFFFFFL;
+    private static final long ROW_KEY_VALUE_MASK = 0xFFFFFFFFL;
+
     private Callback callback;
     private User[] connectedUsers;
     private User[] otherUsers;
@@ -72,11 +82,31 @@ public class SearchResultAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
     private SearchResultOnItemTouchListener topUsersOnItemTouchListener;
     private int itemCount;
     private int accentColor;
-    private Map<Integer, int[]> positionsMap;
+    private ContactsPositionIndex contactsIndex = ContactsPositionIndex.EMPTY;
     private ContactRowView.Callback contactsCallback;
 
+    private final Executor executor;
+    private final Handler mainHandler;
+    private int contactsGeneration;
+    private int topUsersGeneration;
+
+    /**
+     * Keys and contents of the rows as they were last dispatched, compared with the new ones on every change so that
+     * only the affected range is notified. Two buffers each are swapped to avoid allocating on every update.
+     */
+    private long[] rowKeys = new long[0];
+    private long[] newRowKeys = new long[0];
+    private int[] rowContents = new int[0];
+    private int[] newRowContents = new int[0];
+    private int rowKeysSize;
+
     public SearchResultAdapter(final Callback callback) {
-        positionsMap = new HashMap<>();
+        this(callback, Threading.Background(), new Handler(Looper.getMainLooper()));
+    }
+
+    SearchResultAdapter(final Callback callback, Executor executor, Handler mainHandler) {
+        this.executor = executor;
+        this.mainHandler = mainHandler;
         if (callback == null) {
             return;
         }
@@ -169,27 +199,19 @@ public class SearchResultAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
                 ((SectionHeaderViewHolder) holder).bind(type);
                 break;
             case ITEM_TYPE_INITIAL:
-                if (contacts == null ||
-                    contacts.getInitials() == null ||
-                    contacts.getInitials().isEmpty()) {
-                    break;
-                }
                 position = showSearch ? position - ROW_COUNT_SECTION_HEADER : position;
-                String initial = getContactInitial(position);
+                String initial = contactsIndex.getInitial(getContactIndexRow(position));
                 ((AddressBookSectionHeaderViewHolder) holder).bind(initial);
                 break;
             case ITEM_TYPE_CONTACT:
-                if (contacts == null ||
-                    contacts.getInitials() == null ||
-                    contacts.getInitials().isEmpty()) {
-                    break;
-                }
                 position = showSearch ? position - ROW_COUNT_SECTION_HEADER : position;
-                int[] contactMapping = getContactMapping(position);
-                String contactInitial = getContactInitial(position);
-                int contactInternalPosition = contactMapping[2];
-                Contact contact = contacts.getContactForInitial(contactInitial, contactInternalPosition);
-                ((AddressBookContactViewHolder) holder).bind(contact, contactsCallback, accentColor);
+                Contact contact = getContact(getContactIndexRow(position));
+                if (contact == null) {
+                    // The contacts changed and the index for them is still being built
+                    ((AddressBookContactViewHolder) holder).clear();
+                } else {
+                    ((AddressBookContactViewHolder) holder).bind(contact, contactsCallback, accentColor);
+                }
                 break;
         }
     }
@@ -212,7 +234,7 @@ public class SearchResultAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
                 // Conversations
                 type = getConversationInternalPosition(position) ==  0 ? ITEM_TYPE_SECTION_HEADER : ITEM_TYPE_CONVERSATION;
             } else if (hasContacts() &&
-                       getSearchContactInternalPosition(position) < positionsMap.size() + ROW_COUNT_SECTION_HEADER) {
+                       getSearchContactInternalPosition(position) < contactsIndex.size() + ROW_COUNT_SECTION_HEADER) {
                 int contactsPos = getSearchContactInternalPosition(position);
                 if (contactsPos == 0) {
                     type = ITEM_TYPE_SECTION_HEADER;
@@ -257,24 +279,62 @@ public class SearchResultAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
     public void setTopUsers(User[] users) {
         showSearch = false;
         this.topUsers = users;
+        topUsersGeneration++;
         updateItemCount();
-        notifyDataSetChanged();
+        dispatchRowChanges();
     }
 
-    public void setContacts(Contacts contacts) {
+    /**
+     * The number of contacts per initial is read here on the main thread, only the index of the rows is built off
+     * it. The adapter keeps showing the previous contacts until the index is ready.
+     */
+    public void setContacts(final Contacts contacts) {
+        final int generation = ++contactsGeneration;
+        if (contacts == null || contacts.getInitials() == null) {
+            applyContacts(contacts, ContactsPositionIndex.EMPTY);
+            return;
+        }
+        // Contacts must only be read on the main thread, the counts are one call per initial. Building the index
+        // touches every contact row, so that part runs in the background.
+        final String[] initials = contacts.getInitials().toArray(new String[contacts.getInitials().size()]);
+        final int[] counts = new int[initials.length];
+        for (int i = 0; i < initials.length; i++) {
+            counts[i] = contacts.getNumberOfContactsForInitial(initials[i]);
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final ContactsPositionIndex index = ContactsPositionIndex.build(initials, counts);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == contactsGeneration) {
+                            applyContacts(contacts, index);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void applyContacts(Contacts contacts, ContactsPositionIndex index) {
         this.contacts = contacts;
-        updateContactsPositionMapping();
+        this.contactsIndex = index;
         updateItemCount();
-        notifyDataSetChanged();
+        dispatchRowChanges();
     }
 
+    /**
+     * Cached results are usually confirmed by the backend query, rows which still show the same content are not
+     * rebound.
+     */
     public void setSearchResult(User[] connectedUsers, User[] otherUsers, IConversation[] conversations) {
         showSearch = true;
         this.connectedUsers = connectedUsers;
         this.otherUsers = otherUsers;
         this.conversations = conversations;
         updateItemCount();
-        notifyDataSetChanged();
+        dispatchRowChanges();
     }
 
     public void reset() {
@@ -282,6 +342,8 @@ public class SearchResultAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
         conversations = null;
         otherUsers = null;
         contacts = null;
+        contactsIndex = ContactsPositionIndex.EMPTY;
+        contactsGeneration++;
     }
 
     public boolean hasTopUsers() {
@@ -292,7 +354,7 @@ public class SearchResultAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
     }
 
     public boolean hasContacts() {
-        return positionsMap.size() > 0;
+        return contactsIndex.size() > 0;
     }
 
     public boolean hasConnectedUsers() {
@@ -341,7 +403,7 @@ public class SearchResultAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
             position = position - conversations.length - ROW_COUNT_SECTION_HEADER;
         }
         if (hasContacts()) {
-            position = position - positionsMap.size() - ROW_COUNT_SECTION_HEADER;
+            position = position - contactsIndex.size() - ROW_COUNT_SECTION_HEADER;
         }
         return position;
     }
@@ -386,7 +448,7 @@ public class SearchResultAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
             }
 
             if (hasContacts()) {
-                itemCount += positionsMap.size() + ROW_COUNT_SECTION_HEADER;
+                itemCount += contactsIndex.size() + ROW_COUNT_SECTION_HEADER;
             }
 
             if (hasOtherUsers()) {
@@ -399,49 +461,149 @@ public class SearchResultAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
             }
 
             if (hasContacts()) {
-                itemCount += ROW_COUNT_SECTION_HEADER + positionsMap.size();
+                itemCount += ROW_COUNT_SECTION_HEADER + contactsIndex.size();
             }
         }
     }
 
     public @ItemType int getContactItemViewType(int position) {
-        int[] mapping = positionsMap.get(position);
-        if (mapping[0] == ITEM_TYPE_CONTACT) {
-            return ITEM_TYPE_CONTACT;
+        if (contactsIndex.isInitial(position)) {
+            return ITEM_TYPE_INITIAL;
         }
-        return ITEM_TYPE_INITIAL;
+        return ITEM_TYPE_CONTACT;
     }
 
-    private void updateContactsPositionMapping() {
-        positionsMap.clear();
+    private int getContactIndexRow(int position) {
+        return showSearch ? getSearchContactInternalPosition(position) : getContactInternalPosition(position);
+    }
+
+    /**
+     * @return the contact of the row, or null if the contacts changed and the index for them is still being built
+     */
+    private Contact getContact(int row) {
         if (contacts == null) {
-            return;
+            return null;
         }
-        int pos = 0;
-        int initialPos = 0;
-        for (String initial : contacts.getInitials()) {
-            positionsMap.put(pos, new int[] {ITEM_TYPE_INITIAL, initialPos, -1});
-
-            int numContactsForInitial = contacts.getNumberOfContactsForInitial(initial);
-            for (int contactPos = 0; contactPos < numContactsForInitial; contactPos++) {
-                pos++;
-                positionsMap.put(pos, new int[] {ITEM_TYPE_CONTACT, initialPos, contactPos});
-            }
-            pos++;
-            initialPos++;
+        String initial = contactsIndex.getInitial(row);
+        int position = contactsIndex.getContactPosition(row);
+        if (position >= contacts.getNumberOfContactsForInitial(initial)) {
+            return null;
+        }
+        return contacts.getContactForInitial(initial, position);
+    }
+
+    private boolean isSelected(User user) {
+        return callback != null &&
+               callback.getSelectedUsers() != null &&
+               callback.getSelectedUsers().contains(user);
+    }
+
+    /**
+     * Compare the keys and contents of the rows with the ones of the last update and notify only the range that
+     * changed.
+     */
+    private void dispatchRowChanges() {
+        if (newRowKeys.length < itemCount) {
+            newRowKeys = new long[Math.max(itemCount, newRowKeys.length * 2)];
+            newRowContents = new int[newRowKeys.length];
+        }
+        for (int position = 0; position < itemCount; position++) {
+            newRowKeys[position] = getRowKey(position);
+            newRowContents[position] = getRowContent(position);
         }
+        SearchResultDiff diff = SearchResultDiff.calculate(rowKeys, rowContents, rowKeysSize,
+                                                           newRowKeys, newRowContents, itemCount);
+
+        long[] oldRowKeys = rowKeys;
+        rowKeys = newRowKeys;
+        newRowKeys = oldRowKeys;
+        int[] oldRowContents = rowContents;
+        rowContents = newRowContents;
+        newRowContents = oldRowContents;
+        rowKeysSize = itemCount;
+
+        diff.dispatchTo(this);
     }
 
-    private int[] getContactMapping(int position) {
-        position = showSearch ? getSearchContactInternalPosition(position) : getContactInternalPosition(position);
-        int[] mapping = positionsMap.get(position);
-        return mapping;
+    /**
+     * A key identifying what a row shows: the item type in the top byte, and below it the id of the user or
+     * conversation, the generation of the top users, or the initial and the position within it for the address
+     * book. Contacts don't expose cheap ids, whether a contact row shows someone else is left to its content.
+     */
+    private long getRowKey(int position) {
+        @ItemType int type = getItemViewType(position);
+        long value;
+        switch (type) {
+            case ITEM_TYPE_SECTION_HEADER:
+                value = getSectionItemType(position);
+                break;
+            case ITEM_TYPE_TOP_USER:
+                value = (topUsersGeneration & ROW_KEY_GENERATION_MASK) << ROW_KEY_GENERATION_SHIFT;
+                break;
+            case ITEM_TYPE_CONNECTED_USER:
+                value = connectedUsers[position - ROW_COUNT_SECTION_HEADER].getId().hashCode() & ROW_KEY_VALUE_MASK;
+                break;
+            case ITEM_TYPE_OTHER_USER:
+                value = otherUsers[getOtherUserInternalPosition(position) - ROW_COUNT_SECTION_HEADER].getId().hashCode() & ROW_KEY_VALUE_MASK;
+                break;
+            case ITEM_TYPE_CONVERSATION:
+                value = conversations[getConversationInternalPosition(position) - ROW_COUNT_SECTION_HEADER].getId().hashCode() & ROW_KEY_VALUE_MASK;
+                break;
+            case ITEM_TYPE_INITIAL:
+            case ITEM_TYPE_CONTACT:
+                int row = getContactIndexRow(showSearch ? position - ROW_COUNT_SECTION_HEADER : position);
+                long initial = hashCode(contactsIndex.getInitial(row)) & ROW_KEY_INITIAL_MASK;
+                value = (initial << ROW_KEY_INITIAL_SHIFT) | (contactsIndex.getContactPosition(row) & ROW_KEY_VALUE_MASK);
+                break;
+            default:
+                value = position;
+                break;
+        }
+        return ((long) type << ROW_KEY_TYPE_SHIFT) | value;
+    }
+
+    /**
+     * A hash of what the row displays, so that a row which keeps its key but shows a renamed user or conversation, a
+     * changed selection or another contact, is still rebound. Top users change with their generation instead.
+     */
+    private int getRowContent(int position) {
+        switch (getItemViewType(position)) {
+            case ITEM_TYPE_CONTACT:
+                int row = getContactIndexRow(showSearch ? position - ROW_COUNT_SECTION_HEADER : position);
+                return getContactContent(getContact(row));
+            case ITEM_TYPE_CONNECTED_USER:
+                return getUserContent(connectedUsers[position - ROW_COUNT_SECTION_HEADER]);
+            case ITEM_TYPE_OTHER_USER:
+                return getUserContent(otherUsers[getOtherUserInternalPosition(position) - ROW_COUNT_SECTION_HEADER]);
+            case ITEM_TYPE_CONVERSATION:
+                IConversation conversation = conversations[getConversationInternalPosition(position) - ROW_COUNT_SECTION_HEADER];
+                return hashCode(conversation.getName());
+            default:
+                return 0;
+        }
+    }
+
+    private int getUserContent(User user) {
+        return 31 * hashCode(user.getName()) + (isSelected(user) ? 1 : 0);
+    }
+
+    /**
+     * The row observes the user and details of its contact on its own, so only who the contact is counts here
+     */
+    private static int getContactContent(Contact contact) {
+        if (contact == null) {
+            return 0;
+        }
+        User user = contact.getUser();
+        if (user != null) {
+            return hashCode(user.getId());
+        }
+        ContactDetails details = contact.getDetails();
+        return details == null ? 0 : 31 * hashCode(details.getDisplayName()) + 1;
     }
 
-    private String getContactInitial(int position) {
-        String[] initials = contacts.getInitials().toArray(new String[contacts.getInitials().size()]);
-        int[] mapping = getContactMapping(position);
-        return initials[mapping[1]];
+    private static int hashCode(String value) {
+        return value == null ? 0 : value.hashCode();
     }
 
     public interface Callback {
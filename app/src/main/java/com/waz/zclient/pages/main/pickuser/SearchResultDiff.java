@@ -0,0 +1,94 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.main.pickuser;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * Describes the difference between two lists of rows of {@link SearchResultAdapter} as a single edit window, and
+ * dispatches it as range notifications. Each row is a key identifying what it shows and a hash of its content. Rows
+ * before and after the window keep both and are left untouched, a row whose content changed is part of the window.
+ */
+public final class SearchResultDiff {
+
+    private final int start;
+    private final int changedCount;
+    private final int insertedCount;
+    private final int removedCount;
+
+    private SearchResultDiff(int start, int oldWindow, int newWindow) {
+        this.start = start;
+        this.changedCount = Math.min(oldWindow, newWindow);
+        this.insertedCount = Math.max(0, newWindow - oldWindow);
+        this.removedCount = Math.max(0, oldWindow - newWindow);
+    }
+
+    public static SearchResultDiff calculate(long[] oldKeys, int[] oldContents, int oldSize,
+                                             long[] newKeys, int[] newContents, int newSize) {
+        final int maxCommon = Math.min(oldSize, newSize);
+
+        int prefix = 0;
+        while (prefix < maxCommon &&
+               oldKeys[prefix] == newKeys[prefix] &&
+               oldContents[prefix] == newContents[prefix]) {
+            prefix++;
+        }
+
+        int suffix = 0;
+        final int maxSuffix = maxCommon - prefix;
+        while (suffix < maxSuffix &&
+               oldKeys[oldSize - 1 - suffix] == newKeys[newSize - 1 - suffix] &&
+               oldContents[oldSize - 1 - suffix] == newContents[newSize - 1 - suffix]) {
+            suffix++;
+        }
+
+        return new SearchResultDiff(prefix, oldSize - prefix - suffix, newSize - prefix - suffix);
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    public int getInsertedCount() {
+        return insertedCount;
+    }
+
+    public int getRemovedCount() {
+        return removedCount;
+    }
+
+    public boolean isEmpty() {
+        return changedCount == 0 && insertedCount == 0 && removedCount == 0;
+    }
+
+    public void dispatchTo(RecyclerView.Adapter adapter) {
+        if (changedCount > 0) {
+            adapter.notifyItemRangeChanged(start, changedCount);
+        }
+        if (removedCount > 0) {
+            adapter.notifyItemRangeRemoved(start + changedCount, removedCount);
+        }
+        if (insertedCount > 0) {
+            adapter.notifyItemRangeInserted(start + changedCount, insertedCount);
+        }
+    }
+}
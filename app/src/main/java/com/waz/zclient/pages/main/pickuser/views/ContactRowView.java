@@ -126,8 +126,10 @@ public class ContactRowView extends FrameLayout implements UserRowView {
 
     public void setContact(Contact contact) {
         if (contact == null) {
+            clear();
             return;
         }
+        setVisibility(VISIBLE);
         if (contact.getDetails() == null) {
             contactDetails = null;
         }
@@ -139,6 +141,21 @@ public class ContactRowView extends FrameLayout implements UserRowView {
         userModelObserver.setAndUpdate(contact.getUser());
     }
 
+    /**
+     * Hides the row and stops listening to the contact it showed, used while a recycled row has nothing to show.
+     */
+    public void clear() {
+        contactDetailsModelObserver.clear();
+        userModelObserver.clear();
+        contactDetails = null;
+        user = null;
+        nameView.setText("");
+        contactInviteButton.setOnClickListener(null);
+        setOnClickListener(null);
+        setSelected(false);
+        setVisibility(INVISIBLE);
+    }
+
     public void setAccentColor(int color) {
         contactInviteButton.setAccentColor(color);
     }
@@ -152,6 +169,7 @@ public class ContactRowView extends FrameLayout implements UserRowView {
         chathead = ViewUtils.getView(this, R.id.cv__contactlist__user__chathead);
         nameView = ViewUtils.getView(this, R.id.ttv__contactlist__user__name);
         contactInviteButton = ViewUtils.getView(this, R.id.zb__contactlist__user_selected_button);
+        userModelObserver.enableCoalescing(ModelObserver.DEFAULT_COALESCING_LATENCY_MILLIS);
     }
 
     @Override
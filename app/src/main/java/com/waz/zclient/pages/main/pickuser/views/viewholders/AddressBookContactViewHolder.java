@@ -40,4 +40,8 @@ public class AddressBookContactViewHolder extends RecyclerView.ViewHolder {
         contactRowView.setContact(contact);
         contactRowView.setAccentColor(accentColor);
     }
+
+    public void clear() {
+        contactRowView.clear();
+    }
 }
@@ -19,21 +19,32 @@ package com.waz.zclient.pages.main.profile.preferences;
 
 import android.content.ClipData;
 import android.content.ClipboardManager;
+import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.v7.preference.Preference;
 import android.view.WindowManager;
 import android.widget.Toast;
+import com.waz.threading.Threading;
 import com.waz.zclient.R;
 import com.waz.zclient.core.controllers.tracking.events.Event;
 import com.waz.zclient.pages.BasePreferenceFragment;
 import com.waz.zclient.utils.DebugUtils;
+import com.waz.zclient.utils.metrics.LatencyMetrics;
+import timber.log.Timber;
+
+import java.io.File;
+import java.io.IOException;
 
 
 public class DeveloperPreferences extends BasePreferenceFragment<DeveloperPreferences.Container> {
 
     public static final String TAG = DeveloperPreferences.class.getName();
+    private static final String LATENCY_METRICS_FILE_NAME = "latency_metrics.tsv";
     private Preference lastCallSessionIdPreference;
+    private Preference latencyMetricsPreference;
 
     public static DeveloperPreferences newInstance(String rootKey, Bundle extras) {
         DeveloperPreferences f = new DeveloperPreferences();
@@ -62,6 +73,61 @@ public class DeveloperPreferences extends BasePreferenceFragment<DeveloperPrefer
 
         Preference versionInfoPrefs = findPreference(getString(R.string.pref_dev_version_info_id_key));
         versionInfoPrefs.setSummary(DebugUtils.getVersion(getContext()));
+
+        latencyMetricsPreference = findPreference(getString(R.string.pref_dev_latency_metrics_key));
+        latencyMetricsPreference.setOnPreferenceClickListener(new Preference.OnPreferenceClickListener() {
+            @Override
+            public boolean onPreferenceClick(Preference preference) {
+                dumpLatencyMetrics();
+                return true;
+            }
+        });
+        updateLatencyMetricsSummary();
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        updateLatencyMetricsSummary();
+    }
+
+    private void updateLatencyMetricsSummary() {
+        if (latencyMetricsPreference == null) {
+            return;
+        }
+        String summary = LatencyMetrics.get().summary();
+        latencyMetricsPreference.setSummary(summary.isEmpty() ? getString(R.string.pref_dev_latency_metrics_empty) : summary);
+    }
+
+    private void dumpLatencyMetrics() {
+        updateLatencyMetricsSummary();
+        final Context context = getActivity().getApplicationContext();
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        Threading.Background().execute(new Runnable() {
+            @Override
+            public void run() {
+                File dir = context.getExternalFilesDir(null);
+                if (dir == null) {
+                    dir = context.getFilesDir();
+                }
+                File file = new File(dir, LATENCY_METRICS_FILE_NAME);
+                String result;
+                try {
+                    LatencyMetrics.get().dump(file);
+                    result = context.getString(R.string.pref_dev_latency_metrics_dumped, file.getAbsolutePath());
+                } catch (IOException e) {
+                    Timber.e(e, "Failed writing latency metrics");
+                    result = context.getString(R.string.pref_dev_latency_metrics_dump_failed);
+                }
+                final String message = result;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        Toast.makeText(context, message, Toast.LENGTH_SHORT).show();
+                    }
+                });
+            }
+        });
     }
 
     private void copyLastCallSessionIdToClipboard() {
@@ -81,6 +147,8 @@ public class DeveloperPreferences extends BasePreferenceFragment<DeveloperPrefer
     public void onDestroyView() {
         lastCallSessionIdPreference.setOnPreferenceClickListener(null);
         lastCallSessionIdPreference = null;
+        latencyMetricsPreference.setOnPreferenceClickListener(null);
+        latencyMetricsPreference = null;
         super.onDestroyView();
     }
 
@@ -122,11 +122,18 @@ public class AddPhoneNumberPreferenceDialogFragment extends BaseDialogFragment<A
         });
 
         final String phoneNumber = getArguments().getString(ARG_PHONE, "");
-        final String number = countryController.getPhoneNumberWithoutCountryCode(phoneNumber);
-        final String countryCode = phoneNumber.substring(0, phoneNumber.length() - number.length()).replace("+", "");
-        phoneEditText.setText(number);
-        phoneEditText.setSelection(number.length());
-        countryEditText.setText(String.format("+%s", countryCode));
+        countryController.getPhoneNumberWithoutCountryCode(phoneNumber, new CountryController.ResultCallback<String>() {
+            @Override
+            public void onResult(String number) {
+                if (phoneEditText == null) {
+                    return;
+                }
+                final String countryCode = phoneNumber.substring(0, phoneNumber.length() - number.length()).replace("+", "");
+                phoneEditText.setText(number);
+                phoneEditText.setSelection(number.length());
+                countryEditText.setText(String.format("+%s", countryCode));
+            }
+        });
 
         if (isEditMode) {
             phoneEditText.requestFocus();
@@ -174,14 +181,18 @@ public class AddPhoneNumberPreferenceDialogFragment extends BaseDialogFragment<A
             return;
         }
         final String abbreviation = getControllerFactory().getDeviceUserController().getPhoneCountryISO();
-        final String countryCode = new CountryController(getActivity()).getCodeForAbbreviation(abbreviation);
-        if (countryCode == null) {
-            return;
-        }
-        final String rawPhoneNumber = getControllerFactory().getDeviceUserController().getPhoneNumber(countryCode);
-        phoneEditText.setText(rawPhoneNumber);
-        phoneEditText.setSelection(rawPhoneNumber.length());
-        countryEditText.setText(String.format("+%s", countryCode.replace("+", "")));
+        countryController.getCodeForAbbreviation(abbreviation, new CountryController.ResultCallback<String>() {
+            @Override
+            public void onResult(String countryCode) {
+                if (countryCode == null || containerView == null) {
+                    return;
+                }
+                final String rawPhoneNumber = getControllerFactory().getDeviceUserController().getPhoneNumber(countryCode);
+                phoneEditText.setText(rawPhoneNumber);
+                phoneEditText.setSelection(rawPhoneNumber.length());
+                countryEditText.setText(String.format("+%s", countryCode.replace("+", "")));
+            }
+        });
     }
 
     @Override
@@ -406,15 +417,19 @@ public class AddPhoneNumberPreferenceDialogFragment extends BaseDialogFragment<A
     }
 
     @Override
-    public void onCountryHasChanged(Country country) {
+    public void onCountryHasChanged(final Country country) {
         final String phoneNumber = getArguments().getString(ARG_PHONE, "");
-        final String number = countryController.getPhoneNumberWithoutCountryCode(phoneNumber);
-        final String countryCode = phoneNumber.substring(0, phoneNumber.length() - number.length()).replace("+", "");
-        if (!TextUtils.isEmpty(countryCode)) {
-            return;
-        }
+        countryController.getPhoneNumberWithoutCountryCode(phoneNumber, new CountryController.ResultCallback<String>() {
+            @Override
+            public void onResult(String number) {
+                final String countryCode = phoneNumber.substring(0, phoneNumber.length() - number.length()).replace("+", "");
+                if (!TextUtils.isEmpty(countryCode) || countryEditText == null) {
+                    return;
+                }
 
-        countryEditText.setText(String.format("+%s", country.getCountryCode()));
+                countryEditText.setText(String.format("+%s", country.getCountryCode()));
+            }
+        });
     }
 
     public interface Container {
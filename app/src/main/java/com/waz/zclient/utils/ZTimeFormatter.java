@@ -28,10 +28,54 @@ import org.threeten.bp.LocalDateTime;
 import org.threeten.bp.ZoneId;
 import org.threeten.bp.format.DateTimeFormatter;
 
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 
 public class ZTimeFormatter {
 
+    private static final int MINUTES_AGO_CACHE_SIZE = 61;
+    private static final int PATTERN_TIME = 0;
+    private static final int PATTERN_DATE_AND_TIME_NO_YEAR = 1;
+    private static final int PATTERN_DATE_AND_TIME_WITH_YEAR = 2;
+    private static final int PATTERN_SINGLE_MESSAGE = 3;
+    private static final int PATTERN_WEEK = 4;
+    private static final int PATTERN_COUNT = 5;
+
+    /**
+     * Formatters, pattern strings and relative time strings are looked up for every separator and footer that is
+     * bound, so they are kept per locale and 12/24h setting. {@link #invalidateCache()} drops everything when the
+     * locale, time zone or time format changes.
+     */
+    private static final Object CACHE_LOCK = new Object();
+    private static final Map<String, DateTimeFormatter> FORMATTERS = new HashMap<>();
+    private static final String[] PATTERNS = new String[PATTERN_COUNT * 2];
+    private static final String[] MINUTES_AGO = new String[MINUTES_AGO_CACHE_SIZE];
+    private static String justNow;
+    private static Locale cachedLocale;
+    private static ZoneId cachedZoneId;
+
+    public static void invalidateCache() {
+        synchronized (CACHE_LOCK) {
+            clearCache();
+            cachedZoneId = null;
+        }
+    }
+
+    /**
+     * @return {@link ZoneId#systemDefault()}, resolved once until the time zone changes
+     */
+    public static ZoneId getZoneId() {
+        synchronized (CACHE_LOCK) {
+            if (cachedZoneId == null) {
+                cachedZoneId = ZoneId.systemDefault();
+            }
+            return cachedZoneId;
+        }
+    }
+
     public static String getSeparatorTime(@Nullable Resources resources, LocalDateTime now, LocalDateTime then, boolean is24HourFormat, ZoneId timeZone, boolean epocIsJustNow) {
         if (resources == null) {
             return "";
@@ -41,54 +85,136 @@ public class ZTimeFormatter {
         final boolean isLastSixtyMins = now.minusMinutes(60).isBefore(then);
 
         if (isLastTwoMins) {
-            return resources.getString(R.string.timestamp__just_now);
+            return getJustNow(resources);
         } else if (isLastSixtyMins) {
             int minutes = (int) Duration.between(then, now).toMinutes();
-            return resources.getQuantityString(R.plurals.timestamp__x_minutes_ago, minutes, minutes);
+            return getMinutesAgo(resources, minutes);
         }
 
-        final String time = getTimeFormatString(resources, is24HourFormat);
         final boolean isSameDay = now.toLocalDate().atStartOfDay().isBefore(then);
         final boolean isThisYear = now.getYear() == then.getYear();
         final String pattern;
         if (isSameDay) {
-            pattern = time;
+            pattern = getPattern(resources, PATTERN_TIME, is24HourFormat);
         } else if (isThisYear) {
-            pattern = resources.getString(R.string.timestamp_pattern__date_and_time__no_year, time);
+            pattern = getPattern(resources, PATTERN_DATE_AND_TIME_NO_YEAR, is24HourFormat);
         } else {
-            pattern = resources.getString(R.string.timestamp_pattern__date_and_time__with_year, time);
+            pattern = getPattern(resources, PATTERN_DATE_AND_TIME_WITH_YEAR, is24HourFormat);
         }
-        return DateTimeFormatter.ofPattern(pattern).format(then.atZone(timeZone));
+        return getFormatter(pattern).format(then.atZone(timeZone));
     }
 
     public static String getSingleMessageTimeAndDate(@Nullable Resources resources, LocalDateTime date, boolean is24HourFormat, ZoneId timeZone) {
         if (resources == null) {
             return "";
         }
-        String time = getTimeFormatString(resources, is24HourFormat);
-
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(resources.getString(R.string.timestamp_pattern__single_message, time));
+        DateTimeFormatter formatter = getFormatter(getPattern(resources, PATTERN_SINGLE_MESSAGE, is24HourFormat));
         return formatter.format(date.atZone(timeZone));
     }
 
     public static String getSingleMessageTimeAndDate(Context context, Date date) {
         boolean is24HourFormat = DateFormat.is24HourFormat(context);
+        final ZoneId timeZone = getZoneId();
         return ZTimeFormatter.getSingleMessageTimeAndDate(context.getResources(),
-                                                          DateConvertUtils.asLocalDateTime(date),
+                                                          DateConvertUtils.asLocalDateTime(DateConvertUtils.asInstant(date), timeZone),
                                                           is24HourFormat,
-                                                          ZoneId.systemDefault());
+                                                          timeZone);
     }
 
     public static String getSingleMessageTime(Context context, Date date) {
         boolean is24HourFormat = DateFormat.is24HourFormat(context);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(getTimeFormatString(context.getResources(), is24HourFormat));
-        return formatter.format(DateConvertUtils.asLocalDateTime(date).atZone(ZoneId.systemDefault()));
+        DateTimeFormatter formatter = getFormatter(getPattern(context.getResources(), PATTERN_TIME, is24HourFormat));
+        final ZoneId timeZone = getZoneId();
+        return formatter.format(DateConvertUtils.asLocalDateTime(DateConvertUtils.asInstant(date), timeZone).atZone(timeZone));
     }
 
     public static String getCurrentWeek(Context context) {
-        String pattern = context.getResources().getString(R.string.timestamp_pattern__week);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern);
-        return formatter.format(DateConvertUtils.asLocalDateTime(Instant.now()).atZone(ZoneId.systemDefault()));
+        DateTimeFormatter formatter = getFormatter(getPattern(context.getResources(), PATTERN_WEEK, false));
+        final ZoneId timeZone = getZoneId();
+        return formatter.format(DateConvertUtils.asLocalDateTime(Instant.now(), timeZone).atZone(timeZone));
+    }
+
+    private static String getJustNow(Resources resources) {
+        synchronized (CACHE_LOCK) {
+            ensureLocale();
+            if (justNow == null) {
+                justNow = resources.getString(R.string.timestamp__just_now);
+            }
+            return justNow;
+        }
+    }
+
+    private static String getMinutesAgo(Resources resources, int minutes) {
+        if (minutes < 0 || minutes >= MINUTES_AGO_CACHE_SIZE) {
+            return resources.getQuantityString(R.plurals.timestamp__x_minutes_ago, minutes, minutes);
+        }
+        synchronized (CACHE_LOCK) {
+            ensureLocale();
+            if (MINUTES_AGO[minutes] == null) {
+                MINUTES_AGO[minutes] = resources.getQuantityString(R.plurals.timestamp__x_minutes_ago, minutes, minutes);
+            }
+            return MINUTES_AGO[minutes];
+        }
+    }
+
+    private static String getPattern(Resources resources, int patternType, boolean is24HourFormat) {
+        final int index = patternType * 2 + (is24HourFormat ? 1 : 0);
+        synchronized (CACHE_LOCK) {
+            ensureLocale();
+            if (PATTERNS[index] == null) {
+                PATTERNS[index] = loadPattern(resources, patternType, is24HourFormat);
+            }
+            return PATTERNS[index];
+        }
+    }
+
+    private static String loadPattern(Resources resources, int patternType, boolean is24HourFormat) {
+        final String time = getTimeFormatString(resources, is24HourFormat);
+        switch (patternType) {
+            case PATTERN_DATE_AND_TIME_NO_YEAR:
+                return resources.getString(R.string.timestamp_pattern__date_and_time__no_year, time);
+            case PATTERN_DATE_AND_TIME_WITH_YEAR:
+                return resources.getString(R.string.timestamp_pattern__date_and_time__with_year, time);
+            case PATTERN_SINGLE_MESSAGE:
+                return resources.getString(R.string.timestamp_pattern__single_message, time);
+            case PATTERN_WEEK:
+                return resources.getString(R.string.timestamp_pattern__week);
+            case PATTERN_TIME:
+            default:
+                return time;
+        }
+    }
+
+    private static DateTimeFormatter getFormatter(String pattern) {
+        synchronized (CACHE_LOCK) {
+            ensureLocale();
+            DateTimeFormatter formatter = FORMATTERS.get(pattern);
+            if (formatter == null) {
+                formatter = DateTimeFormatter.ofPattern(pattern);
+                FORMATTERS.put(pattern, formatter);
+            }
+            return formatter;
+        }
+    }
+
+    /**
+     * The locale can also change with a configuration change without the locale broadcast, so it is checked on
+     * every lookup as well. Must be called holding {@link #CACHE_LOCK}.
+     */
+    private static void ensureLocale() {
+        final Locale locale = Locale.getDefault();
+        if (!locale.equals(cachedLocale)) {
+            clearCache();
+            cachedLocale = locale;
+        }
+    }
+
+    private static void clearCache() {
+        FORMATTERS.clear();
+        Arrays.fill(PATTERNS, null);
+        Arrays.fill(MINUTES_AGO, null);
+        justNow = null;
+        cachedLocale = null;
     }
 
     private static String getTimeFormatString(@Nullable Resources resources, boolean is24HourFormat) {
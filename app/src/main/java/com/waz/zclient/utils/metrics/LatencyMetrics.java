@@ -0,0 +1,277 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.utils.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of the app's key latencies, one {@link LatencyHistogram} per metric, and of a few counters which
+ * explain them, like how many image loads were cancelled.
+ *
+ * Measurements which span several calls are started with {@link #start(String, String)} and finished with
+ * {@link #stop(String, String)}. Every measurement has a key, so measurements of the same metric for
+ * different things, e.g. messages sent to two conversations, don't overwrite each other. Metrics with a
+ * {@link #setTimeout timeout} drop measurements which ran longer than that instead of recording them.
+ */
+public class LatencyMetrics {
+
+    public static final String APP_LAUNCH = "app_launch";
+    public static final String STARTUP_CRITICAL = "startup_critical";
+    public static final String LOGIN = "login";
+    public static final String CONVERSATION_OPEN = "conversation_open";
+    public static final String CONVERSATION_SYNC = "conversation_sync";
+    public static final String MESSAGE_SEND_ECHO = "message_send_echo";
+    public static final String IMAGE_FIRST_BITMAP = "image_first_bitmap";
+    public static final String CAMERA_SHUTTER = "camera_shutter";
+    public static final String CAMERA_UPLOAD_READY = "camera_upload_ready";
+
+    public static final String IMAGE_LOADS_REQUESTED = "image_loads_requested";
+    public static final String IMAGE_LOADS_DEDUPLICATED = "image_loads_deduplicated";
+    public static final String IMAGE_LOADS_CANCELLED = "image_loads_cancelled";
+    public static final String IMAGE_LOADS_COMPLETED = "image_loads_completed";
+
+    public static final String DEFAULT_KEY = "";
+
+    /**
+     * Measurements which are never stopped, e.g. a login which was abandoned, are dropped once there are
+     * this many of them.
+     */
+    static final int MAX_PENDING = 256;
+
+    private static final LatencyMetrics INSTANCE = new LatencyMetrics();
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> pending = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> timeouts = new ConcurrentHashMap<>();
+
+    public static LatencyMetrics get() {
+        return INSTANCE;
+    }
+
+    LatencyMetrics() {
+    }
+
+    public LatencyHistogram histogram(String metric) {
+        LatencyHistogram histogram = histograms.get(metric);
+        if (histogram == null) {
+            histogram = new LatencyHistogram(metric);
+            LatencyHistogram existing = histograms.putIfAbsent(metric, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        return histogram;
+    }
+
+    public void recordNanos(String metric, long nanos) {
+        histogram(metric).recordNanos(nanos);
+    }
+
+    public void increment(String counter) {
+        AtomicLong value = counters.get(counter);
+        if (value == null) {
+            value = new AtomicLong();
+            AtomicLong existing = counters.putIfAbsent(counter, value);
+            if (existing != null) {
+                value = existing;
+            }
+        }
+        value.incrementAndGet();
+    }
+
+    public long getCount(String counter) {
+        AtomicLong value = counters.get(counter);
+        return value == null ? 0 : value.get();
+    }
+
+    /**
+     * Measurements of the metric which are still running after the timeout were abandoned, e.g. because the
+     * event which stops them never came. They are not recorded and don't block {@link #startIfIdle}.
+     */
+    public void setTimeout(String metric, long timeout, TimeUnit unit) {
+        timeouts.put(metric, unit.toNanos(timeout));
+    }
+
+    /**
+     * Starts a measurement, restarting it if one with the same key is running already.
+     */
+    public void start(String metric, String key) {
+        trimPending();
+        pending.put(pendingKey(metric, key), nanoTime());
+    }
+
+    /**
+     * Starts a measurement unless one with the same key is running already.
+     *
+     * @return true if a new measurement was started
+     */
+    public boolean startIfIdle(String metric, String key) {
+        trimPending();
+        final String pendingKey = pendingKey(metric, key);
+        final long now = nanoTime();
+        Long start = pending.putIfAbsent(pendingKey, now);
+        if (start == null) {
+            return true;
+        }
+        return isTimedOut(metric, now - start) && pending.replace(pendingKey, start, now);
+    }
+
+    /**
+     * Finishes a measurement and records it.
+     *
+     * @return the measured time in nanoseconds, or -1 if there was no measurement with this key or it timed out
+     */
+    public long stop(String metric, String key) {
+        Long start = pending.remove(pendingKey(metric, key));
+        if (start == null) {
+            return -1;
+        }
+        long elapsed = nanoTime() - start;
+        if (isTimedOut(metric, elapsed)) {
+            return -1;
+        }
+        recordNanos(metric, elapsed);
+        return elapsed;
+    }
+
+    private boolean isTimedOut(String metric, long elapsed) {
+        Long timeout = timeouts.get(metric);
+        return timeout != null && elapsed > timeout;
+    }
+
+    /**
+     * Package private for testing purposes
+     */
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    public void cancel(String metric, String key) {
+        pending.remove(pendingKey(metric, key));
+    }
+
+    public boolean isRunning(String metric, String key) {
+        return pending.containsKey(pendingKey(metric, key));
+    }
+
+    private void trimPending() {
+        if (pending.size() >= MAX_PENDING) {
+            pending.clear();
+        }
+    }
+
+    private static String pendingKey(String metric, String key) {
+        return metric + '/' + (key == null ? DEFAULT_KEY : key);
+    }
+
+    /**
+     * @return snapshots of all metrics with at least one sample, ordered by name
+     */
+    public List<LatencyHistogram.Snapshot> snapshots() {
+        List<LatencyHistogram.Snapshot> snapshots = new ArrayList<>(histograms.size());
+        for (LatencyHistogram histogram : histograms.values()) {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            if (snapshot.getCount() > 0) {
+                snapshots.add(snapshot);
+            }
+        }
+        Collections.sort(snapshots, new Comparator<LatencyHistogram.Snapshot>() {
+            @Override
+            public int compare(LatencyHistogram.Snapshot lhs, LatencyHistogram.Snapshot rhs) {
+                return lhs.getName().compareTo(rhs.getName());
+            }
+        });
+        return snapshots;
+    }
+
+    public String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (LatencyHistogram.Snapshot snapshot : snapshots()) {
+            if (summary.length() > 0) {
+                summary.append('\n');
+            }
+            summary.append(snapshot);
+        }
+        for (String counter : counterNames()) {
+            if (summary.length() > 0) {
+                summary.append('\n');
+            }
+            summary.append(counter).append(": ").append(getCount(counter));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Writes all metrics as tab separated values in microseconds, one metric per line.
+     */
+    public void dump(File file) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write("metric\tcount\tmean_us\tp50_us\tp90_us\tp99_us\tp999_us\tmax_us\n");
+            for (LatencyHistogram.Snapshot snapshot : snapshots()) {
+                writer.write(String.format(Locale.US,
+                                           "%s\t%d\t%d\t%d\t%d\t%d\t%d\t%d\n",
+                                           snapshot.getName(),
+                                           snapshot.getCount(),
+                                           snapshot.getMeanMicros(),
+                                           snapshot.getPercentileMicros(50),
+                                           snapshot.getPercentileMicros(90),
+                                           snapshot.getPercentileMicros(99),
+                                           snapshot.getPercentileMicros(99.9),
+                                           snapshot.getMaxMicros()));
+            }
+            List<String> counterNames = counterNames();
+            if (!counterNames.isEmpty()) {
+                writer.write("\ncounter\tvalue\n");
+                for (String counter : counterNames) {
+                    writer.write(String.format(Locale.US, "%s\t%d\n", counter, getCount(counter)));
+                }
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private List<String> counterNames() {
+        List<String> names = new ArrayList<>(counters.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    public void reset() {
+        pending.clear();
+        counters.clear();
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+}
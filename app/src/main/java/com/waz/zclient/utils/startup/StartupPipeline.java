@@ -0,0 +1,206 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.utils.startup;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayDeque;
+
+/**
+ * Orders the work done while the app starts into the phases of {@link StartupTrace.Phase} and records
+ * every step in the {@link #getTrace() trace}.
+ *
+ * Critical work runs right away. First-frame work waits for the first activity to draw. Idle work runs
+ * afterwards, one task each time the main thread has nothing else to do, so it never delays a frame for
+ * longer than a single task takes. If no activity shows up, e.g. when the app was started for a push
+ * notification, idle work starts after {@link #IDLE_FALLBACK_DELAY_MS} anyway.
+ *
+ * All methods have to be called on the main thread.
+ */
+public class StartupPipeline {
+
+    static final long IDLE_FALLBACK_DELAY_MS = 1000;
+
+    private static StartupPipeline instance;
+
+    private final StartupTrace trace;
+    private final Handler handler;
+    private final ArrayDeque<Task> firstFrameTasks = new ArrayDeque<>();
+    private final ArrayDeque<Task> idleTasks = new ArrayDeque<>();
+    private boolean firstFrameDrawn;
+    private boolean idleUnlocked;
+    private boolean idleScheduled;
+    private boolean fallbackScheduled;
+    private Runnable onIdleDrained;
+
+    private final Runnable idleFallback = new Runnable() {
+        @Override
+        public void run() {
+            idleUnlocked = true;
+            scheduleIdle();
+        }
+    };
+
+    private final MessageQueue.IdleHandler idleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            runNextIdleTask();
+            if (idleTasks.isEmpty()) {
+                idleScheduled = false;
+                if (onIdleDrained != null) {
+                    onIdleDrained.run();
+                }
+                return false;
+            }
+            return true;
+        }
+    };
+
+    public static StartupPipeline get() {
+        if (instance == null) {
+            instance = new StartupPipeline(new StartupTrace(), new Handler(Looper.getMainLooper()));
+        }
+        return instance;
+    }
+
+    StartupPipeline(StartupTrace trace, Handler handler) {
+        this.trace = trace;
+        this.handler = handler;
+    }
+
+    public StartupTrace getTrace() {
+        return trace;
+    }
+
+    public boolean isFirstFrameDrawn() {
+        return firstFrameDrawn;
+    }
+
+    /**
+     * Called every time the idle work queued so far is done.
+     */
+    public void setOnIdleDrained(Runnable onIdleDrained) {
+        this.onIdleDrained = onIdleDrained;
+    }
+
+    public void runCritical(String name, Runnable work) {
+        run(new Task(name, StartupTrace.Phase.CRITICAL, work));
+    }
+
+    public void runOnFirstFrame(String name, Runnable work) {
+        Task task = new Task(name, StartupTrace.Phase.FIRST_FRAME, work);
+        if (firstFrameDrawn) {
+            run(task);
+        } else {
+            firstFrameTasks.add(task);
+        }
+    }
+
+    public void runWhenIdle(String name, Runnable work) {
+        idleTasks.add(new Task(name, StartupTrace.Phase.IDLE, work));
+        scheduleIdle();
+    }
+
+    /**
+     * Waits for the given window content to be drawn for the first time, then runs the first-frame work.
+     */
+    public void watchFirstFrame(final View view) {
+        if (firstFrameDrawn) {
+            return;
+        }
+        view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                view.getViewTreeObserver().removeOnPreDrawListener(this);
+                // the frame is drawn once this pass finished
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onFirstFrameDrawn();
+                    }
+                });
+                return true;
+            }
+        });
+    }
+
+    void onFirstFrameDrawn() {
+        if (firstFrameDrawn) {
+            return;
+        }
+        firstFrameDrawn = true;
+        idleUnlocked = true;
+        trace.mark("firstFrame", StartupTrace.Phase.FIRST_FRAME);
+        while (!firstFrameTasks.isEmpty()) {
+            run(firstFrameTasks.poll());
+        }
+        handler.removeCallbacks(idleFallback);
+        scheduleIdle();
+    }
+
+    private void scheduleIdle() {
+        if (idleTasks.isEmpty() || idleScheduled) {
+            return;
+        }
+        if (!idleUnlocked) {
+            if (!fallbackScheduled) {
+                fallbackScheduled = true;
+                handler.postDelayed(idleFallback, IDLE_FALLBACK_DELAY_MS);
+            }
+            return;
+        }
+        idleScheduled = true;
+        addIdleHandler(idleHandler);
+    }
+
+    void addIdleHandler(MessageQueue.IdleHandler idleHandler) {
+        Looper.myQueue().addIdleHandler(idleHandler);
+    }
+
+    void runNextIdleTask() {
+        Task task = idleTasks.poll();
+        if (task != null) {
+            run(task);
+        }
+    }
+
+    private void run(Task task) {
+        StartupTrace.Span span = trace.begin(task.name, task.phase);
+        try {
+            task.work.run();
+        } finally {
+            span.end();
+        }
+    }
+
+    private static final class Task {
+        private final String name;
+        private final StartupTrace.Phase phase;
+        private final Runnable work;
+
+        private Task(String name, StartupTrace.Phase phase, Runnable work) {
+            this.name = name;
+            this.phase = phase;
+            this.work = work;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.utils.startup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * In-memory record of what the app did while starting, as timed spans grouped by {@link Phase}. The trace
+ * can be exported as JSON in the trace event format understood by chrome://tracing and Perfetto.
+ */
+public class StartupTrace {
+
+    public enum Phase {
+        /**
+         * Work the first activity can't do without, runs before anything is shown.
+         */
+        CRITICAL,
+        /**
+         * Work which has to happen right after the first frame was drawn.
+         */
+        FIRST_FRAME,
+        /**
+         * Everything else, run piece by piece whenever the main thread is idle.
+         */
+        IDLE
+    }
+
+    private final long originNanos;
+    private final List<Span> spans = new ArrayList<>();
+
+    public StartupTrace() {
+        this(System.nanoTime());
+    }
+
+    StartupTrace(long originNanos) {
+        this.originNanos = originNanos;
+    }
+
+    public Span begin(String name, Phase phase) {
+        return new Span(name, phase, System.nanoTime(), Thread.currentThread().getName());
+    }
+
+    /**
+     * Records an event without duration, like the first frame being drawn.
+     */
+    public void mark(String name, Phase phase) {
+        Span span = begin(name, phase);
+        span.instant = true;
+        span.endNanos = span.startNanos;
+        add(span);
+    }
+
+    private void add(Span span) {
+        synchronized (spans) {
+            spans.add(span);
+        }
+    }
+
+    public List<Span> getSpans() {
+        synchronized (spans) {
+            return new ArrayList<>(spans);
+        }
+    }
+
+    /**
+     * @return the total time spent in finished spans of the given phase, in nanoseconds
+     */
+    public long getPhaseDuration(Phase phase) {
+        long duration = 0;
+        for (Span span : getSpans()) {
+            if (span.phase == phase) {
+                duration += span.getDurationNanos();
+            }
+        }
+        return duration;
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"traceEvents\":[");
+        List<Span> spans = getSpans();
+        for (int i = 0; i < spans.size(); i++) {
+            Span span = spans.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"name\":");
+            appendString(json, span.name);
+            json.append(",\"cat\":");
+            appendString(json, span.phase.name().toLowerCase(Locale.US));
+            json.append(",\"ph\":\"").append(span.instant ? 'i' : 'X').append('"');
+            json.append(",\"ts\":").append((span.startNanos - originNanos) / 1000);
+            json.append(",\"dur\":").append(span.getDurationNanos() / 1000);
+            json.append(",\"pid\":0,\"tid\":");
+            appendString(json, span.thread);
+            json.append('}');
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format(Locale.US, "\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    public final class Span {
+        private final String name;
+        private final Phase phase;
+        private final long startNanos;
+        private final String thread;
+        private long endNanos = -1;
+        private boolean instant;
+
+        private Span(String name, Phase phase, long startNanos, String thread) {
+            this.name = name;
+            this.phase = phase;
+            this.startNanos = startNanos;
+            this.thread = thread;
+        }
+
+        /**
+         * Finishes the span and adds it to the trace, spans which are never ended are not recorded.
+         */
+        public void end() {
+            if (endNanos >= 0) {
+                return;
+            }
+            endNanos = System.nanoTime();
+            add(this);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Phase getPhase() {
+            return phase;
+        }
+
+        public long getDurationNanos() {
+            return endNanos < 0 ? 0 : endNanos - startNanos;
+        }
+    }
+}
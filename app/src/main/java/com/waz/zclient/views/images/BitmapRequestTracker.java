@@ -0,0 +1,122 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.views.images;
+
+import com.waz.zclient.utils.metrics.LatencyMetrics;
+
+/**
+ * Remembers which bitmap an {@link ImageAssetImageView} asked for last, so that measure passes and repeated connects
+ * of the same asset don't cancel and reissue an identical request.
+ *
+ * Requests are keyed by asset id, display type and width bucket. Widths are rounded up to a bucket whose size grows
+ * with the width, so a view which is resized by a few pixels, e.g. while animating, keeps its bitmap.
+ */
+class BitmapRequestTracker {
+
+    static final int MIN_BUCKET_STEP_PX = 32;
+
+    /**
+     * Buckets are an eighth of the power of two below the width, so a bitmap is at most ~12% wider than requested.
+     */
+    private static final int BUCKETS_PER_POWER_OF_TWO = 8;
+
+    private final LatencyMetrics metrics;
+
+    private String assetId;
+    private ImageAssetImageView.DisplayType displayType;
+    private int widthBucket;
+    private boolean pending;
+
+    BitmapRequestTracker(LatencyMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    static int widthBucket(int width) {
+        if (width <= 0) {
+            return 0;
+        }
+        int step = Math.max(MIN_BUCKET_STEP_PX, Integer.highestOneBit(width) / BUCKETS_PER_POWER_OF_TWO);
+        return (width + step - 1) / step * step;
+    }
+
+    /**
+     * @return true if a bitmap of this size was requested already and is still pending or was delivered
+     */
+    boolean isRequested(String assetId, ImageAssetImageView.DisplayType displayType, int width) {
+        boolean requested = this.assetId != null &&
+                            this.assetId.equals(assetId) &&
+                            this.displayType == displayType &&
+                            this.widthBucket == widthBucket(width);
+        if (requested) {
+            metrics.increment(LatencyMetrics.IMAGE_LOADS_DEDUPLICATED);
+        }
+        return requested;
+    }
+
+    /**
+     * Records a new request and cancels the previous one if it was still pending.
+     *
+     * @return the width to request
+     */
+    int request(String assetId, ImageAssetImageView.DisplayType displayType, int width) {
+        cancel();
+        this.assetId = assetId;
+        this.displayType = displayType;
+        this.widthBucket = widthBucket(width);
+        this.pending = true;
+        metrics.increment(LatencyMetrics.IMAGE_LOADS_REQUESTED);
+        return widthBucket;
+    }
+
+    /**
+     * Called for every bitmap delivered, only the first one of a request counts as its completion.
+     */
+    void delivered() {
+        if (pending) {
+            pending = false;
+            metrics.increment(LatencyMetrics.IMAGE_LOADS_COMPLETED);
+        }
+    }
+
+    /**
+     * Forgets the current request, so the next one is issued even if it is the same.
+     */
+    void cancel() {
+        if (pending) {
+            pending = false;
+            metrics.increment(LatencyMetrics.IMAGE_LOADS_CANCELLED);
+        }
+        assetId = null;
+        displayType = null;
+        widthBucket = 0;
+    }
+
+    /**
+     * Lets the next request for an already delivered bitmap through again, e.g. after the view dropped it. A pending
+     * request is kept, its bitmap will still be shown.
+     */
+    void forgetDelivered() {
+        if (!pending) {
+            cancel();
+        }
+    }
+
+    boolean isPending() {
+        return pending;
+    }
+}
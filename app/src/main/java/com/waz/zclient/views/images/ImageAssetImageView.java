@@ -35,6 +35,7 @@ import com.waz.zclient.R;
 import com.waz.zclient.ui.animation.interpolators.penner.Expo;
 import com.waz.zclient.ui.animation.interpolators.penner.Quart;
 import com.waz.zclient.utils.ViewUtils;
+import com.waz.zclient.utils.metrics.LatencyMetrics;
 
 public class ImageAssetImageView extends FrameLayout implements UpdateListener {
     public static final String TAG = ImageAssetImageView.class.getName();
@@ -116,6 +117,22 @@ public class ImageAssetImageView extends FrameLayout implements UpdateListener {
 
     private float fromScale;
 
+    /**
+     * When the current image asset was connected, until its first bitmap arrives.
+     */
+    private long connectedAtNanos = -1;
+
+    /**
+     * The last requested bitmap, measure passes don't reissue it.
+     */
+    private final BitmapRequestTracker requestTracker = new BitmapRequestTracker(LatencyMetrics.get());
+
+    /**
+     * The last bitmap shown and its drawable, the same bitmap delivered again is not wrapped and set again.
+     */
+    private Bitmap lastBitmap;
+    private Drawable lastDrawable;
+
     /**
      * The transition type when a new image asset is loaded
      */
@@ -231,7 +248,7 @@ public class ImageAssetImageView extends FrameLayout implements UpdateListener {
     public void setDisplayType(DisplayType displayType) {
         if (this.displayType != displayType) {
             this.displayType = displayType;
-            updated();
+            requestBitmap(false);
         }
     }
 
@@ -266,7 +283,7 @@ public class ImageAssetImageView extends FrameLayout implements UpdateListener {
         // old image asset exists
         if (this.imageAsset != null) {
             if (this.imageAsset.getId().equals(imageAsset.getId())) {
-                updated();
+                requestBitmap(false);
                 return;
             } else {
                 // otherwise disconnect
@@ -278,6 +295,7 @@ public class ImageAssetImageView extends FrameLayout implements UpdateListener {
         this.imageAsset = imageAsset;
         this.imageAsset.addUpdateListener(this);
         this.transitionType = transitionType;
+        connectedAtNanos = System.nanoTime();
 
         updated();
     }
@@ -290,11 +308,16 @@ public class ImageAssetImageView extends FrameLayout implements UpdateListener {
             imageAsset.removeUpdateListener(this);
             imageAsset = null;
         }
+        connectedAtNanos = -1;
+        cancelLoad();
+    }
 
+    private void cancelLoad() {
         if (loadHandle != null) {
             loadHandle.cancel();
             loadHandle = null;
         }
+        requestTracker.cancel();
     }
 
     /**
@@ -304,7 +327,18 @@ public class ImageAssetImageView extends FrameLayout implements UpdateListener {
      * @param bitmap the source of
      */
     private void setBitmapWithTransition(Bitmap bitmap) {
-        Drawable newDrawable = new BitmapDrawable(getContext().getResources(), bitmap);
+        if (bitmap == lastBitmap && swapPosition != SWAP_POSITION_NONE) {
+            // already shown
+            return;
+        }
+        Drawable newDrawable;
+        if (bitmap == lastBitmap && lastDrawable != null) {
+            newDrawable = lastDrawable;
+        } else {
+            newDrawable = new BitmapDrawable(getContext().getResources(), bitmap);
+            lastBitmap = bitmap;
+            lastDrawable = newDrawable;
+        }
 
         // no transition demanded - put image into visible view
         if (transitionType == TransitionType.NONE) {
@@ -390,35 +424,53 @@ public class ImageAssetImageView extends FrameLayout implements UpdateListener {
      */
     @Override
     public void updated() {
-        if (loadHandle != null) {
-            loadHandle.cancel();
-        }
+        requestBitmap(true);
+    }
 
+    /**
+     * Requests the bitmap for the current asset, display type and width.
+     *
+     * @param force whether to reissue the request even if the same bitmap was requested already, e.g. because the
+     *              asset itself changed
+     */
+    private void requestBitmap(boolean force) {
         // check if image asset is null
         if (imageAsset == null) {
+            cancelLoad();
             return;
         }
 
         // check if image asset is empty
         if (imageAsset.isEmpty()) {
+            cancelLoad();
             return;
         }
 
         final int measuredWidth = getMeasuredWidth();
         if (measuredWidth == 0) {
+            cancelLoad();
             return;
         }
 
         if (displayType == null) {
+            cancelLoad();
+            return;
+        }
+
+        if (!force && requestTracker.isRequested(imageAsset.getId(), displayType, measuredWidth)) {
             return;
         }
 
+        if (loadHandle != null) {
+            loadHandle.cancel();
+        }
+        final int requestWidth = requestTracker.request(imageAsset.getId(), displayType, measuredWidth);
         switch (displayType) {
             case REGULAR:
-                loadHandle = imageAsset.getBitmap(measuredWidth, callback);
+                loadHandle = imageAsset.getBitmap(requestWidth, callback);
                 break;
             case CIRCLE:
-                loadHandle = imageAsset.getRoundBitmap(measuredWidth, borderWidth, borderColor, callback);
+                loadHandle = imageAsset.getRoundBitmap(requestWidth, borderWidth, borderColor, callback);
                 break;
         }
     }
@@ -426,6 +478,11 @@ public class ImageAssetImageView extends FrameLayout implements UpdateListener {
     private BitmapCallback callback = new BitmapCallback() {
         @Override
         public void onBitmapLoaded(Bitmap bitmap) {
+            if (connectedAtNanos >= 0) {
+                LatencyMetrics.get().recordNanos(LatencyMetrics.IMAGE_FIRST_BITMAP, System.nanoTime() - connectedAtNanos);
+                connectedAtNanos = -1;
+            }
+            requestTracker.delivered();
             setBitmapWithTransition(bitmap);
             // once the bitmap loaded any further updates on this image assets
             // comes with no animation.
@@ -436,7 +493,7 @@ public class ImageAssetImageView extends FrameLayout implements UpdateListener {
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        updated();
+        requestBitmap(false);
     }
 
     /**
@@ -444,6 +501,10 @@ public class ImageAssetImageView extends FrameLayout implements UpdateListener {
      */
     public void resetBackground() {
         swapPosition = SWAP_POSITION_NONE;
+        // the drawables are only removed once faded out, so they can't be reused
+        lastBitmap = null;
+        lastDrawable = null;
+        requestTracker.forgetDelivered();
         if (swapImageView1 == null ||
             swapImageView2 == null) {
             return;
@@ -474,6 +535,7 @@ public class ImageAssetImageView extends FrameLayout implements UpdateListener {
 
     public void reset() {
         swapPosition = SWAP_POSITION_NONE;
+        requestTracker.forgetDelivered();
         if (swapImageView1 == null ||
             swapImageView2 == null) {
             return;
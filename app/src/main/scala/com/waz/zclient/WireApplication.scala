@@ -29,7 +29,11 @@ import com.waz.zclient.common.controllers.{PermissionActivity, PermissionsContro
 import com.waz.zclient.controllers.{DefaultControllerFactory, IControllerFactory}
 import com.waz.zclient.core.stores.IStoreFactory
 import com.waz.zclient.notifications.controllers.{CallingNotificationsController, ImageNotificationsController, MessageNotificationsController}
+import com.waz.zclient.utils.metrics.LatencyMetrics
+import com.waz.zclient.utils.startup.StartupPipeline
+import com.waz.zclient.utils.startup.StartupTrace.Phase
 import com.waz.zclient.utils.{BackendPicker, BuildConfigUtils, Callback}
+import timber.log.Timber
 
 object WireApplication {
   var APP_INSTANCE: WireApplication = _
@@ -76,28 +80,53 @@ class WireApplication extends MultiDexApplication with WireContext with Injectab
 
   protected var controllerFactory: IControllerFactory = _
   protected var storeFactory: IStoreFactory = _
+  private var notificationsScheduled = false
+  private var startupRecorded = false
 
   def contextModule(ctx: WireContext): Injector = controllers(ctx) :: services(ctx) :: ContextModule(ctx)
 
   override def onCreate(): Unit = {
     super.onCreate()
-    controllerFactory = new DefaultControllerFactory(getApplicationContext)
+    val pipeline = StartupPipeline.get
+    pipeline.setOnIdleDrained(new Runnable {
+      override def run(): Unit = if (!startupRecorded) {
+        startupRecorded = true
+        LatencyMetrics.get.recordNanos(LatencyMetrics.STARTUP_CRITICAL, pipeline.getTrace.getPhaseDuration(Phase.CRITICAL))
+        if (BuildConfig.IS_LOADTIME_LOGGER_ENABLED) Timber.i("Startup trace: %s", pipeline.getTrace.toJson)
+      }
+    })
+
+    pipeline.runCritical("controllerFactory", new Runnable {
+      override def run(): Unit = controllerFactory = new DefaultControllerFactory(getApplicationContext)
+    })
 
-    new BackendPicker(this).withBackend(new Callback[Void]() {
-      def callback(aVoid: Void) = ensureInitialized()
+    pipeline.runCritical("backend", new Runnable {
+      override def run(): Unit = new BackendPicker(WireApplication.this).withBackend(new Callback[Void]() {
+        def callback(aVoid: Void) = ensureInitialized()
+      })
     })
   }
 
   def ensureInitialized() = {
     if (storeFactory == null) {
+      val span = StartupPipeline.get.getTrace.begin("storeFactory", Phase.CRITICAL)
       storeFactory = new ScalaStoreFactory(getApplicationContext)
       //TODO initialization of ZMessaging happens here - make this more explicit?
       storeFactory.getZMessagingApiStore.getAvs.setLogLevel(BuildConfigUtils.getLogLevelAVS(this))
+      span.end()
     }
 
-    inject[MessageNotificationsController]
-    inject[ImageNotificationsController]
-    inject[CallingNotificationsController]
+    // Notifications are only needed once something arrives, they don't have to delay the first frame
+    if (!notificationsScheduled) {
+      notificationsScheduled = true
+      StartupPipeline.get.runWhenIdle("notificationControllers", new Runnable {
+        override def run(): Unit = {
+          inject[MessageNotificationsController]
+          inject[ImageNotificationsController]
+          inject[CallingNotificationsController]
+        }
+      })
+    }
   }
 
   override def onTerminate(): Unit = {
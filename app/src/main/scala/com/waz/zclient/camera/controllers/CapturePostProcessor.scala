@@ -0,0 +1,151 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.camera.controllers
+
+import java.io.ByteArrayOutputStream
+import java.util.concurrent.{Executors, ThreadFactory}
+
+import android.graphics.{Bitmap, BitmapFactory, Canvas, Matrix, Paint}
+import android.os.Build
+import com.waz.zclient.camera.controllers.CapturePostProcessor._
+import timber.log.Timber
+
+import scala.concurrent.{ExecutionContext, Future}
+
+/**
+  * Turns the JPEG delivered by the camera into the image which is uploaded: decoded at the smallest sample size which
+  * still covers the upload size, rotated upright, mirrored for the front camera, scaled down and re-encoded.
+  *
+  * Runs on its own thread so the camera thread is free for the next preview frame and capture right away. The
+  * bitmaps and the output buffer are kept between captures, as consecutive captures almost always have the same
+  * size, and dropped with `trim()` once the camera is closed.
+  */
+class CapturePostProcessor(maxDimension: Int = UploadMaxDimension) {
+
+  private implicit val executionContext = new ExecutionContext {
+    private val executor = Executors.newSingleThreadExecutor(new ThreadFactory {
+      override def newThread(r: Runnable): Thread = new Thread(r, "CAMERA_POST")
+    })
+
+    override def reportFailure(cause: Throwable): Unit = Timber.e(cause, "Problem post-processing a camera capture.")
+
+    override def execute(runnable: Runnable): Unit = executor.submit(runnable)
+  }
+
+  //only accessed on the post-processing thread
+  private val tempStorage = new Array[Byte](TempStorageSize)
+  private val output = new ByteArrayOutputStream(InitialOutputSize)
+  private val paint = new Paint(Paint.FILTER_BITMAP_FLAG)
+  private var decodeBuffer = Option.empty[Bitmap]
+  private var outputBuffer = Option.empty[Bitmap]
+
+  /**
+    * @param rotation clockwise rotation in degrees which makes the image upright, a multiple of 90
+    */
+  def apply(jpeg: Array[Byte], rotation: Int, mirror: Boolean): Future[Array[Byte]] = Future {
+    val bounds = new BitmapFactory.Options
+    bounds.inJustDecodeBounds = true
+    BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, bounds)
+    if (bounds.outWidth <= 0 || bounds.outHeight <= 0) throw new IllegalArgumentException("Captured image can't be decoded")
+
+    val decoded = decode(jpeg, sampleSize(bounds.outWidth, bounds.outHeight, maxDimension))
+    val (w, h) = (decoded.getWidth, decoded.getHeight)
+    val scale = math.min(1f, maxDimension.toFloat / math.max(w, h))
+    val (outW, outH) = outputSize(w, h, scale, rotation)
+
+    val image =
+      if (rotation % 360 == 0 && !mirror && scale == 1f) decoded
+      else {
+        val out = obtain(outputBuffer, outW, outH)
+        outputBuffer = Some(out)
+        val matrix = new Matrix
+        matrix.postTranslate(-w / 2f, -h / 2f)
+        matrix.postScale(scale, scale)
+        matrix.postRotate(rotation)
+        if (mirror) matrix.postScale(-1, 1)
+        matrix.postTranslate(outW / 2f, outH / 2f)
+        new Canvas(out).drawBitmap(decoded, matrix, paint)
+        out
+      }
+
+    output.reset()
+    image.compress(Bitmap.CompressFormat.JPEG, JpegQuality, output)
+    output.toByteArray
+  }
+
+  /**
+    * Frees the bitmaps kept for the next capture.
+    */
+  def trim(): Future[Unit] = Future {
+    decodeBuffer.foreach(_.recycle())
+    outputBuffer.foreach(_.recycle())
+    decodeBuffer = None
+    outputBuffer = None
+  }
+
+  private def decode(jpeg: Array[Byte], sample: Int) = {
+    val opts = new BitmapFactory.Options
+    opts.inSampleSize = sample
+    opts.inTempStorage = tempStorage
+    opts.inMutable = true
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) opts.inBitmap = decodeBuffer.filterNot(_.isRecycled).orNull
+
+    val decoded = try BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, opts) catch {
+      case _: IllegalArgumentException if opts.inBitmap != null =>
+        //the kept bitmap is too small for this capture
+        opts.inBitmap = null
+        BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, opts)
+    }
+    if (decoded == null) throw new IllegalArgumentException("Captured image can't be decoded")
+    if (!decodeBuffer.contains(decoded)) {
+      decodeBuffer.foreach(_.recycle())
+      decodeBuffer = Some(decoded)
+    }
+    decoded
+  }
+
+  private def obtain(cached: Option[Bitmap], w: Int, h: Int) = cached match {
+    case Some(b) if !b.isRecycled && b.getWidth == w && b.getHeight == h => b
+    case _ =>
+      cached.foreach(_.recycle())
+      Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888)
+  }
+}
+
+object CapturePostProcessor {
+  //the size of the medium image the backend stores, anything bigger is scaled down on upload anyway
+  val UploadMaxDimension = 1448
+  val JpegQuality = 85
+  val TempStorageSize = 16 * 1024
+  val InitialOutputSize = 512 * 1024
+
+  /**
+    * The largest power of two which keeps the longer side of the decoded image at or above `maxDimension`.
+    */
+  def sampleSize(w: Int, h: Int, maxDimension: Int): Int = {
+    val longer = math.max(w, h)
+    var sample = 1
+    while (longer / (sample * 2) >= maxDimension) sample *= 2
+    sample
+  }
+
+  def outputSize(w: Int, h: Int, scale: Float, rotation: Int): (Int, Int) = {
+    val (scaledW, scaledH) = (math.max(1, math.round(w * scale)), math.max(1, math.round(h * scale)))
+    if (rotation % 180 == 0) (scaledW, scaledH) else (scaledH, scaledW)
+  }
+}
@@ -33,10 +33,13 @@ import com.waz.utils.events.{EventContext, Signal}
 import com.waz.zclient.WireContext
 import com.waz.zclient.camera.{CameraFacing, FlashMode}
 import com.waz.zclient.utils.Callback
+import com.waz.zclient.utils.metrics.LatencyMetrics
 import timber.log.Timber
 
 import scala.collection.JavaConverters._
+import scala.collection.concurrent.TrieMap
 import scala.concurrent.{ExecutionContext, Future, Promise}
+import scala.util.Success
 
 class GlobalCameraController(cxt: WireContext, cameraFactory: CameraFactory)(implicit eventContext: EventContext) {
 
@@ -59,6 +62,8 @@ class GlobalCameraController(cxt: WireContext, cameraFactory: CameraFactory)(imp
   protected[camera] var loadFuture = CancellableFuture.cancelled[(PreviewSize, Set[FlashMode])]()
   protected[camera] var currentCamInfo = camInfos.headOption //save this in global controller for consistency during the life of the app
 
+  private val postProcessor = new CapturePostProcessor()
+
   val currentFlashMode = Signal(FlashMode.OFF)
 
   val deviceOrientation = Signal(Orientation(0))
@@ -79,7 +84,7 @@ class GlobalCameraController(cxt: WireContext, cameraFactory: CameraFactory)(imp
     loadFuture.cancel()
     loadFuture = currentCamInfo.fold(CancellableFuture.cancelled[(PreviewSize, Set[FlashMode])]()) { info =>
       CancellableFuture {
-        currentCamera = Some(cameraFactory(info, texture, w, h, cxt, deviceOrientation.currentValue.getOrElse(Orientation(0)), currentFlashMode.currentValue.getOrElse(FlashMode.OFF)))
+        currentCamera = Some(cameraFactory(info, texture, w, h, cxt, currentFlashMode.currentValue.getOrElse(FlashMode.OFF)))
         val previewSize = currentCamera.map(_.getPreviewSize).getOrElse(PreviewSize(0, 0))
         val flashModes = currentCamera.map(_.getSupportedFlashModes).getOrElse(Set.empty)
         (previewSize, flashModes)
@@ -88,12 +93,28 @@ class GlobalCameraController(cxt: WireContext, cameraFactory: CameraFactory)(imp
     loadFuture
   }
 
-  def takePicture(onShutter: => Unit) = Future {
-    currentCamera match {
-      case Some(c) => c.takePicture(onShutter)
-      case _ => Future.failed(new RuntimeException("Take picture cannot be called while the camera is closed"))
-    }
-  }.flatten
+  /**
+    * Returns a Future of the JPEG ready for upload: upright, mirrored for the front camera and scaled to the upload size.
+    */
+  def takePicture(onShutter: => Unit): Future[Array[Byte]] = {
+    val start = System.nanoTime
+    Future {
+      (currentCamera, currentCamInfo) match {
+        case (Some(c), Some(info)) =>
+          //the rotation has to be the one at the moment of the capture, not the one when the image is processed
+          val rotation = WireCamera.getCameraRotation(deviceOrientation.currentValue.getOrElse(Orientation(0)).orientation, info)
+          c.takePicture {
+            LatencyMetrics.get.recordNanos(LatencyMetrics.CAMERA_SHUTTER, System.nanoTime - start)
+            onShutter
+          } flatMap { jpeg =>
+            postProcessor(jpeg, rotation, info.cameraFacing == CameraFacing.FRONT)
+          } andThen {
+            case Success(_) => LatencyMetrics.get.recordNanos(LatencyMetrics.CAMERA_UPLOAD_READY, System.nanoTime - start)
+          }
+        case _ => Future.failed(new RuntimeException("Take picture cannot be called while the camera is closed"))
+      }
+    }.flatten
+  }
 
   def releaseCamera(callback: Callback[Void]): Unit = releaseCamera().andThen {
     case _ => Option(callback).foreach(_.callback(null))
@@ -106,6 +127,7 @@ class GlobalCameraController(cxt: WireContext, cameraFactory: CameraFactory)(imp
         c.release()
         currentCamera = None
       }
+      postProcessor.trim()
     }
   }
 
@@ -118,18 +140,19 @@ class GlobalCameraController(cxt: WireContext, cameraFactory: CameraFactory)(imp
 
   currentFlashMode.on(cameraExecutionContext)(fm => currentCamera.foreach(_.setFlashMode(fm)))
 
-  deviceOrientation.on(cameraExecutionContext)(o => currentCamera.foreach(_.setOrientation(o)))
-
 }
 
 trait CameraFactory {
   def getCameraInfos: Seq[CameraInfo]
-  def apply(info: CameraInfo, texture: SurfaceTexture, w: Int, h: Int, cxt: Context, devOrientation: Orientation, flashMode: FlashMode): WireCamera
+  def apply(info: CameraInfo, texture: SurfaceTexture, w: Int, h: Int, cxt: Context, flashMode: FlashMode): WireCamera
 }
 
 class AndroidCameraFactory extends CameraFactory {
-  override def apply(info: CameraInfo, texture: SurfaceTexture, w: Int, h: Int, cxt: Context, devOrientation: Orientation, flashMode: FlashMode) =
-    new AndroidCamera(info, texture, w, h, cxt, devOrientation, flashMode)
+  //the sizes only depend on the camera and the view, so switching back and forth between cameras doesn't recompute them
+  private val setups = new TrieMap[CameraSetup.Key, CameraSetup]
+
+  override def apply(info: CameraInfo, texture: SurfaceTexture, w: Int, h: Int, cxt: Context, flashMode: FlashMode) =
+    new AndroidCamera(info, texture, w, h, cxt, flashMode, setups)
 
   override def getCameraInfos = try {
     val info = new Camera.CameraInfo
@@ -147,12 +170,13 @@ class AndroidCameraFactory extends CameraFactory {
 trait WireCamera {
   def getPreviewSize: PreviewSize
 
+  /**
+    * Returns a Future of the JPEG as delivered by the camera, in the orientation of the sensor.
+    */
   def takePicture(shutter: => Unit): Future[Array[Byte]]
 
   def release(): Unit
 
-  def setOrientation(o: Orientation): Unit
-
   def setFocusArea(touchRect: Rect, w: Int, h: Int): Future[Unit]
 
   def setFlashMode(fm: FlashMode): Unit
@@ -160,13 +184,16 @@ trait WireCamera {
   def getSupportedFlashModes: Set[FlashMode]
 }
 
-class AndroidCamera(info: CameraInfo, texture: SurfaceTexture, w: Int, h: Int, cxt: Context, devOrientation: Orientation, flashMode: FlashMode) extends WireCamera {
+class AndroidCamera(info: CameraInfo, texture: SurfaceTexture, w: Int, h: Int, cxt: Context, flashMode: FlashMode, setups: collection.concurrent.Map[CameraSetup.Key, CameraSetup]) extends WireCamera {
 
   import WireCamera._
 
   private var camera = Option(Camera.open(info.id))
+  //reading the parameters goes through the camera service every time, so they are read once and kept up to date here
+  private var params = camera.map(_.getParameters)
   private var previewSize: Option[PreviewSize] = None
   private var supportedFlashModes = Set.empty[FlashMode]
+  private var clickToFocusSupported = false
 
   /*
    * This part of the Wire software is heavily based on code posted in this Stack Overflow answer.
@@ -193,20 +220,19 @@ class AndroidCamera(info: CameraInfo, texture: SurfaceTexture, w: Int, h: Int, c
     }
   }
 
-  camera.foreach { c =>
-    val pms = c.getParameters
+  for (c <- camera; pms <- params) {
     c.setPreviewTexture(texture)
-    val ps = getPreviewSize(pms, w, h)
-    pms.setPreviewSize(ps.w.toInt, ps.h.toInt)
-    previewSize = Some(ps)
+    val setup = setups.getOrElseUpdate(CameraSetup.Key(info.id, w, h), createSetup(pms))
+    pms.setPreviewSize(setup.previewSize.w.toInt, setup.previewSize.h.toInt)
+    previewSize = Some(setup.previewSize)
+    pms.setPictureSize(setup.pictureWidth, setup.pictureHeight)
 
-    val pictureSize = getPictureSize(pms, info.cameraFacing)
-    pms.setPictureSize(pictureSize.width, pictureSize.height)
-
-    pms.setRotation(getCameraRotation(devOrientation.orientation, info))
+    //the capture is rotated when it is post-processed, see GlobalCameraController.takePicture
+    pms.setRotation(0)
     c.setDisplayOrientation(getPreviewOrientation(naturalOrientation, info))
 
-    supportedFlashModes = getSupportedFlashModesFromCamera
+    supportedFlashModes = setup.flashModes
+    clickToFocusSupported = setup.clickToFocusSupported
     if (supportedFlashModes.contains(flashMode)) pms.setFlashMode(flashMode.mode)
     else pms.setFlashMode(FlashMode.OFF.mode)
 
@@ -246,10 +272,9 @@ class AndroidCamera(info: CameraInfo, texture: SurfaceTexture, w: Int, h: Int, c
     c.stopPreview()
     c.release()
     camera = None
+    params = None
   }
 
-  override def setOrientation(o: Orientation) = setParams(_.setRotation(getCameraRotation(o.orientation, info)))
-
   override def getSupportedFlashModes = supportedFlashModes
 
   //volatile because the camera will use the main thread to post callbacks to (since I'm using an executor and not a handler thread)
@@ -290,6 +315,14 @@ class AndroidCamera(info: CameraInfo, texture: SurfaceTexture, w: Int, h: Int, c
 
   override def setFlashMode(fm: FlashMode) = setParams(_.setFlashMode(fm.mode))
 
+  private def createSetup(pms: Camera#Parameters) = {
+    val previewSize = getPreviewSize(pms, w, h)
+    val pictureSize = getPictureSize(pms, info.cameraFacing)
+    val flashModes = Option(pms.getSupportedFlashModes).fold(Set.empty[FlashMode])(_.asScala.toSet.map(FlashMode.get))
+    val clickToFocus = pms.getMaxNumFocusAreas > 0 && supportsFocusMode(pms, FOCUS_MODE_AUTO)
+    CameraSetup(previewSize, pictureSize.width, pictureSize.height, flashModes, clickToFocus)
+  }
+
   private def getPreviewSize(params: Camera#Parameters, viewWidth: Int, viewHeight: Int) = {
     val targetRatio = params.getPictureSize.width.toDouble / params.getPictureSize.height.toDouble
     val targetHeight = Math.min(viewHeight, viewWidth)
@@ -319,27 +352,25 @@ class AndroidCamera(info: CameraInfo, texture: SurfaceTexture, w: Int, h: Int, c
     if (info.cameraFacing == CameraFacing.FRONT) (360 - ((info.fixedOrientation + activityRotation) % 360)) % 360
     else (info.fixedOrientation - activityRotation + 360) % 360
 
-  private def getCameraRotation(deviceRotationDegrees: Int, info: CameraInfo) =
-    if (info.cameraFacing == CameraFacing.FRONT) (info.fixedOrientation - deviceRotationDegrees + 360) % 360
-    else (info.fixedOrientation + deviceRotationDegrees) % 360
-
-  private def getSupportedFlashModesFromCamera = camera.fold(Set.empty[FlashMode]) { c =>
-    Option(c.getParameters.getSupportedFlashModes).fold(Set.empty[FlashMode])(_.asScala.toSet.map(FlashMode.get))
-  }
-
-  private def clickToFocusSupported = camera.fold(false)(c => c.getParameters.getMaxNumFocusAreas > 0 && supportsFocusMode(c.getParameters, FOCUS_MODE_AUTO))
-
   private def supportsFocusMode(pms: Camera#Parameters, mode: String) = Option(pms.getSupportedFocusModes).fold(false)(_.contains(mode))
 
   private def setFocusMode(pms: Camera#Parameters, mode: String) = if (supportsFocusMode(pms, mode)) pms.setFocusMode(mode)
 
-  private def setParams(f: Camera#Parameters => Unit) = camera.foreach { c =>
-    val params = c.getParameters
-    f(params)
-    c.setParameters(params)
+  private def setParams(f: Camera#Parameters => Unit) = for (c <- camera; pms <- params) {
+    f(pms)
+    c.setParameters(pms)
   }
 }
 
+/**
+  * Everything about a camera which only has to be worked out once for a given view size.
+  */
+case class CameraSetup(previewSize: PreviewSize, pictureWidth: Int, pictureHeight: Int, flashModes: Set[FlashMode], clickToFocusSupported: Boolean)
+
+object CameraSetup {
+  case class Key(cameraId: Int, viewWidth: Int, viewHeight: Int)
+}
+
 object WireCamera {
   val FOCUS_MODE_AUTO = null.asInstanceOf[Camera].Parameters.FOCUS_MODE_AUTO
   val FOCUS_MODE_CONTINUOUS_PICTURE = null.asInstanceOf[Camera].Parameters.FOCUS_MODE_CONTINUOUS_PICTURE
@@ -347,6 +378,13 @@ object WireCamera {
   val camCoordsRange = 2000
   val camCoordsOffset = 1000
   val focusWeight = 1000
+
+  /**
+    * The clockwise rotation which makes a capture upright for the given device rotation.
+    */
+  def getCameraRotation(deviceRotationDegrees: Int, info: CameraInfo) =
+    if (info.cameraFacing == CameraFacing.FRONT) (info.fixedOrientation - deviceRotationDegrees + 360) % 360
+    else (info.fixedOrientation + deviceRotationDegrees) % 360
 }
 
 /**
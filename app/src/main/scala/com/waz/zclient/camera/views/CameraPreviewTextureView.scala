@@ -72,12 +72,7 @@ class CameraPreviewTextureView(val context: Context, val attrs: AttributeSet, va
     vibrator.foreach(_.vibrate(context.getResources.getIntArray(R.array.camera).map(_.toLong), disableRepeat))
     mediaManager.foreach(_.playMedia(context.getResources.getResourceEntryName(R.raw.camera)))
   }.onComplete {
-    case Success(data) => observer.foreach {
-      _.onPictureTaken {
-        if (getCameraFacing == CameraFacing.FRONT) ImageAssetFactory.getMirroredImageAsset(data)
-        else ImageAssetFactory.getImageAsset(data)
-      }
-    }
+    case Success(data) => observer.foreach(_.onPictureTaken(ImageAssetFactory.getImageAsset(data)))
     case Failure(_) =>
       observer.foreach(_.onCameraLoadingFailed())
   } (Threading.Ui)
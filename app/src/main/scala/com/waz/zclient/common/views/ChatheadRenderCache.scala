@@ -0,0 +1,112 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.common.views
+
+import android.app.ActivityManager
+import android.content.Context
+import android.graphics.Bitmap
+import android.util.LruCache
+import com.waz.api.User.ConnectionStatus
+import com.waz.model.{AssetId, UserData, UserId}
+
+import scala.collection.JavaConverters._
+
+/**
+  * Process wide cache of fully rendered chatheads, shared by every [[ChatheadView]]. The conversation list,
+  * participant grids and search results show the same users at the same sizes, so once a chathead was composed
+  * (picture or initials, border, glyph overlay) the other views only have to draw the cached bitmap.
+  *
+  * Keys contain everything the rendering depends on, so an entry is never stale, only unreachable. Entries of a
+  * user are dropped as soon as the user changes to free their memory early.
+  */
+class ChatheadRenderCache(maxBytes: Int) {
+  import ChatheadRenderCache._
+
+  private val cache = new LruCache[RenderKey, Bitmap](maxBytes) {
+    override protected def sizeOf(key: RenderKey, value: Bitmap): Int = value.getByteCount
+  }
+
+  // last seen version of every user with rendered chatheads, to tell updates from views binding the same data
+  private val userVersions = new LruCache[UserId, Integer](MaxTrackedUsers)
+
+  def get(key: RenderKey): Option[Bitmap] = Option(cache.get(key))
+
+  def put(key: RenderKey, bitmap: Bitmap): Unit = cache.put(key, bitmap)
+
+  def userUpdated(user: UserData): Unit = {
+    val version = Integer.valueOf(user.hashCode)
+    val previous = userVersions.put(user.id, version)
+    if (previous != null && previous != version) invalidate(user.id)
+  }
+
+  def invalidate(userId: UserId): Unit =
+    cache.snapshot().keySet().asScala.filter(_.owner.contains(userId)).foreach(cache.remove)
+
+  def size: Int = cache.size()
+
+  def hitCount: Int = cache.hitCount()
+
+  def missCount: Int = cache.missCount()
+
+  def clear(): Unit = {
+    cache.evictAll()
+    userVersions.evictAll()
+  }
+}
+
+object ChatheadRenderCache {
+
+  /**
+    * Rendered chatheads may use this share of the app's memory class, e.g. 6 MB of 192 MB.
+    */
+  val MemoryClassDivisor = 32
+
+  val MaxTrackedUsers = 1024
+
+  /**
+    * How a view renders its chathead, independent of the user shown.
+    */
+  case class Style(swapBackgroundAndInitialsColors: Boolean, initialsFontSize: Int, iconFontSize: Int)
+
+  /**
+    * @param owner   the user shown, None for address book contacts
+    * @param colors  gray scale and accent color, None until they are known
+    * @param picture asset of the user's picture, None while the initials are shown
+    */
+  case class RenderKey(owner: Option[UserId],
+                       size: Int,
+                       style: Style,
+                       colors: Option[(Boolean, Int)],
+                       borderWidth: Int,
+                       selected: Boolean,
+                       connectionStatus: ConnectionStatus,
+                       glyph: String,
+                       initials: String,
+                       picture: Option[AssetId])
+
+  private var instance = Option.empty[ChatheadRenderCache]
+
+  def apply(context: Context): ChatheadRenderCache = synchronized {
+    instance.getOrElse {
+      val activityManager = context.getSystemService(Context.ACTIVITY_SERVICE).asInstanceOf[ActivityManager]
+      val cache = new ChatheadRenderCache(activityManager.getMemoryClass * 1024 * 1024 / MemoryClassDivisor)
+      instance = Some(cache)
+      cache
+    }
+  }
+}
@@ -30,15 +30,15 @@ import com.waz.api.User.ConnectionStatus
 import com.waz.api.User.ConnectionStatus._
 import com.waz.api.impl.AccentColor
 import com.waz.api.{ContactDetails, User}
-import com.waz.model.{AssetData, UserData, UserId}
+import com.waz.model.{AssetData, AssetId, UserData, UserId}
 import com.waz.service.ZMessaging
-import com.waz.service.assets.AssetService.BitmapResult
 import com.waz.service.assets.AssetService.BitmapResult.BitmapLoaded
 import com.waz.service.images.BitmapSignal
 import com.waz.threading.Threading
 import com.waz.ui.MemoryImageCache.BitmapRequest.Round
 import com.waz.utils.NameParts
 import com.waz.utils.events.{EventContext, Signal}
+import com.waz.zclient.common.views.ChatheadRenderCache.{RenderKey, Style}
 import com.waz.zclient.ui.utils.TypefaceUtils
 import com.waz.zclient.{Injectable, Injector, R, ViewHelper}
 
@@ -91,29 +91,53 @@ class ChatheadView(val context: Context, val attrs: AttributeSet, val defStyleAt
 
   private val grayScaleColorMatrix = new ColorMatrix()
 
-  ctrl.invalidate.on(Threading.Ui)(_ => invalidate())
+  private val renderCache = ChatheadRenderCache(context)
+  private val style = Style(swapBackgroundAndInitialsColors, initialsFontSize, iconFontSize)
+  private val pictureRect = new RectF()
 
-  ctrl.drawColors.on(Threading.Ui) { case (grayScale, accentColor) =>
-    if (grayScale) {
-      grayScaleColorMatrix.setSaturation(0)
-      initialsTextPaint.setColor(grayScaleColor)
-      backgroundPaint.setColor(grayScaleColor)
-    } else {
-      grayScaleColorMatrix.setSaturation(1)
-      if (swapBackgroundAndInitialsColors) {
-        initialsTextPaint.setColor(accentColor.value)
-        backgroundPaint.setColor(initialsFontColor)
-      } else {
-        backgroundPaint.setColor(accentColor.value)
-        initialsTextPaint.setColor(initialsFontColor)
-      }
+  // chathead to draw and its key, looked up again on the first draw after an input signal or the size changed
+  private var renderKey = Option.empty[RenderKey]
+  private var renderPicture = Option.empty[Bitmap]
+  private var rendered: Bitmap = null
+
+  ctrl.invalidate.on(Threading.Ui)(_ => renderInputChanged())
+
+  ctrl.drawColors.on(Threading.Ui)(_ => renderInputChanged())
+
+  ctrl.chatheadInfo.on(Threading.Ui) { info =>
+    info match {
+      case Left(user) => renderCache.userUpdated(user)
+      case _ =>
     }
+    renderInputChanged()
+  }
 
-    val colorMatrix = new ColorMatrixColorFilter(grayScaleColorMatrix)
-    backgroundPaint.setColorFilter(colorMatrix)
+  private def renderInputChanged(): Unit = {
+    renderKey = None
     invalidate()
   }
 
+  private def applyColors(colors: Option[(Boolean, Int)]): Unit = colors match {
+    case Some((grayScale, accentColor)) =>
+      if (grayScale) {
+        grayScaleColorMatrix.setSaturation(0)
+        initialsTextPaint.setColor(grayScaleColor)
+        backgroundPaint.setColor(grayScaleColor)
+      } else {
+        grayScaleColorMatrix.setSaturation(1)
+        if (swapBackgroundAndInitialsColors) {
+          initialsTextPaint.setColor(accentColor)
+          backgroundPaint.setColor(initialsFontColor)
+        } else {
+          backgroundPaint.setColor(accentColor)
+          initialsTextPaint.setColor(initialsFontColor)
+        }
+      }
+      backgroundPaint.setColorFilter(new ColorMatrixColorFilter(grayScaleColorMatrix))
+    case None =>
+      backgroundPaint.setColor(Color.TRANSPARENT)
+  }
+
   def setUser(user: User) = Option(user).fold(throw new IllegalArgumentException("User should not be null"))(u => setUserId(UserId(u.getId)))
 
   def setUserId(userId: UserId) = Option(userId).fold(throw new IllegalArgumentException("UserId should not be null"))(ctrl.assignInfo ! Left(_))
@@ -150,26 +174,51 @@ class ChatheadView(val context: Context, val attrs: AttributeSet, val defStyleAt
   }
 
   override def onDraw(canvas: Canvas): Unit = {
-    val size: Float = Math.min(getWidth, getHeight)
+    val size = Math.min(getWidth, getHeight)
     // This is just to prevent a really small image. Instead we want to draw just nothing
     if (size <= 1) {
       return
     }
 
+    renderKey match {
+      case Some(key) if key.size == size =>
+      case _ =>
+        val key = createRenderKey(size)
+        renderKey = Some(key)
+        rendered = renderCache.get(key).getOrElse {
+          val bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888)
+          applyColors(key.colors)
+          render(new Canvas(bitmap), size, key.borderWidth, key.selected, key.glyph, key.initials, renderPicture)
+          renderCache.put(key, bitmap)
+          bitmap
+        }
+    }
+    canvas.drawBitmap(rendered, 0, 0, null)
+  }
+
+  private def createRenderKey(size: Int): RenderKey = {
+    val owner = ctrl.chatheadInfo.currentValue.flatMap(_.left.toOption).map(_.id)
+    val colors = ctrl.drawColors.currentValue.map { case (grayScale, color) => (grayScale, color.value) }
     val borderWidth = ctrl.borderWidth.currentValue.getOrElse(0)
     val selected = ctrl.selected.currentValue.getOrElse(false)
     val connectionStatus = ctrl.connectionStatus.currentValue.getOrElse(UNCONNECTED)
     val hasBeenInvited = ctrl.hasBeenInvited.currentValue.getOrElse(false)
     val glyph = getGlyphText(selected, hasBeenInvited, connectionStatus)
-    val bitmap = ctrl.bitmap.currentValue
+    val initials = ctrl.initials.currentValue.getOrElse("")
+    val picture = ctrl.picture.currentValue
 
+    renderPicture = picture.map(_._2)
+    RenderKey(owner, size, style, colors, borderWidth, selected, connectionStatus, glyph, initials, picture.map(_._1))
+  }
+
+  private def render(canvas: Canvas, size: Int, borderWidth: Int, selected: Boolean, glyph: String, initials: String, picture: Option[Bitmap]): Unit = {
     val radius: Float = size / 2f
 
-    bitmap.fold {
+    picture.fold {
       if (backgroundPaint.getColor != Color.TRANSPARENT) {
         drawBackgroundAndBorder(canvas, radius, borderWidth)
       }
-      ctrl.initials.currentValue.foreach { initials =>
+      if (initials.nonEmpty) {
         var fontSize: Float = initialsFontSize
         if (initialsFontSize == defaultInitialFontSize) {
           fontSize = 3f * radius / 4f
@@ -178,7 +227,8 @@ class ChatheadView(val context: Context, val attrs: AttributeSet, val defStyleAt
         canvas.drawText(initials, radius, getVerticalTextCenter(initialsTextPaint, radius), initialsTextPaint)
       }
     } { bitmap =>
-      canvas.drawBitmap(bitmap, null, new RectF(0, 0, size, size), backgroundPaint)
+      pictureRect.set(0, 0, size, size)
+      canvas.drawBitmap(bitmap, null, pictureRect, backgroundPaint)
     }
 
     // Cut out
@@ -295,23 +345,24 @@ protected class ChatheadController(val setSelectable: Boolean = false,
     case (viewWidth, isKnownUser) => if (showBorder && isKnownUser) border.fold(0)(_.getWidth(viewWidth)) else 0
   }
 
-  val bitmapResult = Signal(zMessaging, assetId, viewWidth, borderWidth, accentColor).flatMap[BitmapResult] {
+  /**
+    * The loaded picture together with the id of its asset, which identifies it in rendered chatheads.
+    */
+  val picture = Signal(zMessaging, assetId, viewWidth, borderWidth, accentColor).flatMap[(AssetId, Bitmap)] {
     case (zms, Some(id), width, bWidth, bColor) if width > 0 => zms.assetsStorage.signal(id).flatMap {
-      case data@AssetData.IsImage() => BitmapSignal(data, Round(width, bWidth, bColor.value), zms.imageLoader, zms.imageCache)
-      case _ => Signal.empty[BitmapResult]
+      case data@AssetData.IsImage() => BitmapSignal(data, Round(width, bWidth, bColor.value), zms.imageLoader, zms.imageCache).flatMap {
+        case BitmapLoaded(bitmap, etag) if bitmap != null => Signal((id, bitmap))
+        case _ => Signal.empty[(AssetId, Bitmap)]
+      }
+      case _ => Signal.empty[(AssetId, Bitmap)]
     }
-    case _ => Signal.empty[BitmapResult]
-  }
-
-  val bitmap = bitmapResult.flatMap {
-    case BitmapLoaded(bitmap, etag) if bitmap != null => Signal(bitmap)
-    case _ => Signal.empty[Bitmap]
+    case _ => Signal.empty[(AssetId, Bitmap)]
   }
 
   val drawColors = grayScale.zip(accentColor)
 
   //Everything else that requires a redraw
-  val invalidate = Signal(bitmap, selected, borderWidth).zip(Signal(initials, hasBeenInvited, connectionStatus)).onChanged
+  val invalidate = Signal(picture, selected, borderWidth).zip(Signal(initials, hasBeenInvited, connectionStatus)).onChanged
 }
 
 case class Border(val minSizeForLargeBorderWidth: Int, val smallBorderWidth: Int, val largeBorderWidth: Int) {
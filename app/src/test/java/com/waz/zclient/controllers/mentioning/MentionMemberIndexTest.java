@@ -0,0 +1,173 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.controllers.mentioning;
+
+import com.waz.api.User;
+import com.waz.api.UsersList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class MentionMemberIndexTest {
+
+    @Test
+    public void selfUserIsNotIndexed() {
+        MentionMemberIndex index = new MentionMemberIndex();
+        User me = user("0", "Anna");
+        when(me.isMe()).thenReturn(true);
+
+        index.update(members(me, user("1", "Annabelle")));
+
+        assertEquals(1, index.size());
+        assertEquals(Arrays.asList("1"), ids(index.search("ann")));
+    }
+
+    @Test
+    public void searchIsCaseAndAccentInsensitive() {
+        MentionMemberIndex index = new MentionMemberIndex();
+        index.update(members(user("1", "\u00c9mile Zola"), user("2", "Bj\u00f6rn Borg"), user("3", "Bob")));
+
+        assertEquals(Arrays.asList("1"), ids(index.search("EMI")));
+        assertEquals(Arrays.asList("2"), ids(index.search("bj\u00f6")));
+        assertEquals(Arrays.asList("2"), ids(index.search("bjo")));
+    }
+
+    @Test
+    public void matchesKeepMemberOrder() {
+        MentionMemberIndex index = new MentionMemberIndex();
+        index.update(members(user("1", "Natter Anna"), user("2", "Nathalie"), user("3", "Anna Natalie")));
+
+        assertEquals(Arrays.asList("1", "2", "3"), ids(index.search("nat")));
+        assertEquals(Arrays.asList("1", "3"), ids(index.search("ann")));
+    }
+
+    @Test
+    public void substringIsOnlyMatchedWhenNoWordStartsWithQuery() {
+        MentionMemberIndex index = new MentionMemberIndex();
+        index.update(members(user("1", "Jonathan"), user("2", "Nathalie"), user("3", "Anna Smith")));
+
+        assertEquals(Arrays.asList("2"), ids(index.search("nat")));
+        assertEquals(Arrays.asList("1"), ids(index.search("than")));
+        assertEquals(Arrays.asList("3"), ids(index.search("na sm")));
+    }
+
+    @Test
+    public void renamedMemberIsFoundByNewNameWhileNarrowing() {
+        MentionMemberIndex index = new MentionMemberIndex();
+        User anna = user("1", "Anna");
+        UsersList members = members(anna, user("2", "Anton"));
+        index.update(members);
+        assertEquals(Arrays.asList("1", "2"), ids(index.search("an")));
+
+        when(anna.getName()).thenReturn("Bea");
+        index.update(members);
+
+        assertEquals(Arrays.asList("2"), ids(index.search("ant")));
+        assertEquals(Arrays.asList("1"), ids(index.search("be")));
+    }
+
+    @Test
+    public void narrowingQueryKeepsMatchingByName() {
+        MentionMemberIndex index = new MentionMemberIndex();
+        index.update(members(user("1", "Anna"), user("2", "Anton"), user("3", "Bea")));
+
+        assertEquals(Arrays.asList("1", "2"), ids(index.search("an")));
+        assertEquals(Arrays.asList("2"), ids(index.search("ant")));
+        assertEquals(Arrays.asList("1", "2"), ids(index.search("an")));
+        assertEquals(Arrays.asList("3"), ids(index.search("e")));
+    }
+
+    @Test
+    public void updateKeepsUpWithRenamedAddedAndRemovedMembers() {
+        MentionMemberIndex index = new MentionMemberIndex();
+        index.update(members(user("1", "Anna"), user("2", "Anton")));
+        assertEquals(Arrays.asList("1", "2"), ids(index.search("an")));
+
+        index.update(members(user("2", "Bert"), user("3", "Andrea")));
+
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList("3"), ids(index.search("an")));
+        assertEquals(Arrays.asList("2"), ids(index.search("be")));
+    }
+
+    @Test
+    public void emptyQueryFindsNobody() {
+        MentionMemberIndex index = new MentionMemberIndex();
+        index.update(members(user("1", "Anna")));
+
+        assertTrue(index.search("").isEmpty());
+        assertTrue(index.search(null).isEmpty());
+    }
+
+    @Test
+    public void prefixLookupFindsEveryMemberSharingAWord() {
+        String[] surnames = {"Smith", "Smithers", "Jones"};
+        User[] users = new User[300];
+        List<String> smiths = new ArrayList<>();
+        List<String> smithers = new ArrayList<>();
+        for (int i = 0; i < users.length; i++) {
+            users[i] = user(Integer.toString(i), "First" + i + " " + surnames[i % 3]);
+            if (i % 3 != 2) {
+                smiths.add(Integer.toString(i));
+            }
+            if (i % 3 == 1) {
+                smithers.add(Integer.toString(i));
+            }
+        }
+        MentionMemberIndex index = new MentionMemberIndex();
+        index.update(members(users));
+
+        assertEquals(smiths, ids(index.search("smith")));
+        assertEquals(smithers, ids(index.search("smithe")));
+        assertEquals(smiths, ids(index.search("ith")));
+        assertEquals(Arrays.asList("29", "290", "291", "292", "293", "294", "295", "296", "297", "298", "299"),
+                     ids(index.search("first29")));
+    }
+
+    private static User user(String id, String name) {
+        User user = mock(User.class, withSettings().stubOnly());
+        when(user.getId()).thenReturn(id);
+        when(user.getName()).thenReturn(name);
+        return user;
+    }
+
+    private static UsersList members(final User... users) {
+        UsersList members = mock(UsersList.class, withSettings().stubOnly());
+        when(members.size()).thenReturn(users.length);
+        for (int i = 0; i < users.length; i++) {
+            when(members.get(i)).thenReturn(users[i]);
+        }
+        return members;
+    }
+
+    private static List<String> ids(List<User> users) {
+        List<String> ids = new ArrayList<>();
+        for (User user : users) {
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.controllers.tracking;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import com.waz.zclient.core.controllers.tracking.attributes.RangedAttribute;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SessionEventAggregatorTest {
+
+    private SharedPreferences prefs;
+    private SharedPreferences.Editor editor;
+    private Handler handler;
+
+    @Before
+    public void setup() {
+        prefs = mock(SharedPreferences.class);
+        editor = mock(SharedPreferences.Editor.class);
+        handler = mock(Handler.class);
+        when(prefs.edit()).thenReturn(editor);
+        when(editor.putInt(anyString(), anyInt())).thenReturn(editor);
+        when(editor.putLong(anyString(), anyLong())).thenReturn(editor);
+        when(editor.clear()).thenReturn(editor);
+        when(prefs.getLong(eq("PREF_SESSION_START_TIME"), anyLong())).thenReturn(1L);
+    }
+
+    @Test
+    public void countersAreRestoredFromPreferences() {
+        when(prefs.getInt(eq(RangedAttribute.PINGS_SENT.name), anyInt())).thenReturn(4);
+
+        SessionEventAggregator aggregator = new SessionEventAggregator(prefs, handler);
+
+        assertEquals(4, aggregator.getEventCount(RangedAttribute.PINGS_SENT));
+    }
+
+    @Test
+    public void incrementsAreWrittenInOneBatch() {
+        SessionEventAggregator aggregator = new SessionEventAggregator(prefs, handler);
+
+        for (int i = 0; i < 10; i++) {
+            aggregator.incrementEventCount(RangedAttribute.PINGS_SENT);
+            aggregator.incrementEventCount(RangedAttribute.IMAGES_SENT);
+        }
+
+        assertEquals(10, aggregator.getEventCount(RangedAttribute.PINGS_SENT));
+        verify(prefs, never()).edit();
+        verify(handler, times(1)).postDelayed(any(Runnable.class), eq(SessionEventAggregator.FLUSH_DELAY_MS));
+
+        aggregator.flush();
+        aggregator.flush();
+
+        verify(editor).putInt(RangedAttribute.PINGS_SENT.name, 10);
+        verify(editor).putInt(RangedAttribute.IMAGES_SENT.name, 10);
+        verify(editor, times(1)).apply();
+    }
+
+    @Test
+    public void pauseWritesPendingCounters() {
+        SessionEventAggregator aggregator = new SessionEventAggregator(prefs, handler);
+
+        aggregator.incrementEventCount(RangedAttribute.OPENED_SEARCH);
+        aggregator.markPauseTime();
+
+        verify(editor).putInt(RangedAttribute.OPENED_SEARCH.name, 1);
+        verify(editor, times(1)).apply();
+    }
+
+    @Test
+    public void restartingSessionResetsCounters() {
+        SessionEventAggregator aggregator = new SessionEventAggregator(prefs, handler);
+
+        aggregator.incrementEventCount(RangedAttribute.PINGS_SENT);
+        aggregator.restartSession();
+        aggregator.flush();
+
+        assertEquals(0, aggregator.getEventCount(RangedAttribute.PINGS_SENT));
+        verify(editor, never()).putInt(anyString(), anyInt());
+    }
+
+    @Test
+    public void plainTextMessagesAreNotParsedForLinks() {
+        assertFalse(SessionEventAggregator.mayContainLink("Hello, how are you"));
+        assertFalse(SessionEventAggregator.mayContainLink("See you at 10.30"));
+        assertTrue(SessionEventAggregator.mayContainLink("https://www.youtube.com/watch?v=abc"));
+        assertTrue(SessionEventAggregator.mayContainLink("listen to soundcloud.com/artist"));
+        assertTrue(SessionEventAggregator.mayContainLink("youtu.be/abc"));
+    }
+}
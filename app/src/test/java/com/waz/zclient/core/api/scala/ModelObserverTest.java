@@ -21,7 +21,9 @@ import com.waz.zclient.testutils.MockObservable;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.SortedSet;
 import java.util.Stack;
 import java.util.TreeSet;
@@ -32,6 +34,7 @@ import static com.waz.zclient.core.api.scala.ModelObserver.Reason.NEW_MODEL;
 import static com.waz.zclient.core.api.scala.ModelObserverTest.FailedMessages.shouldHaveBeenCalled;
 import static com.waz.zclient.core.api.scala.ModelObserverTest.FailedMessages.updateReasonShouldHaveBeen;
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 
 @SuppressWarnings("PMD")
 public class ModelObserverTest {
@@ -174,6 +177,258 @@ public class ModelObserverTest {
         assertEquals(updateReasonShouldHaveBeen(NEW_MODEL), NEW_MODEL, observer.lastUpdateReasons.pop());
     }
 
+    @Test
+    public void setAndUpdateKeepsListenersOfRetainedModels() {
+        MockObservable model1 = new MockObservable(1);
+        MockObservable model2 = new MockObservable(2);
+        MockObservable model3 = new MockObservable(3);
+
+        observer.setAndUpdate(Arrays.asList(model1, model2));
+        observer.setAndUpdate(Arrays.asList(model2, model3));
+
+        assertEquals("The retained model should have been registered only once", 1, model2.getListenersAdded());
+        assertEquals("The retained model should never have been unregistered", 0, model2.getListenersRemoved());
+        assertEquals("The removed model should have no listener left", 0, model1.getListenerCount());
+        assertEquals("The added model should have a listener", 1, model3.getListenerCount());
+        assertEquals(shouldHaveBeenCalled("three times"), 3, observer.callsToUpdate);
+    }
+
+    @Test
+    public void setAndUpdateWithMoreModelsAddsOnlyTheNewOnes() {
+        MockObservable model1 = new MockObservable(1);
+        MockObservable model2 = new MockObservable(2);
+
+        observer.setAndUpdate(model1);
+        observer.setAndUpdate(Arrays.asList(model1, model2));
+
+        assertEquals("The observer should be listening to 2 models", 2, observer.getModels().size());
+        assertEquals(shouldHaveBeenCalled("twice"), 2, observer.callsToUpdate);
+        assertEquals(1, model1.getListenersAdded());
+    }
+
+    @Test
+    public void setAndUpdateIgnoresDuplicatesInTheSameCollection() {
+        MockObservable model1 = new MockObservable(1);
+        MockObservable modelDup = new MockObservable(1);
+
+        observer.setAndUpdate(Arrays.asList(model1, modelDup, model1));
+
+        assertEquals("The observer should only be listening to one model", 1, observer.getModels().size());
+        assertEquals(shouldHaveBeenCalled("once"), 1, observer.callsToUpdate);
+    }
+
+    @Test
+    public void setAndUpdateWithNoModelsRemovesAllListeners() {
+        MockObservable model1 = new MockObservable(1);
+        MockObservable model2 = new MockObservable(2);
+
+        observer.setAndUpdate(Arrays.asList(model1, model2));
+        observer.setAndUpdate(new ArrayList<MockObservable>());
+
+        assertEquals("The observer should not have any models", 0, observer.getModels().size());
+        assertEquals(0, model1.getListenerCount());
+        assertEquals(0, model2.getListenerCount());
+    }
+
+    @Test
+    public void setAndPauseRegistersNewModelsOnResume() {
+        MockObservable model1 = new MockObservable(1);
+        MockObservable model2 = new MockObservable(2);
+
+        observer.setAndUpdate(model1);
+        observer.setAndPause(Arrays.asList(model1, model2));
+
+        assertEquals("The new model should wait for resume", 0, model2.getListenerCount());
+        assertEquals(1, model1.getListenerCount());
+
+        observer.resumeListening();
+
+        assertEquals(1, model2.getListenerCount());
+        assertEquals("Resuming shouldn't register the retained model again", 1, model1.getListenersAdded());
+        assertEquals(shouldHaveBeenCalled("once"), 1, observer.callsToUpdate);
+    }
+
+    @Test
+    public void pauseAndResumeRegisterEachListenerOnce() {
+        MockObservable model = new MockObservable(1);
+
+        observer.setAndUpdate(model);
+        observer.pauseListening();
+        observer.pauseListening();
+        observer.resumeListening();
+        observer.resumeListening();
+
+        assertEquals(2, model.getListenersAdded());
+        assertEquals(1, model.getListenersRemoved());
+        assertEquals(1, model.getListenerCount());
+    }
+
+    @Test
+    public void slidingWindowRegistersOnlyTheModelsThatEnteredOrLeft() {
+        List<MockObservable> models = createModels(0, 8);
+
+        observer.setAndUpdate(models.subList(0, 6));
+        observer.setAndUpdate(models.subList(2, 8));
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(1, models.get(i).getListenersRemoved());
+            assertEquals(0, models.get(i).getListenerCount());
+        }
+        for (int i = 2; i < 6; i++) {
+            assertEquals("Retained models should keep their listener", 1, models.get(i).getListenersAdded());
+            assertEquals("Retained models should keep their listener", 0, models.get(i).getListenersRemoved());
+        }
+        for (int i = 6; i < 8; i++) {
+            assertEquals(1, models.get(i).getListenersAdded());
+        }
+        assertEquals(6, observer.getModels().size());
+        assertEquals(shouldHaveBeenCalled("for each new model"), 8, observer.callsToUpdate);
+    }
+
+    @Test
+    public void updatesWhichSetModelsAgainStartEveryObserver() {
+        final List<MockObservable> models = createModels(0, 5);
+        TestObserver reentrantObserver = new TestObserver() {
+            @Override
+            public void updated(MockObservable model, Reason reason) {
+                super.updated(model, reason);
+                if (callsToUpdate == 1) {
+                    setAndUpdate(models);
+                }
+            }
+        };
+        reentrantObserver.setAndUpdate(models.subList(0, 4));
+
+        assertEquals(5, reentrantObserver.getModels().size());
+        assertEquals("Every model should have been updated once", 5, reentrantObserver.callsToUpdate);
+        for (ModelObserver<MockObservable>.SingleModelObserver singleObserver : reentrantObserver.observers) {
+            assertTrue(singleObserver.listening);
+        }
+    }
+
+    @Test
+    public void updatesWhichRemoveModelsDontStartTheirObservers() {
+        final List<MockObservable> models = createModels(0, 4);
+        TestObserver reentrantObserver = new TestObserver() {
+            @Override
+            public void updated(MockObservable model, Reason reason) {
+                super.updated(model, reason);
+                if (callsToUpdate == 1) {
+                    setAndUpdate(models.subList(0, 2));
+                }
+            }
+        };
+        reentrantObserver.setAndUpdate(models);
+
+        assertEquals(2, reentrantObserver.getModels().size());
+        assertEquals(shouldHaveBeenCalled("twice"), 2, reentrantObserver.callsToUpdate);
+    }
+
+    private static List<MockObservable> createModels(int from, int to) {
+        List<MockObservable> models = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            models.add(new MockObservable(i));
+        }
+        return models;
+    }
+
+    @Test
+    public void coalescingCollapsesInternalChangesUntilNextFrame() {
+        TestFrameScheduler frameScheduler = new TestFrameScheduler();
+        observer.enableCoalescing(frameScheduler);
+        MockObservable model1 = new MockObservable(1);
+        MockObservable model2 = new MockObservable(2);
+        observer.setAndUpdate(Arrays.asList(model1, model2));
+        assertEquals(shouldHaveBeenCalled("twice"), 2, observer.callsToUpdate);
+
+        for (int i = 0; i < 10; i++) {
+            model1.triggerInternalUpdate();
+            model2.triggerInternalUpdate();
+        }
+        assertEquals("Internal changes should wait for the next frame", 2, observer.callsToUpdate);
+
+        frameScheduler.runFrame();
+        assertEquals("Each model should have been updated once more", 4, observer.callsToUpdate);
+        assertEquals(updateReasonShouldHaveBeen(INTERNAL_CHANGE), INTERNAL_CHANGE, observer.lastUpdateReasons.pop());
+        assertEquals(22, observer.getUpdatesReceived());
+        assertEquals(4, observer.getUpdatesDispatched());
+    }
+
+    @Test
+    public void coalescingDeliversForcedUpdatesImmediately() {
+        TestFrameScheduler frameScheduler = new TestFrameScheduler();
+        observer.enableCoalescing(frameScheduler);
+        MockObservable model = new MockObservable(1);
+        observer.setAndUpdate(model);
+
+        model.triggerInternalUpdate();
+        observer.forceUpdate();
+        assertEquals(shouldHaveBeenCalled("twice"), 2, observer.callsToUpdate);
+        assertEquals(updateReasonShouldHaveBeen(FORCED_UPDATE), FORCED_UPDATE, observer.lastUpdateReasons.pop());
+
+        frameScheduler.runFrame();
+        assertEquals("The pending change was covered by the forced update", 2, observer.callsToUpdate);
+    }
+
+    @Test
+    public void coalescingDropsPendingUpdatesOfRemovedModels() {
+        TestFrameScheduler frameScheduler = new TestFrameScheduler();
+        observer.enableCoalescing(frameScheduler);
+        MockObservable model1 = new MockObservable(1);
+        MockObservable model2 = new MockObservable(2);
+        observer.setAndUpdate(model1);
+
+        model1.triggerInternalUpdate();
+        observer.setAndUpdate(model2);
+        frameScheduler.runFrame();
+
+        assertEquals(shouldHaveBeenCalled("twice"), 2, observer.callsToUpdate);
+        assertEquals(updateReasonShouldHaveBeen(NEW_MODEL), NEW_MODEL, observer.lastUpdateReasons.pop());
+    }
+
+    @Test
+    public void clearDropsPendingUpdates() {
+        TestFrameScheduler frameScheduler = new TestFrameScheduler();
+        observer.enableCoalescing(frameScheduler);
+        MockObservable model = new MockObservable(1);
+        observer.setAndUpdate(model);
+
+        model.triggerInternalUpdate();
+        observer.clear();
+        observer.setAndUpdate(model);
+        frameScheduler.runFrame();
+
+        assertEquals(shouldHaveBeenCalled("twice"), 2, observer.callsToUpdate);
+        assertEquals(updateReasonShouldHaveBeen(NEW_MODEL), NEW_MODEL, observer.lastUpdateReasons.pop());
+    }
+
+    private static class TestFrameScheduler extends FrameScheduler {
+
+        private Runnable task;
+
+        TestFrameScheduler() {
+            super(0);
+        }
+
+        @Override
+        void schedule(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        void cancel() {
+            task = null;
+        }
+
+        void runFrame() {
+            Runnable frameTask = task;
+            task = null;
+            if (frameTask != null) {
+                frameTask.run();
+            }
+        }
+    }
+
     private class TestObserver extends ModelObserver<MockObservable> {
 
         public int callsToUpdate = 0;
@@ -0,0 +1,188 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.core.api.scala;
+
+import android.os.Handler;
+import com.waz.api.IConversation;
+import com.waz.zclient.core.stores.draft.DraftStoreObserver;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ScalaDraftStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Runnable> backgroundTasks = new ArrayList<>();
+    private final List<Runnable> mainTasks = new ArrayList<>();
+    private File file;
+    private Executor executor;
+    private Handler handler;
+
+    @Before
+    public void setup() {
+        file = new File(folder.getRoot(), ScalaDraftStore.FILE_NAME);
+        executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                backgroundTasks.add(command);
+            }
+        };
+        handler = new Handler() {
+            @Override
+            public boolean post(Runnable r) {
+                mainTasks.add(r);
+                return true;
+            }
+        };
+    }
+
+    @Test
+    public void draftsAreWrittenBehind() {
+        ScalaDraftStore store = new ScalaDraftStore(file, executor, handler);
+        IConversation conversation = conversation("a");
+        store.setDraft(conversation, "hello");
+
+        assertEquals("hello", store.getDraft(conversation));
+        assertFalse(file.exists());
+
+        runAll();
+        assertTrue(file.exists());
+    }
+
+    @Test
+    public void draftsAreReadAfterRestart() {
+        ScalaDraftStore store = new ScalaDraftStore(file, executor, handler);
+        store.setDraft(conversation("a"), "hello");
+        store.setDraft(conversation("b"), "world");
+        store.setDraft(conversation("b"), "");
+        runAll();
+
+        store = new ScalaDraftStore(file, executor, handler);
+        final int[] loaded = {0};
+        store.addDraftStoreObserver(new DraftStoreObserver() {
+            @Override
+            public void onDraftsLoaded() {
+                loaded[0]++;
+            }
+        });
+        assertFalse(store.isLoaded());
+        assertEquals("", store.getDraft(conversation("a")));
+
+        runAll();
+        assertEquals(1, loaded[0]);
+        assertEquals("hello", store.getDraft(conversation("a")));
+        assertEquals("", store.getDraft(conversation("b")));
+    }
+
+    @Test
+    public void draftsSetBeforeLoadingWin() {
+        ScalaDraftStore store = new ScalaDraftStore(file, executor, handler);
+        store.setDraft(conversation("a"), "old");
+        runAll();
+
+        store = new ScalaDraftStore(file, executor, handler);
+        store.setDraft(conversation("a"), "new");
+        runAll();
+
+        assertEquals("new", store.getDraft(conversation("a")));
+        store = new ScalaDraftStore(file, executor, handler);
+        runAll();
+        assertEquals("new", store.getDraft(conversation("a")));
+    }
+
+    @Test
+    public void emptyDraftsSetBeforeLoadingKeepStoredDraft() {
+        ScalaDraftStore store = new ScalaDraftStore(file, executor, handler);
+        store.setDraft(conversation("a"), "stored");
+        runAll();
+
+        store = new ScalaDraftStore(file, executor, handler);
+        assertEquals("", store.getDraft(conversation("a")));
+        store.setDraft(conversation("a"), "");
+        runAll();
+
+        assertEquals("stored", store.getDraft(conversation("a")));
+        store = new ScalaDraftStore(file, executor, handler);
+        runAll();
+        assertEquals("stored", store.getDraft(conversation("a")));
+    }
+
+    @Test
+    public void draftsClearedBeforeLoadingAreRemoved() {
+        ScalaDraftStore store = new ScalaDraftStore(file, executor, handler);
+        store.setDraft(conversation("a"), "stored");
+        runAll();
+
+        store = new ScalaDraftStore(file, executor, handler);
+        store.setDraft(conversation("a"), "typed");
+        store.setDraft(conversation("a"), "");
+        runAll();
+
+        assertEquals("", store.getDraft(conversation("a")));
+        store = new ScalaDraftStore(file, executor, handler);
+        runAll();
+        assertEquals("", store.getDraft(conversation("a")));
+    }
+
+    @Test
+    public void writesAreCoalesced() {
+        ScalaDraftStore store = new ScalaDraftStore(file, executor, handler);
+        runAll();
+        for (int i = 0; i < 10; i++) {
+            store.setDraft(conversation("a"), "draft " + i);
+        }
+
+        assertEquals(1, backgroundTasks.size());
+        runAll();
+        store = new ScalaDraftStore(file, executor, handler);
+        runAll();
+        assertEquals("draft 9", store.getDraft(conversation("a")));
+    }
+
+    private void runAll() {
+        while (!backgroundTasks.isEmpty() || !mainTasks.isEmpty()) {
+            List<Runnable> tasks = new ArrayList<>(backgroundTasks);
+            tasks.addAll(mainTasks);
+            backgroundTasks.clear();
+            mainTasks.clear();
+            for (Runnable task : tasks) {
+                task.run();
+            }
+        }
+    }
+
+    private static IConversation conversation(String id) {
+        IConversation conversation = mock(IConversation.class);
+        when(conversation.getId()).thenReturn(id);
+        return conversation;
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.core.stores.draft;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class DraftLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setup() {
+        file = new File(folder.getRoot(), "drafts.log");
+    }
+
+    @Test
+    public void missingFileHasNoDrafts() throws IOException {
+        assertTrue(new DraftLog(file).load().isEmpty());
+    }
+
+    @Test
+    public void draftsSurviveReopening() throws IOException {
+        DraftLog log = new DraftLog(file);
+        log.load();
+        log.write(drafts("a", "hello", "b", "world"));
+        log.write(drafts("a", "hello again"));
+
+        Map<String, DraftLog.Entry> loaded = new DraftLog(file).load();
+        assertEquals(2, loaded.size());
+        assertEquals("hello again", loaded.get("a").getText());
+        assertEquals("world", loaded.get("b").getText());
+    }
+
+    @Test
+    public void emptyDraftRemovesStoredDraft() throws IOException {
+        DraftLog log = new DraftLog(file);
+        log.load();
+        log.write(drafts("a", "hello", "b", "world"));
+        log.write(drafts("a", ""));
+
+        Map<String, DraftLog.Entry> loaded = new DraftLog(file).load();
+        assertFalse(loaded.containsKey("a"));
+        assertEquals("world", loaded.get("b").getText());
+    }
+
+    @Test
+    public void unchangedDraftsAreNotAppended() throws IOException {
+        DraftLog log = new DraftLog(file);
+        log.load();
+        log.write(drafts("a", "hello"));
+        long length = file.length();
+
+        log.write(drafts("a", "hello", "b", ""));
+
+        assertEquals(length, file.length());
+        assertEquals(1, log.getRecordCount());
+    }
+
+    @Test
+    public void longDraftsAreStoredDeflated() throws IOException {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 4 * DraftLog.COMPRESSION_THRESHOLD) {
+            text.append("The quick brown fox jumps over the lazy dog. \u00e4\u00f6\u00fc ");
+        }
+        DraftLog log = new DraftLog(file);
+        log.load();
+        log.write(drafts("long", text.toString(), "short", "hi"));
+
+        Map<String, DraftLog.Entry> loaded = new DraftLog(file).load();
+        DraftLog.Entry entry = loaded.get("long");
+        assertTrue(entry.isDeflated());
+        assertTrue(entry.getStoredSize() < text.length() / 4);
+        assertEquals(text.toString(), entry.getText());
+        assertFalse(loaded.get("short").isDeflated());
+    }
+
+    @Test
+    public void tornRecordIsDropped() throws IOException {
+        DraftLog log = new DraftLog(file);
+        log.load();
+        log.write(drafts("a", "hello"));
+        long validLength = file.length();
+        log.write(drafts("b", "cut short"));
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(file.length() - 3);
+        raf.close();
+
+        log = new DraftLog(file);
+        Map<String, DraftLog.Entry> loaded = log.load();
+        assertEquals(1, loaded.size());
+        assertEquals("hello", loaded.get("a").getText());
+        assertEquals(validLength, file.length());
+
+        log.write(drafts("c", "appended"));
+        assertEquals("appended", new DraftLog(file).load().get("c").getText());
+    }
+
+    @Test
+    public void unreadableFileIsDiscarded() throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("not a draft log".getBytes("UTF-8"));
+        out.close();
+
+        DraftLog log = new DraftLog(file);
+        assertTrue(log.load().isEmpty());
+        log.write(drafts("a", "hello"));
+        assertEquals("hello", new DraftLog(file).load().get("a").getText());
+    }
+
+    @Test
+    public void supersededRecordsAreCompactedAway() throws IOException {
+        DraftLog log = new DraftLog(file);
+        log.load();
+        for (int i = 0; i < 500; i++) {
+            log.write(drafts("a", "draft " + i, "b", "other " + i));
+        }
+
+        assertTrue(log.getRecordCount() < 100);
+        Map<String, DraftLog.Entry> loaded = new DraftLog(file).load();
+        assertEquals("draft 499", loaded.get("a").getText());
+        assertEquals("other 499", loaded.get("b").getText());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void compactionDropsDeletedDraftsAndKeepsDeflatedOnes() throws IOException {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 2 * DraftLog.COMPRESSION_THRESHOLD) {
+            text.append("Lorem ipsum dolor sit amet. ");
+        }
+        DraftLog log = new DraftLog(file);
+        log.load();
+        log.write(drafts("a", "hello", "long", text.toString()));
+        log.write(drafts("a", "hello again"));
+        log.write(drafts("a", ""));
+        long length = file.length();
+
+        log.compact();
+
+        assertEquals(1, log.getRecordCount());
+        assertTrue(file.length() < length);
+        Map<String, DraftLog.Entry> loaded = new DraftLog(file).load();
+        assertEquals(1, loaded.size());
+        assertTrue(loaded.get("long").isDeflated());
+        assertEquals(text.toString(), loaded.get("long").getText());
+    }
+
+    private static Map<String, String> drafts(String... idsAndTexts) {
+        Map<String, String> drafts = new HashMap<>();
+        for (int i = 0; i < idsAndTexts.length; i += 2) {
+            drafts.put(idsAndTexts[i], idsAndTexts[i + 1]);
+        }
+        return drafts;
+    }
+}
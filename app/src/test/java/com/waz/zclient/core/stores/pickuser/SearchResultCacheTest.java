@@ -0,0 +1,134 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.core.stores.pickuser;
+
+import com.waz.api.IConversation;
+import com.waz.api.User;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class SearchResultCacheTest {
+
+    private SearchResultCache cache;
+
+    @Before
+    public void setup() {
+        cache = new SearchResultCache();
+    }
+
+    @Test
+    public void unknownQueryIsNotFound() {
+        cache.put("an", users("Anna"), null, null);
+
+        assertNull(cache.find("bo"));
+        assertNull(cache.find(""));
+    }
+
+    @Test
+    public void exactQueryReturnsCachedResults() {
+        User[] connected = users("Anna", "Andreas");
+        cache.put("An", connected, null, null);
+
+        SearchResultCache.Entry entry = cache.find(" an ");
+
+        assertTrue(entry.isExact());
+        assertSame(connected, entry.getConnectedUsers());
+        assertEquals(0, entry.getOtherUsers().length);
+        assertEquals(0, entry.getConversations().length);
+    }
+
+    @Test
+    public void longerQueryFiltersPrefixResults() {
+        User[] connected = users("Anna Smith", "Andreas", "Joanne Annister");
+        User[] others = users("Annabel");
+        IConversation[] conversations = conversations("Annual planning", "Android team");
+        cache.put("an", connected, others, conversations);
+
+        SearchResultCache.Entry entry = cache.find("ann");
+
+        assertFalse(entry.isExact());
+        assertEquals(2, entry.getConnectedUsers().length);
+        assertSame(connected[0], entry.getConnectedUsers()[0]);
+        assertSame(connected[2], entry.getConnectedUsers()[1]);
+        assertEquals(1, entry.getOtherUsers().length);
+        assertEquals(1, entry.getConversations().length);
+        assertSame(conversations[0], entry.getConversations()[0]);
+    }
+
+    @Test
+    public void longestCachedPrefixIsUsed() {
+        cache.put("a", users("Anna", "Bob Alder"), null, null);
+        cache.put("ann", users("Anna"), null, null);
+
+        assertEquals(1, cache.find("anna").getConnectedUsers().length);
+    }
+
+    @Test
+    public void leastRecentlyUsedQueriesAreEvicted() {
+        cache = new SearchResultCache(2);
+        cache.put("a", users("Anna"), null, null);
+        cache.put("b", users("Bob"), null, null);
+        cache.find("a");
+        cache.put("c", users("Carl"), null, null);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.find("b"));
+        assertTrue(cache.find("a").isExact());
+    }
+
+    @Test
+    public void filteringMatchesWordStartsAndEmailPrefixes() {
+        User[] connected = users("Joanne Annister", "Marjo", "Bob");
+        when(connected[2].getEmail()).thenReturn("Jo.bob@example.com");
+        cache.put("j", connected, null, null);
+
+        User[] found = cache.find("jo").getConnectedUsers();
+
+        assertEquals("Marjo only contains the query inside a word", 2, found.length);
+        assertSame(connected[0], found[0]);
+        assertSame(connected[2], found[1]);
+    }
+
+    private static User[] users(String... names) {
+        User[] users = new User[names.length];
+        for (int i = 0; i < names.length; i++) {
+            users[i] = mock(User.class, withSettings().stubOnly());
+            when(users[i].getName()).thenReturn(names[i]);
+            when(users[i].getDisplayName()).thenReturn(names[i]);
+        }
+        return users;
+    }
+
+    private static IConversation[] conversations(String... names) {
+        IConversation[] conversations = new IConversation[names.length];
+        for (int i = 0; i < names.length; i++) {
+            conversations[i] = mock(IConversation.class);
+            when(conversations[i].getName()).thenReturn(names[i]);
+        }
+        return conversations;
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.newreg.fragments.country;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class CountryIndexTest {
+
+    @Test
+    public void looksUpByAbbreviationIgnoringCase() {
+        CountryIndex index = index();
+
+        assertEquals("Germany", index.getByAbbreviation("DE").getName());
+        assertEquals("Germany", index.getByAbbreviation("de").getName());
+        assertNull(index.getByAbbreviation("XX"));
+        assertNull(index.getByAbbreviation(null));
+    }
+
+    @Test
+    public void firstCountryOwnsSharedCode() {
+        CountryIndex index = index();
+
+        assertEquals("US", index.getByCode("1").getAbbreviation());
+        assertEquals("US", index.getByCode("+1").getAbbreviation());
+        assertEquals("CA", index.getByAbbreviation("CA").getAbbreviation());
+        assertTrue(index.hasCode("41"));
+        assertNull(index.getByCode("999"));
+    }
+
+    @Test
+    public void countriesAreSortedByName() {
+        List<Country> sorted = index().getSortedCountries();
+
+        assertEquals(Arrays.asList("Canada", "C\u00f4te d\u2019Ivoire", "Germany", "Switzerland", "United Kingdom", "United States"),
+                     names(sorted));
+    }
+
+    @Test
+    public void searchMatchesStartOfAnyWord() {
+        CountryIndex index = index();
+
+        assertEquals(Arrays.asList("United Kingdom", "United States"), names(index.search("uni")));
+        assertEquals(Arrays.asList("United Kingdom"), names(index.search("King")));
+        assertEquals(Arrays.asList("Switzerland"), names(index.search(" sw ")));
+        assertTrue(index.search("ted").isEmpty());
+    }
+
+    @Test
+    public void searchIgnoresAccents() {
+        assertEquals(Arrays.asList("C\u00f4te d\u2019Ivoire"), names(index().search("cote")));
+        assertEquals(Arrays.asList("C\u00f4te d\u2019Ivoire"), names(index().search("IVO")));
+    }
+
+    @Test
+    public void searchMatchesDialingCodes() {
+        CountryIndex index = index();
+
+        assertEquals(Arrays.asList("Canada", "United States"), names(index.search("+1")));
+        assertEquals(Arrays.asList("Germany", "Switzerland", "United Kingdom"), names(index.search("4")));
+        assertEquals(Arrays.asList("Germany"), names(index.search("49")));
+    }
+
+    @Test
+    public void emptySearchReturnsAllCountries() {
+        CountryIndex index = index();
+
+        assertEquals(index.getSortedCountries(), index.search(""));
+        assertEquals(index.getSortedCountries(), index.search(null));
+        assertEquals(index.getSortedCountries(), index.search("+"));
+    }
+
+    @Test
+    public void serializationKeepsCodeOwners() throws IOException {
+        StringWriter writer = new StringWriter();
+        index().write(writer);
+
+        CountryIndex read = CountryIndex.read(new StringReader(writer.toString()), Locale.US);
+
+        assertEquals("US", read.getByCode("1").getAbbreviation());
+        assertEquals(names(index().getSortedCountries()), names(read.getSortedCountries()));
+        assertEquals("C\u00f4te d\u2019Ivoire", read.getByAbbreviation("CI").getName());
+    }
+
+    @Test
+    public void readingUnknownFormatFails() throws IOException {
+        assertNull(CountryIndex.read(new StringReader("countries-v0\nDE\t49\tGermany\n"), Locale.US));
+        assertNull(CountryIndex.read(new StringReader("countries-v1\nDE 49 Germany\n"), Locale.US));
+        assertNull(CountryIndex.read(new StringReader(""), Locale.US));
+    }
+
+    @Test
+    public void mainRegionKeepsCodeSharedByManyRegions() throws IOException {
+        List<Country> countries = new ArrayList<>();
+        countries.add(country("US", "1", "United States"));
+        for (char c = 'A'; c <= 'Y'; c++) {
+            countries.add(country("Q" + c, "1", "Region " + c));
+        }
+        CountryIndex index = new CountryIndex(countries, Locale.US);
+        StringWriter writer = new StringWriter();
+        index.write(writer);
+        CountryIndex read = CountryIndex.read(new StringReader(writer.toString()), Locale.US);
+
+        assertSame(countries.get(0), index.getByCode("1"));
+        assertEquals("US", read.getByCode("+1").getAbbreviation());
+        assertEquals(countries.size(), index.search("+1").size());
+        assertEquals("Region A", index.search("1").get(0).getName());
+        assertEquals("United States", read.search("1").get(countries.size() - 1).getName());
+    }
+
+    private static CountryIndex index() {
+        return new CountryIndex(Arrays.asList(country("US", "1", "United States"),
+                                              country("DE", "49", "Germany"),
+                                              country("CH", "41", "Switzerland"),
+                                              country("GB", "44", "United Kingdom"),
+                                              country("CI", "225", "C\u00f4te d\u2019Ivoire"),
+                                              country("CA", "1", "Canada")),
+                                Locale.US);
+    }
+
+    private static Country country(String abbreviation, String code, String name) {
+        Country country = new Country();
+        country.setAbbreviation(abbreviation);
+        country.setCountryCode(code);
+        country.setName(name);
+        return country;
+    }
+
+    private static List<String> names(List<Country> countries) {
+        List<String> names = new ArrayList<>();
+        for (Country country : countries) {
+            names.add(country.getName());
+        }
+        return names;
+    }
+}
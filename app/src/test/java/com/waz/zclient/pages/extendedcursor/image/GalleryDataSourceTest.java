@@ -0,0 +1,284 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.extendedcursor.image;
+
+import android.os.Handler;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+
+public class GalleryDataSourceTest {
+
+    private static final int GALLERY_SIZE = 50000;
+
+    private FakeGallery gallery;
+    private QueuedExecutor executor;
+    private ImmediateHandler handler;
+    private List<String> events;
+    private GalleryDataSource dataSource;
+
+    @Before
+    public void setUp() {
+        gallery = new FakeGallery(GALLERY_SIZE);
+        executor = new QueuedExecutor();
+        handler = new ImmediateHandler();
+        events = new ArrayList<>();
+        dataSource = new GalleryDataSource(gallery, executor, handler, new GalleryDataSource.Listener() {
+            @Override
+            public void onItemsInserted(int position, int count) {
+                events.add("inserted " + position + " " + count);
+            }
+
+            @Override
+            public void onItemsChanged() {
+                events.add("changed");
+            }
+        });
+    }
+
+    @Test
+    public void firstPageIsLoadedOnStart() {
+        dataSource.start();
+        assertEquals(0, dataSource.size());
+
+        executor.runAll();
+        assertEquals(GalleryDataSource.PAGE_SIZE, dataSource.size());
+        assertEquals(GALLERY_SIZE - 1, dataSource.getId(0));
+        assertEquals(Arrays.asList("inserted 0 " + GalleryDataSource.PAGE_SIZE), events);
+    }
+
+    @Test
+    public void nextPageIsLoadedCloseToTheEnd() {
+        dataSource.start();
+        executor.runAll();
+
+        dataSource.getId(GalleryDataSource.PREFETCH_DISTANCE - 1);
+        assertEquals(0, executor.size());
+
+        dataSource.getId(GalleryDataSource.PAGE_SIZE - GalleryDataSource.PREFETCH_DISTANCE);
+        dataSource.getId(GalleryDataSource.PAGE_SIZE - 1);
+        assertEquals("Only one page is loaded at a time", 1, executor.size());
+
+        executor.runAll();
+        assertEquals(2 * GalleryDataSource.PAGE_SIZE, dataSource.size());
+        assertEquals(GALLERY_SIZE - 1 - GalleryDataSource.PAGE_SIZE, dataSource.getId(GalleryDataSource.PAGE_SIZE));
+        assertEquals((GALLERY_SIZE - 1 - GalleryDataSource.PAGE_SIZE) % 4 * 90,
+                     dataSource.getOrientation(GalleryDataSource.PAGE_SIZE));
+        assertEquals("inserted " + GalleryDataSource.PAGE_SIZE + " " + GalleryDataSource.PAGE_SIZE, events.get(1));
+    }
+
+    @Test
+    public void pagingStopsAtTheEndOfTheGallery() {
+        gallery = new FakeGallery(GalleryDataSource.PAGE_SIZE + 10);
+        setUpWith(gallery);
+        dataSource.start();
+        executor.runAll();
+        dataSource.getId(GalleryDataSource.PAGE_SIZE - 1);
+        executor.runAll();
+
+        assertEquals(GalleryDataSource.PAGE_SIZE + 10, dataSource.size());
+        assertTrue(dataSource.isEndReached());
+        dataSource.getId(dataSource.size() - 1);
+        assertEquals(0, executor.size());
+    }
+
+    @Test
+    public void refreshReloadsAllLoadedItemsAndDropsRunningLoads() {
+        dataSource.start();
+        executor.runAll();
+        dataSource.getId(GalleryDataSource.PAGE_SIZE - 1);
+
+        gallery.add(3);
+        dataSource.refresh();
+        executor.runAll();
+
+        assertEquals("The page still loading when refreshing is dropped", GalleryDataSource.PAGE_SIZE, dataSource.size());
+        assertEquals(GALLERY_SIZE + 2, dataSource.getId(0));
+        assertEquals(Arrays.asList("inserted 0 " + GalleryDataSource.PAGE_SIZE, "changed"), events);
+
+        dataSource.getId(GalleryDataSource.PAGE_SIZE - 1);
+        executor.runAll();
+        assertEquals(2 * GalleryDataSource.PAGE_SIZE, dataSource.size());
+    }
+
+    @Test
+    public void refreshRequestsAreDebounced() {
+        dataSource.start();
+        executor.runAll();
+
+        dataSource.requestRefresh();
+        dataSource.requestRefresh();
+        dataSource.requestRefresh();
+
+        assertNotNull(handler.delayed);
+        assertEquals(GalleryDataSource.REFRESH_DEBOUNCE_MS, handler.delay);
+        assertEquals(1, handler.delayedPosts - handler.removed);
+        handler.delayed.run();
+        assertEquals(1, executor.size());
+    }
+
+    @Test
+    public void nothingIsDeliveredAfterClose() {
+        dataSource.start();
+        dataSource.close();
+        executor.runAll();
+
+        assertEquals(0, dataSource.size());
+        assertTrue(events.isEmpty());
+        dataSource.requestRefresh();
+        assertEquals(0, handler.delayedPosts - handler.removed);
+    }
+
+    @Test
+    public void failedQueryStopsPaging() {
+        gallery.fail = true;
+        dataSource.start();
+        executor.runAll();
+
+        assertEquals(0, dataSource.size());
+        assertTrue(dataSource.isEndReached());
+        assertFalse(events.contains("changed"));
+    }
+
+    @Test
+    public void loadedPagesAreNotQueriedAgain() {
+        dataSource.start();
+        executor.runAll();
+        assertEquals(1, gallery.queries);
+        assertEquals(GalleryDataSource.PAGE_SIZE, gallery.rowsRead);
+
+        for (int position = 0; position < GalleryDataSource.PAGE_SIZE; position++) {
+            dataSource.getId(position);
+        }
+        executor.runAll();
+        for (int position = 0; position < GalleryDataSource.PAGE_SIZE; position++) {
+            dataSource.getId(position);
+        }
+        executor.runAll();
+
+        assertEquals("Scrolling back binds loaded rows", 2, gallery.queries);
+        assertEquals(2 * GalleryDataSource.PAGE_SIZE, gallery.rowsRead);
+    }
+
+    private void setUpWith(FakeGallery gallery) {
+        this.gallery = gallery;
+        events.clear();
+        dataSource = new GalleryDataSource(gallery, executor, handler, new GalleryDataSource.Listener() {
+            @Override
+            public void onItemsInserted(int position, int count) {
+                events.add("inserted " + position + " " + count);
+            }
+
+            @Override
+            public void onItemsChanged() {
+                events.add("changed");
+            }
+        });
+    }
+
+    /**
+     * Media ids 0..size-1, the newest image has the highest id. Images are rotated by their id modulo 4.
+     */
+    private static class FakeGallery implements GalleryDataSource.Query {
+        private int size;
+        private boolean fail;
+        private int rowsRead;
+        private int queries;
+
+        FakeGallery(int size) {
+            this.size = size;
+        }
+
+        void add(int count) {
+            size += count;
+        }
+
+        @Override
+        public GalleryDataSource.Page load(int offset, int limit) {
+            if (fail) {
+                return null;
+            }
+            queries++;
+            int count = Math.max(0, Math.min(limit, size - offset));
+            long[] ids = new long[count];
+            int[] orientations = new int[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = size - 1 - offset - i;
+                orientations[i] = (int) (ids[i] % 4) * 90;
+            }
+            rowsRead += count;
+            return new GalleryDataSource.Page(ids, orientations);
+        }
+    }
+
+    private static class QueuedExecutor implements Executor {
+        private final List<Runnable> queue = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            queue.add(command);
+        }
+
+        int size() {
+            return queue.size();
+        }
+
+        void runAll() {
+            while (!queue.isEmpty()) {
+                queue.remove(0).run();
+            }
+        }
+    }
+
+    private static class ImmediateHandler extends Handler {
+        private Runnable delayed;
+        private long delay;
+        private int delayedPosts;
+        private int removed;
+
+        @Override
+        public boolean post(Runnable r) {
+            r.run();
+            return true;
+        }
+
+        @Override
+        public boolean postDelayed(Runnable r, long delayMillis) {
+            delayed = r;
+            delay = delayMillis;
+            delayedPosts++;
+            return true;
+        }
+
+        @Override
+        public void removeCallbacks(Runnable r) {
+            if (delayed == r && delayedPosts > removed) {
+                removed++;
+            }
+        }
+    }
+}
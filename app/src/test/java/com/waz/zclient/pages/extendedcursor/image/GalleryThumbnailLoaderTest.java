@@ -0,0 +1,53 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.extendedcursor.image;
+
+import android.provider.MediaStore;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+
+public class GalleryThumbnailLoaderTest {
+
+    @Test
+    public void smallCellsUseMicroThumbnails() {
+        assertEquals(MediaStore.Images.Thumbnails.MICRO_KIND,
+                     GalleryThumbnailLoader.getThumbnailKind(GalleryThumbnailLoader.MICRO_KIND_MAX_SIZE));
+        assertEquals(MediaStore.Images.Thumbnails.MINI_KIND,
+                     GalleryThumbnailLoader.getThumbnailKind(GalleryThumbnailLoader.MICRO_KIND_MAX_SIZE + 1));
+    }
+
+    @Test
+    public void miniThumbnailsAreSubsampledWhileCoveringTheCell() {
+        int mini = MediaStore.Images.Thumbnails.MINI_KIND;
+        assertEquals(1, GalleryThumbnailLoader.getSampleSize(mini, 300));
+        assertEquals(2, GalleryThumbnailLoader.getSampleSize(mini, 192));
+        assertEquals(2, GalleryThumbnailLoader.getSampleSize(mini, 120));
+        assertEquals(4, GalleryThumbnailLoader.getSampleSize(mini, 96));
+        assertEquals(1, GalleryThumbnailLoader.getSampleSize(mini, 0));
+        assertEquals(1, GalleryThumbnailLoader.getSampleSize(MediaStore.Images.Thumbnails.MICRO_KIND, 48));
+    }
+
+    @Test
+    public void shorterSideIsScaledDownToTheCell() {
+        assertEquals(0.5f, GalleryThumbnailLoader.getScale(512, 384, 192), 0.0001f);
+        assertEquals(0.5f, GalleryThumbnailLoader.getScale(384, 512, 192), 0.0001f);
+        assertEquals("Thumbnails are never scaled up", 1f, GalleryThumbnailLoader.getScale(96, 96, 200), 0.0001f);
+        assertEquals(1f, GalleryThumbnailLoader.getScale(512, 384, 0), 0.0001f);
+    }
+}
@@ -0,0 +1,263 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.main.conversation;
+
+import android.os.Handler;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class CursorInputPipelineTest {
+
+    private static final long TYPING_INTERVAL = 2000;
+    private static final long TYPING_STOPPED_DELAY = 5000;
+    private static final long FRAME_MS = 16;
+
+    private ClockHandler handler;
+    private RecordingCallback callback;
+    private CursorInputPipeline pipeline;
+
+    @Before
+    public void setUp() {
+        handler = new ClockHandler();
+        callback = new RecordingCallback();
+        pipeline = new CursorInputPipeline(callback, handler, TYPING_INTERVAL, TYPING_STOPPED_DELAY);
+    }
+
+    @Test
+    public void firstKeystrokeSendsTypingSignalImmediately() {
+        pipeline.onTextChanged("a", 1);
+
+        assertEquals(1, callback.typing);
+        assertTrue(pipeline.isTyping());
+    }
+
+    @Test
+    public void typingSignalsAreThrottledWithTrailingSignal() {
+        // 10 characters per second for 5 seconds
+        String text = "";
+        for (int i = 0; i < 50; i++) {
+            text += "a";
+            pipeline.onTextChanged(text, 1);
+            handler.advance(100);
+        }
+
+        // leading signal plus one per interval
+        assertEquals(3, callback.typing);
+        handler.advance(TYPING_INTERVAL);
+        assertEquals(4, callback.typing);
+        assertEquals(0, callback.stopped);
+    }
+
+    @Test
+    public void pauseSendsStoppedOnce() {
+        pipeline.onTextChanged("a", 1);
+        handler.advance(TYPING_STOPPED_DELAY - 1);
+        assertEquals(0, callback.stopped);
+
+        handler.advance(1);
+        assertEquals(1, callback.stopped);
+        assertFalse(pipeline.isTyping());
+
+        handler.advance(TYPING_STOPPED_DELAY * 2);
+        assertEquals(1, callback.stopped);
+        assertEquals(1, callback.typing);
+    }
+
+    @Test
+    public void typingAfterPauseSignalsAgainRightAway() {
+        pipeline.onTextChanged("a", 1);
+        handler.advance(TYPING_STOPPED_DELAY);
+        pipeline.onTextChanged("ab", 1);
+
+        assertEquals(2, callback.typing);
+    }
+
+    @Test
+    public void clearingTextStopsTypingImmediately() {
+        pipeline.onTextChanged("a", 1);
+        pipeline.onTextChanged("", 1);
+
+        assertEquals(1, callback.stopped);
+        handler.advance(TYPING_STOPPED_DELAY * 2);
+        assertEquals(1, callback.stopped);
+        assertEquals(1, callback.typing);
+    }
+
+    @Test
+    public void clearingUntypedTextDoesNotSendStopped() {
+        pipeline.onTextChanged("", 1);
+
+        assertEquals(0, callback.stopped);
+    }
+
+    @Test
+    public void reanchorsOnlyWhenLineCountChanges() {
+        pipeline.onTextChanged("a", 1);
+        pipeline.onTextChanged("ab", 1);
+        pipeline.onTextChanged("abc", 1);
+        assertEquals(1, callback.reanchors);
+
+        pipeline.onTextChanged("abc\nd", 2);
+        pipeline.onTextChanged("abc\nde", 2);
+        assertEquals(2, callback.reanchors);
+        assertEquals(5, callback.textUpdates);
+    }
+
+    @Test
+    public void reanchorsWhenKeyboardIsShownOrResized() {
+        pipeline.onKeyboardChanged(800);
+        pipeline.onKeyboardChanged(800);
+        assertEquals(1, callback.reanchors);
+
+        pipeline.onKeyboardChanged(900);
+        assertEquals(2, callback.reanchors);
+
+        pipeline.onKeyboardChanged(0);
+        assertEquals(2, callback.reanchors);
+
+        pipeline.onKeyboardChanged(900);
+        assertEquals(3, callback.reanchors);
+    }
+
+    @Test
+    public void resetSendsStoppedAndForgetsAnchor() {
+        pipeline.onTextChanged("a", 1);
+        pipeline.reset();
+
+        assertEquals(1, callback.stopped);
+        assertEquals(0, handler.pending());
+
+        pipeline.onTextChanged("a", 1);
+        assertEquals(2, callback.reanchors);
+    }
+
+    @Test
+    public void slowTypingKeepsTheTypingStateUntilAPause() {
+        String text = "";
+        for (int i = 0; i < 20; i++) {
+            text += "a";
+            pipeline.onTextChanged(text, 1);
+            handler.advance(TYPING_STOPPED_DELAY - FRAME_MS);
+        }
+
+        assertEquals(0, callback.stopped);
+        assertEquals(20, callback.textUpdates);
+        assertEquals(1, callback.reanchors);
+        assertTrue(pipeline.isTyping());
+
+        handler.advance(FRAME_MS);
+        assertEquals(1, callback.stopped);
+    }
+
+    private static class RecordingCallback implements CursorInputPipeline.Callback {
+        private int textUpdates;
+        private int reanchors;
+        private int typing;
+        private int stopped;
+
+        @Override
+        public void onTextUpdated(String text) {
+            textUpdates++;
+        }
+
+        @Override
+        public void onReanchor() {
+            reanchors++;
+        }
+
+        @Override
+        public void onTyping() {
+            typing++;
+        }
+
+        @Override
+        public void onTypingStopped() {
+            stopped++;
+        }
+    }
+
+    /**
+     * Runs delayed runnables in order of their due time when the virtual clock is advanced.
+     */
+    private static class ClockHandler extends Handler {
+        private final List<Task> tasks = new ArrayList<>();
+        private long now;
+
+        @Override
+        public boolean post(Runnable r) {
+            return postDelayed(r, 0);
+        }
+
+        @Override
+        public boolean postDelayed(Runnable r, long delayMillis) {
+            tasks.add(new Task(r, now + delayMillis));
+            return true;
+        }
+
+        @Override
+        public void removeCallbacks(Runnable r) {
+            Iterator<Task> iterator = tasks.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().runnable == r) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        int pending() {
+            return tasks.size();
+        }
+
+        void advance(long millis) {
+            long target = now + millis;
+            while (true) {
+                Task next = null;
+                for (Task task : tasks) {
+                    if (task.due <= target && (next == null || task.due < next.due)) {
+                        next = task;
+                    }
+                }
+                if (next == null) {
+                    break;
+                }
+                tasks.remove(next);
+                now = next.due;
+                next.runnable.run();
+            }
+            now = target;
+        }
+    }
+
+    private static class Task {
+        private final Runnable runnable;
+        private final long due;
+
+        Task(Runnable runnable, long due) {
+            this.runnable = runnable;
+            this.due = due;
+        }
+    }
+}
@@ -28,7 +28,9 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -63,7 +65,7 @@ public class MessageStreamManagerTest {
 
         manager.setConversation(conversation, false);
         verify(adapter).resetState();
-        verify(adapter).setMessages(messages);
+        verify(adapter).setMessages(eq(messages), any(MessagesListDiff.class));
         verify(listView).setSelectionFromTop(5, 0);
     }
 
@@ -80,7 +82,7 @@ public class MessageStreamManagerTest {
 
         messages.addExtraMessage(true);
 
-        verify(adapter, times(2)).setMessages(messages);
+        verify(adapter, times(2)).setMessages(eq(messages), any(MessagesListDiff.class));
         verify(listView, times(2)).setSelectionFromTop(5, 0);
     }
 
@@ -95,11 +97,33 @@ public class MessageStreamManagerTest {
         manager.onScrolledToBottom(false);
 
         when(listView.getChildAt(0)).thenReturn(mock(View.class));
-        when(adapter.getIndexOfMessage(any(Message.class))).thenReturn(3); //currently looking at the 4th message
+        when(listView.getFirstVisiblePosition()).thenReturn(3); //currently looking at the 4th message
         messages.addExtraMessage(false);
 
-        verify(adapter, times(2)).setMessages(messages);
-        verify(listView).setSelectionFromTop(3, 0);
+        // The new message is below the visible rows, so the list keeps its position without re-anchoring
+        verify(adapter, times(2)).setMessages(eq(messages), any(MessagesListDiff.class));
+        verify(listView, never()).setSelectionFromTop(3, 0);
+        verify(listView, never()).setAdapter(adapter);
+    }
+
+    @Test
+    public void whenNotScrolledToBottom_andOlderMessagesLoaded_positionIsShifted() {
+        MockConversation conversation = new MockConversation(1);
+        MockMessagesList messages = (MockMessagesList) conversation.getMessages();
+        messages.setMessages(20);
+        messages.setLastReadMessageIndex(19);
+
+        manager.setConversation(conversation, false);
+        manager.onScrolledToBottom(false);
+
+        when(listView.getChildAt(0)).thenReturn(mock(View.class));
+        when(listView.getFirstVisiblePosition()).thenReturn(3); //currently looking at the 4th message
+        when(adapter.getIndexOfMessage(any(Message.class))).thenReturn(-1);
+        messages.addOlderMessages(5);
+
+        verify(adapter, times(2)).setMessages(eq(messages), any(MessagesListDiff.class));
+        verify(listView).setSelectionFromTop(8, 0);
+        verify(listView, never()).setAdapter(adapter);
     }
 
     @Test
@@ -0,0 +1,187 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.main.conversation;
+
+import com.waz.zclient.testutils.MockConversation;
+import com.waz.zclient.testutils.MockMessagesList;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class MessagesListDiffTest {
+
+    private static final int CONVERSATION_SIZE = 10000;
+    private static final int BURST_SIZE = 50;
+    private static final int BURSTS = 40;
+
+    @Test
+    public void identicalSnapshotsProduceEmptyDiff() {
+        MessagesListDiff diff = MessagesListDiff.calculate(ids(0, 10), ids(0, 10));
+
+        assertTrue(diff.isEmpty());
+        assertFalse(diff.shiftsPosition(0));
+    }
+
+    @Test
+    public void appendedMessagesAreInsertedAtTheEnd() {
+        MessagesListDiff diff = MessagesListDiff.calculate(ids(0, 10), ids(0, 15));
+
+        assertEquals(5, diff.getInsertedCount());
+        assertEquals(10, diff.getInsertedStart());
+        assertEquals(0, diff.getRemovedCount());
+        assertEquals(0, diff.getChangedCount());
+        assertFalse("Appending must not shift visible rows", diff.shiftsPosition(9));
+    }
+
+    @Test
+    public void prependedMessagesShiftPositions() {
+        MessagesListDiff diff = MessagesListDiff.calculate(ids(5, 15), ids(0, 15));
+
+        assertEquals(5, diff.getInsertedCount());
+        assertEquals(0, diff.getInsertedStart());
+        assertTrue(diff.shiftsPosition(0));
+        assertEquals(5, diff.mapOldPosition(0));
+        assertEquals(14, diff.mapOldPosition(9));
+    }
+
+    @Test
+    public void removedMessagesMapToFollowingRow() {
+        String[] oldIds = ids(0, 10);
+        String[] newIds = {"0", "1", "2", "6", "7", "8", "9"};
+        MessagesListDiff diff = MessagesListDiff.calculate(oldIds, newIds);
+
+        assertEquals(3, diff.getRemovedCount());
+        assertEquals(3, diff.getRemovedStart());
+        assertEquals(2, diff.mapOldPosition(2));
+        assertEquals(3, diff.mapOldPosition(4));
+        assertEquals(4, diff.mapOldPosition(7));
+        assertFalse(diff.shiftsPosition(2));
+        assertTrue(diff.shiftsPosition(3));
+    }
+
+    @Test
+    public void replacedMessagesAreReportedAsChanged() {
+        String[] oldIds = {"0", "1", "2", "3"};
+        String[] newIds = {"0", "x", "y", "3"};
+        MessagesListDiff diff = MessagesListDiff.calculate(oldIds, newIds);
+
+        assertEquals(1, diff.getStart());
+        assertEquals(2, diff.getChangedCount());
+        assertFalse(diff.isStructural());
+        assertFalse(diff.shiftsPosition(3));
+    }
+
+    @Test
+    public void appendedMessagesOnlyReadTheEdges() {
+        MockMessagesList messages = messages(CONVERSATION_SIZE);
+        String[] snapshot = MessagesListDiff.snapshot(messages);
+        messages.takeReadCount();
+        for (int i = 0; i < BURST_SIZE; i++) {
+            messages.addExtraMessage(false);
+        }
+
+        MessagesListDiff diff = MessagesListDiff.calculate(snapshot, messages);
+
+        assertEquals(BURST_SIZE, diff.getInsertedCount());
+        assertEquals(CONVERSATION_SIZE, diff.getInsertedStart());
+        assertEquals(0, diff.getChangedCount());
+        assertTrue(messages.takeReadCount() <= 2 * BURST_SIZE + 2 * MessagesListDiff.EDGE_CHECK);
+        assertTrue(Arrays.equals(MessagesListDiff.snapshot(messages), diff.getIds()));
+    }
+
+    @Test
+    public void olderMessagesOnlyReadTheEdges() {
+        MockMessagesList messages = messages(CONVERSATION_SIZE);
+        String[] snapshot = MessagesListDiff.snapshot(messages);
+        messages.addOlderMessages(BURST_SIZE);
+        messages.takeReadCount();
+
+        MessagesListDiff diff = MessagesListDiff.calculate(snapshot, messages);
+
+        assertEquals(BURST_SIZE, diff.getInsertedCount());
+        assertEquals(0, diff.getInsertedStart());
+        assertTrue(diff.shiftsPosition(0));
+        assertTrue(messages.takeReadCount() <= 2 * BURST_SIZE + 4 * MessagesListDiff.EDGE_CHECK);
+        assertTrue(Arrays.equals(MessagesListDiff.snapshot(messages), diff.getIds()));
+    }
+
+    @Test
+    public void messagesAddedAtBothEndsMatchTheFullDiff() {
+        MockMessagesList messages = messages(100);
+        String[] snapshot = MessagesListDiff.snapshot(messages);
+        messages.addOlderMessages(3);
+        messages.addExtraMessage(false);
+
+        MessagesListDiff diff = MessagesListDiff.calculate(snapshot, messages);
+        MessagesListDiff expected = MessagesListDiff.calculate(snapshot, MessagesListDiff.snapshot(messages));
+
+        assertEquals(expected.toString(), diff.toString());
+        assertTrue(Arrays.equals(MessagesListDiff.snapshot(messages), diff.getIds()));
+    }
+
+    @Test
+    public void removedMessagesFallBackToTheFullDiff() {
+        MockMessagesList messages = messages(100);
+        String[] snapshot = MessagesListDiff.snapshot(messages);
+        messages.removeMessage(40);
+
+        MessagesListDiff diff = MessagesListDiff.calculate(snapshot, messages);
+
+        assertEquals(1, diff.getRemovedCount());
+        assertEquals(40, diff.getRemovedStart());
+        assertTrue(Arrays.equals(MessagesListDiff.snapshot(messages), diff.getIds()));
+    }
+
+    @Test
+    public void chainedDiffsKeepReadingOnlyTheEdges() {
+        MockMessagesList messages = messages(CONVERSATION_SIZE);
+        String[] snapshot = MessagesListDiff.snapshot(messages);
+
+        for (int burst = 0; burst < BURSTS; burst++) {
+            messages.takeReadCount();
+            for (int i = 0; i < BURST_SIZE; i++) {
+                messages.addExtraMessage(false);
+            }
+            MessagesListDiff diff = MessagesListDiff.calculate(snapshot, messages);
+            snapshot = diff.getIds();
+
+            assertEquals(CONVERSATION_SIZE + burst * BURST_SIZE, diff.getInsertedStart());
+            assertTrue(messages.takeReadCount() <= 2 * BURST_SIZE + 2 * MessagesListDiff.EDGE_CHECK);
+        }
+        assertTrue(Arrays.equals(MessagesListDiff.snapshot(messages), snapshot));
+    }
+
+    private static MockMessagesList messages(int count) {
+        MockConversation conversation = new MockConversation(1);
+        MockMessagesList messages = (MockMessagesList) conversation.getMessages();
+        messages.setMessages(count);
+        return messages;
+    }
+
+    private static String[] ids(int from, int to) {
+        String[] ids = new String[to - from];
+        for (int i = from; i < to; i++) {
+            ids[i - from] = Integer.toString(i);
+        }
+        return ids;
+    }
+}
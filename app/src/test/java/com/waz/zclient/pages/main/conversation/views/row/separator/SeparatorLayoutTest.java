@@ -0,0 +1,235 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.main.conversation.views.row.separator;
+
+import android.os.Handler;
+import com.waz.api.Message;
+import com.waz.api.User;
+import com.waz.zclient.pages.main.conversation.MessagesListDiff;
+import com.waz.zclient.testutils.MockConversation;
+import com.waz.zclient.testutils.MockMessagesList;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.threeten.bp.Instant;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SeparatorLayoutTest {
+
+    private static final int BURST_TIME_INTERVAL = 1800;
+
+    private SeparatorLayout separatorLayout;
+    private User[] users;
+    private String[] messageIds;
+
+    @Before
+    public void setup() {
+        Executor directExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        Handler handler = mock(Handler.class);
+        when(handler.post(any(Runnable.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                invocation.getArgumentAt(0, Runnable.class).run();
+                return true;
+            }
+        });
+        separatorLayout = new SeparatorLayout(BURST_TIME_INTERVAL, directExecutor, handler);
+        messageIds = MessagesListDiff.emptySnapshot();
+
+        users = new User[3];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = mock(User.class);
+            when(users[i].getId()).thenReturn("user" + i);
+        }
+    }
+
+    @Test
+    public void precomputedFlagsMatchRules() {
+        MockMessagesList messages = createMessages(500);
+        update(messages, null, 0);
+
+        assertFlagsMatchRules(messages, 0);
+    }
+
+    @Test
+    public void appendedMessagesGetFlags() {
+        MockMessagesList messages = createMessages(100);
+        update(messages, null, 0);
+
+        for (int i = 0; i < 20; i++) {
+            messages.addExtraMessage(false);
+            decorate(messages, messages.size() - 1);
+        }
+        update(messages, null, 0);
+
+        assertFlagsMatchRules(messages, 0);
+    }
+
+    @Test
+    public void prependedHistoryGetsFlags() {
+        MockMessagesList messages = createMessages(100);
+        update(messages, null, 0);
+
+        messages.addOlderMessages(30);
+        for (int position = 0; position < 30; position++) {
+            decorate(messages, position);
+        }
+        update(messages, null, 0);
+
+        assertFlagsMatchRules(messages, 0);
+    }
+
+    @Test
+    public void removedMessageUpdatesFollowingRow() {
+        MockMessagesList messages = createMessages(100);
+        update(messages, null, 0);
+
+        messages.removeMessage(40);
+        update(messages, null, 0);
+
+        assertFlagsMatchRules(messages, 0);
+    }
+
+    @Test
+    public void sentMessageTimeChangeIsPickedUp() {
+        MockMessagesList messages = createMessages(100);
+        update(messages, null, 0);
+
+        // the server time of a sent message lands on the next day, same message id
+        messages.getMockMessage(99).setTime(Instant.ofEpochSecond(3 * 86400L));
+        update(messages, null, 0);
+
+        assertFlagsMatchRules(messages, 0);
+    }
+
+    @Test
+    public void passDoesNotReadTheListOffTheMainThread() {
+        final MockMessagesList messages = createMessages(100);
+        final List<Runnable> background = new ArrayList<>();
+        Handler handler = mock(Handler.class);
+        when(handler.post(any(Runnable.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                invocation.getArgumentAt(0, Runnable.class).run();
+                return true;
+            }
+        });
+        separatorLayout = new SeparatorLayout(BURST_TIME_INTERVAL, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                background.add(command);
+            }
+        }, handler);
+
+        update(messages, null, 0);
+        messages.removeMessage(99);
+        for (Runnable runnable : background) {
+            runnable.run();
+        }
+        background.clear();
+
+        // the pass of the removed message is published, but the next update drops it
+        update(messages, null, 0);
+        for (Runnable runnable : background) {
+            runnable.run();
+        }
+        assertFlagsMatchRules(messages, 0);
+    }
+
+    @Test
+    public void unreadDotFollowsLastReadMessage() {
+        MockMessagesList messages = createMessages(100);
+        Message lastRead = messages.get(49);
+        update(messages, lastRead, 50);
+
+        Separator separator = new Separator(messages.get(49), messages.get(50), lastRead);
+        int flags = separatorLayout.getFlags(50, messages.get(50), separator, 50);
+        assertTrue(SeparatorLayout.hasFlag(flags, SeparatorLayout.FLAG_UNREAD_DOT));
+
+        assertFlagsMatchRules(messages, 50);
+    }
+
+    @Test
+    public void appendReadsOnlyTheNewMessages() {
+        MockMessagesList messages = createMessages(10000);
+        update(messages, null, 0);
+
+        for (int i = 0; i < 50; i++) {
+            messages.addExtraMessage(false);
+            decorate(messages, messages.size() - 1);
+        }
+        MessagesListDiff diff = MessagesListDiff.calculate(messageIds, messages);
+        messageIds = diff.getIds();
+        messages.takeReadCount();
+        separatorLayout.update(messages, diff, null, 0);
+
+        assertEquals(50, messages.takeReadCount());
+        assertFlagsMatchRules(messages, 0);
+    }
+
+    private void update(MockMessagesList messages, Message lastRead, int unreadCount) {
+        MessagesListDiff diff = MessagesListDiff.calculate(messageIds, messages);
+        messageIds = diff.getIds();
+        separatorLayout.update(messages, diff, lastRead, unreadCount);
+    }
+
+    private void assertFlagsMatchRules(MockMessagesList messages, int unreadCount) {
+        Separator separator = new Separator();
+        for (int position = 0; position < messages.size(); position++) {
+            Message message = messages.get(position);
+            Message lastRead = unreadCount > 0 ? messages.get(messages.size() - 1 - unreadCount) : null;
+            separator.set(position == 0 ? null : messages.get(position - 1), message, lastRead);
+            assertEquals("Flags at position " + position,
+                         SeparatorLayout.computeFlags(message, separator, BURST_TIME_INTERVAL, unreadCount),
+                         separatorLayout.getFlags(position, message, separator, unreadCount));
+        }
+    }
+
+    private MockMessagesList createMessages(int count) {
+        MockConversation conversation = new MockConversation(1);
+        MockMessagesList messages = (MockMessagesList) conversation.getMessages();
+        messages.setMessages(count);
+        for (int position = 0; position < count; position++) {
+            decorate(messages, position);
+        }
+        return messages;
+    }
+
+    private void decorate(MockMessagesList messages, int position) {
+        MockMessagesList.MockMessage message = messages.getMockMessage(position);
+        message.setMessageType(position % 7 == 0 ? Message.Type.ASSET : Message.Type.TEXT);
+        message.setUser(users[(position / 3) % users.length]);
+        // A new burst every 10 messages, a new day every 100
+        message.setTime(Instant.ofEpochSecond(position * 60L + (position / 10) * 3600L + (position / 100) * 86400L));
+    }
+}
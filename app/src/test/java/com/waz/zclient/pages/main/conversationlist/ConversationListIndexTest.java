@@ -0,0 +1,111 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.main.conversationlist;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class ConversationListIndexTest {
+
+    @Test
+    public void positionsAreLookedUpById() {
+        ConversationListIndex index = new ConversationListIndex(ids("a", "b", "c"), ids("x", "y"));
+
+        assertEquals(2, index.getPosition("c"));
+        assertEquals(ConversationListIndex.NO_POSITION, index.getPosition("x"));
+        assertEquals(1, index.getArchivedPosition("y"));
+        assertEquals(ConversationListIndex.NO_POSITION, index.getArchivedPosition("a"));
+    }
+
+    @Test
+    public void unchangedOrderHasNoReordering() {
+        ConversationListIndex oldIndex = new ConversationListIndex(ids("a", "b", "c"), ids("x"));
+        ConversationListIndex newIndex = new ConversationListIndex(ids("a", "b", "c"), ids("x"));
+
+        ConversationListIndex.Diff diff = ConversationListIndex.diff(oldIndex, newIndex);
+
+        assertFalse(diff.hasReordering());
+        assertFalse(diff.isArchiveChanged());
+    }
+
+    @Test
+    public void conversationMovingToTheTopIsOneMove() {
+        ConversationListIndex oldIndex = new ConversationListIndex(ids("a", "b", "c", "d"), ids());
+        ConversationListIndex newIndex = new ConversationListIndex(ids("d", "a", "b", "c"), ids());
+
+        ConversationListIndex.Diff diff = ConversationListIndex.diff(oldIndex, newIndex);
+
+        assertTrue(diff.hasReordering());
+        assertEquals(1, diff.getMovedCount());
+        assertEquals(0, diff.getInsertedCount());
+        assertEquals(0, diff.getRemovedCount());
+    }
+
+    @Test
+    public void archivingAndUnarchivingAreReported() {
+        ConversationListIndex oldIndex = new ConversationListIndex(ids("a", "b", "c"), ids("x"));
+        ConversationListIndex newIndex = new ConversationListIndex(ids("x", "a", "c", "n"), ids("b"));
+
+        ConversationListIndex.Diff diff = ConversationListIndex.diff(oldIndex, newIndex);
+
+        assertEquals(0, diff.getMovedCount());
+        assertEquals(1, diff.getArchivedCount());
+        assertEquals(1, diff.getUnarchivedCount());
+        assertEquals(1, diff.getInsertedCount());
+        assertTrue(diff.isArchiveChanged());
+    }
+
+    @Test
+    public void removedConversationsAreReported() {
+        ConversationListIndex oldIndex = new ConversationListIndex(ids("a", "b", "c"), ids());
+        ConversationListIndex newIndex = new ConversationListIndex(ids("a", "c"), ids());
+
+        ConversationListIndex.Diff diff = ConversationListIndex.diff(oldIndex, newIndex);
+
+        assertEquals(1, diff.getRemovedCount());
+        assertEquals(0, diff.getMovedCount());
+    }
+
+    @Test
+    public void longestIncreasingRun() {
+        assertEquals(0, ConversationListIndex.longestIncreasingRun(new int[0], 0));
+        assertEquals(4, ConversationListIndex.longestIncreasingRun(new int[] {3, 0, 1, 2, 4}, 5));
+        assertEquals(1, ConversationListIndex.longestIncreasingRun(new int[] {4, 3, 2, 1}, 4));
+    }
+
+    @Test
+    public void conversationsOutsideTheLongestUnmovedRunAreMoves() {
+        ConversationListIndex oldIndex = new ConversationListIndex(ids("a", "b", "c", "d", "e"), ids());
+
+        ConversationListIndex.Diff swapped = ConversationListIndex.diff(oldIndex,
+            new ConversationListIndex(ids("b", "a", "d", "c", "e"), ids()));
+        ConversationListIndex.Diff reversed = ConversationListIndex.diff(oldIndex,
+            new ConversationListIndex(ids("e", "d", "c", "b", "a"), ids()));
+
+        assertEquals(2, swapped.getMovedCount());
+        assertEquals(4, reversed.getMovedCount());
+        assertFalse(reversed.isArchiveChanged());
+    }
+
+    private static String[] ids(String... ids) {
+        return ids;
+    }
+}
@@ -0,0 +1,311 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.main.participants.views;
+
+import android.os.Handler;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class ParticipantsGridModelTest {
+
+    private final List<ParticipantsGridModel.Snapshot<String>> snapshots = new ArrayList<>();
+    private final List<List<ParticipantsGridModel.Change>> changes = new ArrayList<>();
+    private final List<Runnable> queuedTasks = new ArrayList<>();
+    private boolean queueTasks;
+    private ParticipantsGridModel<String> model;
+
+    @Before
+    public void setUp() {
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                if (queueTasks) {
+                    queuedTasks.add(command);
+                } else {
+                    command.run();
+                }
+            }
+        };
+        Handler handler = new Handler() {
+            @Override
+            public boolean post(Runnable r) {
+                r.run();
+                return true;
+            }
+        };
+        model = new ParticipantsGridModel<>(executor, handler, new ParticipantsGridModel.Listener<String>() {
+            @Override
+            public void onSnapshot(ParticipantsGridModel.Snapshot<String> snapshot, List<ParticipantsGridModel.Change> changes) {
+                snapshots.add(snapshot);
+                ParticipantsGridModelTest.this.changes.add(changes);
+            }
+        });
+    }
+
+    @Test
+    public void noParticipantsProduceNoSnapshot() {
+        model.setParticipants(new ArrayList<ParticipantsGridModel.Participant<String>>());
+
+        assertTrue(snapshots.isEmpty());
+    }
+
+    @Test
+    public void unverifiedParticipantsComeFirstWithoutSeparator() {
+        model.setParticipants(participants(7, false, 0));
+
+        ParticipantsGridModel.Snapshot<String> snapshot = lastSnapshot();
+        assertEquals(7, snapshot.getCount());
+        assertEquals(-1, snapshot.getSeparatorPosition());
+        for (int i = 0; i < 7; i++) {
+            assertEquals(ParticipantsGridModel.VIEW_TYPE_CHATHEAD, snapshot.getItemViewType(i));
+            assertEquals(Integer.toString(i), snapshot.getItem(i));
+        }
+    }
+
+    @Test
+    public void verifiedParticipantsFollowTheSeparator() {
+        List<ParticipantsGridModel.Participant<String>> participants = participants(7, true, 0);
+        participants.addAll(participants(7, false, 7));
+        model.setParticipants(participants);
+
+        ParticipantsGridModel.Snapshot<String> snapshot = lastSnapshot();
+        assertEquals(15, snapshot.getCount());
+        assertEquals(7, snapshot.getSeparatorPosition());
+        assertEquals("7", snapshot.getItem(0));
+        assertEquals("13", snapshot.getItem(6));
+        assertEquals(ParticipantsGridModel.VIEW_TYPE_SEPARATOR, snapshot.getItemViewType(7));
+        assertNull(snapshot.getItem(7));
+        assertEquals("0", snapshot.getItem(8));
+        assertEquals("6", snapshot.getItem(14));
+    }
+
+    @Test
+    public void verificationChangeMovesOnlyThatParticipant() {
+        model.setParticipants(participants(10, false, 0));
+        model.updateParticipant(new ParticipantsGridModel.Participant<>("4", true, "4"));
+
+        ParticipantsGridModel.Snapshot<String> snapshot = lastSnapshot();
+        assertEquals(11, snapshot.getCount());
+        assertEquals(9, snapshot.getSeparatorPosition());
+        assertEquals("5", snapshot.getItem(4));
+        assertEquals("4", snapshot.getItem(10));
+
+        assertChanges("inserted 10", "moved 4 10");
+        assertChangesLeadToLastSnapshot();
+
+        model.updateParticipant(new ParticipantsGridModel.Participant<>("2", true, "2"));
+        snapshot = lastSnapshot();
+        assertEquals(8, snapshot.getSeparatorPosition());
+        assertEquals("2", snapshot.getItem(9));
+        assertEquals("4", snapshot.getItem(10));
+        assertChanges("moved 2 9");
+        assertChangesLeadToLastSnapshot();
+    }
+
+    @Test
+    public void unverifiedParticipantReturnsToItsPlace() {
+        List<ParticipantsGridModel.Participant<String>> participants = participants(3, false, 0);
+        participants.addAll(participants(3, true, 3));
+        model.setParticipants(participants);
+        model.updateParticipant(new ParticipantsGridModel.Participant<>("4", false, "4"));
+
+        ParticipantsGridModel.Snapshot<String> snapshot = lastSnapshot();
+        assertEquals("4", snapshot.getItem(3));
+        assertEquals(4, snapshot.getSeparatorPosition());
+        assertEquals("3", snapshot.getItem(5));
+        assertEquals("5", snapshot.getItem(6));
+        assertChanges("moved 5 3");
+        assertChangesLeadToLastSnapshot();
+    }
+
+    @Test
+    public void lastVerifiedParticipantTakesTheSeparatorAlong() {
+        List<ParticipantsGridModel.Participant<String>> participants = participants(3, false, 0);
+        participants.addAll(participants(1, true, 3));
+        model.setParticipants(participants);
+        model.updateParticipant(new ParticipantsGridModel.Participant<>("3", false, "3"));
+
+        assertEquals(-1, lastSnapshot().getSeparatorPosition());
+        assertEquals(4, lastSnapshot().getCount());
+        assertChanges("moved 4 3", "removed 4");
+        assertChangesLeadToLastSnapshot();
+    }
+
+    @Test
+    public void unknownAndUnchangedUpdatesAreIgnored() {
+        List<ParticipantsGridModel.Participant<String>> participants = participants(5, false, 0);
+        model.setParticipants(participants);
+        int published = snapshots.size();
+
+        model.updateParticipant(new ParticipantsGridModel.Participant<>("42", true, "42"));
+        model.setParticipants(participants);
+
+        assertEquals(published, snapshots.size());
+    }
+
+    @Test
+    public void sameOrderAppliesChangesInPlace() {
+        List<ParticipantsGridModel.Participant<String>> participants = participants(5, false, 0);
+        model.setParticipants(participants);
+
+        participants = participants(5, false, 0);
+        participants.set(1, new ParticipantsGridModel.Participant<>("1", false, "renamed"));
+        model.setParticipants(participants);
+
+        assertEquals("renamed", lastSnapshot().getItem(1));
+        assertChanges("changed 1");
+    }
+
+    @Test
+    public void joinedAndLeftParticipantsAreInsertedAndRemoved() {
+        List<ParticipantsGridModel.Participant<String>> participants = participants(4, false, 0);
+        participants.addAll(participants(2, true, 4));
+        model.setParticipants(participants);
+
+        participants.remove(5);
+        participants.remove(1);
+        participants.add(2, new ParticipantsGridModel.Participant<>("new", true, "new"));
+        model.setParticipants(participants);
+
+        assertChanges("removed 6", "removed 1", "inserted 4");
+        assertChangesLeadToLastSnapshot();
+        assertEquals(3, lastSnapshot().getSeparatorPosition());
+        assertEquals("new", lastSnapshot().getItem(4));
+        assertEquals("4", lastSnapshot().getItem(5));
+    }
+
+    @Test
+    public void reorderedParticipantsResetTheGrid() {
+        model.setParticipants(participants(3, false, 0));
+
+        List<ParticipantsGridModel.Participant<String>> participants = participants(3, false, 0);
+        participants.add(participants.remove(0));
+        model.setParticipants(participants);
+
+        assertChanges("reset");
+        assertEquals("1", lastSnapshot().getItem(0));
+        assertEquals("0", lastSnapshot().getItem(2));
+    }
+
+    @Test
+    public void queuedDeltasArePublishedTogether() {
+        queueTasks = true;
+        model.setParticipants(participants(10, false, 0));
+        for (int i = 0; i < 5; i++) {
+            model.updateParticipant(new ParticipantsGridModel.Participant<>(Integer.toString(i), true, Integer.toString(i)));
+        }
+        assertEquals(1, queuedTasks.size());
+        queuedTasks.get(0).run();
+
+        assertEquals(1, snapshots.size());
+        assertEquals(5, lastSnapshot().getSeparatorPosition());
+    }
+
+    @Test
+    public void changesOfQueuedDeltasApplyInOrder() {
+        queueTasks = true;
+        model.setParticipants(participants(6, false, 0));
+        queuedTasks.remove(0).run();
+        model.updateParticipant(new ParticipantsGridModel.Participant<>("1", true, "1"));
+        model.updateParticipant(new ParticipantsGridModel.Participant<>("4", true, "4"));
+        model.updateParticipant(new ParticipantsGridModel.Participant<>("1", false, "one"));
+        queuedTasks.remove(0).run();
+
+        assertChanges("inserted 6", "moved 1 6", "moved 3 6", "moved 5 1", "changed 1");
+        assertChangesLeadToLastSnapshot();
+    }
+
+    private ParticipantsGridModel.Snapshot<String> lastSnapshot() {
+        return snapshots.get(snapshots.size() - 1);
+    }
+
+    private void assertChanges(String... expected) {
+        List<String> actual = new ArrayList<>();
+        for (ParticipantsGridModel.Change change : changes.get(changes.size() - 1)) {
+            switch (change.getType()) {
+                case ParticipantsGridModel.Change.TYPE_CHANGED:
+                    actual.add("changed " + change.getPosition());
+                    break;
+                case ParticipantsGridModel.Change.TYPE_INSERTED:
+                    actual.add("inserted " + change.getPosition());
+                    break;
+                case ParticipantsGridModel.Change.TYPE_REMOVED:
+                    actual.add("removed " + change.getPosition());
+                    break;
+                case ParticipantsGridModel.Change.TYPE_MOVED:
+                    actual.add("moved " + change.getPosition() + " " + change.getToPosition());
+                    break;
+                default:
+                    actual.add("reset");
+                    break;
+            }
+        }
+        assertEquals(Arrays.asList(expected), actual);
+    }
+
+    /**
+     * Replays the last changes on the ids of the previous snapshot like the recycler view applies notifications.
+     */
+    private void assertChangesLeadToLastSnapshot() {
+        ParticipantsGridModel.Snapshot<String> previous = snapshots.get(snapshots.size() - 2);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < previous.getCount(); i++) {
+            ids.add(previous.getId(i));
+        }
+        ParticipantsGridModel.Snapshot<String> snapshot = lastSnapshot();
+        for (ParticipantsGridModel.Change change : changes.get(changes.size() - 1)) {
+            switch (change.getType()) {
+                case ParticipantsGridModel.Change.TYPE_INSERTED:
+                    ids.add(change.getPosition(), null);
+                    break;
+                case ParticipantsGridModel.Change.TYPE_REMOVED:
+                    ids.remove(change.getPosition());
+                    break;
+                case ParticipantsGridModel.Change.TYPE_MOVED:
+                    ids.add(change.getToPosition(), ids.remove(change.getPosition()));
+                    break;
+                default:
+                    break;
+            }
+        }
+        assertEquals(snapshot.getCount(), ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) != null) {
+                assertEquals(snapshot.getId(i), ids.get(i));
+            }
+        }
+    }
+
+    private static List<ParticipantsGridModel.Participant<String>> participants(int count, boolean verified, int start) {
+        List<ParticipantsGridModel.Participant<String>> participants = new ArrayList<>();
+        for (int i = start; i < start + count; i++) {
+            String id = Integer.toString(i);
+            participants.add(new ParticipantsGridModel.Participant<>(id, verified, id));
+        }
+        return participants;
+    }
+}
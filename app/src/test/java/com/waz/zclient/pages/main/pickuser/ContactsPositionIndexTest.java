@@ -0,0 +1,79 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.main.pickuser;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class ContactsPositionIndexTest {
+
+    @Test
+    public void emptyContactsHaveNoRows() {
+        ContactsPositionIndex index = ContactsPositionIndex.build(new String[0], new int[0]);
+
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void initialsAreFollowedByTheirContacts() {
+        ContactsPositionIndex index = ContactsPositionIndex.build(new String[] {"A", "B", "C"}, new int[] {2, 0, 1});
+
+        assertEquals(6, index.size());
+
+        assertTrue(index.isInitial(0));
+        assertEquals("A", index.getInitial(0));
+        assertEquals(-1, index.getContactPosition(0));
+
+        assertFalse(index.isInitial(2));
+        assertEquals("A", index.getInitial(2));
+        assertEquals(1, index.getContactPosition(2));
+
+        assertTrue("An initial without contacts still has a row", index.isInitial(3));
+        assertEquals("B", index.getInitial(3));
+
+        assertTrue(index.isInitial(4));
+        assertEquals(2, index.getInitialIndex(5));
+        assertEquals(0, index.getContactPosition(5));
+    }
+
+    @Test
+    public void packedRowsKeepOffsetsAndInitialsBeyondSixteenBits() {
+        String[] initials = new String[300];
+        int[] counts = new int[initials.length];
+        for (int i = 0; i < initials.length; i++) {
+            initials[i] = "#" + i;
+        }
+        counts[0] = 70000;
+        counts[initials.length - 1] = 1;
+
+        ContactsPositionIndex index = ContactsPositionIndex.build(initials, counts);
+
+        assertEquals(70000 + 1 + initials.length, index.size());
+        assertEquals(69999, index.getContactPosition(70000));
+        assertEquals("#0", index.getInitial(70000));
+        assertTrue(index.isInitial(70001));
+        assertEquals(1, index.getInitialIndex(70001));
+        int last = index.size() - 1;
+        assertFalse(index.isInitial(last));
+        assertEquals(initials.length - 1, index.getInitialIndex(last));
+        assertEquals(0, index.getContactPosition(last));
+    }
+}
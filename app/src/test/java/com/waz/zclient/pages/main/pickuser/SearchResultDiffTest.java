@@ -0,0 +1,84 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.pages.main.pickuser;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class SearchResultDiffTest {
+
+    @Test
+    public void identicalKeysProduceEmptyDiff() {
+        long[] keys = {1, 2, 3};
+
+        assertTrue(SearchResultDiff.calculate(keys, new int[3], 3, new long[] {1, 2, 3, 99}, new int[4], 3).isEmpty());
+    }
+
+    @Test
+    public void insertedRowsAreReportedAsRange() {
+        SearchResultDiff diff = SearchResultDiff.calculate(new long[] {1, 2, 5}, new int[3], 3,
+                                                           new long[] {1, 2, 3, 4, 5}, new int[5], 5);
+
+        assertEquals(2, diff.getStart());
+        assertEquals(0, diff.getChangedCount());
+        assertEquals(2, diff.getInsertedCount());
+        assertEquals(0, diff.getRemovedCount());
+    }
+
+    @Test
+    public void removedRowsAreReportedAsRange() {
+        SearchResultDiff diff = SearchResultDiff.calculate(new long[] {1, 2, 3, 4}, new int[4], 4,
+                                                           new long[] {1, 4}, new int[2], 2);
+
+        assertEquals(1, diff.getStart());
+        assertEquals(2, diff.getRemovedCount());
+        assertEquals(0, diff.getInsertedCount());
+    }
+
+    @Test
+    public void replacedRowsAreReportedAsChanged() {
+        SearchResultDiff diff = SearchResultDiff.calculate(new long[] {1, 2, 3, 4}, new int[4], 4,
+                                                           new long[] {1, 7, 8, 9, 4}, new int[5], 5);
+
+        assertEquals(1, diff.getStart());
+        assertEquals(2, diff.getChangedCount());
+        assertEquals(1, diff.getInsertedCount());
+    }
+
+    @Test
+    public void rowsWithSameKeyButNewContentAreReportedAsChanged() {
+        long[] keys = {1, 2, 3};
+        SearchResultDiff diff = SearchResultDiff.calculate(keys, new int[] {10, 20, 30}, 3,
+                                                           keys, new int[] {10, 21, 30}, 3);
+
+        assertEquals(1, diff.getStart());
+        assertEquals(1, diff.getChangedCount());
+        assertEquals(0, diff.getInsertedCount());
+        assertEquals(0, diff.getRemovedCount());
+    }
+
+    @Test
+    public void firstUpdateInsertsEverything() {
+        SearchResultDiff diff = SearchResultDiff.calculate(new long[0], new int[0], 0, new long[] {1, 2}, new int[2], 2);
+
+        assertEquals(0, diff.getStart());
+        assertEquals(2, diff.getInsertedCount());
+    }
+}
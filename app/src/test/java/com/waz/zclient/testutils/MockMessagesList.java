@@ -38,6 +38,7 @@ public class MockMessagesList extends MockObservable implements MessagesList {
 
     private List<MockMessage> mockMessages = new ArrayList<>();
     private int lastReadIndex = -1;
+    private int reads;
 
     private MockConversation conversation;
 
@@ -73,6 +74,7 @@ public class MockMessagesList extends MockObservable implements MessagesList {
 
     @Override
     public Message get(int position) {
+        reads++;
         return mockMessages.get(position);
     }
 
@@ -108,6 +110,34 @@ public class MockMessagesList extends MockObservable implements MessagesList {
         triggerInternalUpdate();
     }
 
+    public void addOlderMessages(int count) {
+        for (int i = 0; i < count; i++) {
+            mockMessages.add(0, new MockMessage(-mockMessages.size() - 1));
+        }
+        if (lastReadIndex >= 0) {
+            lastReadIndex += count;
+        }
+        triggerInternalUpdate();
+    }
+
+    public void removeMessage(int position) {
+        mockMessages.remove(position);
+        triggerInternalUpdate();
+    }
+
+    /**
+     * @return how many times a message was read through {@link #get(int)} since the last call
+     */
+    public int takeReadCount() {
+        int count = reads;
+        reads = 0;
+        return count;
+    }
+
+    public MockMessage getMockMessage(int position) {
+        return mockMessages.get(position);
+    }
+
     public void setLastReadMessageIndex(int index) {
         if (index < 0 || index >= mockMessages.size()) {
             throw new IllegalArgumentException("The last read message needs to exist!");
@@ -118,10 +148,26 @@ public class MockMessagesList extends MockObservable implements MessagesList {
     @SuppressLint("ParcelCreator")
     public static class MockMessage extends MockObservable implements Message {
 
+        private Type messageType;
+        private User user;
+        private Instant time;
+
         public MockMessage(int id) {
             super(id);
         }
 
+        public void setMessageType(Type messageType) {
+            this.messageType = messageType;
+        }
+
+        public void setUser(User user) {
+            this.user = user;
+        }
+
+        public void setTime(Instant time) {
+            this.time = time;
+        }
+
         @Override
         public Part[] getParts() {
             return new Part[0];
@@ -144,7 +190,7 @@ public class MockMessagesList extends MockObservable implements MessagesList {
 
         @Override
         public Type getMessageType() {
-            return null;
+            return messageType;
         }
 
         @Override
@@ -154,7 +200,7 @@ public class MockMessagesList extends MockObservable implements MessagesList {
 
         @Override
         public User getUser() {
-            return null;
+            return user;
         }
 
         @Override
@@ -179,7 +225,7 @@ public class MockMessagesList extends MockObservable implements MessagesList {
 
         @Override
         public Instant getTime() {
-            return null;
+            return time;
         }
 
         @Override
@@ -29,6 +29,8 @@ public class MockObservable implements UiObservable, Comparable<MockObservable>
     protected final int id;
 
     Set<UpdateListener> updateListeners = new HashSet<>();
+    private int listenersAdded;
+    private int listenersRemoved;
 
     public MockObservable(int id) {
         this.id = id;
@@ -44,12 +46,26 @@ public class MockObservable implements UiObservable, Comparable<MockObservable>
     public void addUpdateListener(UpdateListener listener) {
         Timber.d("%s: addUpdateListener", this);
         updateListeners.add(listener);
+        listenersAdded++;
     }
 
     @Override
     public void removeUpdateListener(UpdateListener listener) {
         Timber.d("%s: removeUpdateListener", this);
         updateListeners.remove(listener);
+        listenersRemoved++;
+    }
+
+    public int getListenerCount() {
+        return updateListeners.size();
+    }
+
+    public int getListenersAdded() {
+        return listenersAdded;
+    }
+
+    public int getListenersRemoved() {
+        return listenersRemoved;
     }
 
     @Override
@@ -0,0 +1,188 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.ui.sketch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class SketchCheckpointsTest {
+
+    private static final int INTERVAL = 32;
+
+    private List<String> recycled;
+    private SketchCheckpoints<String> checkpoints;
+    private long renderedItems;
+    private final SketchCheckpoints.Renderer<String> renderer = new SketchCheckpoints.Renderer<String>() {
+        @Override
+        public String render(SketchCheckpoints.Checkpoint<String> from, int index) {
+            int fromIndex = from == null ? 0 : from.getIndex();
+            renderedItems += index - fromIndex;
+            return fromIndex + "-" + index;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        recycled = new ArrayList<>();
+        checkpoints = new SketchCheckpoints<>(INTERVAL, new SketchCheckpoints.Recycler<String>() {
+            @Override
+            public void recycle(String data) {
+                recycled.add(data);
+            }
+        });
+        checkpoints.setMaxCount(4);
+    }
+
+    @Test
+    public void checkpointIsTakenEveryInterval() {
+        checkpoints.update(INTERVAL - 1, renderer);
+        assertEquals(0, checkpoints.size());
+
+        checkpoints.update(INTERVAL, renderer);
+        assertEquals(1, checkpoints.size());
+        assertEquals("0-32", checkpoints.last().getData());
+
+        checkpoints.update(2 * INTERVAL - 1, renderer);
+        assertEquals(1, checkpoints.size());
+
+        checkpoints.update(2 * INTERVAL, renderer);
+        assertEquals("32-64", checkpoints.last().getData());
+    }
+
+    @Test
+    public void noCheckpointsWithoutBudget() {
+        checkpoints.setMaxCount(0);
+
+        checkpoints.update(INTERVAL, renderer);
+        checkpoints.add(INTERVAL, "a");
+
+        assertEquals(0, checkpoints.size());
+        assertEquals(1, recycled.size());
+    }
+
+    @Test
+    public void onlyCheckpointsWithinBudgetAreRendered() {
+        checkpoints.update(10 * INTERVAL + 5, renderer);
+
+        assertEquals(4, checkpoints.size());
+        assertEquals("0-224", checkpoints.findAtOrBefore(7 * INTERVAL).getData());
+        assertEquals("288-320", checkpoints.last().getData());
+        assertTrue(recycled.isEmpty());
+    }
+
+    @Test
+    public void checkpointsAreRenderedAgainAfterUndoingPastThem() {
+        checkpoints.update(6 * INTERVAL, renderer);
+        checkpoints.dropAfter(2 * INTERVAL + 1);
+        assertEquals(0, checkpoints.size());
+
+        checkpoints.update(2 * INTERVAL + 1, renderer);
+
+        assertEquals(2, checkpoints.size());
+        assertEquals("0-32", checkpoints.findAtOrBefore(INTERVAL).getData());
+        assertEquals("32-64", checkpoints.last().getData());
+    }
+
+    @Test
+    public void renderingStopsWhenSnapshotFails() {
+        checkpoints.update(3 * INTERVAL, new SketchCheckpoints.Renderer<String>() {
+            @Override
+            public String render(SketchCheckpoints.Checkpoint<String> from, int index) {
+                return index > INTERVAL ? null : renderer.render(from, index);
+            }
+        });
+
+        assertEquals(1, checkpoints.size());
+    }
+
+    @Test
+    public void findsLatestCheckpointWithinLimit() {
+        checkpoints.add(32, "a");
+        checkpoints.add(64, "b");
+        checkpoints.add(96, "c");
+
+        assertNull(checkpoints.findAtOrBefore(31));
+        assertEquals("a", checkpoints.findAtOrBefore(63).getData());
+        assertEquals("b", checkpoints.findAtOrBefore(64).getData());
+        assertEquals("c", checkpoints.findAtOrBefore(1000).getData());
+    }
+
+    @Test
+    public void oldestCheckpointIsEvictedOverBudget() {
+        for (int i = 1; i <= 5; i++) {
+            checkpoints.add(i * INTERVAL, "c" + i);
+        }
+
+        assertEquals(4, checkpoints.size());
+        assertEquals(1, recycled.size());
+        assertEquals("c1", recycled.get(0));
+        assertNull(checkpoints.findAtOrBefore(2 * INTERVAL - 1));
+
+        checkpoints.setMaxCount(2);
+        assertEquals(2, checkpoints.size());
+        assertEquals("c4", checkpoints.findAtOrBefore(4 * INTERVAL).getData());
+    }
+
+    @Test
+    public void undoDropsCheckpointsBeyondHistory() {
+        checkpoints.add(32, "a");
+        checkpoints.add(64, "b");
+
+        checkpoints.dropAfter(64);
+        assertEquals(2, checkpoints.size());
+
+        checkpoints.dropAfter(63);
+        assertEquals(1, checkpoints.size());
+        assertEquals("b", recycled.get(0));
+    }
+
+    @Test
+    public void removedItemShiftsLaterCheckpoints() {
+        checkpoints.add(32, "a");
+        checkpoints.add(64, "b");
+
+        checkpoints.onItemRemoved(40);
+
+        assertEquals(32, checkpoints.findAtOrBefore(62).getIndex());
+        assertEquals(63, checkpoints.findAtOrBefore(63).getIndex());
+    }
+
+    @Test
+    public void undoReplaysFromTheNearestCheckpointWithoutRendering() {
+        checkpoints.update(3 * INTERVAL + 5, renderer);
+        renderedItems = 0;
+
+        checkpoints.dropAfter(3 * INTERVAL + 4);
+        checkpoints.update(3 * INTERVAL + 4, renderer);
+        assertEquals(3 * INTERVAL, checkpoints.findAtOrBefore(3 * INTERVAL + 4).getIndex());
+
+        checkpoints.dropAfter(3 * INTERVAL - 1);
+        checkpoints.update(3 * INTERVAL - 1, renderer);
+        assertEquals(2 * INTERVAL, checkpoints.findAtOrBefore(3 * INTERVAL - 1).getIndex());
+
+        assertEquals(0, renderedItems);
+        assertEquals("32-64", checkpoints.last().getData());
+    }
+}
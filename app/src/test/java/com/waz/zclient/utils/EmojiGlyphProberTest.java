@@ -0,0 +1,137 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class EmojiGlyphProberTest {
+
+    private static final Executor IMMEDIATE = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private static final EmojiGlyphProber.GlyphCheckerFactory MISSING_IF_ODD = new EmojiGlyphProber.GlyphCheckerFactory() {
+        @Override
+        public EmojiGlyphProber.GlyphChecker create() {
+            return new EmojiGlyphProber.GlyphChecker() {
+                @Override
+                public boolean isMissing(String emoji) {
+                    return Integer.parseInt(emoji) % 2 == 1;
+                }
+            };
+        }
+    };
+
+    @Test
+    public void missingEmojisAreReportedInOrderAcrossChunks() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        final AtomicReference<List<String>> result = new AtomicReference<>();
+        final AtomicInteger callbacks = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        EmojiGlyphProber.probe(emojis(1000), executor, MISSING_IF_ODD, 4, new EmojiGlyphProber.Callback() {
+            @Override
+            public void onProbed(List<String> missing) {
+                callbacks.incrementAndGet();
+                result.set(missing);
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, callbacks.get());
+        assertEquals(500, result.get().size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(Integer.toString(2 * i + 1), result.get().get(i));
+        }
+    }
+
+    @Test
+    public void smallListsAreProbedInOneChunk() {
+        final AtomicInteger checkers = new AtomicInteger();
+        final AtomicReference<List<String>> result = new AtomicReference<>();
+
+        EmojiGlyphProber.probe(emojis(10), IMMEDIATE, new EmojiGlyphProber.GlyphCheckerFactory() {
+            @Override
+            public EmojiGlyphProber.GlyphChecker create() {
+                checkers.incrementAndGet();
+                return MISSING_IF_ODD.create();
+            }
+        }, 8, new EmojiGlyphProber.Callback() {
+            @Override
+            public void onProbed(List<String> missing) {
+                result.set(missing);
+            }
+        });
+
+        assertEquals(1, checkers.get());
+        assertEquals(Arrays.asList("1", "3", "5", "7", "9"), result.get());
+    }
+
+    @Test
+    public void emptyListReportsNothingMissing() {
+        final AtomicReference<List<String>> result = new AtomicReference<>();
+
+        EmojiGlyphProber.probe(new ArrayList<String>(), IMMEDIATE, MISSING_IF_ODD, 4, new EmojiGlyphProber.Callback() {
+            @Override
+            public void onProbed(List<String> missing) {
+                result.set(missing);
+            }
+        });
+
+        assertTrue(result.get().isEmpty());
+    }
+
+    @Test
+    public void hashDistinguishesRenderings() {
+        byte[] blank = new byte[2500];
+        byte[] drawn = new byte[2500];
+        drawn[1234] = (byte) 0xff;
+
+        assertEquals(EmojiGlyphProber.hash(blank), EmojiGlyphProber.hash(new byte[2500]));
+        assertFalse(EmojiGlyphProber.hash(blank) == EmojiGlyphProber.hash(drawn));
+    }
+
+    private static List<String> emojis(int count) {
+        List<String> emojis = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            emojis.add(Integer.toString(i));
+        }
+        return emojis;
+    }
+}
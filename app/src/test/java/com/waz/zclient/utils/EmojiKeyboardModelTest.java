@@ -0,0 +1,104 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class EmojiKeyboardModelTest {
+
+    private static final List<String[]> CATEGORIES = Arrays.asList(new String[] {"a1", "a2", "a3"},
+                                                                   new String[] {"b1", "b2"},
+                                                                   new String[] {"c1"});
+
+    @Test
+    public void keyboardWithoutRecentListsCategoriesSeparatedBySpaces() {
+        EmojiKeyboardModel.Keyboard keyboard = EmojiKeyboardModel.create(CATEGORIES, null).withRecent(null);
+
+        assertEquals(Arrays.asList("a1", "a2", "a3", " ", "b1", "b2", " ", "c1", " "), new ArrayList<>(keyboard));
+        assertEquals(0, keyboard.getCategoryPosition(0));
+        assertEquals(4, keyboard.getCategoryPosition(1));
+        assertEquals(7, keyboard.getCategoryPosition(2));
+        assertTrue(keyboard.isSpace(3));
+        assertFalse(keyboard.isSpace(4));
+    }
+
+    @Test
+    public void recentEmojisComeFirst() {
+        EmojiKeyboardModel.Keyboard keyboard = EmojiKeyboardModel.create(CATEGORIES, null).withRecent(Arrays.asList("b2", "c1"));
+
+        assertEquals(Arrays.asList("b2", "c1", " ", "a1", "a2", "a3", " ", "b1", "b2", " ", "c1", " "),
+                     new ArrayList<>(keyboard));
+        assertEquals(3, keyboard.getCategoryPosition(0));
+        assertEquals(-1, keyboard.getCategoryAt(2));
+        assertEquals(0, keyboard.getCategoryAt(3));
+        assertEquals(0, keyboard.getCategoryAt(6));
+        assertEquals(1, keyboard.getCategoryAt(7));
+        assertEquals(2, keyboard.getCategoryAt(11));
+    }
+
+    @Test
+    public void unsupportedEmojisAreLeftOut() {
+        Set<String> unsupported = new HashSet<>(Arrays.asList("a2", "b1", "b2"));
+        EmojiKeyboardModel.Keyboard keyboard = EmojiKeyboardModel.create(CATEGORIES, unsupported).withRecent(null);
+
+        assertEquals(Arrays.asList("a1", "a3", " ", " ", "c1", " "), new ArrayList<>(keyboard));
+        assertEquals(3, keyboard.getCategoryPosition(1));
+        assertEquals(4, keyboard.getCategoryPosition(2));
+        assertEquals(1, keyboard.getCategoryAt(3));
+        assertEquals(3, keyboard.getModel().getEmojiCount());
+    }
+
+    @Test
+    public void modelIsReusedForTheSameUnsupportedSet() {
+        Set<String> unsupported = Collections.singleton(Emojis.PEOPLE[0]);
+        EmojiKeyboardModel model = EmojiKeyboardModel.get(unsupported);
+
+        assertSame(model, EmojiKeyboardModel.get(unsupported));
+        assertEquals(Emojis.PEOPLE[1], model.withRecent(null).get(0));
+        assertEquals(Emojis.getAllEmojisSortedByCategory().size(), model.getCategoryCount());
+    }
+
+    @Test
+    public void recentEmojisDontRebuildTheModelButANewUnsupportedSetDoes() {
+        Set<String> unsupported = Collections.singleton(Emojis.PEOPLE[0]);
+        EmojiKeyboardModel model = EmojiKeyboardModel.get(unsupported);
+
+        EmojiKeyboardModel.Keyboard first = model.withRecent(Arrays.asList(Emojis.PEOPLE[1]));
+        EmojiKeyboardModel.Keyboard second = EmojiKeyboardModel.get(unsupported).withRecent(Arrays.asList(Emojis.PEOPLE[2],
+                                                                                                          Emojis.PEOPLE[3]));
+        assertSame(first.getModel(), second.getModel());
+        assertEquals(first.size() + 1, second.size());
+        assertEquals(Emojis.PEOPLE[2], second.get(0));
+
+        EmojiKeyboardModel other = EmojiKeyboardModel.get(new HashSet<>(unsupported));
+        assertTrue(other != model);
+        assertEquals(model.getEmojiCount(), other.getEmojiCount());
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.utils;
+
+import android.content.res.Resources;
+import com.waz.zclient.R;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.threeten.bp.Duration;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneId;
+import org.threeten.bp.ZoneOffset;
+import org.threeten.bp.format.DateTimeFormatter;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ZTimeFormatterTest {
+
+    private static final ZoneId TIME_ZONE = ZoneOffset.UTC;
+
+    private Resources resources;
+    private LocalDateTime now;
+
+    @Before
+    public void setup() {
+        ZTimeFormatter.invalidateCache();
+        now = LocalDateTime.of(2016, 9, 15, 14, 30);
+        resources = mock(Resources.class);
+        Answer<String> stringAnswer = new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                Object[] arguments = invocation.getArguments();
+                int id = (Integer) arguments[0];
+                String pattern = pattern(id);
+                if (arguments.length == 1) {
+                    return pattern;
+                }
+                Object[] formatArgs = new Object[arguments.length - 1];
+                System.arraycopy(arguments, 1, formatArgs, 0, formatArgs.length);
+                return String.format(pattern, formatArgs);
+            }
+        };
+        when(resources.getString(anyInt())).thenAnswer(stringAnswer);
+        when(resources.getString(anyInt(), anyVararg())).thenAnswer(stringAnswer);
+        when(resources.getQuantityString(anyInt(), anyInt(), anyVararg())).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                return invocation.getArguments()[2] + " minutes ago";
+            }
+        });
+    }
+
+    @Test
+    public void cachedSeparatorTimeMatchesUncachedFormatting() {
+        for (LocalDateTime then : sampleTimes()) {
+            for (boolean is24HourFormat : new boolean[] {true, false}) {
+                assertEquals(uncachedSeparatorTime(then, is24HourFormat),
+                             ZTimeFormatter.getSeparatorTime(resources, now, then, is24HourFormat, TIME_ZONE, false));
+            }
+        }
+    }
+
+    @Test
+    public void cachedSingleMessageTimeMatchesUncachedFormatting() {
+        for (LocalDateTime then : sampleTimes()) {
+            String pattern = String.format(pattern(R.string.timestamp_pattern__single_message), pattern(R.string.timestamp_pattern__24h_format));
+            assertEquals(DateTimeFormatter.ofPattern(pattern).format(then.atZone(TIME_ZONE)),
+                         ZTimeFormatter.getSingleMessageTimeAndDate(resources, then, true, TIME_ZONE));
+        }
+    }
+
+    @Test
+    public void patternsAndRelativeTimesAreReadFromResourcesOnce() {
+        for (int i = 0; i < 3; i++) {
+            ZTimeFormatter.getSeparatorTime(resources, now, now.minusHours(3), true, TIME_ZONE, false);
+            ZTimeFormatter.getSeparatorTime(resources, now, now.minusMinutes(5), true, TIME_ZONE, false);
+        }
+        verify(resources, times(1)).getString(R.string.timestamp_pattern__24h_format);
+        verify(resources, times(1)).getQuantityString(eq(R.plurals.timestamp__x_minutes_ago), eq(5), anyVararg());
+
+        ZTimeFormatter.invalidateCache();
+        ZTimeFormatter.getSeparatorTime(resources, now, now.minusHours(3), true, TIME_ZONE, false);
+        verify(resources, times(2)).getString(R.string.timestamp_pattern__24h_format);
+    }
+
+    private LocalDateTime[] sampleTimes() {
+        return new LocalDateTime[] {
+            now.minusSeconds(30),
+            now.minusMinutes(5),
+            now.minusMinutes(45),
+            now.minusHours(3),
+            now.minusDays(2),
+            now.minusDays(40),
+            now.minusYears(1)
+        };
+    }
+
+    /**
+     * The formatting as it was done before formatters were cached
+     */
+    private String uncachedSeparatorTime(LocalDateTime then, boolean is24HourFormat) {
+        if (now.minusMinutes(2).isBefore(then)) {
+            return resources.getString(R.string.timestamp__just_now);
+        } else if (now.minusMinutes(60).isBefore(then)) {
+            int minutes = (int) Duration.between(then, now).toMinutes();
+            return resources.getQuantityString(R.plurals.timestamp__x_minutes_ago, minutes, minutes);
+        }
+        String time = resources.getString(is24HourFormat ? R.string.timestamp_pattern__24h_format : R.string.timestamp_pattern__12h_format);
+        String pattern;
+        if (now.toLocalDate().atStartOfDay().isBefore(then)) {
+            pattern = time;
+        } else if (now.getYear() == then.getYear()) {
+            pattern = resources.getString(R.string.timestamp_pattern__date_and_time__no_year, time);
+        } else {
+            pattern = resources.getString(R.string.timestamp_pattern__date_and_time__with_year, time);
+        }
+        return DateTimeFormatter.ofPattern(pattern).format(then.atZone(TIME_ZONE));
+    }
+
+    private static String pattern(int id) {
+        if (id == R.string.timestamp__just_now) {
+            return "just now";
+        } else if (id == R.string.timestamp_pattern__24h_format) {
+            return "HH:mm";
+        } else if (id == R.string.timestamp_pattern__12h_format) {
+            return "h:mm a";
+        } else if (id == R.string.timestamp_pattern__date_and_time__no_year) {
+            return "EEEE, MMMM d, %s";
+        } else if (id == R.string.timestamp_pattern__date_and_time__with_year) {
+            return "MMMM d, yyyy, %s";
+        } else if (id == R.string.timestamp_pattern__single_message) {
+            return "MMMM d, yyyy, %s";
+        }
+        return "";
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.utils.metrics;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    private static final int RECORDING_THREADS = 4;
+    private static final int SAMPLES_PER_THREAD = 10000;
+
+    @Test
+    public void bucketsCoverTheRangeWithoutGaps() {
+        int previous = -1;
+        for (long value = 0; value < 1 << 16; value++) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index == previous || index == previous + 1);
+            assertTrue(value <= LatencyHistogram.highestValueInBucket(index));
+            previous = index;
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(LatencyHistogram.MAX_VALUE_US));
+    }
+
+    @Test
+    public void relativeErrorStaysBelowSubBucketResolution() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            long value = (long) (random.nextDouble() * LatencyHistogram.MAX_VALUE_US);
+            long reported = LatencyHistogram.highestValueInBucket(LatencyHistogram.bucketIndex(value));
+            assertTrue((reported - value) <= value / LatencyHistogram.SUB_BUCKET_COUNT);
+        }
+    }
+
+    @Test
+    public void percentilesOfUniformSamples() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (int i = 1; i <= 1000; i++) {
+            histogram.recordMicros(i * 1000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1000000, snapshot.getMaxMicros());
+        assertEquals(500500, snapshot.getMeanMicros());
+        assertWithin(500000, snapshot.getPercentileMicros(50));
+        assertWithin(990000, snapshot.getPercentileMicros(99));
+        assertEquals(1000000, snapshot.getPercentileMicros(100));
+    }
+
+    @Test
+    public void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        histogram.recordMicros(-5);
+        histogram.recordMicros(LatencyHistogram.MAX_VALUE_US * 10);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(LatencyHistogram.MAX_VALUE_US, histogram.snapshot().getMaxMicros());
+    }
+
+    @Test
+    public void concurrentRecordingKeepsEverySampleInItsBucket() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram("test");
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(RECORDING_THREADS);
+        for (int t = 0; t < RECORDING_THREADS; t++) {
+            final long micros = (t + 1) * 1000;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < SAMPLES_PER_THREAD; i++) {
+                        histogram.recordMicros(micros);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        long samples = (long) RECORDING_THREADS * SAMPLES_PER_THREAD;
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(samples, histogram.getCount());
+        assertEquals(samples, snapshot.getCount());
+        assertEquals(RECORDING_THREADS * 1000, snapshot.getMaxMicros());
+        assertEquals((RECORDING_THREADS + 1) * 500, snapshot.getMeanMicros());
+        assertWithin(1000, snapshot.getPercentileMicros(100.0 / RECORDING_THREADS));
+        assertWithin(2000, snapshot.getPercentileMicros(200.0 / RECORDING_THREADS));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(String.format("expected about %d but was %d", expected, actual),
+                   Math.abs(actual - expected) <= expected / LatencyHistogram.SUB_BUCKET_COUNT);
+    }
+}
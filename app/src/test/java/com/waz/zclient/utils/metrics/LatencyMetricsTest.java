@@ -0,0 +1,159 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.utils.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class LatencyMetricsTest {
+
+    private LatencyMetrics metrics;
+
+    @Before
+    public void setUp() {
+        metrics = new LatencyMetrics();
+    }
+
+    @Test
+    public void measurementsWithDifferentKeysDontOverwriteEachOther() {
+        metrics.start(LatencyMetrics.MESSAGE_SEND_ECHO, "conv1");
+        metrics.start(LatencyMetrics.MESSAGE_SEND_ECHO, "conv2");
+
+        assertTrue(metrics.stop(LatencyMetrics.MESSAGE_SEND_ECHO, "conv1") >= 0);
+        assertTrue(metrics.stop(LatencyMetrics.MESSAGE_SEND_ECHO, "conv2") >= 0);
+        assertEquals(-1, metrics.stop(LatencyMetrics.MESSAGE_SEND_ECHO, "conv1"));
+        assertEquals(2, metrics.histogram(LatencyMetrics.MESSAGE_SEND_ECHO).getCount());
+    }
+
+    @Test
+    public void startIfIdleKeepsTheRunningMeasurement() {
+        assertTrue(metrics.startIfIdle(LatencyMetrics.CONVERSATION_SYNC, null));
+        assertFalse(metrics.startIfIdle(LatencyMetrics.CONVERSATION_SYNC, null));
+        assertTrue(metrics.isRunning(LatencyMetrics.CONVERSATION_SYNC, LatencyMetrics.DEFAULT_KEY));
+    }
+
+    @Test
+    public void timedOutMeasurementsAreNotRecordedAndCanBeRestarted() {
+        final long[] now = {0};
+        metrics = new LatencyMetrics() {
+            @Override
+            long nanoTime() {
+                return now[0];
+            }
+        };
+        metrics.setTimeout(LatencyMetrics.MESSAGE_SEND_ECHO, 60, TimeUnit.SECONDS);
+
+        assertTrue(metrics.startIfIdle(LatencyMetrics.MESSAGE_SEND_ECHO, "conv"));
+        now[0] = TimeUnit.SECONDS.toNanos(30);
+        assertFalse(metrics.startIfIdle(LatencyMetrics.MESSAGE_SEND_ECHO, "conv"));
+        now[0] = TimeUnit.SECONDS.toNanos(61);
+        assertTrue("The abandoned measurement is replaced", metrics.startIfIdle(LatencyMetrics.MESSAGE_SEND_ECHO, "conv"));
+        now[0] = TimeUnit.SECONDS.toNanos(62);
+        assertEquals(TimeUnit.SECONDS.toNanos(1), metrics.stop(LatencyMetrics.MESSAGE_SEND_ECHO, "conv"));
+
+        metrics.start(LatencyMetrics.MESSAGE_SEND_ECHO, "conv");
+        now[0] = TimeUnit.SECONDS.toNanos(200);
+        assertEquals(-1, metrics.stop(LatencyMetrics.MESSAGE_SEND_ECHO, "conv"));
+        assertEquals(1, metrics.histogram(LatencyMetrics.MESSAGE_SEND_ECHO).getCount());
+    }
+
+    @Test
+    public void cancelledMeasurementsAreNotRecorded() {
+        metrics.start(LatencyMetrics.LOGIN, null);
+        metrics.cancel(LatencyMetrics.LOGIN, null);
+
+        assertEquals(-1, metrics.stop(LatencyMetrics.LOGIN, null));
+        assertTrue(metrics.snapshots().isEmpty());
+    }
+
+    @Test
+    public void abandonedMeasurementsAreDropped() {
+        for (int i = 0; i < LatencyMetrics.MAX_PENDING; i++) {
+            metrics.start(LatencyMetrics.LOGIN, Integer.toString(i));
+        }
+        metrics.start(LatencyMetrics.LOGIN, "last");
+
+        assertFalse(metrics.isRunning(LatencyMetrics.LOGIN, "0"));
+        assertTrue(metrics.isRunning(LatencyMetrics.LOGIN, "last"));
+    }
+
+    @Test
+    public void dumpWritesOneLinePerMetric() throws IOException {
+        metrics.recordNanos(LatencyMetrics.IMAGE_FIRST_BITMAP, 20000000);
+        metrics.recordNanos(LatencyMetrics.APP_LAUNCH, 800000000);
+        metrics.histogram(LatencyMetrics.LOGIN);
+
+        File file = File.createTempFile("latency", ".tsv");
+        try {
+            metrics.dump(file);
+            BufferedReader reader = new BufferedReader(new FileReader(file));
+            try {
+                assertTrue(reader.readLine().startsWith("metric\tcount"));
+                assertTrue(reader.readLine().startsWith(LatencyMetrics.APP_LAUNCH + "\t1\t800000\t"));
+                assertTrue(reader.readLine().startsWith(LatencyMetrics.IMAGE_FIRST_BITMAP + "\t1\t20000\t"));
+                assertEquals(null, reader.readLine());
+            } finally {
+                reader.close();
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void countersAreSummarizedAndDumped() throws IOException {
+        metrics.increment(LatencyMetrics.IMAGE_LOADS_REQUESTED);
+        metrics.increment(LatencyMetrics.IMAGE_LOADS_REQUESTED);
+        metrics.increment(LatencyMetrics.IMAGE_LOADS_CANCELLED);
+
+        assertEquals(2, metrics.getCount(LatencyMetrics.IMAGE_LOADS_REQUESTED));
+        assertEquals(0, metrics.getCount(LatencyMetrics.IMAGE_LOADS_COMPLETED));
+        assertEquals(LatencyMetrics.IMAGE_LOADS_CANCELLED + ": 1\n" + LatencyMetrics.IMAGE_LOADS_REQUESTED + ": 2",
+                     metrics.summary());
+
+        File file = File.createTempFile("latency", ".tsv");
+        try {
+            metrics.dump(file);
+            BufferedReader reader = new BufferedReader(new FileReader(file));
+            try {
+                assertTrue(reader.readLine().startsWith("metric\tcount"));
+                assertEquals("", reader.readLine());
+                assertEquals("counter\tvalue", reader.readLine());
+                assertEquals(LatencyMetrics.IMAGE_LOADS_CANCELLED + "\t1", reader.readLine());
+                assertEquals(LatencyMetrics.IMAGE_LOADS_REQUESTED + "\t2", reader.readLine());
+            } finally {
+                reader.close();
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+
+        metrics.reset();
+        assertEquals(0, metrics.getCount(LatencyMetrics.IMAGE_LOADS_REQUESTED));
+    }
+}
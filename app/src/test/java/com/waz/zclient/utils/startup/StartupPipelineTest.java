@@ -0,0 +1,191 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.utils.startup;
+
+import android.os.Handler;
+import android.os.MessageQueue;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+
+public class StartupPipelineTest {
+
+    private StartupTrace trace;
+    private TestPipeline pipeline;
+    private List<String> calls;
+
+    @Before
+    public void setUp() {
+        trace = new StartupTrace();
+        pipeline = new TestPipeline(trace);
+        calls = new ArrayList<>();
+    }
+
+    @Test
+    public void criticalWorkRunsImmediately() {
+        pipeline.runCritical("store", record("store"));
+
+        assertEquals(1, calls.size());
+        assertEquals(StartupTrace.Phase.CRITICAL, trace.getSpans().get(0).getPhase());
+    }
+
+    @Test
+    public void phasesRunInOrder() {
+        pipeline.runWhenIdle("tracking", record("tracking"));
+        pipeline.runOnFirstFrame("layout", record("layout"));
+        pipeline.runCritical("store", record("store"));
+
+        assertEquals(1, calls.size());
+        assertTrue("Idle work must wait for the first frame", pipeline.idleHandler == null);
+
+        pipeline.onFirstFrameDrawn();
+        assertEquals(2, calls.size());
+        assertNotNull(pipeline.idleHandler);
+
+        assertFalse("Handler should be removed once the queue is drained", pipeline.idleHandler.queueIdle());
+        assertEquals("store", calls.get(0));
+        assertEquals("layout", calls.get(1));
+        assertEquals("tracking", calls.get(2));
+    }
+
+    @Test
+    public void idleWorkRunsOneTaskPerIdleCallback() {
+        final int[] drained = new int[1];
+        pipeline.setOnIdleDrained(new Runnable() {
+            @Override
+            public void run() {
+                drained[0]++;
+            }
+        });
+        pipeline.onFirstFrameDrawn();
+        pipeline.runWhenIdle("a", record("a"));
+        pipeline.runWhenIdle("b", record("b"));
+        assertEquals(1, pipeline.idleHandlersAdded);
+
+        assertTrue(pipeline.idleHandler.queueIdle());
+        assertEquals(1, calls.size());
+        assertEquals(0, drained[0]);
+
+        assertFalse(pipeline.idleHandler.queueIdle());
+        assertEquals(2, calls.size());
+        assertEquals(1, drained[0]);
+
+        pipeline.runWhenIdle("c", record("c"));
+        assertEquals(2, pipeline.idleHandlersAdded);
+    }
+
+    @Test
+    public void fallbackUnlocksIdleWorkWithoutFrame() {
+        pipeline.runWhenIdle("push", record("push"));
+        assertNotNull(pipeline.handler.delayed);
+        assertEquals(StartupPipeline.IDLE_FALLBACK_DELAY_MS, pipeline.handler.delay);
+
+        pipeline.handler.delayed.run();
+        assertNotNull(pipeline.idleHandler);
+        pipeline.idleHandler.queueIdle();
+        assertEquals(1, calls.size());
+        assertFalse(pipeline.isFirstFrameDrawn());
+    }
+
+    @Test
+    public void failingTaskStillEndsItsSpan() {
+        try {
+            pipeline.runCritical("broken", new Runnable() {
+                @Override
+                public void run() {
+                    throw new IllegalStateException();
+                }
+            });
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        assertEquals(1, trace.getSpans().size());
+        assertEquals("broken", trace.getSpans().get(0).getName());
+    }
+
+    @Test
+    public void traceIsExportedAsTraceEvents() {
+        StartupTrace trace = new StartupTrace(0);
+        trace.begin("store \"factory\"", StartupTrace.Phase.CRITICAL).end();
+        trace.mark("firstFrame", StartupTrace.Phase.FIRST_FRAME);
+        trace.begin("never ended", StartupTrace.Phase.IDLE);
+
+        String json = trace.toJson();
+        assertTrue(json, json.startsWith("{\"traceEvents\":[{\"name\":\"store \\\"factory\\\"\",\"cat\":\"critical\",\"ph\":\"X\""));
+        assertTrue(json, json.contains("{\"name\":\"firstFrame\",\"cat\":\"first_frame\",\"ph\":\"i\""));
+        assertFalse(json, json.contains("never ended"));
+        assertTrue(json, json.endsWith("}]}"));
+        assertEquals(0, trace.getPhaseDuration(StartupTrace.Phase.IDLE));
+    }
+
+    private Runnable record(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                calls.add(name);
+            }
+        };
+    }
+
+    private static class RecordingHandler extends Handler {
+        private Runnable delayed;
+        private long delay;
+
+        @Override
+        public boolean postDelayed(Runnable r, long delayMillis) {
+            delayed = r;
+            delay = delayMillis;
+            return true;
+        }
+
+        @Override
+        public void removeCallbacks(Runnable r) {
+            if (r == delayed) {
+                delayed = null;
+            }
+        }
+    }
+
+    private static class TestPipeline extends StartupPipeline {
+        private final RecordingHandler handler;
+        private MessageQueue.IdleHandler idleHandler;
+        private int idleHandlersAdded;
+
+        TestPipeline(StartupTrace trace) {
+            this(trace, new RecordingHandler());
+        }
+
+        private TestPipeline(StartupTrace trace, RecordingHandler handler) {
+            super(trace, handler);
+            this.handler = handler;
+        }
+
+        @Override
+        void addIdleHandler(MessageQueue.IdleHandler idleHandler) {
+            this.idleHandler = idleHandler;
+            idleHandlersAdded++;
+        }
+    }
+}
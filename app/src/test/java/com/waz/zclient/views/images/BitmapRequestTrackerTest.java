@@ -0,0 +1,123 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.views.images;
+
+import com.waz.zclient.utils.metrics.LatencyMetrics;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class BitmapRequestTrackerTest {
+
+    private static final String ASSET = "asset";
+
+    private LatencyMetrics metrics;
+    private BitmapRequestTracker tracker;
+
+    @Before
+    public void setUp() {
+        metrics = LatencyMetrics.get();
+        metrics.reset();
+        tracker = new BitmapRequestTracker(metrics);
+    }
+
+    @Test
+    public void widthsAreRoundedUpToBuckets() {
+        assertEquals(0, BitmapRequestTracker.widthBucket(0));
+        assertEquals(32, BitmapRequestTracker.widthBucket(1));
+        assertEquals(64, BitmapRequestTracker.widthBucket(33));
+        assertEquals(320, BitmapRequestTracker.widthBucket(300));
+        assertEquals(1152, BitmapRequestTracker.widthBucket(1080));
+        assertEquals(1280, BitmapRequestTracker.widthBucket(1153));
+    }
+
+    @Test
+    public void bucketsAreAtMostAnEighthLarger() {
+        for (int width = 256; width < 4096; width++) {
+            int bucket = BitmapRequestTracker.widthBucket(width);
+            assertTrue(bucket >= width);
+            assertTrue("width " + width, bucket - width < width / 8 + 1);
+        }
+    }
+
+    @Test
+    public void sameBucketIsNotRequestedAgain() {
+        assertFalse(tracker.isRequested(ASSET, ImageAssetImageView.DisplayType.REGULAR, 300));
+        assertEquals(320, tracker.request(ASSET, ImageAssetImageView.DisplayType.REGULAR, 300));
+
+        assertTrue(tracker.isRequested(ASSET, ImageAssetImageView.DisplayType.REGULAR, 310));
+        assertFalse(tracker.isRequested(ASSET, ImageAssetImageView.DisplayType.REGULAR, 330));
+        assertFalse(tracker.isRequested(ASSET, ImageAssetImageView.DisplayType.CIRCLE, 300));
+        assertFalse(tracker.isRequested("other", ImageAssetImageView.DisplayType.REGULAR, 300));
+        assertEquals(1, metrics.getCount(LatencyMetrics.IMAGE_LOADS_DEDUPLICATED));
+    }
+
+    @Test
+    public void deliveredRequestsStayDeduplicated() {
+        tracker.request(ASSET, ImageAssetImageView.DisplayType.REGULAR, 300);
+        tracker.delivered();
+        tracker.delivered();
+
+        assertTrue(tracker.isRequested(ASSET, ImageAssetImageView.DisplayType.REGULAR, 300));
+        assertEquals(1, metrics.getCount(LatencyMetrics.IMAGE_LOADS_COMPLETED));
+    }
+
+    @Test
+    public void replacingPendingRequestCountsAsCancelled() {
+        tracker.request(ASSET, ImageAssetImageView.DisplayType.REGULAR, 300);
+        tracker.request(ASSET, ImageAssetImageView.DisplayType.REGULAR, 600);
+        tracker.delivered();
+        tracker.request("other", ImageAssetImageView.DisplayType.REGULAR, 600);
+
+        assertEquals(3, metrics.getCount(LatencyMetrics.IMAGE_LOADS_REQUESTED));
+        assertEquals(1, metrics.getCount(LatencyMetrics.IMAGE_LOADS_CANCELLED));
+        assertEquals(1, metrics.getCount(LatencyMetrics.IMAGE_LOADS_COMPLETED));
+    }
+
+    @Test
+    public void forgetDeliveredKeepsPendingRequest() {
+        tracker.request(ASSET, ImageAssetImageView.DisplayType.REGULAR, 300);
+        tracker.forgetDelivered();
+        assertTrue(tracker.isPending());
+        assertTrue(tracker.isRequested(ASSET, ImageAssetImageView.DisplayType.REGULAR, 300));
+
+        tracker.delivered();
+        tracker.forgetDelivered();
+        assertFalse(tracker.isRequested(ASSET, ImageAssetImageView.DisplayType.REGULAR, 300));
+        assertEquals(0, metrics.getCount(LatencyMetrics.IMAGE_LOADS_CANCELLED));
+    }
+
+    @Test
+    public void growingRowIsRequestedAgainOnlyWhenItLeavesTheBucket() {
+        int[] widths = {1150, 1151, 1152, 1153, 1154};
+        for (int width : widths) {
+            if (!tracker.isRequested(ASSET, ImageAssetImageView.DisplayType.REGULAR, width)) {
+                tracker.request(ASSET, ImageAssetImageView.DisplayType.REGULAR, width);
+            }
+        }
+        tracker.delivered();
+
+        assertEquals(2, metrics.getCount(LatencyMetrics.IMAGE_LOADS_REQUESTED));
+        assertEquals(3, metrics.getCount(LatencyMetrics.IMAGE_LOADS_DEDUPLICATED));
+        assertEquals("The 1152 load is replaced by the 1280 one", 1, metrics.getCount(LatencyMetrics.IMAGE_LOADS_CANCELLED));
+        assertTrue(tracker.isRequested(ASSET, ImageAssetImageView.DisplayType.REGULAR, 1280));
+    }
+}
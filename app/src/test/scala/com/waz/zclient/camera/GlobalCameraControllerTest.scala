@@ -171,6 +171,29 @@ class GlobalCameraControllerTest extends JUnitSuite with RobolectricSuite {
 
   }
 
+  @Test
+  def captureRotation(): Unit = {
+    assertEquals(90, WireCamera.getCameraRotation(0, CameraInfo(0, CameraFacing.BACK, 90)))
+    assertEquals(180, WireCamera.getCameraRotation(90, CameraInfo(0, CameraFacing.BACK, 90)))
+    assertEquals(270, WireCamera.getCameraRotation(0, CameraInfo(1, CameraFacing.FRONT, 270)))
+    assertEquals(180, WireCamera.getCameraRotation(90, CameraInfo(1, CameraFacing.FRONT, 270)))
+  }
+
+  @Test
+  def captureIsDecodedAtTheSmallestSampleSizeCoveringTheUploadSize(): Unit = {
+    assertEquals(1, CapturePostProcessor.sampleSize(1280, 720, 1448))
+    assertEquals(2, CapturePostProcessor.sampleSize(3264, 2448, 1448))
+    assertEquals(2, CapturePostProcessor.sampleSize(2448, 3264, 1448))
+    assertEquals(4, CapturePostProcessor.sampleSize(5984, 3366, 1448))
+  }
+
+  @Test
+  def captureOutputSizeFollowsRotation(): Unit = {
+    assertEquals((1448, 1086), CapturePostProcessor.outputSize(1632, 1224, 1448f / 1632, 0))
+    assertEquals((1086, 1448), CapturePostProcessor.outputSize(1632, 1224, 1448f / 1632, 90))
+    assertEquals((1224, 1632), CapturePostProcessor.outputSize(1632, 1224, 1f, 270))
+  }
+
   @Test
   def testOrientationCalculation(): Unit = {
     assertEquals(Portrait_0, Orientation(0))
@@ -188,7 +211,7 @@ class GlobalCameraControllerTest extends JUnitSuite with RobolectricSuite {
 
   def createMockCamera(info: CameraInfo = defaultInfo, previewSize: PreviewSize = defaultPreviewSize, flashModes: Set[FlashMode] = Set.empty) = {
     val mockCamera = mock(classOf[TestCamera])
-    when(cameraFactory.apply(Matchers.eq(info), any(classOf[SurfaceTexture]), any(classOf[Int]), any(classOf[Int]), any(classOf[Context]), any(classOf[Orientation]), any(classOf[FlashMode]))).thenReturn(mockCamera)
+    when(cameraFactory.apply(Matchers.eq(info), any(classOf[SurfaceTexture]), any(classOf[Int]), any(classOf[Int]), any(classOf[Context]), any(classOf[FlashMode]))).thenReturn(mockCamera)
     when(mockCamera.getPreviewSize).thenReturn(previewSize)
     when(mockCamera.getSupportedFlashModes).thenReturn(flashModes)
     mockCamera
@@ -197,7 +220,7 @@ class GlobalCameraControllerTest extends JUnitSuite with RobolectricSuite {
   class TestCameraFactory extends CameraFactory {
     override def getCameraInfos: Seq[CameraInfo] = ???
 
-    override def apply(info: CameraInfo, texture: SurfaceTexture, w: Int, h: Int, cxt: Context, devOrientation: Orientation, flashMode: FlashMode): WireCamera = ???
+    override def apply(info: CameraInfo, texture: SurfaceTexture, w: Int, h: Int, cxt: Context, flashMode: FlashMode): WireCamera = ???
   }
 
   class TestCamera extends WireCamera {
@@ -205,8 +228,6 @@ class GlobalCameraControllerTest extends JUnitSuite with RobolectricSuite {
 
     override def getSupportedFlashModes: Set[FlashMode] = ???
 
-    override def setOrientation(o: Orientation): Unit = ???
-
     override def takePicture(shutter: => Unit): Future[Array[Byte]] = ???
 
     override def release(): Unit = ???
@@ -0,0 +1,102 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.common.views
+
+import android.graphics.Bitmap
+import com.waz.api.User.ConnectionStatus
+import com.waz.model.UserData.ConnectionStatus.Accepted
+import com.waz.model.{AssetId, UserData, UserId}
+import com.waz.service.SearchKey
+import com.waz.zclient.common.views.ChatheadRenderCache.{RenderKey, Style}
+import org.junit.Assert._
+import org.junit.runner.RunWith
+import org.junit.{Before, Test}
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.scalatest.junit.JUnitSuite
+
+@RunWith(classOf[RobolectricTestRunner])
+@Config(manifest=Config.NONE)
+class ChatheadRenderCacheTest extends JUnitSuite {
+
+  val size = 100
+  val style = Style(swapBackgroundAndInitialsColors = false, initialsFontSize = -1, iconFontSize = 20)
+
+  var cache: ChatheadRenderCache = _
+
+  @Before
+  def setup(): Unit = {
+    cache = new ChatheadRenderCache(10 * size * size * 4)
+  }
+
+  @Test
+  def sameChatheadIsSharedBetweenViews(): Unit = {
+    val user = createUser()
+    val bitmap = render()
+    cache.put(key(Some(user.id)), bitmap)
+
+    assertSame(bitmap, cache.get(key(Some(user.id))).orNull)
+    assertEquals(None, cache.get(key(Some(user.id), selected = true)))
+    assertEquals(None, cache.get(key(Some(user.id), size = size * 2)))
+  }
+
+  @Test
+  def pictureIsIdentifiedByItsAsset(): Unit = {
+    val user = createUser()
+    val asset = AssetId()
+    val bitmap = render()
+    cache.put(key(Some(user.id), picture = Some(asset)), bitmap)
+
+    assertSame(bitmap, cache.get(key(Some(user.id), picture = Some(AssetId(asset.str)))).orNull)
+    assertEquals(None, cache.get(key(Some(user.id))))
+    assertEquals(None, cache.get(key(Some(user.id), picture = Some(AssetId()))))
+  }
+
+  @Test
+  def cacheStaysWithinBudget(): Unit = {
+    (0 until 20).foreach(_ => cache.put(key(Some(UserId())), render()))
+
+    assertEquals(10, cache.size)
+  }
+
+  @Test
+  def userChangeDropsItsChatheads(): Unit = {
+    val user = createUser()
+    val other = createUser()
+    cache.userUpdated(user)
+    cache.userUpdated(other)
+    cache.put(key(Some(user.id)), render())
+    cache.put(key(Some(user.id), selected = true), render())
+    cache.put(key(Some(other.id)), render())
+
+    cache.userUpdated(user)
+    assertEquals(3, cache.size)
+
+    cache.userUpdated(user.copy(name = "Other Name"))
+    assertEquals(1, cache.size)
+    assertTrue(cache.get(key(Some(other.id))).isDefined)
+  }
+
+  def key(owner: Option[UserId], size: Int = size, selected: Boolean = false, picture: Option[AssetId] = None) =
+    RenderKey(owner, size, style, Some((false, 0xff00ff00)), 2, selected, ConnectionStatus.UNCONNECTED, "", "SN", picture)
+
+  def render() = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888)
+
+  def createUser() =
+    new UserData(UserId(), name = "Some Name", None, None, connection = Accepted, searchKey = SearchKey(""), handle = None)
+}
@@ -0,0 +1,88 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.core.api.scala;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * Runs a task at most once per frame: on the next Choreographer frame, or after the max latency if no frame
+ * comes first (e.g. while the screen is off). Must only be used from the main thread.
+ */
+class FrameScheduler {
+
+    private final long maxLatencyMillis;
+    private Runnable task;
+    private boolean scheduled;
+
+    private Choreographer choreographer;
+    private Handler handler;
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            run();
+        }
+    };
+
+    private final Runnable latencyCallback = new Runnable() {
+        @Override
+        public void run() {
+            FrameScheduler.this.run();
+        }
+    };
+
+    FrameScheduler(long maxLatencyMillis) {
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+    long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    void schedule(Runnable task) {
+        this.task = task;
+        if (scheduled) {
+            return;
+        }
+        scheduled = true;
+        if (choreographer == null) {
+            choreographer = Choreographer.getInstance();
+            handler = new Handler(Looper.getMainLooper());
+        }
+        choreographer.postFrameCallback(frameCallback);
+        handler.postDelayed(latencyCallback, maxLatencyMillis);
+    }
+
+    void cancel() {
+        if (!scheduled) {
+            return;
+        }
+        scheduled = false;
+        choreographer.removeFrameCallback(frameCallback);
+        handler.removeCallbacks(latencyCallback);
+    }
+
+    private void run() {
+        cancel();
+        if (task != null) {
+            task.run();
+        }
+    }
+}
@@ -21,11 +21,13 @@ import android.support.annotation.NonNull;
 import com.waz.api.UiObservable;
 import com.waz.api.UpdateListener;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 
 import static com.waz.zclient.core.api.scala.ModelObserver.Reason.FORCED_UPDATE;
 import static com.waz.zclient.core.api.scala.ModelObserver.Reason.INTERNAL_CHANGE;
@@ -40,15 +42,128 @@ public abstract class ModelObserver<T extends UiObservable> {
     }
 
     /**
-     * A set of observers for each model that we want to listen to in the collection of models passed to us. We only
-     * want one observer for any given model object.
+     * Max latency for {@link #enableCoalescing(long)} used by views, updates wait at most a few frames
+     */
+    public static final long DEFAULT_COALESCING_LATENCY_MILLIS = 50;
+
+    /**
+     * The observers for each model that we want to listen to in the collection of models passed to us. We only
+     * want one observer for any given model object, {@link #observersByModel} indexes this list by model.
      *
      * protected for testing purposes
      */
-    protected Set<SingleModelObserver> observers;
+    protected List<SingleModelObserver> observers;
+
+    private final Map<T, SingleModelObserver> observersByModel = new HashMap<>();
+
+    /**
+     * Scratch list of the models a reconciliation has to add, reused to keep {@link #setAndUpdate(Collection)}
+     * free of allocations when the models didn't change
+     */
+    private final List<T> addedModels = new ArrayList<>();
+
+    /**
+     * New observers which still have to be started. An update may reconcile again, the nested reconciliation then
+     * appends to this list and starts everything left in it, including the observers of the outer one.
+     */
+    private final List<SingleModelObserver> unstartedObservers = new ArrayList<>();
+    private int nextUnstarted;
+
+    /**
+     * Incremented on every reconciliation, observers not marked with the current generation are stale
+     */
+    private int generation;
+
+    /**
+     * Observers with an {@link Reason#INTERNAL_CHANGE} waiting for the next frame while coalescing is enabled
+     */
+    private final List<SingleModelObserver> pendingObservers = new ArrayList<>();
+    private FrameScheduler frameScheduler;
+    private long updatesReceived;
+    private long updatesDispatched;
+
+    private final Runnable dispatchPendingUpdates = new Runnable() {
+        @Override
+        public void run() {
+            dispatchPendingUpdates();
+        }
+    };
 
     public ModelObserver() {
-        observers = new HashSet<>();
+        observers = new ArrayList<>();
+    }
+
+    /**
+     * <p>
+     * Collapse {@link Reason#INTERNAL_CHANGE} updates of each model into at most one call to
+     * {@link #updated(UiObservable, Reason)} per frame. A burst of changes to the same model during one frame results
+     * in a single update on the next frame, or after {@code maxLatencyMillis} if no frame is drawn before that.
+     * </p>
+     * <p>
+     * {@link Reason#NEW_MODEL} and {@link Reason#FORCED_UPDATE} are still delivered immediately, and they replace
+     * any pending change of that model. Models which stop being observed before the frame don't get their pending
+     * update. Must only be used from the main thread.
+     * </p>
+     */
+    public void enableCoalescing(long maxLatencyMillis) {
+        enableCoalescing(new FrameScheduler(maxLatencyMillis));
+    }
+
+    /**
+     * Package private for testing purposes
+     */
+    void enableCoalescing(FrameScheduler frameScheduler) {
+        disableCoalescing();
+        this.frameScheduler = frameScheduler;
+    }
+
+    /**
+     * Deliver every update immediately again, any pending updates are delivered right away.
+     */
+    public void disableCoalescing() {
+        if (frameScheduler == null) {
+            return;
+        }
+        frameScheduler.cancel();
+        frameScheduler = null;
+        dispatchPendingUpdates();
+    }
+
+    public boolean isCoalescing() {
+        return frameScheduler != null;
+    }
+
+    /**
+     * @return the number of updates this {@link ModelObserver} has received from its models, or was asked for
+     */
+    public long getUpdatesReceived() {
+        return updatesReceived;
+    }
+
+    /**
+     * @return the number of updates passed on to {@link #updated(UiObservable, Reason)}, which is lower than
+     * {@link #getUpdatesReceived()} by the number of updates that were coalesced
+     */
+    public long getUpdatesDispatched() {
+        return updatesDispatched;
+    }
+
+    private void dispatchPendingUpdates() {
+        if (pendingObservers.isEmpty()) {
+            return;
+        }
+        // Updates may cause new changes, those are collected for the next frame
+        final int count = pendingObservers.size();
+        for (int i = 0; i < count; i++) {
+            final SingleModelObserver observer = pendingObservers.get(i);
+            if (observer.pending) {
+                observer.pending = false;
+                if (observer.listening) {
+                    observer.dispatch(INTERNAL_CHANGE);
+                }
+            }
+        }
+        pendingObservers.subList(0, count).clear();
     }
 
     /**
@@ -56,7 +171,9 @@ public abstract class ModelObserver<T extends UiObservable> {
      * @param model
      */
     public void setAndUpdate(T model) { //avoids possibly heap pollution.
-        setAndUpdate(Collections.singletonList(model));
+        final int gen = ++generation;
+        retain(model, gen);
+        reconcile(gen, true);
     }
 
     /**
@@ -75,10 +192,11 @@ public abstract class ModelObserver<T extends UiObservable> {
      * </p>
      *
      * <p>
-     * Note, this method clears any previous {@link SingleModelObserver}s that this {@link ModelObserver} was using,
-     * before creating new observers for any models passed in. If we were previously watching models A and B, and then
-     * call #setAndUpdate on models B and C, this {@link ModelObserver} will then be listening to B and C, and NOT A.
-     * Furthermore, a call to update on B will NOT be performed, as we were already listening to it.
+     * Note, this method removes any previous {@link SingleModelObserver}s of models that are not passed in again.
+     * If we were previously watching models A and B, and then call #setAndUpdate on models B and C, this
+     * {@link ModelObserver} will then be listening to B and C, and NOT A. Furthermore, a call to update on B will NOT be
+     * performed, as we were already listening to it, and its listener is left registered as it is. Only the models
+     * that were added or removed have their listeners registered or unregistered.
      * </p>
      * <p>
      * If a particular model in the collection is null, then nothing will happen.
@@ -86,18 +204,9 @@ public abstract class ModelObserver<T extends UiObservable> {
      * @param models
      */
     public void setAndUpdate(Collection<T> models) {
-        pauseListening();
-        Set<SingleModelObserver> newModels = createObserverCollection(models);
-        if (!observers.isEmpty() && !observers.retainAll(newModels)) {
-            resumeListening();
-            return;
-        }
-        resumeListening();
-        newModels.removeAll(observers);
-        for (SingleModelObserver observer : newModels) {
-            observer.startListening();
-        }
-        observers.addAll(newModels);
+        final int gen = ++generation;
+        retainAll(models, gen);
+        reconcile(gen, true);
     }
 
     /**
@@ -105,31 +214,102 @@ public abstract class ModelObserver<T extends UiObservable> {
      * @param model
      */
     public void setAndPause(T model) { //avoids possibly heap pollution.
-        setAndPause(Collections.singletonList(model));
+        final int gen = ++generation;
+        retain(model, gen);
+        reconcile(gen, false);
     }
 
+    /**
+     * Like {@link #setAndUpdate(Collection)}, but observers for new models are not registered or updated until
+     * {@link #resumeListening()} is called.
+     */
     public void setAndPause(Collection<T> models) {
-        pauseListening();
-        Set<SingleModelObserver> newModels = createObserverCollection(models);
-        if (!observers.isEmpty() && !observers.retainAll(newModels)) {
-            resumeListening();
+        final int gen = ++generation;
+        retainAll(models, gen);
+        reconcile(gen, false);
+    }
+
+    private void retainAll(Collection<T> models, int gen) {
+        if (models instanceof List && models instanceof RandomAccess) {
+            final List<T> list = (List<T>) models;
+            for (int i = 0, size = list.size(); i < size; i++) {
+                retain(list.get(i), gen);
+            }
+        } else {
+            for (T model : models) {
+                retain(model, gen);
+            }
+        }
+    }
+
+    /**
+     * Mark the observer of the model as still needed, or remember the model to be added if there is none yet
+     */
+    private void retain(T model, int gen) {
+        if (model == null) {
             return;
         }
-        resumeListening();
-        observers.addAll(newModels);
+        final SingleModelObserver observer = observersByModel.get(model);
+        if (observer == null) {
+            addedModels.add(model);
+        } else {
+            observer.generation = gen;
+        }
     }
 
     /**
-     * Create a set of SingleModelObservers for a collection of Models, but don't yet update them
+     * Unregister and drop every observer that wasn't retained in this generation, then create observers for the
+     * added models.
      */
-    private Set<SingleModelObserver> createObserverCollection(Collection<T> models) {
-        Set<SingleModelObserver> set = new HashSet<>();
-        for (T model : models) {
-            if (model != null) {
-                set.add(new SingleModelObserver(model));
+    private void reconcile(int gen, boolean update) {
+        for (int i = observers.size() - 1; i >= 0; i--) {
+            final SingleModelObserver observer = observers.get(i);
+            if (observer.generation != gen) {
+                observer.pauseListening();
+                observersByModel.remove(observer.model);
+                removeAt(i);
+            }
+        }
+
+        for (int i = 0, size = addedModels.size(); i < size; i++) {
+            final T model = addedModels.get(i);
+            if (!observersByModel.containsKey(model)) { // the same model may be passed in more than once
+                final SingleModelObserver observer = new SingleModelObserver(model);
+                observer.generation = gen;
+                observersByModel.put(model, observer);
+                observers.add(observer);
+                if (update) {
+                    unstartedObservers.add(observer);
+                }
+            }
+        }
+        addedModels.clear();
+
+        if (update) {
+            startObservers();
+        }
+    }
+
+    private void startObservers() {
+        while (nextUnstarted < unstartedObservers.size()) {
+            final SingleModelObserver observer = unstartedObservers.get(nextUnstarted++);
+            if (observersByModel.get(observer.model) == observer) { // skip observers an update already removed
+                observer.startListening();
             }
         }
-        return set;
+        unstartedObservers.clear();
+        nextUnstarted = 0;
+    }
+
+    /**
+     * Order of the observers doesn't matter, so fill the gap with the last one instead of shifting the list
+     */
+    private void removeAt(int index) {
+        final int last = observers.size() - 1;
+        if (index != last) {
+            observers.set(index, observers.get(last));
+        }
+        observers.remove(last);
     }
 
     /**
@@ -137,7 +317,7 @@ public abstract class ModelObserver<T extends UiObservable> {
      * @param model
      */
     public void addAndUpdate(T model) {
-        addAndUpdate(Collections.singletonList(model));
+        addModelAndUpdate(model);
     }
 
     /**
@@ -145,20 +325,20 @@ public abstract class ModelObserver<T extends UiObservable> {
      * @param models
      */
     public void addAndUpdate(T[] models) {
-        addAndUpdate(Arrays.asList(models));
+        for (T model : models) {
+            addModelAndUpdate(model);
+        }
     }
 
     /**
      * <p>
      * Add an extra model to the set of models that this {@link ModelObserver} watches and call update only to those models
-     * added. If a particular model was already being watched by this {@link ModelObserver}, then the particular observer
-     * for that model will be replaced with a new one, and update will be called on it.
+     * added. If a particular model was already being watched by this {@link ModelObserver}, then nothing happens for
+     * that model.
      * </p>
      * <p>
-     * Note, this method preserves the observers of any models added previously that are NOT being replaced. If models A
-     * and B were being listened to already, and we call #addAndUpdate on a model C, then this {@link ModelObserver}
-     * will be observer A, B and C. If the model was already being listened to by this particular {@link ModelObserver},
-     * then the observer for that model will be replaced by a new one and update will be called again.
+     * Note, this method preserves the observers of any models added previously. If models A and B were being listened
+     * to already, and we call #addAndUpdate on a model C, then this {@link ModelObserver} will be observer A, B and C.
      * </p>
      * <p>
      * If a particular model in the collection is null, then nothing will happen.
@@ -172,21 +352,22 @@ public abstract class ModelObserver<T extends UiObservable> {
     }
 
     private void addModelAndUpdate(T model) {
-        if (model == null) {
-            return;
+        if (model == null || observersByModel.containsKey(model)) {
+            return; //the model was already being observed, do nothing
         }
         SingleModelObserver observer = new SingleModelObserver(model);
-        if (observers.add(observer)) {
-            observer.startListening();
-        } //else the model was already being observed, do nothing
+        observer.generation = generation;
+        observersByModel.put(model, observer);
+        observers.add(observer);
+        observer.startListening();
     }
 
     /**
      * For any calls to {@link #pauseListening()} that were made, resume listening again.
      */
     public void resumeListening() {
-        for (SingleModelObserver observer : observers) {
-            observer.resumeListening();
+        for (int i = 0, size = observers.size(); i < size; i++) {
+            observers.get(i).resumeListening();
         }
     }
 
@@ -211,8 +392,8 @@ public abstract class ModelObserver<T extends UiObservable> {
      * </p>
      */
     public void pauseListening() {
-        for (SingleModelObserver observer : observers) {
-            observer.pauseListening();
+        for (int i = 0, size = observers.size(); i < size; i++) {
+            observers.get(i).pauseListening();
         }
     }
 
@@ -224,6 +405,18 @@ public abstract class ModelObserver<T extends UiObservable> {
     public void clear() {
         pauseListening();
         observers.clear();
+        observersByModel.clear();
+        dropPendingUpdates();
+    }
+
+    private void dropPendingUpdates() {
+        for (int i = 0, size = pendingObservers.size(); i < size; i++) {
+            pendingObservers.get(i).pending = false;
+        }
+        pendingObservers.clear();
+        if (frameScheduler != null) {
+            frameScheduler.cancel();
+        }
     }
 
     /**
@@ -259,6 +452,8 @@ public abstract class ModelObserver<T extends UiObservable> {
         private final T model;
 
         protected boolean listening = false;
+        private boolean pending = false;
+        private int generation;
 
         SingleModelObserver(@NonNull T model) {
             this.model = model;
@@ -270,11 +465,17 @@ public abstract class ModelObserver<T extends UiObservable> {
         }
 
         public void resumeListening() {
+            if (listening) {
+                return;
+            }
             model.addUpdateListener(this);
             listening = true;
         }
 
         public void pauseListening() {
+            if (!listening) {
+                return;
+            }
             model.removeUpdateListener(this);
             listening = false;
         }
@@ -285,6 +486,22 @@ public abstract class ModelObserver<T extends UiObservable> {
         }
 
         public void updated(Reason reason) {
+            updatesReceived++;
+            if (frameScheduler != null && reason == INTERNAL_CHANGE) {
+                if (!pending) {
+                    pending = true;
+                    pendingObservers.add(this);
+                    frameScheduler.schedule(dispatchPendingUpdates);
+                }
+                return;
+            }
+            // A pending change is covered by this update
+            pending = false;
+            dispatch(reason);
+        }
+
+        private void dispatch(Reason reason) {
+            updatesDispatched++;
             ModelObserver.this.updated(model);
             ModelObserver.this.updated(model, reason);
         }
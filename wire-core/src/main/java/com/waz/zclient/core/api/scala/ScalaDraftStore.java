@@ -17,19 +17,60 @@
  */
 package com.waz.zclient.core.api.scala;
 
+import android.os.Handler;
+import android.os.Looper;
 import com.waz.api.IConversation;
+import com.waz.zclient.core.stores.draft.DraftLog;
 import com.waz.zclient.core.stores.draft.DraftStore;
+import timber.log.Timber;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
+/**
+ * Drafts are read from memory, every change is written behind to a {@link DraftLog} on the executor so drafts
+ * survive the process being killed. The log is read once on the executor when the store is created, stored drafts
+ * are only decoded when their conversation is opened.
+ */
 public class ScalaDraftStore extends DraftStore {
     public static final String TAG = ScalaDraftStore.class.getName();
+    public static final String FILE_NAME = "drafts.log";
 
+    // only touched on the main thread
     Map<String, String> draftMap = new HashMap<>();
+    private Map<String, DraftLog.Entry> storedDrafts;
+
+    private final DraftLog draftLog;
+    private final Executor executor;
+    private final Handler mainHandler;
 
-    public ScalaDraftStore() {
+    // drafts waiting to be written, guarded by itself
+    private final Map<String, String> pendingWrites = new LinkedHashMap<>();
+    private boolean writing;
+    private boolean loaded;
 
+    private final Runnable writeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            writePending();
+        }
+    };
+
+    public ScalaDraftStore(File file, Executor executor) {
+        this(file, executor, new Handler(Looper.getMainLooper()));
+    }
+
+    ScalaDraftStore(File file, Executor executor, Handler mainHandler) {
+        this.draftLog = new DraftLog(file);
+        this.executor = executor;
+        this.mainHandler = mainHandler;
+        writing = true;
+        executor.execute(writeRunnable);
     }
 
     @Override
@@ -37,17 +78,87 @@ public class ScalaDraftStore extends DraftStore {
         if (conversation == null) {
             return;
         }
-        draftMap.put(conversation.getId(), text);
+        String draft = text == null ? "" : text;
+        if (draft.isEmpty() && storedDrafts == null && !draftMap.containsKey(conversation.getId())) {
+            // Nothing was typed yet and the stored draft is still loading, clearing it would lose it
+            return;
+        }
+        String previous = draftMap.put(conversation.getId(), draft);
+        if (draft.equals(previous)) {
+            return;
+        }
+        synchronized (pendingWrites) {
+            pendingWrites.put(conversation.getId(), draft);
+            if (writing) {
+                return;
+            }
+            writing = true;
+        }
+        executor.execute(writeRunnable);
     }
 
     @Override
     public String getDraft(IConversation conversation) {
+        if (conversation == null) {
+            return "";
+        }
+        String draft = draftMap.get(conversation.getId());
+        if (draft == null && storedDrafts != null) {
+            DraftLog.Entry entry = storedDrafts.get(conversation.getId());
+            if (entry != null) {
+                draft = entry.getText();
+                draftMap.put(conversation.getId(), draft);
+            }
+        }
+        return draft == null ? "" : draft;
+    }
+
+    /**
+     * @return true once the drafts of the previous run are available, see {@link #addDraftStoreObserver}
+     */
+    public boolean isLoaded() {
+        return storedDrafts != null;
+    }
+
+    private void writePending() {
+        if (!loaded) {
+            loaded = true;
+            load();
+        }
+        while (true) {
+            Map<String, String> writes;
+            synchronized (pendingWrites) {
+                if (pendingWrites.isEmpty()) {
+                    writing = false;
+                    return;
+                }
+                writes = new LinkedHashMap<>(pendingWrites);
+                pendingWrites.clear();
+            }
+            try {
+                draftLog.write(writes);
+            } catch (IOException e) {
+                Timber.e(e, "Unable to write %d drafts", writes.size());
+            }
+        }
+    }
 
-        if (conversation != null &&
-            draftMap.containsKey(conversation.getId())) {
-            return draftMap.get(conversation.getId());
+    private void load() {
+        Map<String, DraftLog.Entry> stored;
+        try {
+            stored = draftLog.load();
+        } catch (IOException e) {
+            Timber.e(e, "Unable to read drafts");
+            stored = Collections.emptyMap();
         }
-        return "";
+        final Map<String, DraftLog.Entry> loadedDrafts = stored;
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                storedDrafts = loadedDrafts;
+                notifyDraftsLoaded();
+            }
+        });
     }
 
     @Override
@@ -55,5 +166,6 @@ public class ScalaDraftStore extends DraftStore {
         if (draftMap != null) {
             draftMap.clear();
         }
+        draftStoreObservers.clear();
     }
 }
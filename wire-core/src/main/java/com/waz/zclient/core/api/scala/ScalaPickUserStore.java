@@ -17,19 +17,26 @@
  */
 package com.waz.zclient.core.api.scala;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import com.waz.api.Contacts;
 import com.waz.api.ConversationSearchResult;
+import com.waz.api.IConversation;
 import com.waz.api.UpdateListener;
 import com.waz.api.User;
 import com.waz.api.UserSearchResult;
 import com.waz.api.ZMessagingApi;
 import com.waz.zclient.core.stores.pickuser.PickUserStore;
 import com.waz.zclient.core.stores.pickuser.PickUserStoreObserver;
+import com.waz.zclient.core.stores.pickuser.SearchResultCache;
 
 public class ScalaPickUserStore extends PickUserStore {
     public static final String TAG = ScalaPickUserStore.class.getName();
 
+    private static final int SEARCH_DEBOUNCE_MS = 150;
+    private static final long SEARCH_RESULTS_MAX_LATENCY_MS = 50;
+
     private ZMessagingApi zMessagingApi;
 
     private UserSearchResult connectionsResults;
@@ -42,6 +49,20 @@ public class ScalaPickUserStore extends PickUserStore {
 
     private String searchFilter = null;
 
+    // Term the running connections/recommended/groups queries were started for
+    private String activeSearchTerm;
+    private String pendingSearchTerm;
+    // Whether each of the running queries reported results yet, only complete results are cached
+    private boolean connectionsUpdated;
+    private boolean recommendedUpdated;
+    private boolean groupsUpdated;
+    private int searchNumberOfResults = -1;
+    private boolean searchExcludesUsers;
+
+    private final SearchResultCache searchResultCache = new SearchResultCache();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final FrameScheduler searchResultsScheduler = new FrameScheduler(SEARCH_RESULTS_MAX_LATENCY_MS);
+
     private String[] excludedUserIds = new String[0];  // List of user id's to exclude from search
     private static final String[] NO_EXCLUDES = new String[0];
 
@@ -60,6 +81,7 @@ public class ScalaPickUserStore extends PickUserStore {
     @Override
     public void tearDown() {
         tearDownSearch();
+        searchResultCache.clear();
 
         if (contacts != null) {
             contacts.removeUpdateListener(contactsUpdateListener);
@@ -77,6 +99,7 @@ public class ScalaPickUserStore extends PickUserStore {
     @Override
     public void loadTopUserList(int numberOfResults, boolean excludeUsers) {
         searchFilter = null;
+        handler.removeCallbacks(startSearchRunnable);
         if (topResults != null) {
             topResults.removeUpdateListener(topResultsListener);
         }
@@ -84,28 +107,72 @@ public class ScalaPickUserStore extends PickUserStore {
         topResults.addUpdateListener(topResultsListener);
     }
 
+    /**
+     * Shows cached results for the term right away, if there are any for it or for a prefix of it, and starts the
+     * backend queries once the user stopped typing for {@link #SEARCH_DEBOUNCE_MS}. Queries for terms that were
+     * superseded in the meantime are never started, or stopped if they were running already.
+     */
     @Override
     public void loadSearchByFilter(String searchTerm, int numberOfResults, boolean excludeUsers) {
         searchFilter = searchTerm;
-        String[] excludes = excludeUsers ? excludedUserIds : NO_EXCLUDES;
+        if (numberOfResults != searchNumberOfResults || excludeUsers != searchExcludesUsers) {
+            stopSearchQueries();
+            searchResultCache.clear();
+            searchNumberOfResults = numberOfResults;
+            searchExcludesUsers = excludeUsers;
+        }
 
-        if (connectionsResults != null) {
-            connectionsResults.removeUpdateListener(searchListener);
+        if (!TextUtils.isEmpty(searchTerm)) {
+            SearchResultCache.Entry cachedResults = searchResultCache.find(searchTerm);
+            if (cachedResults != null) {
+                notifySearchResultsUpdated(cachedResults.getConnectedUsers(),
+                                           cachedResults.getOtherUsers(),
+                                           cachedResults.getConversations());
+            }
         }
-        connectionsResults = zMessagingApi.search().getConnectionsByNameOrEmailIncludingBlocked(searchTerm, numberOfResults, excludes);
-        connectionsResults.addUpdateListener(searchListener);
 
-        if (recommendedResults != null) {
-            recommendedResults.removeUpdateListener(searchListener);
+        handler.removeCallbacks(startSearchRunnable);
+        if (searchTerm != null && searchTerm.equals(activeSearchTerm)) {
+            // The running queries are still for this term
+            return;
         }
-        recommendedResults = zMessagingApi.search().getRecommendedPeople(searchTerm, numberOfResults, excludes);
-        recommendedResults.addUpdateListener(searchListener);
+        pendingSearchTerm = searchTerm;
+        handler.postDelayed(startSearchRunnable, SEARCH_DEBOUNCE_MS);
+    }
+
+    private void startSearchQueries(String searchTerm) {
+        stopSearchQueries();
+        activeSearchTerm = searchTerm;
+        String[] excludes = searchExcludesUsers ? excludedUserIds : NO_EXCLUDES;
+
+        connectionsResults = zMessagingApi.search().getConnectionsByNameOrEmailIncludingBlocked(searchTerm, searchNumberOfResults, excludes);
+        connectionsResults.addUpdateListener(connectionsListener);
+
+        recommendedResults = zMessagingApi.search().getRecommendedPeople(searchTerm, searchNumberOfResults, excludes);
+        recommendedResults.addUpdateListener(recommendedListener);
 
+        groupResults = zMessagingApi.search().getGroupConversations(searchTerm, searchNumberOfResults);
+        groupResults.addUpdateListener(groupsListener);
+    }
+
+    private void stopSearchQueries() {
+        if (connectionsResults != null) {
+            connectionsResults.removeUpdateListener(connectionsListener);
+        }
+        if (recommendedResults != null) {
+            recommendedResults.removeUpdateListener(recommendedListener);
+        }
         if (groupResults != null) {
-            groupResults.removeUpdateListener(searchListener);
+            groupResults.removeUpdateListener(groupsListener);
         }
-        groupResults = zMessagingApi.search().getGroupConversations(searchTerm, numberOfResults);
-        groupResults.addUpdateListener(searchListener);
+        connectionsResults = null;
+        recommendedResults = null;
+        groupResults = null;
+        connectionsUpdated = false;
+        recommendedUpdated = false;
+        groupsUpdated = false;
+        activeSearchTerm = null;
+        searchResultsScheduler.cancel();
     }
 
     @Override
@@ -146,6 +213,13 @@ public class ScalaPickUserStore extends PickUserStore {
     @Override
     public void setExcludedUsers(String[] users) {
         excludedUserIds = users;
+        if (searchExcludesUsers) {
+            searchResultCache.clear();
+            if (activeSearchTerm != null && zMessagingApi != null) {
+                // the running queries still exclude the old users
+                startSearchQueries(activeSearchTerm);
+            }
+        }
     }
 
     @Override
@@ -169,29 +243,65 @@ public class ScalaPickUserStore extends PickUserStore {
     }
 
     private void tearDownSearch() {
-        if (connectionsResults != null) {
-            connectionsResults.removeUpdateListener(searchListener);
-        }
-        if (recommendedResults != null) {
-            recommendedResults.removeUpdateListener(searchListener);
-        }
-        if (groupResults != null) {
-            groupResults.removeUpdateListener(searchListener);
-        }
+        handler.removeCallbacks(startSearchRunnable);
+        stopSearchQueries();
         if (topResults != null) {
             topResults.removeUpdateListener(topResultsListener);
         }
-        connectionsResults = null;
-        recommendedResults = null;
-        groupResults = null;
         topResults = null;
     }
 
-    final private UpdateListener searchListener = new UpdateListener() {
+    final private Runnable startSearchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (zMessagingApi == null) {
+                return;
+            }
+            startSearchQueries(pendingSearchTerm);
+        }
+    };
+
+    /**
+     * The three queries update independently, their updates are merged into one notification per frame
+     */
+    final private UpdateListener connectionsListener = new UpdateListener() {
         @Override
         public void updated() {
-            if (!TextUtils.isEmpty(searchFilter)) {
-                notifySearchResultsUpdated(connectionsResults.getAll(), recommendedResults.getAll(), groupResults.getAll());
+            connectionsUpdated = true;
+            searchResultsScheduler.schedule(dispatchSearchResults);
+        }
+    };
+
+    final private UpdateListener recommendedListener = new UpdateListener() {
+        @Override
+        public void updated() {
+            recommendedUpdated = true;
+            searchResultsScheduler.schedule(dispatchSearchResults);
+        }
+    };
+
+    final private UpdateListener groupsListener = new UpdateListener() {
+        @Override
+        public void updated() {
+            groupsUpdated = true;
+            searchResultsScheduler.schedule(dispatchSearchResults);
+        }
+    };
+
+    final private Runnable dispatchSearchResults = new Runnable() {
+        @Override
+        public void run() {
+            if (connectionsResults == null) {
+                return;
+            }
+            User[] connectedUsers = connectionsResults.getAll();
+            User[] otherUsers = recommendedResults.getAll();
+            IConversation[] conversations = groupResults.getAll();
+            if (connectionsUpdated && recommendedUpdated && groupsUpdated) {
+                searchResultCache.put(activeSearchTerm, connectedUsers, otherUsers, conversations);
+            }
+            if (!TextUtils.isEmpty(searchFilter) && searchFilter.equals(activeSearchTerm)) {
+                notifySearchResultsUpdated(connectedUsers, otherUsers, conversations);
             }
         }
     };
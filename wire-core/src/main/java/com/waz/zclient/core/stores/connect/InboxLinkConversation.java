@@ -59,6 +59,7 @@ public class InboxLinkConversation implements IConversation, UpdateListener {
     private IConversation indicatorConversation;
     private List<UpdateListener> updateListeners = new ArrayList<>();
     private ConversationsList.SearchableConversationsList incomingConversations;
+    private boolean attached;
 
     public InboxLinkConversation(Parcel in) {
         size = in.readInt();
@@ -72,9 +73,17 @@ public class InboxLinkConversation implements IConversation, UpdateListener {
         this.size = incomingConversations.size();
         this.incomingConversations = incomingConversations;
         incomingConversations.addUpdateListener(this);
+        attached = true;
         updated();
     }
 
+    /**
+     * @return false once {@link #clear()} was called, the size is not updated anymore then
+     */
+    public boolean isAttached() {
+        return attached;
+    }
+
     public int getSize() {
         return size;
     }
@@ -232,8 +241,11 @@ public class InboxLinkConversation implements IConversation, UpdateListener {
 
     @Override
     public void clear() {
+        attached = false;
         if (incomingConversations != null) {
             incomingConversations.removeUpdateListener(this);
+        }
+        if (indicatorConversation != null) {
             indicatorConversation.removeUpdateListener(this);
         }
     }
@@ -268,7 +280,8 @@ public class InboxLinkConversation implements IConversation, UpdateListener {
 
     @Override
     public void updated() {
-        if (incomingConversations.size() > 0) {
+        size = incomingConversations.size();
+        if (size > 0) {
             indicatorConversation = incomingConversations.get(0);
             indicatorConversation.addUpdateListener(this);
             for (UpdateListener updateListener : updateListeners) {
@@ -0,0 +1,344 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.core.stores.draft;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only file of draft changes. Every change is one checksummed record, so a write which was cut short by
+ * the process being killed only loses that record. Once most records are superseded the file is rewritten with
+ * just the live drafts.
+ *
+ * Drafts of at least {@link #COMPRESSION_THRESHOLD} bytes are stored deflated, and are only inflated when they are
+ * first read.
+ *
+ * Not thread safe, all calls have to come from the same thread.
+ */
+public class DraftLog {
+
+    public static final int COMPRESSION_THRESHOLD = 512;
+
+    static final int MAGIC = 0x57445246;
+    static final int VERSION = 1;
+
+    private static final int COMPACTION_SLACK = 64;
+    private static final byte TYPE_PLAIN = 0;
+    private static final byte TYPE_DEFLATED = 1;
+    private static final byte TYPE_DELETED = 2;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private int recordCount;
+
+    public DraftLog(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads all drafts from the file. Drafts are not decoded yet, see {@link Entry#getText()}.
+     */
+    public Map<String, Entry> load() throws IOException {
+        entries.clear();
+        recordCount = 0;
+        if (!file.exists()) {
+            return Collections.emptyMap();
+        }
+
+        byte[] bytes = readFully(file);
+        ByteArrayInputStream buffer = new ByteArrayInputStream(bytes);
+        DataInputStream in = new DataInputStream(buffer);
+        int validLength = 0;
+        try {
+            if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+                validLength = bytes.length - buffer.available();
+                while (buffer.available() > 0) {
+                    readRecord(in);
+                    recordCount++;
+                    validLength = bytes.length - buffer.available();
+                }
+            }
+        } catch (EOFException | UTFDataFormatException | CorruptRecordException e) {
+            // the last write was cut short, everything before it is fine
+        }
+
+        if (validLength == 0) {
+            entries.clear();
+            recordCount = 0;
+            if (!file.delete()) {
+                throw new IOException("Unable to delete unreadable draft file " + file);
+            }
+        } else if (validLength < bytes.length) {
+            RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+            try {
+                truncated.setLength(validLength);
+            } finally {
+                truncated.close();
+            }
+        }
+        maybeCompact();
+        return Collections.unmodifiableMap(new HashMap<>(entries));
+    }
+
+    /**
+     * Appends the changed drafts and syncs the file, an empty text removes the draft.
+     */
+    public void write(Map<String, String> drafts) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(records);
+        if (!file.exists() || file.length() == 0) {
+            writeHeader(out);
+        }
+        int written = 0;
+        for (Map.Entry<String, String> draft : drafts.entrySet()) {
+            String id = draft.getKey();
+            String text = draft.getValue();
+            if (text == null || text.isEmpty()) {
+                if (entries.remove(id) == null) {
+                    continue;
+                }
+                writeRecord(out, TYPE_DELETED, id, new byte[0]);
+            } else {
+                Entry previous = entries.get(id);
+                if (previous != null && text.equals(previous.getText())) {
+                    continue;
+                }
+                Entry entry = Entry.encode(text);
+                entries.put(id, entry);
+                writeRecord(out, entry.deflated ? TYPE_DEFLATED : TYPE_PLAIN, id, entry.data);
+            }
+            written++;
+        }
+        if (written == 0) {
+            return;
+        }
+
+        FileOutputStream stream = new FileOutputStream(file, true);
+        try {
+            stream.write(records.toByteArray());
+            stream.getFD().sync();
+        } finally {
+            stream.close();
+        }
+        recordCount += written;
+        maybeCompact();
+    }
+
+    /**
+     * Rewrites the file with only the live drafts, the old file is replaced atomically.
+     */
+    public void compact() throws IOException {
+        File compacted = new File(file.getPath() + ".tmp");
+        FileOutputStream stream = new FileOutputStream(compacted);
+        try {
+            ByteArrayOutputStream records = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(records);
+            writeHeader(out);
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                Entry value = entry.getValue();
+                writeRecord(out, value.deflated ? TYPE_DEFLATED : TYPE_PLAIN, entry.getKey(), value.data);
+            }
+            stream.write(records.toByteArray());
+            stream.getFD().sync();
+        } finally {
+            stream.close();
+        }
+        if (!compacted.renameTo(file)) {
+            throw new IOException("Unable to replace " + file);
+        }
+        recordCount = entries.size();
+    }
+
+    int getRecordCount() {
+        return recordCount;
+    }
+
+    private void maybeCompact() throws IOException {
+        if (recordCount > 2 * entries.size() + COMPACTION_SLACK) {
+            compact();
+        }
+    }
+
+    private void readRecord(DataInputStream in) throws IOException, CorruptRecordException {
+        byte type = in.readByte();
+        String id = in.readUTF();
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new CorruptRecordException();
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        if (in.readInt() != checksum(type, id, data)) {
+            throw new CorruptRecordException();
+        }
+        switch (type) {
+            case TYPE_PLAIN:
+                entries.put(id, new Entry(data, false));
+                break;
+            case TYPE_DEFLATED:
+                entries.put(id, new Entry(data, true));
+                break;
+            case TYPE_DELETED:
+                entries.remove(id);
+                break;
+            default:
+                throw new CorruptRecordException();
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    private static void writeRecord(DataOutputStream out, byte type, String id, byte[] data) throws IOException {
+        out.writeByte(type);
+        out.writeUTF(id);
+        out.writeInt(data.length);
+        out.write(data);
+        out.writeInt(checksum(type, id, data));
+    }
+
+    private static int checksum(byte type, String id, byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(id.getBytes(UTF_8));
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            in.readFully(bytes);
+            return bytes;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * A stored draft, decoded on first access.
+     */
+    public static final class Entry {
+        private final byte[] data;
+        private final boolean deflated;
+        private String text;
+
+        private Entry(byte[] data, boolean deflated) {
+            this.data = data;
+            this.deflated = deflated;
+        }
+
+        static Entry encode(String text) {
+            byte[] plain = text.getBytes(UTF_8);
+            Entry entry = null;
+            if (plain.length >= COMPRESSION_THRESHOLD) {
+                byte[] compressed = deflate(plain);
+                if (compressed.length < plain.length) {
+                    entry = new Entry(compressed, true);
+                }
+            }
+            if (entry == null) {
+                entry = new Entry(plain, false);
+            }
+            entry.text = text;
+            return entry;
+        }
+
+        public synchronized String getText() {
+            if (text == null) {
+                text = new String(deflated ? inflate(data) : data, UTF_8);
+            }
+            return text;
+        }
+
+        public boolean isDeflated() {
+            return deflated;
+        }
+
+        public int getStoredSize() {
+            return data.length;
+        }
+
+        private static byte[] deflate(byte[] plain) {
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try {
+                deflater.setInput(plain);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(plain.length / 2 + 8);
+                DataOutputStream header = new DataOutputStream(out);
+                header.writeInt(plain.length);
+                byte[] chunk = new byte[1024];
+                while (!deflater.finished()) {
+                    out.write(chunk, 0, deflater.deflate(chunk));
+                }
+                return out.toByteArray();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private static byte[] inflate(byte[] compressed) {
+            Inflater inflater = new Inflater();
+            try {
+                int length = ((compressed[0] & 0xff) << 24) | ((compressed[1] & 0xff) << 16) |
+                             ((compressed[2] & 0xff) << 8) | (compressed[3] & 0xff);
+                byte[] plain = new byte[length];
+                inflater.setInput(compressed, 4, compressed.length - 4);
+                int inflated = 0;
+                while (inflated < length && !inflater.finished()) {
+                    int count = inflater.inflate(plain, inflated, length - inflated);
+                    if (count == 0 && inflater.needsInput()) {
+                        break;
+                    }
+                    inflated += count;
+                }
+                return plain;
+            } catch (DataFormatException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    private static final class CorruptRecordException extends Exception {
+    }
+}
@@ -17,6 +17,26 @@
  */
 package com.waz.zclient.core.stores.draft;
 
+import java.util.HashSet;
+import java.util.Set;
+
 public abstract class DraftStore implements IDraftStore {
 
+    protected Set<DraftStoreObserver> draftStoreObservers = new HashSet<>();
+
+    @Override
+    public void addDraftStoreObserver(DraftStoreObserver observer) {
+        draftStoreObservers.add(observer);
+    }
+
+    @Override
+    public void removeDraftStoreObserver(DraftStoreObserver observer) {
+        draftStoreObservers.remove(observer);
+    }
+
+    protected void notifyDraftsLoaded() {
+        for (DraftStoreObserver observer : draftStoreObservers) {
+            observer.onDraftsLoaded();
+        }
+    }
 }
@@ -24,4 +24,7 @@ public interface IDraftStore extends IStore {
 
     void setDraft(IConversation conversation, String text);
     String getDraft(IConversation conversation);
+
+    void addDraftStoreObserver(DraftStoreObserver observer);
+    void removeDraftStoreObserver(DraftStoreObserver observer);
 }
@@ -0,0 +1,189 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.core.stores.pickuser;
+
+import com.waz.api.IConversation;
+import com.waz.api.User;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Remembers the last people search results per query. A query that extends a cached one (typing "ann" after "an")
+ * gets the cached results filtered locally, so there is something to show while the backend query refines them.
+ */
+public class SearchResultCache {
+
+    private static final int DEFAULT_CAPACITY = 32;
+    private static final User[] NO_USERS = new User[0];
+    private static final IConversation[] NO_CONVERSATIONS = new IConversation[0];
+
+    private final Map<String, Entry> entries;
+
+    public SearchResultCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SearchResultCache(final int capacity) {
+        entries = new LinkedHashMap<String, Entry>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public void put(String query, User[] connectedUsers, User[] otherUsers, IConversation[] conversations) {
+        String key = normalize(query);
+        if (key.isEmpty()) {
+            return;
+        }
+        entries.put(key, new Entry(key, true, connectedUsers, otherUsers, conversations));
+    }
+
+    /**
+     * @return the cached results of the query, or the results of the longest cached prefix of the query filtered
+     * locally, or null if nothing usable is cached
+     */
+    public Entry find(String query) {
+        String key = normalize(query);
+        if (key.isEmpty()) {
+            return null;
+        }
+        Entry exact = entries.get(key);
+        if (exact != null) {
+            return exact;
+        }
+        for (int length = key.length() - 1; length > 0; length--) {
+            Entry prefixEntry = entries.get(key.substring(0, length));
+            if (prefixEntry != null) {
+                return new Entry(key,
+                                 false,
+                                 filterUsers(prefixEntry.connectedUsers, key),
+                                 filterUsers(prefixEntry.otherUsers, key),
+                                 filterConversations(prefixEntry.conversations, key));
+            }
+        }
+        return null;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public static String normalize(String query) {
+        return query == null ? "" : query.trim().toLowerCase(Locale.getDefault());
+    }
+
+    private static User[] filterUsers(User[] users, String query) {
+        if (users == null || users.length == 0) {
+            return NO_USERS;
+        }
+        List<User> filtered = new ArrayList<>(users.length);
+        for (User user : users) {
+            if (matches(user.getName(), query) ||
+                matches(user.getDisplayName(), query) ||
+                startsWith(user.getEmail(), query)) {
+                filtered.add(user);
+            }
+        }
+        return filtered.toArray(new User[filtered.size()]);
+    }
+
+    private static IConversation[] filterConversations(IConversation[] conversations, String query) {
+        if (conversations == null || conversations.length == 0) {
+            return NO_CONVERSATIONS;
+        }
+        List<IConversation> filtered = new ArrayList<>(conversations.length);
+        for (IConversation conversation : conversations) {
+            if (matches(conversation.getName(), query)) {
+                filtered.add(conversation);
+            }
+        }
+        return filtered.toArray(new IConversation[filtered.size()]);
+    }
+
+    /**
+     * The backend matches the query against the start of each word of a name
+     */
+    static boolean matches(String name, String query) {
+        if (name == null) {
+            return false;
+        }
+        String text = name.toLowerCase(Locale.getDefault());
+        if (text.startsWith(query)) {
+            return true;
+        }
+        for (int i = text.indexOf(' '); i >= 0; i = text.indexOf(' ', i + 1)) {
+            if (text.startsWith(query, i + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWith(String text, String query) {
+        return text != null && text.toLowerCase(Locale.getDefault()).startsWith(query);
+    }
+
+    public static final class Entry {
+        private final String query;
+        private final boolean exact;
+        private final User[] connectedUsers;
+        private final User[] otherUsers;
+        private final IConversation[] conversations;
+
+        Entry(String query, boolean exact, User[] connectedUsers, User[] otherUsers, IConversation[] conversations) {
+            this.query = query;
+            this.exact = exact;
+            this.connectedUsers = connectedUsers == null ? NO_USERS : connectedUsers;
+            this.otherUsers = otherUsers == null ? NO_USERS : otherUsers;
+            this.conversations = conversations == null ? NO_CONVERSATIONS : conversations;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        /**
+         * @return false if the results were filtered locally from a shorter query and may be incomplete
+         */
+        public boolean isExact() {
+            return exact;
+        }
+
+        public User[] getConnectedUsers() {
+            return connectedUsers;
+        }
+
+        public User[] getOtherUsers() {
+            return otherUsers;
+        }
+
+        public IConversation[] getConversations() {
+            return conversations;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.utils;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.os.Build;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds the emojis the system fonts can't display. The list is split into chunks which are probed in
+ * parallel on the given executor, using {@link Paint#hasGlyph(String)} where available and otherwise
+ * comparing the rendered emoji with the rendering of a missing character.
+ *
+ * The result only depends on the system fonts, {@link #getFontStamp()} identifies them so the result can
+ * be kept until they change.
+ */
+public class EmojiGlyphProber {
+
+    private static final int MIN_CHUNK_SIZE = 128;
+
+    public interface Callback {
+        /**
+         * Called on a background thread with the missing emojis, in the order they were given.
+         */
+        void onProbed(List<String> missing);
+    }
+
+    interface GlyphChecker {
+        boolean isMissing(String emoji);
+    }
+
+    interface GlyphCheckerFactory {
+        /**
+         * Checkers are used by a single chunk only, so they don't need to be thread safe.
+         */
+        GlyphChecker create();
+    }
+
+    private static final GlyphCheckerFactory DEFAULT_CHECKER_FACTORY = new GlyphCheckerFactory() {
+        @Override
+        public GlyphChecker create() {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                return new PaintGlyphChecker();
+            }
+            return new RenderedGlyphChecker();
+        }
+    };
+
+    private EmojiGlyphProber() {}
+
+    /**
+     * @return an identifier of the installed system fonts. They are part of the system image, so its build
+     * fingerprint changes whenever they do, and no font file has to be looked at.
+     */
+    public static String getFontStamp() {
+        return Build.FINGERPRINT;
+    }
+
+    public static void probe(List<String> emojis, Executor executor, Callback callback) {
+        probe(emojis, executor, DEFAULT_CHECKER_FACTORY, Runtime.getRuntime().availableProcessors(), callback);
+    }
+
+    static void probe(final List<String> emojis,
+                      Executor executor,
+                      final GlyphCheckerFactory checkerFactory,
+                      int maxChunks,
+                      final Callback callback) {
+        final int size = emojis.size();
+        final int chunkCount = Math.max(1, Math.min(maxChunks, (size + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE));
+        final int chunkSize = (size + chunkCount - 1) / chunkCount;
+        @SuppressWarnings("unchecked")
+        final List<String>[] results = new List[chunkCount];
+        final AtomicInteger remaining = new AtomicInteger(chunkCount);
+        for (int c = 0; c < chunkCount; c++) {
+            final int chunk = c;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    GlyphChecker checker = checkerFactory.create();
+                    List<String> missing = new ArrayList<>();
+                    for (int i = chunk * chunkSize; i < Math.min(size, (chunk + 1) * chunkSize); i++) {
+                        String emoji = emojis.get(i);
+                        if (checker.isMissing(emoji)) {
+                            missing.add(emoji);
+                        }
+                    }
+                    results[chunk] = missing;
+                    if (remaining.decrementAndGet() == 0) {
+                        List<String> allMissing = new ArrayList<>();
+                        for (List<String> result : results) {
+                            allMissing.addAll(result);
+                        }
+                        callback.onProbed(allMissing);
+                    }
+                }
+            });
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.M)
+    private static class PaintGlyphChecker implements GlyphChecker {
+        private final Paint paint = new Paint();
+
+        @Override
+        public boolean isMissing(String emoji) {
+            return !paint.hasGlyph(emoji);
+        }
+    }
+
+    /**
+     * Renders each emoji and compares it to the rendering of a missing character. Hashes of the pixels
+     * are compared first, the pixels themselves only when the hashes match.
+     */
+    private static class RenderedGlyphChecker implements GlyphChecker {
+        private static final int SIZE = 50;
+
+        private final Paint paint = new Paint();
+        private final Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ALPHA_8);
+        private final Canvas canvas = new Canvas(bitmap);
+        private final ByteBuffer buffer = ByteBuffer.allocate(bitmap.getByteCount());
+        private final byte[] missingPixels;
+        private final long missingHash;
+
+        RenderedGlyphChecker() {
+            missingHash = render("\uFFFF"); // missing char
+            missingPixels = buffer.array().clone();
+        }
+
+        @Override
+        public boolean isMissing(String emoji) {
+            return render(emoji) == missingHash && Arrays.equals(buffer.array(), missingPixels);
+        }
+
+        private long render(String text) {
+            canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            canvas.drawText(text, 0, SIZE / 2, paint);
+            buffer.rewind();
+            bitmap.copyPixelsToBuffer(buffer);
+            return hash(buffer.array());
+        }
+    }
+
+    /**
+     * 64 bit FNV-1a hash.
+     */
+    static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.utils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The emojis shown on the emoji keyboards, filtered by the ones the system fonts can't display. Filtering
+ * happens once per set of unsupported emojis; the keyboard list with the recent emojis and the spaces
+ * separating the categories is a view on top of it which doesn't copy anything.
+ */
+public final class EmojiKeyboardModel {
+
+    /**
+     * Placeholder item separating two categories.
+     */
+    public static final String SPACE = " ";
+
+    private static volatile EmojiKeyboardModel cached;
+
+    private final Set<String> unsupported;
+    // supported emojis of all categories, one after the other
+    private final String[] emojis;
+    // index in emojis of the first emoji of each category, followed by the total count
+    private final int[] categoryStarts;
+
+    private EmojiKeyboardModel(List<String[]> categories, Set<String> unsupported) {
+        this.unsupported = unsupported;
+        int total = 0;
+        for (String[] category : categories) {
+            total += category.length;
+        }
+        String[] supported = new String[total];
+        categoryStarts = new int[categories.size() + 1];
+        int count = 0;
+        for (int c = 0; c < categories.size(); c++) {
+            categoryStarts[c] = count;
+            for (String emoji : categories.get(c)) {
+                if (unsupported == null || !unsupported.contains(emoji)) {
+                    supported[count++] = emoji;
+                }
+            }
+        }
+        categoryStarts[categories.size()] = count;
+        emojis = count == total ? supported : Arrays.copyOf(supported, count);
+    }
+
+    /**
+     * @return the model for all {@link Emojis} without the given unsupported ones, reused as long as the
+     * same set is passed
+     */
+    public static EmojiKeyboardModel get(Set<String> unsupported) {
+        EmojiKeyboardModel model = cached;
+        if (model == null || model.unsupported != unsupported) {
+            model = new EmojiKeyboardModel(Emojis.getAllEmojisSortedByCategory(), unsupported);
+            cached = model;
+        }
+        return model;
+    }
+
+    static EmojiKeyboardModel create(List<String[]> categories, Set<String> unsupported) {
+        return new EmojiKeyboardModel(categories, unsupported);
+    }
+
+    public int getCategoryCount() {
+        return categoryStarts.length - 1;
+    }
+
+    public int getEmojiCount() {
+        return emojis.length;
+    }
+
+    public Keyboard withRecent(List<String> recent) {
+        return new Keyboard(this, recent == null ? new String[0] : recent.toArray(new String[recent.size()]));
+    }
+
+    /**
+     * The items of the keyboard: the recent emojis followed by a space if there are any, then every category
+     * followed by a space.
+     */
+    public static final class Keyboard extends AbstractList<String> {
+        private final EmojiKeyboardModel model;
+        private final String[] recent;
+        private final int recentSection;
+
+        private Keyboard(EmojiKeyboardModel model, String[] recent) {
+            this.model = model;
+            this.recent = recent;
+            this.recentSection = recent.length == 0 ? 0 : recent.length + 1;
+        }
+
+        @Override
+        public int size() {
+            return recentSection + model.emojis.length + model.getCategoryCount();
+        }
+
+        @Override
+        public String get(int position) {
+            if (position < 0 || position >= size()) {
+                throw new IndexOutOfBoundsException("position: " + position + ", size: " + size());
+            }
+            if (position < recentSection) {
+                return position < recent.length ? recent[position] : SPACE;
+            }
+            int category = getCategoryAt(position);
+            int index = position - recentSection - category;
+            return index == model.categoryStarts[category + 1] ? SPACE : model.emojis[index];
+        }
+
+        public boolean isSpace(int position) {
+            return SPACE.equals(get(position));
+        }
+
+        public boolean hasRecent() {
+            return recent.length > 0;
+        }
+
+        public EmojiKeyboardModel getModel() {
+            return model;
+        }
+
+        /**
+         * @return the position of the first item of the given category
+         */
+        public int getCategoryPosition(int category) {
+            return recentSection + model.categoryStarts[category] + category;
+        }
+
+        /**
+         * @return the category of the item at the given position, the space after a category belongs to it;
+         * -1 for the recent emojis
+         */
+        public int getCategoryAt(int position) {
+            if (position < recentSection) {
+                return -1;
+            }
+            int offset = position - recentSection;
+            int[] starts = model.categoryStarts;
+            for (int c = 0; c < starts.length - 1; c++) {
+                // each category takes its emojis plus one space
+                if (offset <= starts[c + 1] + c) {
+                    return c;
+                }
+            }
+            return starts.length - 2;
+        }
+    }
+}
@@ -17,23 +17,12 @@
  */
 package com.waz.zclient.utils;
 
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.PorterDuff;
 import android.net.Uri;
 
-import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
 import java.util.Locale;
 
 public class StringUtils {
 
-    private static Paint paint = new Paint();
-
     public static boolean isBlank(CharSequence cs) {
         int strLen;
         if (cs == null || (strLen = cs.length()) == 0) {
@@ -123,42 +112,4 @@ public class StringUtils {
         return directionality == Character.DIRECTIONALITY_RIGHT_TO_LEFT ||
                directionality == Character.DIRECTIONALITY_RIGHT_TO_LEFT_ARABIC;
     }
-
-    public static Collection<String> getMissingInFont(Collection<String> strings) {
-        TextDrawing template = new TextDrawing();
-        template.set("\uFFFF"); // missing char
-
-        TextDrawing emoji = new TextDrawing();
-        ArrayList<String> missing = new ArrayList<>();
-        for (String s : strings) {
-            emoji.set(s);
-            if (template.equals(emoji)) {
-                missing.add(s);
-            }
-        }
-        return missing;
-    }
-
-    private static class TextDrawing {
-        private final Bitmap bitmap = Bitmap.createBitmap(50, 50, Bitmap.Config.ALPHA_8);
-        private final Canvas canvas = new Canvas(bitmap);
-        private final ByteBuffer buffer = ByteBuffer.allocate(bitmap.getByteCount());
-
-        public void set(String text) {
-            canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
-            canvas.drawText(text, 0, 50 / 2, paint);
-            buffer.rewind();
-            bitmap.copyPixelsToBuffer(buffer);
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            return o != null && (o instanceof TextDrawing) && Arrays.equals(buffer.array(), ((TextDrawing) o).buffer.array());
-        }
-
-        @Override
-        public int hashCode() {
-            return Arrays.hashCode(buffer.array());
-        }
-    }
 }
@@ -26,12 +26,13 @@ import android.view.ViewGroup;
 import android.widget.FrameLayout;
 import android.widget.TextView;
 import com.waz.zclient.ui.R;
+import com.waz.zclient.utils.EmojiKeyboardModel;
 import com.waz.zclient.utils.ViewUtils;
 import java.util.List;
 
 public class EmojiAdapter extends RecyclerView.Adapter<EmojiAdapter.ViewHolder> {
 
-    public static final String SPACE = " ";
+    public static final String SPACE = EmojiKeyboardModel.SPACE;
     private List<String> emojis;
     private OnEmojiClickListener onEmojiClickListener;
     private EmojiSize emojiSize;
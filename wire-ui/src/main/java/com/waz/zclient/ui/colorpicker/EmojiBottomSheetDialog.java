@@ -27,11 +27,8 @@ import android.view.ViewGroup;
 import android.widget.LinearLayout;
 import com.waz.zclient.ui.R;
 import com.waz.zclient.ui.views.tab.TabIndicatorLayout;
-import com.waz.zclient.utils.Emojis;
+import com.waz.zclient.utils.EmojiKeyboardModel;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
@@ -40,8 +37,7 @@ public class EmojiBottomSheetDialog extends BottomSheetDialog {
     private EmojiSize currentEmojiSize;
     private EmojiDialogListener listener;
 
-    private List<String> emojis;
-    private List<Integer> spaces;
+    private EmojiKeyboardModel.Keyboard keyboard;
 
     public EmojiBottomSheetDialog(@NonNull Context context,
                                   EmojiSize currentEmojiSize,
@@ -55,7 +51,7 @@ public class EmojiBottomSheetDialog extends BottomSheetDialog {
     }
 
     private void init(List<String> recent, Set<String> unsupported) {
-        populateEmojis(recent, unsupported);
+        keyboard = EmojiKeyboardModel.get(unsupported).withRecent(recent);
         final RecyclerView recyclerView = new RecyclerView(getContext());
         final EmojiAdapter adapter = new EmojiAdapter(getContext());
         final GridLayoutManager layoutManager = new GridLayoutManager(getContext(),
@@ -65,7 +61,7 @@ public class EmojiBottomSheetDialog extends BottomSheetDialog {
         layoutManager.setSpanSizeLookup(new GridLayoutManager.SpanSizeLookup() {
             @Override
             public int getSpanSize(int position) {
-                return spaces.contains(position) ? getEmojiLayoutManagerSpanCount() : 1;
+                return keyboard.isSpace(position) ? getEmojiLayoutManagerSpanCount() : 1;
             }
         });
 
@@ -108,35 +104,10 @@ public class EmojiBottomSheetDialog extends BottomSheetDialog {
                 dismiss();
             }
         });
-        adapter.setEmojis(emojis, currentEmojiSize);
+        adapter.setEmojis(keyboard, currentEmojiSize);
         setContentView(ll);
     }
 
-    private void populateEmojis(List<String> recent, Set<String> unsupported) {
-        spaces = new ArrayList<>();
-        emojis = new ArrayList<>();
-        if (recent != null && recent.size() > 0) {
-            emojis.addAll(recent);
-            spaces.add(emojis.size());
-            emojis.add(EmojiAdapter.SPACE);
-        }
-        for (String[] emojiArray : Emojis.getAllEmojisSortedByCategory()) {
-            emojis.addAll(getFilteredList(emojiArray, unsupported));
-            spaces.add(emojis.size());
-            emojis.add(EmojiAdapter.SPACE);
-        }
-    }
-
-    private List<String> getFilteredList(String[] strings, Set<String> unsupported) {
-        List<String> list = Arrays.asList(strings);
-        if (unsupported == null || unsupported.size() == 0) {
-            return list;
-        }
-        LinkedList<String> filteredList = new LinkedList<>(list);
-        filteredList.removeAll(unsupported);
-        return filteredList;
-    }
-
     private void setRecyclerViewPadding(RecyclerView recyclerView) {
         int padding;
         switch (currentEmojiSize) {
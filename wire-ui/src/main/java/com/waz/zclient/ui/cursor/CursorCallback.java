@@ -30,7 +30,7 @@ public interface CursorCallback {
 
     void onMessageSubmitted(String message);
 
-    void onEditTextHasChanged(int cursorPosition, String text);
+    void onEditTextHasChanged(int cursorPosition, String text, int lineCount);
 
     void onFocusChange(boolean hasFocus);
 
@@ -24,6 +24,7 @@ import android.content.Context;
 import android.graphics.drawable.ColorDrawable;
 import android.os.Handler;
 import android.support.v4.content.ContextCompat;
+import android.support.v4.view.ViewCompat;
 import android.text.Editable;
 import android.text.TextUtils;
 import android.text.TextWatcher;
@@ -118,6 +119,14 @@ public class CursorLayout extends FrameLayout implements
     private int ephemeralColor;
     private int accentColor;
     private IConversation conversation;
+    private boolean textChangePending;
+
+    private final Runnable textChangedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatchTextChanged();
+        }
+    };
 
     private ModelObserver<IConversation> conversationModelObserver = new ModelObserver<IConversation>() {
         @Override
@@ -380,8 +389,8 @@ public class CursorLayout extends FrameLayout implements
     }
 
     /**
-     * Notifies container that edit text has changed. And if text is not empty it triggers
-     * also the typing indicator.
+     * Notifies container that edit text has changed. Keystrokes are batched, the container and the hint are
+     * updated once per frame with the latest text.
      */
     @Override
     public void onTextChanged(CharSequence charSequence, int i, int i1, int i2) {
@@ -395,18 +404,31 @@ public class CursorLayout extends FrameLayout implements
             return;
         }
 
-        String text = charSequence.toString();
+        if (!textChangePending) {
+            textChangePending = true;
+            ViewCompat.postOnAnimation(this, textChangedRunnable);
+        }
+    }
+
+    private void dispatchTextChanged() {
+        textChangePending = false;
+        if (isEditingMessage()) {
+            return;
+        }
+
+        String text = newCursorEditText.getText().toString();
+        int lineCount = newCursorEditText.getLineCount();
         if (cursorCallback != null) {
-            cursorCallback.onEditTextHasChanged(newCursorEditText.getSelectionStart(), text);
+            cursorCallback.onEditTextHasChanged(newCursorEditText.getSelectionStart(), text, lineCount);
         }
 
-        if (TextUtils.isEmpty(charSequence.toString())) {
+        if (text.isEmpty()) {
             hintView.setVisibility(View.VISIBLE);
         } else {
             hintView.setVisibility(View.GONE);
         }
 
-        showTopbar(newCursorEditText.getLineCount() > maxLines);
+        showTopbar(lineCount > maxLines);
     }
 
     @Override
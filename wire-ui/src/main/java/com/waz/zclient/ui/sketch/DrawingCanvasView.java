@@ -24,6 +24,7 @@ import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.Rect;
 import android.graphics.RectF;
 import android.util.AttributeSet;
 import android.view.GestureDetector;
@@ -54,6 +55,10 @@ public class DrawingCanvasView extends View {
     private boolean isPaintedOn = false;
     private boolean touchMoved = false;
     private static final float TOUCH_TOLERANCE = 2;
+    // Take a raster checkpoint of the history every this many items
+    private static final int CHECKPOINT_INTERVAL = 32;
+    // Upper bound for all checkpoints together, further limited to 1/8 of the heap
+    private static final long MAX_CHECKPOINT_MEMORY = 24 * 1024 * 1024;
     private Bitmap.Config bitmapConfig;
 
     private int trimBuffer;
@@ -62,6 +67,8 @@ public class DrawingCanvasView extends View {
     private boolean drawEmoji;
 
     private final SketchCanvasHistory canvasHistory;
+    private final SketchCheckpoints<Bitmap> checkpoints;
+    private final Rect dirtyRect = new Rect();
 
     public enum Mode {
         SKETCH,
@@ -81,6 +88,12 @@ public class DrawingCanvasView extends View {
     public DrawingCanvasView(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
         canvasHistory = new SketchCanvasHistory();
+        checkpoints = new SketchCheckpoints<>(CHECKPOINT_INTERVAL, new SketchCheckpoints.Recycler<Bitmap>() {
+            @Override
+            public void recycle(Bitmap checkpoint) {
+                checkpoint.recycle();
+            }
+        });
         init();
     }
 
@@ -121,9 +134,20 @@ public class DrawingCanvasView extends View {
                 canvas = new Canvas(bitmap);
             }
         }
+        updateCheckpointBudget();
         redraw();
     }
 
+    private void updateCheckpointBudget() {
+        checkpoints.clear();
+        if (bitmap == null) {
+            checkpoints.setMaxCount(0);
+            return;
+        }
+        long budget = Math.min(MAX_CHECKPOINT_MEMORY, Runtime.getRuntime().maxMemory() / 8);
+        checkpoints.setMaxCount((int) (budget / Math.max(1, bitmap.getByteCount())));
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         canvas.drawColor(Color.TRANSPARENT);
@@ -143,12 +167,14 @@ public class DrawingCanvasView extends View {
         if (backgroundBitmap.getWidth() > backgroundBitmap.getHeight()) {
             isBackgroundBitmapLandscape = true;
         }
+        checkpoints.clear();
         drawBackgroundBitmap();
     }
 
     public void reset() {
         paintedOn(false);
         canvasHistory.clear();
+        checkpoints.clear();
         canvas.drawRect(0, 0, bitmap.getWidth(), bitmap.getHeight(), whitePaint);
         drawBackgroundBitmap();
         invalidate();
@@ -228,6 +254,7 @@ public class DrawingCanvasView extends View {
             drawingPaint.setStyle(Paint.Style.FILL);
             canvas.drawRect(0, 0, bitmap.getWidth(), bitmap.getHeight(), drawingPaint);
             canvasHistory.addFillScreen(bitmap.getWidth(), bitmap.getHeight(), new Paint(drawingPaint));
+            updateCheckpoints();
             paintedOn(true);
             drawingPaint.setStyle(Paint.Style.STROKE);
             invalidate();
@@ -268,7 +295,8 @@ public class DrawingCanvasView extends View {
         if (drawEmoji) {
             drawEmoji = false;
             canvas.drawText(emoji, currentX, currentY, emojiPaint);
-            canvasHistory.addEmoji(emoji, currentX, currentY, new Paint(emojiPaint));
+            canvasHistory.addEmoji(emoji, currentX, currentY, emojiPaint);
+            updateCheckpoints();
             paintedOn(true);
         } else {
             path.lineTo(currentX, currentY);
@@ -277,7 +305,8 @@ public class DrawingCanvasView extends View {
                 touchMoved = false;
                 RectF bounds = new RectF();
                 path.computeBounds(bounds, true);
-                canvasHistory.addStroke(new Path(path), new Paint(drawingPaint), bounds);
+                canvasHistory.addStroke(new Path(path), drawingPaint, bounds);
+                updateCheckpoints();
             }
             path.reset();
         }
@@ -381,6 +410,8 @@ public class DrawingCanvasView extends View {
             paintedOn(false);
         }
         SketchCanvasHistory.HistoryItem last = canvasHistory.undo();
+        checkpoints.dropAfter(canvasHistory.size());
+        updateCheckpoints();
         if (last instanceof SketchCanvasHistory.Text) {
             SketchCanvasHistory.Text newLastText = canvasHistory.getLastText();
             if (newLastText != null && newLastText.text != null) {
@@ -388,8 +419,10 @@ public class DrawingCanvasView extends View {
             } else {
                 drawingCanvasCallback.onTextRemoved();
             }
+            redraw();
+        } else {
+            redraw(last.getDirtyBounds());
         }
-        redraw();
         return true;
     }
 
@@ -423,7 +456,10 @@ public class DrawingCanvasView extends View {
             return;
         }
         includeBackgroundImage = true;
+        drawBackgroundBitmap(canvas);
+    }
 
+    private void drawBackgroundBitmap(Canvas canvas) {
         RectF src;
         RectF dest;
         int horizontalMargin;
@@ -456,6 +492,7 @@ public class DrawingCanvasView extends View {
 
     public void removeBackgroundBitmap() {
         includeBackgroundImage = false;
+        checkpoints.clear();
         redraw();
     }
 
@@ -477,28 +514,93 @@ public class DrawingCanvasView extends View {
     }
 
     public void showText() {
-        canvasHistory.showText();
+        int removedPosition = canvasHistory.showText();
+        if (removedPosition >= 0) {
+            checkpoints.onItemRemoved(removedPosition);
+        }
         redraw();
     }
 
     private void redraw() {
-        canvas.drawRect(0, 0, bitmap.getWidth(), bitmap.getHeight(), whitePaint);
+        redraw(null);
+    }
+
+    /**
+     * Redraws the canvas starting from the latest usable checkpoint. With a {@code dirty} area, drawing is
+     * clipped to it and items outside of it are skipped.
+     */
+    private void redraw(RectF dirty) {
+        if (canvas == null) {
+            return;
+        }
+        canvas.save();
+        if (dirty != null) {
+            dirty.roundOut(dirtyRect);
+            canvas.clipRect(dirtyRect);
+        }
+        SketchCheckpoints.Checkpoint<Bitmap> checkpoint = checkpoints.findAtOrBefore(canvasHistory.getCheckpointLimit());
+        int from = 0;
+        if (checkpoint == null) {
+            drawBase(canvas);
+        } else {
+            canvas.drawBitmap(checkpoint.getData(), 0, 0, null);
+            from = checkpoint.getIndex();
+        }
+        canvasHistory.draw(canvas, from, dirty);
+        canvas.restore();
         paintedOn(canvasHistory.size() > 0);
-        if (includeBackgroundImage) {
-            drawBackgroundBitmap();
+        if (dirty == null) {
+            invalidate();
+        } else {
+            invalidate(dirtyRect);
         }
-        drawHistory();
-        invalidate();
     }
 
-    private void drawHistory() {
-        canvasHistory.draw(canvas);
+    private void drawBase(Canvas canvas) {
+        canvas.drawRect(0, 0, canvas.getWidth(), canvas.getHeight(), whitePaint);
+        if (includeBackgroundImage && backgroundBitmap != null) {
+            drawBackgroundBitmap(canvas);
+        }
     }
 
+    private void updateCheckpoints() {
+        if (bitmap != null) {
+            checkpoints.update(canvasHistory.size(), checkpointRenderer);
+        }
+    }
+
+    /**
+     * Renders the history since the previous checkpoint on top of it into a new checkpoint, without texts
+     * so it stays valid whichever text ends up being shown.
+     */
+    private final SketchCheckpoints.Renderer<Bitmap> checkpointRenderer = new SketchCheckpoints.Renderer<Bitmap>() {
+        @Override
+        public Bitmap render(SketchCheckpoints.Checkpoint<Bitmap> from, int index) {
+            Bitmap snapshot;
+            try {
+                snapshot = Bitmap.createBitmap(bitmap.getWidth(), bitmap.getHeight(), bitmapConfig);
+            } catch (OutOfMemoryError outOfMemoryError) {
+                // Checkpoints only speed up redrawing, give up on more of them rather than fail
+                checkpoints.setMaxCount(checkpoints.size());
+                return null;
+            }
+            Canvas snapshotCanvas = new Canvas(snapshot);
+            if (from == null) {
+                drawBase(snapshotCanvas);
+                canvasHistory.drawWithoutText(snapshotCanvas, 0, index);
+            } else {
+                snapshotCanvas.drawBitmap(from.getData(), 0, 0, null);
+                canvasHistory.drawWithoutText(snapshotCanvas, from.getIndex(), index);
+            }
+            return snapshot;
+        }
+    };
+
     public void onDestroy() {
         bitmap = null;
         backgroundBitmap = null;
         canvas = null;
+        checkpoints.clear();
         if (canvasHistory != null) {
             canvasHistory.clear();
         }
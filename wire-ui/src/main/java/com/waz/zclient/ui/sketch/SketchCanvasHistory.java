@@ -22,15 +22,18 @@ import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.RectF;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 class SketchCanvasHistory {
 
-    private final LinkedList<HistoryItem> historyItems; //NOPMD
+    private final ArrayList<HistoryItem> historyItems; //NOPMD
+    // Strokes and emojis drawn with the same settings share one paint instead of copying it per item
+    private final ArrayList<Paint> paints;
 
     SketchCanvasHistory() {
-        historyItems = new LinkedList<>();
+        historyItems = new ArrayList<>();
+        paints = new ArrayList<>();
     }
 
     List<HistoryItem> getHistoryItems() {
@@ -43,41 +46,89 @@ class SketchCanvasHistory {
 
     void clear() {
         historyItems.clear();
+        paints.clear();
     }
 
     void draw(Canvas canvas) {
+        draw(canvas, 0, null);
+    }
+
+    /**
+     * Draws the items from position {@code from} on, skipping the ones which lie outside of {@code dirty}.
+     * Only the last text is drawn, as every text item replaces the previous one.
+     */
+    void draw(Canvas canvas, int from, RectF dirty) {
         Text lastText = getLastText();
-        for (HistoryItem item : historyItems) {
-            if (!(item instanceof Text) || item == lastText) {
+        for (int i = from; i < historyItems.size(); i++) {
+            HistoryItem item = historyItems.get(i);
+            if (item instanceof Text && item != lastText) {
+                continue;
+            }
+            RectF bounds = item.getDirtyBounds();
+            if (dirty == null || bounds == null || RectF.intersects(bounds, dirty)) {
                 item.draw(canvas);
             }
         }
     }
 
+    /**
+     * Draws the items in [{@code from}, {@code to}) leaving out all texts, which is what checkpoints hold.
+     */
+    void drawWithoutText(Canvas canvas, int from, int to) {
+        for (int i = from; i < to; i++) {
+            HistoryItem item = historyItems.get(i);
+            if (!(item instanceof Text)) {
+                item.draw(canvas);
+            }
+        }
+    }
+
+    /**
+     * Checkpoints don't contain texts, so a checkpoint can only be used for redrawing if the visible text,
+     * if any, comes after all the items it holds.
+     *
+     * @return the maximum number of leading items a checkpoint used for redrawing may cover
+     */
+    int getCheckpointLimit() {
+        int lastTextIndex = getLastTextIndex();
+        if (lastTextIndex >= 0 && ((Text) historyItems.get(lastTextIndex)).bitmap != null) {
+            return lastTextIndex;
+        }
+        return historyItems.size();
+    }
+
     HistoryItem undo() {
-        return historyItems.removeLast();
+        return historyItems.remove(historyItems.size() - 1);
     }
 
     Text getLastText() {
-        Text lastText = null;
+        int lastTextIndex = getLastTextIndex();
+        return lastTextIndex < 0 ? null : (Text) historyItems.get(lastTextIndex);
+    }
+
+    private int getLastTextIndex() {
         for (int i = historyItems.size() - 1; i >= 0; i--) {
             if (historyItems.get(i) instanceof Text) {
-                lastText = (Text) historyItems.get(i);
-                break;
+                return i;
             }
         }
-        return lastText;
+        return -1;
     }
 
     void hideText() {
         historyItems.add(new HiddenText());
     }
 
-    void showText() {
-        Text lastText = getLastText();
-        if (lastText != null && lastText instanceof HiddenText) {
-            historyItems.remove(lastText);
+    /**
+     * @return the position the hidden text marker was removed from, or -1 if the text wasn't hidden
+     */
+    int showText() {
+        int lastTextIndex = getLastTextIndex();
+        if (lastTextIndex >= 0 && historyItems.get(lastTextIndex) instanceof HiddenText) {
+            historyItems.remove(lastTextIndex);
+            return lastTextIndex;
         }
+        return -1;
     }
 
     void addText(Bitmap textBitmap, float x, float y, String text, float scale, Paint paint) {
@@ -91,7 +142,7 @@ class SketchCanvasHistory {
     }
 
     void addEmoji(String emoji, float currentX, float currentY, Paint paint) {
-        historyItems.add(new Emoji(emoji, currentX, currentY, paint));
+        historyItems.add(new Emoji(emoji, currentX, currentY, obtainPaint(paint)));
     }
 
     void addFillScreen(float width, float height, Paint paint) {
@@ -99,17 +150,42 @@ class SketchCanvasHistory {
     }
 
     void addStroke(Path path, Paint paint, RectF bounds) {
-        historyItems.add(new Stroke(path, paint, bounds));
+        historyItems.add(new Stroke(path, obtainPaint(paint), bounds));
+    }
+
+    /**
+     * @return a copy of the given paint, shared with earlier items drawn with the same settings
+     */
+    private Paint obtainPaint(Paint paint) {
+        for (int i = paints.size() - 1; i >= 0; i--) {
+            Paint shared = paints.get(i);
+            if (shared.getColor() == paint.getColor() &&
+                shared.getStrokeWidth() == paint.getStrokeWidth() &&
+                shared.getTextSize() == paint.getTextSize() &&
+                shared.getStyle() == paint.getStyle() &&
+                shared.getFlags() == paint.getFlags()) {
+                return shared;
+            }
+        }
+        Paint copy = new Paint(paint);
+        paints.add(copy);
+        return copy;
     }
 
     interface HistoryItem {
         void draw(Canvas canvas);
+
+        /**
+         * @return the area of the canvas touched by this item, or null if it may cover all of it
+         */
+        RectF getDirtyBounds();
     }
 
     class Stroke implements HistoryItem {
         public final Path path;
         public final Paint paint;
         private RectF bounds;
+        private RectF dirtyBounds;
 
         private Stroke(Path path, Paint paint, RectF bounds) {
             this.path = path;
@@ -121,6 +197,17 @@ class SketchCanvasHistory {
             return bounds;
         }
 
+        @Override
+        public RectF getDirtyBounds() {
+            if (dirtyBounds == null) {
+                // The path bounds run through the middle of the stroke, add half the width plus anti-aliasing
+                float inset = paint.getStrokeWidth() / 2 + 1;
+                dirtyBounds = new RectF(bounds);
+                dirtyBounds.inset(-inset, -inset);
+            }
+            return dirtyBounds;
+        }
+
         @Override
         public void draw(Canvas canvas) {
             canvas.drawPath(path, paint);
@@ -132,6 +219,7 @@ class SketchCanvasHistory {
         public final float y;
         public final String emoji;
         public final Paint paint;
+        private RectF dirtyBounds;
 
         private Emoji(String emoji, float currentX, float currentY, Paint paint) {
             this.emoji = emoji;
@@ -140,6 +228,15 @@ class SketchCanvasHistory {
             this.paint = paint;
         }
 
+        @Override
+        public RectF getDirtyBounds() {
+            if (dirtyBounds == null) {
+                float size = paint.getTextSize();
+                dirtyBounds = new RectF(x - 1, y - size - 1, x + paint.measureText(emoji) + 1, y + size / 2 + 1);
+            }
+            return dirtyBounds;
+        }
+
         @Override
         public void draw(Canvas canvas) {
             canvas.drawText(emoji, x, y, paint);
@@ -168,6 +265,11 @@ class SketchCanvasHistory {
             canvas.drawBitmap(bitmap, x, y, paint);
         }
 
+        @Override
+        public RectF getDirtyBounds() {
+            return null;
+        }
+
         public void recycle() {
             bitmap.recycle();
         }
@@ -206,5 +308,10 @@ class SketchCanvasHistory {
         public void draw(Canvas canvas) {
             canvas.drawRect(0, 0, width, height, paint);
         }
+
+        @Override
+        public RectF getDirtyBounds() {
+            return null;
+        }
     }
 }
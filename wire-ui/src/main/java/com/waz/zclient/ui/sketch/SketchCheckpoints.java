@@ -0,0 +1,168 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.ui.sketch;
+
+import java.util.ArrayList;
+
+/**
+ * Raster snapshots of the sketch history, each one holding the canvas as it looked after the first
+ * {@link Checkpoint#getIndex()} history items. Redrawing starts from the closest usable checkpoint, so
+ * undo only replays the items drawn after it instead of the whole history.
+ *
+ * Checkpoints are taken at every {@code interval}th item. Their number is capped by the memory budget the
+ * canvas allows for them; when the cap is reached the oldest checkpoint is evicted, as undo works backwards
+ * from the end of the history. Once undo went past all of them, the ones right below the new end of the
+ * history are rendered again in one go, so the following undos are cheap again.
+ */
+class SketchCheckpoints<T> {
+
+    interface Recycler<T> {
+        void recycle(T data);
+    }
+
+    interface Renderer<T> {
+        /**
+         * @return a snapshot of the first {@code index} history items drawn on top of {@code from}, or on top
+         * of the blank canvas if {@code from} is null; null if it could not be created
+         */
+        T render(Checkpoint<T> from, int index);
+    }
+
+    private final ArrayList<Checkpoint<T>> checkpoints = new ArrayList<>();
+    private final Recycler<T> recycler;
+    private final int interval;
+    private int maxCount;
+
+    SketchCheckpoints(int interval, Recycler<T> recycler) {
+        this.interval = interval;
+        this.recycler = recycler;
+    }
+
+    int size() {
+        return checkpoints.size();
+    }
+
+    int getMaxCount() {
+        return maxCount;
+    }
+
+    void setMaxCount(int maxCount) {
+        this.maxCount = Math.max(0, maxCount);
+        while (checkpoints.size() > this.maxCount) {
+            recycle(checkpoints.remove(0));
+        }
+    }
+
+    /**
+     * Takes the checkpoints missing for a history of the given size, called after items were added or undone.
+     */
+    void update(int historySize, Renderer<T> renderer) {
+        if (maxCount == 0) {
+            return;
+        }
+        Checkpoint<T> last = last();
+        int lastIndex = last == null ? 0 : last.index;
+        int target = historySize / interval * interval;
+        int index = Math.max((lastIndex / interval + 1) * interval, target - (maxCount - 1) * interval);
+        for (; index <= target; index += interval) {
+            T data = renderer.render(last(), index);
+            if (data == null) {
+                return;
+            }
+            add(index, data);
+        }
+    }
+
+    void add(int index, T data) {
+        if (maxCount == 0) {
+            recycler.recycle(data);
+            return;
+        }
+        dropAfter(index - 1);
+        if (checkpoints.size() == maxCount) {
+            recycle(checkpoints.remove(0));
+        }
+        checkpoints.add(new Checkpoint<>(index, data));
+    }
+
+    Checkpoint<T> last() {
+        return checkpoints.isEmpty() ? null : checkpoints.get(checkpoints.size() - 1);
+    }
+
+    /**
+     * @return the latest checkpoint covering at most the first {@code index} history items, or null if
+     * drawing has to start from the blank canvas
+     */
+    Checkpoint<T> findAtOrBefore(int index) {
+        for (int i = checkpoints.size() - 1; i >= 0; i--) {
+            Checkpoint<T> checkpoint = checkpoints.get(i);
+            if (checkpoint.index <= index) {
+                return checkpoint;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drops the checkpoints which include items beyond the first {@code index} ones, called after undo.
+     */
+    void dropAfter(int index) {
+        for (int i = checkpoints.size() - 1; i >= 0 && checkpoints.get(i).index > index; i--) {
+            recycle(checkpoints.remove(i));
+        }
+    }
+
+    /**
+     * Keeps the checkpoints in line with the history after an item which does not draw anything has been
+     * removed from its middle.
+     */
+    void onItemRemoved(int position) {
+        for (int i = checkpoints.size() - 1; i >= 0 && checkpoints.get(i).index > position; i--) {
+            checkpoints.get(i).index--;
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < checkpoints.size(); i++) {
+            recycle(checkpoints.get(i));
+        }
+        checkpoints.clear();
+    }
+
+    private void recycle(Checkpoint<T> checkpoint) {
+        recycler.recycle(checkpoint.data);
+    }
+
+    static final class Checkpoint<T> {
+        private int index;
+        private final T data;
+
+        private Checkpoint(int index, T data) {
+            this.index = index;
+            this.data = data;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        T getData() {
+            return data;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.ui.text;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.annotation.Nullable;
+import android.text.Spannable;
+import android.text.SpannableString;
+import android.text.TextPaint;
+import android.text.style.URLSpan;
+import android.text.util.Linkify;
+import com.waz.threading.Threading;
+import net.hockeyapp.android.CrashManagerListener;
+import net.hockeyapp.android.ExceptionHandler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Linkifies text in the background and keeps the result per message and content, so that binding a text message
+ * which was shown before only sets the prebuilt spans. A text that is already being parsed isn't queued again, its
+ * callbacks are all delivered once the one pass finishes.
+ *
+ * The spans don't depend on the accent color: {@link URLSpan} takes its color from the link text color of the
+ * view it is drawn in, so one entry serves every accent color.
+ */
+public final class LinkSpanCache {
+
+    static final int MAX_ENTRIES = 200;
+
+    public interface Callback {
+        void onLinksParsed(String key, Spannable text);
+    }
+
+    interface Linkifier {
+        Spannable linkify(CharSequence text);
+    }
+
+    private static final Linkifier DEFAULT_LINKIFIER = new Linkifier() {
+        @Override
+        public Spannable linkify(CharSequence text) {
+            return LinkSpanCache.linkify(text);
+        }
+    };
+
+    private static LinkSpanCache instance;
+
+    private final Map<String, Spannable> cache = new LinkedHashMap<String, Spannable>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Spannable> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final Map<String, List<Callback>> inFlight = new HashMap<>();
+    private final Executor executor;
+    private final Executor mainExecutor;
+    private final Linkifier linkifier;
+
+    public static LinkSpanCache getInstance() {
+        if (instance == null) {
+            final Handler mainHandler = new Handler(Looper.getMainLooper());
+            instance = new LinkSpanCache(Threading.Background(), new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    mainHandler.post(command);
+                }
+            }, DEFAULT_LINKIFIER);
+        }
+        return instance;
+    }
+
+    LinkSpanCache(Executor executor, Executor mainExecutor, Linkifier linkifier) {
+        this.executor = executor;
+        this.mainExecutor = mainExecutor;
+        this.linkifier = linkifier;
+    }
+
+    public static String getKey(String id, CharSequence text) {
+        return id + '#' + text.length() + '#' + text.hashCode();
+    }
+
+    /**
+     * Must be called on the main thread. Text without any links is cached as well, with an empty span set, so it
+     * isn't parsed again.
+     *
+     * @return the linkified text if it was cached, otherwise null, and the callback gets the text on the main thread
+     * once the links are parsed in the background
+     */
+    @Nullable
+    public Spannable getOrParse(final String key, final CharSequence text, Callback callback) {
+        Spannable spannable = get(key);
+        if (spannable != null) {
+            return spannable;
+        }
+        List<Callback> callbacks = inFlight.get(key);
+        if (callbacks != null) {
+            callbacks.add(callback);
+            return null;
+        }
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        inFlight.put(key, callbacks);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Spannable spannable = linkifier.linkify(text);
+                put(key, spannable);
+                mainExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (Callback callback : inFlight.remove(key)) {
+                            callback.onLinksParsed(key, spannable);
+                        }
+                    }
+                });
+            }
+        });
+        return null;
+    }
+
+    private synchronized Spannable get(String key) {
+        return cache.get(key);
+    }
+
+    private synchronized void put(String key, Spannable spannable) {
+        cache.put(key, spannable);
+    }
+
+    /**
+     * Adds links to the text like {@link Linkify#addLinks(Spannable, int)} does, without underlining them
+     */
+    static Spannable linkify(CharSequence text) {
+        final Spannable spannable = new SpannableString(text);
+        try {
+            if (Linkify.addLinks(spannable, Linkify.ALL)) {
+                stripUnderlines(spannable);
+            }
+        } catch (Throwable t) {
+            ExceptionHandler.saveException(t, new CrashManagerListener() {
+                @Override
+                public String getDescription() {
+                    return "Error linkifying text - handled exception";
+                }
+            });
+        }
+        return spannable;
+    }
+
+    static boolean hasLinks(Spannable spannable) {
+        return spannable.getSpans(0, spannable.length(), URLSpan.class).length > 0;
+    }
+
+    /*
+     * This part (the method stripUnderlines) of the Wire software uses source coded posted on the StackOverflow site.
+     * (http://stackoverflow.com/a/9852280/1751834)
+     *
+     * That work is licensed under a Creative Commons Attribution-ShareAlike 2.5 Generic License.
+     * (http://creativecommons.org/licenses/by-sa/2.5)
+     *
+     * Contributors on StackOverflow:
+     *  - Andrei (http://stackoverflow.com/users/570217)
+     */
+    static void stripUnderlines(Spannable s) {
+        URLSpan[] spans = s.getSpans(0, s.length(), URLSpan.class);
+        for (URLSpan span: spans) {
+            int start = s.getSpanStart(span);
+            int end = s.getSpanEnd(span);
+            s.removeSpan(span);
+            URLSpan spanNew = new URLSpanNoUnderline(span.getURL());
+            s.setSpan(spanNew, start, end, 0);
+        }
+    }
+
+    private static class URLSpanNoUnderline extends URLSpan {
+
+        public static final Parcelable.Creator<URLSpanNoUnderline> CREATOR
+            = new Parcelable.Creator<URLSpanNoUnderline>() {
+            public URLSpanNoUnderline createFromParcel(Parcel in) {
+                return new URLSpanNoUnderline(in);
+            }
+
+            public URLSpanNoUnderline[] newArray(int size) {
+                return new URLSpanNoUnderline[size];
+            }
+        };
+
+        URLSpanNoUnderline(String url) {
+            super(url);
+        }
+
+        URLSpanNoUnderline(Parcel in) {
+            super(in);
+        }
+
+        @Override
+        public void updateDrawState(TextPaint ds) {
+            super.updateDrawState(ds);
+            ds.setUnderlineText(false);
+        }
+    }
+}
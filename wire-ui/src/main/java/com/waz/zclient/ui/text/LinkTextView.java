@@ -19,12 +19,9 @@ package com.waz.zclient.ui.text;
 
 import android.content.Context;
 import android.content.res.TypedArray;
-import android.os.Parcel;
-import android.os.Parcelable;
 import android.text.Spannable;
-import android.text.TextPaint;
 import android.text.TextUtils;
-import android.text.style.URLSpan;
+import android.text.method.LinkMovementMethod;
 import android.text.util.Linkify;
 import android.util.AttributeSet;
 import com.waz.zclient.ui.R;
@@ -69,7 +66,20 @@ public class LinkTextView extends TypefaceTextView {
 
     }
 
+    private String pendingLinkKey;
+
+    private final LinkSpanCache.Callback linkSpanCallback = new LinkSpanCache.Callback() {
+        @Override
+        public void onLinksParsed(String key, Spannable text) {
+            if (key.equals(pendingLinkKey)) {
+                pendingLinkKey = null;
+                setLinkifiedText(text);
+            }
+        }
+    };
+
     public void setTextLink(String text) {
+        pendingLinkKey = null;
         setTransformedText(text);
         try {
             if (Linkify.addLinks(this, Linkify.ALL)) {
@@ -85,16 +95,32 @@ public class LinkTextView extends TypefaceTextView {
         }
     }
 
-    /*
-     * This part (the method stripUnderlines) of the Wire software uses source coded posted on the StackOverflow site.
-     * (http://stackoverflow.com/a/9852280/1751834)
-     *
-     * That work is licensed under a Creative Commons Attribution-ShareAlike 2.5 Generic License.
-     * (http://creativecommons.org/licenses/by-sa/2.5)
-     *
-     * Contributors on StackOverflow:
-     *  - Andrei (http://stackoverflow.com/users/570217)
+    /**
+     * Like {@link #setTextLink(String)}, but caches the links under the id and the content of the text. Texts that
+     * aren't cached yet are linkified on a background thread, until then the plain text is shown.
      */
+    public void setTextLink(String id, String text) {
+        final CharSequence transformedText = transformText(text);
+        final String key = LinkSpanCache.getKey(id, transformedText);
+        final Spannable linkified = LinkSpanCache.getInstance().getOrParse(key, transformedText, linkSpanCallback);
+        if (linkified != null) {
+            pendingLinkKey = null;
+            setLinkifiedText(linkified);
+            return;
+        }
+        pendingLinkKey = key;
+        setText(transformedText);
+    }
+
+    private void setLinkifiedText(Spannable text) {
+        if (LinkSpanCache.hasLinks(text) &&
+            !(getMovementMethod() instanceof LinkMovementMethod) &&
+            getLinksClickable()) {
+            setMovementMethod(LinkMovementMethod.getInstance());
+        }
+        setText(text);
+    }
+
     private void stripUnderlines() {
         if (getText() == null) {
             return;
@@ -103,43 +129,8 @@ public class LinkTextView extends TypefaceTextView {
             return;
         }
         Spannable s = (Spannable) getText();
-        URLSpan[] spans = s.getSpans(0, s.length(), URLSpan.class);
-        for (URLSpan span: spans) {
-            int start = s.getSpanStart(span);
-            int end = s.getSpanEnd(span);
-            s.removeSpan(span);
-            URLSpan spanNew = new URLSpanNoUnderline(span.getURL());
-            s.setSpan(spanNew, start, end, 0);
-        }
+        LinkSpanCache.stripUnderlines(s);
         setText(s);
     }
 
-    private static class URLSpanNoUnderline extends URLSpan {
-
-        public static final Parcelable.Creator<URLSpanNoUnderline> CREATOR
-            = new Parcelable.Creator<URLSpanNoUnderline>() {
-            public URLSpanNoUnderline createFromParcel(Parcel in) {
-                return new URLSpanNoUnderline(in);
-            }
-
-            public URLSpanNoUnderline[] newArray(int size) {
-                return new URLSpanNoUnderline[size];
-            }
-        };
-
-        URLSpanNoUnderline(String url) {
-            super(url);
-        }
-
-        URLSpanNoUnderline(Parcel in) {
-            super(in);
-        }
-
-        @Override
-        public void updateDrawState(TextPaint ds) {
-            super.updateDrawState(ds);
-            ds.setUnderlineText(false);
-        }
-    }
-
 }
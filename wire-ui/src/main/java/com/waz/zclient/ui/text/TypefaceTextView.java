@@ -81,8 +81,11 @@ public class TypefaceTextView extends TextView {
     }
 
     public void setTransformedText(String text) {
-        TextTransform transformer = TextTransform.get(this.transform);
-        this.setText(transformer.transform(text));
+        this.setText(transformText(text));
+    }
+
+    protected CharSequence transformText(String text) {
+        return TextTransform.get(this.transform).transform(text);
     }
 
 }
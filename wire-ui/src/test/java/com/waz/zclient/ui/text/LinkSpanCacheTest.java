@@ -0,0 +1,152 @@
+/**
+ * Wire
+ * Copyright (C) 2016 Wire Swiss GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.waz.zclient.ui.text;
+
+import android.text.Spannable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class LinkSpanCacheTest {
+
+    private static final String SHORT_TEXT = "see wire.com";
+
+    private final QueuedExecutor background = new QueuedExecutor();
+    private final QueuedExecutor main = new QueuedExecutor();
+    private final CountingLinkifier linkifier = new CountingLinkifier();
+    private final LinkSpanCache cache = new LinkSpanCache(background, main, linkifier);
+
+    @Test
+    public void missIsLinkifiedInBackgroundAndDeliveredOnMainThread() {
+        RecordingCallback callback = new RecordingCallback();
+
+        assertNull(cache.getOrParse("1", SHORT_TEXT, callback));
+        assertEquals(0, linkifier.calls);
+        background.runAll();
+        assertEquals(0, callback.delivered.size());
+        main.runAll();
+
+        assertEquals(1, callback.delivered.size());
+        assertSame(linkifier.last, callback.delivered.get(0));
+    }
+
+    @Test
+    public void cachedSpansAreReused() {
+        RecordingCallback callback = new RecordingCallback();
+        cache.getOrParse("1", SHORT_TEXT, callback);
+        runAll();
+
+        Spannable cached = cache.getOrParse("1", SHORT_TEXT, failingCallback());
+
+        assertSame(callback.delivered.get(0), cached);
+        assertEquals(1, linkifier.calls);
+        assertEquals(0, background.size());
+    }
+
+    @Test
+    public void textInFlightIsNotParsedAgain() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+
+        assertNull(cache.getOrParse("1", SHORT_TEXT, first));
+        assertNull(cache.getOrParse("1", SHORT_TEXT, second));
+        assertEquals(1, background.size());
+        runAll();
+
+        assertEquals(1, linkifier.calls);
+        assertEquals(1, first.delivered.size());
+        assertSame(first.delivered.get(0), second.delivered.get(0));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() {
+        RecordingCallback callback = new RecordingCallback();
+        for (int i = 0; i <= LinkSpanCache.MAX_ENTRIES; i++) {
+            cache.getOrParse(Integer.toString(i), SHORT_TEXT, callback);
+        }
+        runAll();
+
+        assertNull(cache.getOrParse("0", SHORT_TEXT, callback));
+        runAll();
+
+        assertEquals(LinkSpanCache.MAX_ENTRIES + 2, linkifier.calls);
+        assertNotSame(callback.delivered.get(0), callback.delivered.get(LinkSpanCache.MAX_ENTRIES + 1));
+    }
+
+    private void runAll() {
+        background.runAll();
+        main.runAll();
+    }
+
+    private static LinkSpanCache.Callback failingCallback() {
+        return new LinkSpanCache.Callback() {
+            @Override
+            public void onLinksParsed(String key, Spannable text) {
+                throw new AssertionError("Links of " + key + " should have been cached");
+            }
+        };
+    }
+
+    private static class RecordingCallback implements LinkSpanCache.Callback {
+        private final List<Spannable> delivered = new ArrayList<>();
+
+        @Override
+        public void onLinksParsed(String key, Spannable text) {
+            delivered.add(text);
+        }
+    }
+
+    private static class CountingLinkifier implements LinkSpanCache.Linkifier {
+        private int calls;
+        private Spannable last;
+
+        @Override
+        public Spannable linkify(CharSequence text) {
+            calls++;
+            last = mock(Spannable.class);
+            return last;
+        }
+    }
+
+    private static class QueuedExecutor implements Executor {
+        private final List<Runnable> queue = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            queue.add(command);
+        }
+
+        int size() {
+            return queue.size();
+        }
+
+        void runAll() {
+            while (!queue.isEmpty()) {
+                queue.remove(0).run();
+            }
+        }
+    }
+}